@@ -19,15 +19,24 @@ package io.github.sheepdestroyer.materialisheep;
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.net.Uri;
 import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import android.text.TextUtils;
+import android.util.LruCache;
 import android.webkit.WebResourceResponse;
 
 import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import okhttp3.HttpUrl;
 import okio.BufferedSource;
@@ -37,15 +46,19 @@ import io.reactivex.rxjava3.core.Scheduler;
 
 /**
  * A simple ad blocker that blocks network requests to hosts listed in the ad
- * hosts file.
+ * hosts file, which is compiled at build time into a {@link HostTrie} and memory mapped.
  */
 public class AdBlocker {
-    private static final String AD_HOSTS_FILE = "pgl.yoyo.org.txt";
+    // compiled from src/main/hosts/pgl.yoyo.org.txt by the compileAdHosts Gradle task
+    private static final String AD_HOSTS_FILE = "pgl.yoyo.org.bin";
+    private static final String AD_PATH_RULES_FILE = "ad_path_rules.txt";
+    private static final int MAX_CACHED_HOSTS = 256;
     private static final byte[] EMPTY_BYTES = new byte[0];
-    private static volatile TrieNode AD_HOSTS = new TrieNode();
+    private static volatile CachedHosts AD_HOSTS = new CachedHosts(HostTrie.EMPTY);
+    private static volatile PathRules AD_PATH_RULES = PathRules.EMPTY;
 
     /**
-     * Initializes the ad blocker by loading the ad hosts from the assets file.
+     * Initializes the ad blocker by loading the ad hosts and path rules from the assets files.
      *
      * @param context   The application context.
      * @param scheduler The RxJava scheduler to perform the operation on.
@@ -54,8 +67,12 @@ public class AdBlocker {
     public static void init(Context context, Scheduler scheduler) {
         Observable.fromCallable(() -> loadFromAssets(context))
                 .subscribeOn(scheduler)
-                .subscribe(result -> AD_HOSTS = result,
+                .subscribe(AdBlocker::setHosts,
                         t -> android.util.Log.e(AdBlocker.class.getSimpleName(), "Error loading ad hosts", t));
+        Observable.fromCallable(() -> loadPathRules(context))
+                .subscribeOn(scheduler)
+                .subscribe(AdBlocker::setPathRules,
+                        t -> android.util.Log.e(AdBlocker.class.getSimpleName(), "Error loading ad path rules", t));
     }
 
     /**
@@ -79,6 +96,21 @@ public class AdBlocker {
         return isAdHost(uri != null ? uri.getHost() : "");
     }
 
+    /**
+     * Checks if the path and query of a given URI match any ad path rule.
+     *
+     * @param uri The URI to check.
+     * @return True if the URI path is an ad, false otherwise.
+     */
+    public static boolean isAdPath(Uri uri) {
+        if (uri == null) {
+            return false;
+        }
+        String path = uri.getEncodedPath();
+        String query = uri.getEncodedQuery();
+        return AD_PATH_RULES.matches(query == null ? path : path + "?" + query);
+    }
+
     /**
      * Creates an empty WebResourceResponse to block a network request.
      *
@@ -88,164 +120,72 @@ public class AdBlocker {
         return new WebResourceResponse("text/plain", "utf-8", new ByteArrayInputStream(EMPTY_BYTES));
     }
 
+    @VisibleForTesting
     @WorkerThread
-    private static TrieNode loadFromAssets(Context context) throws IOException {
-        TrieBuilder root = new TrieBuilder();
-        try (InputStream stream = context.getAssets().open(AD_HOSTS_FILE);
-                BufferedSource buffer = Okio.buffer(Okio.source(stream))) {
-            String line;
-            while ((line = buffer.readUtf8Line()) != null) {
-                root.add(line);
+    static HostTrie loadFromAssets(Context context) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(AD_HOSTS_FILE);
+                FileInputStream stream = descriptor.createInputStream()) {
+            // mapping stays valid after the channel is closed
+            return HostTrie.wrap(stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength()));
+        } catch (IOException e) {
+            // asset has been compressed, read it whole instead
+            try (InputStream stream = context.getAssets().open(AD_HOSTS_FILE);
+                    BufferedSource buffer = Okio.buffer(Okio.source(stream))) {
+                return HostTrie.wrap(ByteBuffer.wrap(buffer.readByteArray()));
             }
         }
-        return root.toTrieNode();
     }
 
-    /**
-     * Iteratively walking up sub domain chain until we exhaust or find a match,
-     * effectively doing a longest substring matching here
-     */
-    private static boolean isAdHost(String host) {
-        if (host == null || host.isEmpty()) {
-            return false;
-        }
-        TrieNode node = AD_HOSTS;
-        for (int i = host.length() - 1; i >= 0; i--) {
-            node = node.getChild(host.charAt(i));
-            if (node == null) {
-                return false;
-            }
-            if (node.isEnd) {
-                // Check if we are at a dot or start of string
-                if (i == 0 || host.charAt(i - 1) == '.') {
-                    return true;
-                }
+    @WorkerThread
+    private static PathRules loadPathRules(Context context) throws IOException {
+        List<String> rules = new ArrayList<>();
+        try (InputStream stream = context.getAssets().open(AD_PATH_RULES_FILE);
+                BufferedSource buffer = Okio.buffer(Okio.source(stream))) {
+            String line;
+            while ((line = buffer.readUtf8Line()) != null) {
+                rules.add(line);
             }
         }
-        return false;
+        return PathRules.compile(rules);
     }
 
-    static class TrieBuilder {
-        private char[] keys;
-        private TrieBuilder[] children;
-        private int size;
-        private boolean isEnd;
-
-        TrieBuilder() {
-            keys = new char[4];
-            children = new TrieBuilder[4];
-            size = 0;
-        }
-
-        void add(String host) {
-            TrieBuilder node = this;
-            for (int i = host.length() - 1; i >= 0; i--) {
-                char c = host.charAt(i);
-                node = node.getOrCreateChild(c);
-            }
-            node.isEnd = true;
-        }
-
-        private TrieBuilder getOrCreateChild(char c) {
-            int idx = java.util.Arrays.binarySearch(keys, 0, size, c);
-            if (idx >= 0) {
-                return children[idx];
-            }
-            int insertPos = -(idx + 1);
-
-            if (size == keys.length) {
-                int newLen = size * 2;
-                char[] newKeys = new char[newLen];
-                TrieBuilder[] newChildren = new TrieBuilder[newLen];
-                System.arraycopy(keys, 0, newKeys, 0, size);
-                System.arraycopy(children, 0, newChildren, 0, size);
-                keys = newKeys;
-                children = newChildren;
-            }
-
-            if (insertPos < size) {
-                System.arraycopy(keys, insertPos, keys, insertPos + 1, size - insertPos);
-                System.arraycopy(children, insertPos, children, insertPos + 1, size - insertPos);
-            }
+    @VisibleForTesting
+    static void setHosts(HostTrie hosts) {
+        AD_HOSTS = new CachedHosts(hosts);
+    }
 
-            keys[insertPos] = c;
-            TrieBuilder newNode = new TrieBuilder();
-            children[insertPos] = newNode;
-            size++;
-            return newNode;
-        }
+    @VisibleForTesting
+    static void setPathRules(PathRules rules) {
+        AD_PATH_RULES = rules;
+    }
 
-        TrieNode toTrieNode() {
-            TrieNode node = new TrieNode();
-            node.isEnd = isEnd;
-            if (size > 0) {
-                if (keys.length == size) {
-                    node.keys = keys;
-                } else {
-                    node.keys = new char[size];
-                    System.arraycopy(keys, 0, node.keys, 0, size);
-                }
-
-                node.children = new TrieNode[size];
-                for (int i = 0; i < size; i++) {
-                    node.children[i] = children[i].toTrieNode();
-                }
-            }
-            return node;
+    private static boolean isAdHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return false;
         }
+        return AD_HOSTS.contains(host);
     }
 
-    static class TrieNode {
-        char[] keys = new char[0];
-        TrieNode[] children = new TrieNode[0];
-        boolean isEnd;
-
-        void add(String host) {
-            TrieNode node = this;
-            for (int i = host.length() - 1; i >= 0; i--) {
-                char c = host.charAt(i);
-                node = node.getOrCreateChild(c);
-            }
-            node.isEnd = true;
-        }
+    /**
+     * Host trie with a bounded cache of recent decisions, as pages tend to request many
+     * resources from the same few hosts. Safe to use from WebView's IO threads.
+     */
+    private static class CachedHosts {
+        private final HostTrie mHosts;
+        private final LruCache<String, Boolean> mDecisions = new LruCache<>(MAX_CACHED_HOSTS);
 
-        TrieNode getChild(char c) {
-            int idx = java.util.Arrays.binarySearch(keys, c);
-            if (idx >= 0) {
-                return children[idx];
-            }
-            return null;
+        CachedHosts(HostTrie hosts) {
+            mHosts = hosts;
         }
 
-        private TrieNode getOrCreateChild(char c) {
-            int idx = java.util.Arrays.binarySearch(keys, c);
-            if (idx >= 0) {
-                return children[idx];
+        boolean contains(@NonNull String host) {
+            Boolean decision = mDecisions.get(host);
+            if (decision == null) {
+                decision = mHosts.contains(host);
+                mDecisions.put(host, decision);
             }
-            // Insert
-            int insertPos = -(idx + 1);
-            int len = keys.length;
-            char[] newKeys = new char[len + 1];
-            TrieNode[] newChildren = new TrieNode[len + 1];
-
-            if (insertPos > 0) {
-                System.arraycopy(keys, 0, newKeys, 0, insertPos);
-                System.arraycopy(children, 0, newChildren, 0, insertPos);
-            }
-
-            newKeys[insertPos] = c;
-            TrieNode newNode = new TrieNode();
-            newChildren[insertPos] = newNode;
-
-            if (insertPos < len) {
-                System.arraycopy(keys, insertPos, newKeys, insertPos + 1, len - insertPos);
-                System.arraycopy(children, insertPos, newChildren, insertPos + 1, len - insertPos);
-            }
-
-            keys = newKeys;
-            children = newChildren;
-
-            return newNode;
+            return decision;
         }
     }
 }
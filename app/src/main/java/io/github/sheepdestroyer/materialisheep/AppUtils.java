@@ -69,8 +69,11 @@ import androidx.annotation.StyleRes;
 import androidx.browser.customtabs.CustomTabsIntent;
 import androidx.browser.customtabs.CustomTabsSession;
 import androidx.core.content.ContextCompat;
+import androidx.core.text.PrecomputedTextCompat;
 import androidx.core.util.Pair;
 import androidx.core.view.GravityCompat;
+import androidx.core.widget.TextViewCompat;
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
 import io.github.sheepdestroyer.materialisheep.annotation.PublicApi;
 import io.github.sheepdestroyer.materialisheep.data.HackerNewsClient;
 import io.github.sheepdestroyer.materialisheep.data.Item;
@@ -152,9 +155,26 @@ public class AppUtils {
      * @param textView The TextView to set the text on.
      * @param html     The HTML content to set.
      */
-    @SuppressLint("ClickableViewAccessibility")
     public static void setTextWithLinks(TextView textView, CharSequence html) {
         textView.setText(html, TextView.BufferType.SPANNABLE);
+        setLinkTouchListener(textView);
+    }
+
+    /**
+     * Sets the text of a TextView with clickable links from text that has been
+     * measured ahead of time, skipping text measurement on the UI thread.
+     *
+     * @param textView The TextView to set the text on, whose text metrics must
+     *                 match those the text was measured with.
+     * @param text     The precomputed text to set.
+     */
+    public static void setTextWithLinks(TextView textView, PrecomputedTextCompat text) {
+        TextViewCompat.setPrecomputedText(textView, text);
+        setLinkTouchListener(textView);
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    private static void setLinkTouchListener(TextView textView) {
         // Workaround for https://code.google.com/p/android/issues/detail?id=191430
         // Use custom touch listener to fix LinkMovementMethod consuming all touch events
         // noinspection Convert2Lambda
@@ -557,6 +577,11 @@ public class AppUtils {
                             break;
                         }
                         AccountManager.get(context).removeAccount(accounts[selection], null, null, null);
+                        SessionCookieJar cookieJar = ((MaterialisticApplication) context
+                                .getApplicationContext()).applicationComponent.sessionCookieJar();
+                        if (cookieJar.hasSession(items[selection])) {
+                            cookieJar.clear();
+                        }
                         dialog.dismiss();
                         break;
                     default:
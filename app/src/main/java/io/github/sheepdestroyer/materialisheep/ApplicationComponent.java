@@ -24,9 +24,13 @@ import io.github.sheepdestroyer.materialisheep.appwidget.WidgetRefreshJobService
 import io.github.sheepdestroyer.materialisheep.appwidget.WidgetService;
 import io.github.sheepdestroyer.materialisheep.appwidget.WidgetConfigActivity;
 import io.github.sheepdestroyer.materialisheep.data.ItemSyncAdapter;
+import io.github.sheepdestroyer.materialisheep.accounts.OutboxJobService;
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
 import io.github.sheepdestroyer.materialisheep.data.ItemSyncJobService;
 import io.github.sheepdestroyer.materialisheep.data.AlgoliaClient;
 import io.github.sheepdestroyer.materialisheep.data.ItemSyncService;
+import io.github.sheepdestroyer.materialisheep.widget.FavoriteRecyclerViewAdapter;
+import io.github.sheepdestroyer.materialisheep.widget.NavFloatingActionButton;
 import io.github.sheepdestroyer.materialisheep.widget.StoryRecyclerViewAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.MultiPageItemRecyclerViewAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.SinglePageItemRecyclerViewAdapter;
@@ -35,6 +39,9 @@ import io.github.sheepdestroyer.materialisheep.widget.SubmissionRecyclerViewAdap
 @Singleton
 @Component(modules = { ApplicationModule.class, ActivityModule.class, UiModule.class })
 public interface ApplicationComponent {
+    // Provisions
+    SessionCookieJar sessionCookieJar();
+
     // Application
     void inject(MaterialisticApplication application);
 
@@ -49,6 +56,8 @@ public interface ApplicationComponent {
 
     void inject(ItemSyncJobService itemSyncJobService);
 
+    void inject(OutboxJobService outboxJobService);
+
     // Activities
     void inject(ItemActivity itemActivity);
 
@@ -58,6 +67,8 @@ public interface ApplicationComponent {
 
     void inject(SettingsActivity settingsActivity);
 
+    void inject(PreferencesActivity preferencesActivity);
+
     void inject(FavoriteActivity favoriteActivity);
 
     void inject(PopularActivity popularActivity);
@@ -101,6 +112,8 @@ public interface ApplicationComponent {
 
     void inject(ItemFragment itemFragment);
 
+    void inject(FavoriteFragment favoriteFragment);
+
     // Adapters
     void inject(StoryRecyclerViewAdapter storyRecyclerViewAdapter);
 
@@ -110,5 +123,10 @@ public interface ApplicationComponent {
 
     void inject(SubmissionRecyclerViewAdapter submissionRecyclerViewAdapter);
 
+    void inject(FavoriteRecyclerViewAdapter favoriteRecyclerViewAdapter);
+
+    // Views
+    void inject(NavFloatingActionButton navFloatingActionButton);
+
     // Clients
 }
@@ -54,6 +54,7 @@ import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import io.github.sheepdestroyer.materialisheep.widget.ItemPagerAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.NavFloatingActionButton;
 import io.github.sheepdestroyer.materialisheep.widget.PopupMenu;
+import io.reactivex.rxjava3.disposables.Disposable;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager2.adapter.FragmentStateAdapter;
 import androidx.fragment.app.FragmentManager;
@@ -95,7 +96,7 @@ public abstract class BaseListActivity extends DrawerActivity implements MultiPa
     boolean mFullscreen;
     private FullscreenViewModel mFullscreenViewModel;
     private boolean mMultiWindowEnabled;
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    private Disposable mPreferenceSubscription;
     private final OnBackPressedCallback mBackPressedCallback = new OnBackPressedCallback(false) {
         @Override
         public void handleOnBackPressed() {
@@ -177,11 +178,6 @@ public abstract class BaseListActivity extends DrawerActivity implements MultiPa
                 unbindViewPager();
             }
         }
-        mPreferenceObservable.subscribe(this, this::onPreferenceChanged,
-                R.string.pref_navigation,
-                R.string.pref_external,
-                R.string.pref_story_display,
-                R.string.pref_multi_window);
         getOnBackPressedDispatcher().addCallback(this, mBackPressedCallback);
     }
 
@@ -198,6 +194,13 @@ public abstract class BaseListActivity extends DrawerActivity implements MultiPa
     @Override
     protected void onPostCreate(Bundle savedInstanceState) {
         super.onPostCreate(savedInstanceState);
+        // subscribed once subclasses have been injected
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_navigation,
+                        R.string.pref_external,
+                        R.string.pref_story_display,
+                        R.string.pref_multi_window)
+                .subscribe(change -> onPreferenceChanged(change.getKey(), change.isContextChanged()));
         if (!Preferences.isReleaseNotesSeen(this)) {
             Snackbar snackbar = Snackbar.make(findViewById(R.id.content_frame),
                     R.string.hint_update, Snackbar.LENGTH_INDEFINITE);
@@ -322,7 +325,9 @@ public abstract class BaseListActivity extends DrawerActivity implements MultiPa
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        mPreferenceObservable.unsubscribe(this);
+        if (mPreferenceSubscription != null) {
+            mPreferenceSubscription.dispose();
+        }
     }
 
     /**
@@ -612,7 +617,8 @@ public abstract class BaseListActivity extends DrawerActivity implements MultiPa
     }
 
     private void updateFabState(int position) {
-        AppUtils.toggleFab(mNavButton, position == 0 && Preferences.navigationEnabled(BaseListActivity.this));
+        AppUtils.toggleFab(mNavButton, position == 0 &&
+                mPreferenceStore.get().navigationEnabled());
         AppUtils.toggleFab(mReplyButton, true);
         AppUtils.toggleFabAction(mReplyButton, mSelectedItem, position == 0,
                 v -> mFullscreenViewModel.setFullscreen(true));
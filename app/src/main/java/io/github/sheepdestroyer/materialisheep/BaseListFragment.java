@@ -16,7 +16,6 @@
 
 package io.github.sheepdestroyer.materialisheep;
 
-import android.content.Context;
 import android.graphics.Rect;
 import android.os.Bundle;
 import androidx.annotation.Nullable;
@@ -32,6 +31,8 @@ import javax.inject.Inject;
 
 import io.github.sheepdestroyer.materialisheep.widget.ListRecyclerViewAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.SnappyLinearLayoutManager;
+import io.github.sheepdestroyer.materialisheep.widget.WebViewPool;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * An abstract base fragment that displays a list of items. This fragment
@@ -44,30 +45,30 @@ abstract class BaseListFragment extends BaseFragment implements Scrollable {
     private static final String STATE_ADAPTER = "state:adapter";
     @Inject
     CustomTabsDelegate mCustomTabsDelegate;
+    @Inject
+    WebViewPool mWebViewPool;
+    @Inject
+    PreferenceStore mPreferenceStore;
     private KeyDelegate.RecyclerViewHelper mScrollableHelper;
     protected RecyclerView mRecyclerView;
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
-
-    /**
-     * Called when a fragment is first attached to its context.
-     *
-     * @param context The context.
-     */
-    @Override
-    public void onAttach(Context context) {
-        super.onAttach(context);
-        mPreferenceObservable.subscribe(context, this::onPreferenceChanged,
-                R.string.pref_font,
-                R.string.pref_text_size,
-                R.string.pref_list_item_view);
-    }
+    private Disposable mPreferenceSubscription;
 
     /**
-     * Called to do initial creation of a fragment.
+     * Called to do initial creation of a fragment, after subclasses have been injected
+     * when attached.
      *
      * @param savedInstanceState If the fragment is being re-created from
      *                           a previous saved state, this is the state.
      */
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_font,
+                        R.string.pref_text_size,
+                        R.string.pref_list_item_view)
+                .subscribe(change -> onPreferenceChanged(change.getKey(), change.isContextChanged()));
+    }
 
     /**
      * Called to have the fragment instantiate its user interface view.
@@ -80,7 +81,9 @@ abstract class BaseListFragment extends BaseFragment implements Scrollable {
     @Override
     public void onViewCreated(View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        mRecyclerView.setLayoutManager(new SnappyLinearLayoutManager(getActivity(), false));
+        SnappyLinearLayoutManager layoutManager = new SnappyLinearLayoutManager(getActivity(), false);
+        layoutManager.setRecycleChildrenOnDetach(true); // hand rows back to pool, if shared
+        mRecyclerView.setLayoutManager(layoutManager);
         final int verticalMargin = getResources()
                 .getDimensionPixelSize(R.dimen.cardview_vertical_margin);
         final int horizontalMargin = getResources()
@@ -100,8 +103,9 @@ abstract class BaseListFragment extends BaseFragment implements Scrollable {
         if (savedInstanceState != null) {
             getAdapter().restoreState(savedInstanceState.getBundle(STATE_ADAPTER));
         }
-        getAdapter().setCardViewEnabled(Preferences.isListItemCardView(getActivity()));
+        getAdapter().setCardViewEnabled(mPreferenceStore.get().isListItemCardView());
         getAdapter().setCustomTabsDelegate(mCustomTabsDelegate);
+        getAdapter().setWebViewPool(mWebViewPool);
         mRecyclerView.setAdapter(getAdapter());
         mScrollableHelper = new KeyDelegate.RecyclerViewHelper(mRecyclerView,
                 KeyDelegate.RecyclerViewHelper.SCROLL_PAGE);
@@ -167,11 +171,20 @@ abstract class BaseListFragment extends BaseFragment implements Scrollable {
      */
     @Override
     public void onDetach() {
-        mPreferenceObservable.unsubscribe(getActivity());
-        mRecyclerView.setAdapter(null); // force adapter detach
+        // force adapter detach, keeping pooled rows as adapter type does not change
+        mRecyclerView.swapAdapter(null, true);
         super.onDetach();
     }
 
+    /**
+     * Called when the fragment is no longer in use.
+     */
+    @Override
+    public void onDestroy() {
+        mPreferenceSubscription.dispose();
+        super.onDestroy();
+    }
+
     /**
      * Scrolls the list to the top.
      */
@@ -204,7 +217,7 @@ abstract class BaseListFragment extends BaseFragment implements Scrollable {
         if (contextChanged) {
             mRecyclerView.setAdapter(getAdapter());
         } else if (key == R.string.pref_list_item_view) {
-            getAdapter().setCardViewEnabled(Preferences.isListItemCardView(getActivity()));
+            getAdapter().setCardViewEnabled(mPreferenceStore.get().isListItemCardView());
         }
     }
 
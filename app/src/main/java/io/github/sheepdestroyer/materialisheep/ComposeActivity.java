@@ -244,6 +244,14 @@ public class ComposeActivity extends ThemedActivity {
         }
     }
 
+    @Synthetic
+    void onQueued() {
+        Toast.makeText(this, R.string.comment_queued, Toast.LENGTH_SHORT).show();
+        if (!isFinishing()) {
+            finish();
+        }
+    }
+
     private String createQuote() {
         if (mQuoteText == null) {
             mQuoteText = String.format(FORMAT_QUOTE, AppUtils.fromHtml(mParentText)
@@ -291,5 +299,14 @@ public class ComposeActivity extends ThemedActivity {
                 activity.onSent(null);
             }
         }
+
+        @Override
+        public void onQueued() {
+            Preferences.deleteDraft(mAppContext, mParentId);
+            ComposeActivity activity = mComposeActivity.get();
+            if (activity != null && !activity.isDestroyed()) {
+                activity.onQueued();
+            }
+        }
     }
 }
@@ -24,6 +24,8 @@ import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox;
 import io.github.sheepdestroyer.materialisheep.accounts.UserServices;
 import io.github.sheepdestroyer.materialisheep.accounts.UserServicesClient;
 import io.github.sheepdestroyer.materialisheep.data.AlgoliaClient;
@@ -32,6 +34,7 @@ import io.github.sheepdestroyer.materialisheep.data.FeedbackClient;
 import io.github.sheepdestroyer.materialisheep.data.HackerNewsClient;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.LocalCache;
+import io.github.sheepdestroyer.materialisheep.data.LocalSearchClient;
 import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase;
 import io.github.sheepdestroyer.materialisheep.data.ReadabilityClient;
 import io.github.sheepdestroyer.materialisheep.data.SyncScheduler;
@@ -40,6 +43,7 @@ import io.github.sheepdestroyer.materialisheep.data.SavedStoriesDao;
 import io.github.sheepdestroyer.materialisheep.data.ReadStoriesDao;
 import io.github.sheepdestroyer.materialisheep.data.ReadableDao;
 import io.github.sheepdestroyer.materialisheep.data.SyncQueueDao;
+import io.github.sheepdestroyer.materialisheep.data.OutboxDao;
 import io.github.sheepdestroyer.materialisheep.data.android.Cache;
 import okhttp3.Call;
 import io.reactivex.rxjava3.core.Scheduler;
@@ -54,6 +58,7 @@ public class DataModule {
     public static final String HN = "hn";
     public static final String ALGOLIA = "algolia";
     public static final String POPULAR = "popular";
+    public static final String LOCAL = "local";
     public static final String MAIN_THREAD = "main";
     public static final String IO_THREAD = "io";
 
@@ -96,6 +101,19 @@ public class DataModule {
         return client;
     }
 
+    /**
+     * Provides a singleton instance of {@link LocalSearchClient}.
+     *
+     * @param client The {@link LocalSearchClient} instance.
+     * @return The singleton instance of {@link LocalSearchClient}.
+     */
+    @Provides
+    @Singleton
+    @Named(LOCAL)
+    public ItemManager provideLocalSearchClient(LocalSearchClient client) {
+        return client;
+    }
+
     /**
      * Provides a singleton instance of {@link UserManager}.
      *
@@ -137,13 +155,16 @@ public class DataModule {
      *
      * @param callFactory The {@link Call.Factory} instance.
      * @param ioScheduler The IO scheduler.
+     * @param cookieJar   The {@link SessionCookieJar} that {@code callFactory} keeps cookies in.
+     * @param outbox      The {@link UserActionOutbox} to queue actions in while offline.
      * @return The singleton instance of {@link UserServices}.
      */
     @Provides
     @Singleton
     public UserServices provideUserServices(Call.Factory callFactory,
-            @Named(IO_THREAD) Scheduler ioScheduler) {
-        return new UserServicesClient(callFactory, ioScheduler);
+            @Named(IO_THREAD) Scheduler ioScheduler, SessionCookieJar cookieJar,
+            UserActionOutbox outbox) {
+        return new UserServicesClient(callFactory, ioScheduler, cookieJar, outbox);
     }
 
     /**
@@ -254,6 +275,17 @@ public class DataModule {
         return database.getSyncQueueDao();
     }
 
+    /**
+     * Provides a singleton instance of {@link OutboxDao}.
+     *
+     * @param database The {@link MaterialisticDatabase} instance.
+     * @return The singleton instance of {@link OutboxDao}.
+     */
+    @Provides
+    public OutboxDao provideOutboxDao(MaterialisticDatabase database) {
+        return database.getOutboxDao();
+    }
+
     /**
      * Provides a singleton instance of {@link SupportSQLiteOpenHelper}.
      *
@@ -39,6 +39,7 @@ import android.widget.TextView;
 
 import javax.inject.Inject;
 
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
 import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
 
 /**
@@ -48,6 +49,8 @@ public abstract class DrawerActivity extends ThemedActivity {
 
     @Inject
     AlertDialogBuilder mAlertDialogBuilder;
+    @Inject
+    SessionCookieJar mSessionCookieJar;
     private ActionBarDrawerToggle mDrawerToggle;
     private DrawerLayout mDrawerLayout;
     @Synthetic
@@ -246,7 +249,10 @@ public abstract class DrawerActivity extends ThemedActivity {
         mAlertDialogBuilder.init(this)
                 .setMessage(R.string.logout_confirm)
                 .setNegativeButton(android.R.string.cancel, null)
-                .setPositiveButton(android.R.string.ok, (dialog, which) -> Preferences.setUsername(this, null))
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    mSessionCookieJar.clear();
+                    Preferences.setUsername(this, null);
+                })
                 .show();
     }
 
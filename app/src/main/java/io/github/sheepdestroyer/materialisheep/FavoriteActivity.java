@@ -65,6 +65,7 @@ public class FavoriteActivity extends BaseListActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        ((MaterialisticApplication) getApplication()).applicationComponent.inject(this);
         if (savedInstanceState != null) {
             mFilter = savedInstanceState.getString(STATE_FILTER);
             getSupportActionBar().setSubtitle(mFilter);
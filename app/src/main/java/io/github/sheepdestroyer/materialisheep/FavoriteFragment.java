@@ -59,6 +59,17 @@ public class FavoriteFragment extends BaseListFragment
     private View mEmptySearchView;
     private View mEmptyView;
 
+    /**
+     * Called when a fragment is first attached to its context.
+     *
+     * @param context The context.
+     */
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        ((MaterialisticApplication) context.getApplicationContext()).applicationComponent.inject(this);
+    }
+
     /**
      * Called to do initial creation of a fragment.
      *
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Read only trie of reversed host names, laid out flat in a single buffer so it can be
+ * memory mapped straight from a compiled asset without parsing or allocating nodes.
+ * <p>
+ * Nodes are numbered in breadth first order, so children of a node are contiguous and sorted
+ * by label. The buffer is big endian and holds, in order:
+ * <ul>
+ * <li>header: magic, version and node count, as ints</li>
+ * <li>first child index of each node, as ints, followed by node count as sentinel</li>
+ * <li>label of the edge leading into each node, as ASCII bytes</li>
+ * <li>one bit per node marking the end of a host, least significant bit first</li>
+ * </ul>
+ * Tries are compiled at build time by {@code HostTrieCompiler} in buildSrc, which the
+ * {@code compileAdHosts} Gradle task and unit tests share.
+ */
+final class HostTrie {
+    static final int MAGIC = 0x48545249; // HTRI
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    static final HostTrie EMPTY = new HostTrie(ByteBuffer.allocate(sizeOf(1))
+            .putInt(MAGIC).putInt(VERSION).putInt(1).putInt(1).putInt(1), 1); // root only
+
+    private final ByteBuffer mBuffer;
+    private final int mNodeCount;
+    private final int mLabelsOffset;
+    private final int mTerminalsOffset;
+
+    /**
+     * Wraps a compiled trie, e.g. a mapped asset. The buffer is read with absolute gets only,
+     * so lookups are safe from any thread.
+     *
+     * @param buffer compiled trie
+     * @return trie backed by given buffer
+     * @throws IOException if buffer does not hold a compiled trie
+     */
+    @NonNull
+    static HostTrie wrap(@NonNull ByteBuffer buffer) throws IOException {
+        buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE ||
+                buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a compiled host trie");
+        }
+        int nodeCount = buffer.getInt(8);
+        if (nodeCount <= 0 || buffer.remaining() != sizeOf(nodeCount)) {
+            throw new IOException("Truncated host trie");
+        }
+        return new HostTrie(buffer, nodeCount);
+    }
+
+    private HostTrie(ByteBuffer buffer, int nodeCount) {
+        mBuffer = buffer;
+        mNodeCount = nodeCount;
+        mLabelsOffset = HEADER_SIZE + (nodeCount + 1) * 4;
+        mTerminalsOffset = mLabelsOffset + nodeCount;
+    }
+
+    /**
+     * Checks if given host or any of its parent domains is in this trie,
+     * walking the host backwards so that the longest listed suffix wins.
+     *
+     * @param host host name
+     * @return true if host is listed, false otherwise
+     */
+    boolean contains(String host) {
+        if (host == null || host.isEmpty()) {
+            return false;
+        }
+        int node = 0;
+        for (int i = host.length() - 1; i >= 0; i--) {
+            char c = host.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            } else if (c > 0x7f) {
+                return false;
+            }
+            node = getChild(node, (byte) c);
+            if (node < 0) {
+                return false;
+            }
+            if (isTerminal(node) && (i == 0 || host.charAt(i - 1) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of nodes, including root
+     */
+    int size() {
+        return mNodeCount;
+    }
+
+    /**
+     * @return size in bytes of the backing buffer
+     */
+    int byteSize() {
+        return sizeOf(mNodeCount);
+    }
+
+    private int getChild(int node, byte label) {
+        int low = getFirstChild(node), high = getFirstChild(node + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            byte midLabel = mBuffer.get(mLabelsOffset + mid);
+            if (midLabel < label) {
+                low = mid + 1;
+            } else if (midLabel > label) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getFirstChild(int node) {
+        return mBuffer.getInt(HEADER_SIZE + node * 4);
+    }
+
+    private boolean isTerminal(int node) {
+        return (mBuffer.get(mTerminalsOffset + (node >> 3)) & (1 << (node & 7))) != 0;
+    }
+
+    private static int sizeOf(int nodeCount) {
+        return HEADER_SIZE + (nodeCount + 1) * 4 + nodeCount + ((nodeCount + 7) >> 3);
+    }
+}
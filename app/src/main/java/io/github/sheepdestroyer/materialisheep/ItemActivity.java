@@ -68,6 +68,7 @@ import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import io.github.sheepdestroyer.materialisheep.widget.ItemPagerAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.NavFloatingActionButton;
 import io.github.sheepdestroyer.materialisheep.widget.PopupMenu;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * Activity that displays a single item in a {@link ViewPager2}.
@@ -147,7 +148,8 @@ public class ItemActivity extends ThemedActivity implements ItemFragment.ItemCha
             mFullscreenViewModel.setFullscreen(false);
         }
     };
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    private Disposable mPreferenceSubscription;
+    private Disposable mItemRequest;
     private AppUtils.SystemUiHelper mSystemUiHelper;
 
     /**
@@ -198,8 +200,9 @@ public class ItemActivity extends ThemedActivity implements ItemFragment.ItemCha
         AppUtils.toggleFab(mReplyButton, false);
         final Intent intent = getIntent();
         MaterialisticDatabase.getInstance(this).getLiveData().observe(this, mObserver);
-        mPreferenceObservable.subscribe(this, this::onPreferenceChanged,
-                R.string.pref_navigation);
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_navigation)
+                .subscribe(change -> onPreferenceChanged(change.getKey(), change.isContextChanged()));
         getOnBackPressedDispatcher().addCallback(this, mBackPressedCallback);
         mFullscreenViewModel = new androidx.lifecycle.ViewModelProvider(this).get(FullscreenViewModel.class);
         mFullscreenViewModel.getIsFullscreen().observe(this, fullscreen -> {
@@ -223,7 +226,7 @@ public class ItemActivity extends ThemedActivity implements ItemFragment.ItemCha
         if (mItem != null) {
             bindData(mItem);
         } else if (!TextUtils.isEmpty(mItemId)) {
-            mItemManager.getItem(mItemId,
+            mItemRequest = mItemManager.getItem(mItemId,
                     getIntent().getIntExtra(EXTRA_CACHE_MODE, ItemManager.MODE_DEFAULT),
                     new ItemResponseListener(this));
         }
@@ -327,7 +330,12 @@ public class ItemActivity extends ThemedActivity implements ItemFragment.ItemCha
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        mPreferenceObservable.unsubscribe(this);
+        if (mPreferenceSubscription != null) {
+            mPreferenceSubscription.dispose();
+        }
+        if (mItemRequest != null) {
+            mItemRequest.dispose();
+        }
         if (mTabLayoutMediator != null) {
             mTabLayoutMediator.detach();
             mTabLayoutMediator = null;
@@ -640,15 +648,22 @@ public class ItemActivity extends ThemedActivity implements ItemFragment.ItemCha
         }
     }
 
+    @Synthetic
+    void onVoteQueued() {
+        Drawable drawable = DrawableCompat.wrap(mVoteButton.getDrawable());
+        DrawableCompat.setTint(drawable, ContextCompat.getColor(this, R.color.greenA700));
+        Toast.makeText(this, R.string.vote_queued, Toast.LENGTH_SHORT).show();
+    }
+
     private void onPreferenceChanged(int key, boolean contextChanged) {
-        if (!Preferences.navigationEnabled(this)) {
+        if (!mPreferenceStore.get().navigationEnabled()) {
             NavFloatingActionButton.resetPosition(this);
         }
         AppUtils.toggleFab(mNavButton, navigationVisible());
     }
 
     private boolean navigationVisible() {
-        return mViewPager.getCurrentItem() == 0 && Preferences.navigationEnabled(this);
+        return mViewPager.getCurrentItem() == 0 && mPreferenceStore.get().navigationEnabled();
     }
 
     static class ItemResponseListener implements ResponseListener<Item> {
@@ -693,5 +708,12 @@ public class ItemActivity extends ThemedActivity implements ItemFragment.ItemCha
                 mItemActivity.get().onVoted(null);
             }
         }
+
+        @Override
+        public void onQueued() {
+            if (mItemActivity.get() != null && !mItemActivity.get().isDestroyed()) {
+                mItemActivity.get().onVoteQueued();
+            }
+        }
     }
 }
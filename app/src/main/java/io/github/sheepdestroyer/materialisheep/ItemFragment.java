@@ -28,8 +28,6 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.Arrays;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -49,8 +47,11 @@ import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import io.github.sheepdestroyer.materialisheep.widget.CommentItemDecoration;
 import io.github.sheepdestroyer.materialisheep.widget.ItemRecyclerViewAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.MultiPageItemRecyclerViewAdapter;
+import io.github.sheepdestroyer.materialisheep.widget.SharedViewPool;
 import io.github.sheepdestroyer.materialisheep.widget.SinglePageItemRecyclerViewAdapter;
 import io.github.sheepdestroyer.materialisheep.widget.SnappyLinearLayoutManager;
+import io.github.sheepdestroyer.materialisheep.widget.ThreadStateStore;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * A fragment that displays the comments of a single item.
@@ -61,7 +62,7 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
     public static final String EXTRA_CACHE_MODE = ItemFragment.class.getName() + ".EXTRA_CACHE_MODE";
     private static final String STATE_ITEM = "state:item";
     private static final String STATE_ITEM_ID = "state:itemId";
-    private static final String STATE_ADAPTER_ITEMS = "state:adapterItems";
+    private static final String STATE_THREAD_SAVED = "state:threadSaved";
     private static final String STATE_CACHE_MODE = "state:cacheMode";
     private RecyclerView mRecyclerView;
     private View mEmptyView;
@@ -70,12 +71,20 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
     @Inject
     @Named(HN)
     ItemManager mItemManager;
+    @Inject
+    SharedViewPool mViewPool;
+    @Inject
+    ThreadStateStore mThreadStateStore;
+    @Inject
+    PreferenceStore mPreferenceStore;
     private SwipeRefreshLayout mSwipeRefreshLayout;
     private SinglePageItemRecyclerViewAdapter.SavedState mAdapterItems;
+    private boolean mRestoreAdapterItems;
     private ItemRecyclerViewAdapter mAdapter;
     private KeyDelegate.RecyclerViewHelper mScrollableHelper;
     private @ItemManager.CacheMode int mCacheMode = ItemManager.MODE_DEFAULT;
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    private Disposable mPreferenceSubscription;
+    private Disposable mItemRequest;
     private CommentItemDecoration mItemDecoration;
     private View mFragmentView;
 
@@ -88,17 +97,18 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
     public void onAttach(Context context) {
         super.onAttach(context);
         ((MaterialisticApplication) getActivity().getApplication()).applicationComponent.inject(this);
-        mPreferenceObservable.subscribe(context, this::onPreferenceChanged,
-                R.string.pref_comment_display,
-                R.string.pref_max_lines,
-                R.string.pref_username,
-                R.string.pref_line_height,
-                R.string.pref_color_code,
-                R.string.pref_thread_indicator,
-                R.string.pref_font,
-                R.string.pref_text_size,
-                R.string.pref_smooth_scroll,
-                R.string.pref_color_code_opacity);
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_comment_display,
+                        R.string.pref_max_lines,
+                        R.string.pref_username,
+                        R.string.pref_line_height,
+                        R.string.pref_color_code,
+                        R.string.pref_thread_indicator,
+                        R.string.pref_font,
+                        R.string.pref_text_size,
+                        R.string.pref_smooth_scroll,
+                        R.string.pref_color_code_opacity)
+                .subscribe(change -> onPreferenceChanged(change.getKey(), change.isContextChanged()));
     }
 
     /**
@@ -117,7 +127,8 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
             mCacheMode = savedInstanceState.getInt(STATE_CACHE_MODE, ItemManager.MODE_DEFAULT);
             mItem = savedInstanceState.getParcelable(STATE_ITEM);
             mItemId = savedInstanceState.getString(STATE_ITEM_ID);
-            mAdapterItems = savedInstanceState.getParcelable(STATE_ADAPTER_ITEMS);
+            // thread state is restored with item, as it is rebuilt from item kids
+            mRestoreAdapterItems = savedInstanceState.getBoolean(STATE_THREAD_SAVED);
         } else {
             mCacheMode = getArguments().getInt(EXTRA_CACHE_MODE, ItemManager.MODE_DEFAULT);
             WebItem item = getArguments().getParcelable(EXTRA_ITEM);
@@ -151,7 +162,10 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
         mFragmentView = inflater.inflate(R.layout.fragment_item, container, false);
         mEmptyView = mFragmentView.findViewById(R.id.empty);
         mRecyclerView = (RecyclerView) mFragmentView.findViewById(R.id.recycler_view);
-        mRecyclerView.setLayoutManager(new SnappyLinearLayoutManager(getActivity(), true));
+        SnappyLinearLayoutManager layoutManager = new SnappyLinearLayoutManager(getActivity(), true);
+        layoutManager.setRecycleChildrenOnDetach(true); // hand rows back to shared pool
+        mRecyclerView.setLayoutManager(layoutManager);
+        mViewPool.install(mRecyclerView);
         mItemDecoration = new CommentItemDecoration(getActivity());
         mRecyclerView.addItemDecoration(mItemDecoration);
         mSwipeRefreshLayout = (SwipeRefreshLayout) mFragmentView.findViewById(R.id.swipe_layout);
@@ -185,7 +199,7 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
 
         mScrollableHelper = new KeyDelegate.RecyclerViewHelper(mRecyclerView,
                 KeyDelegate.RecyclerViewHelper.SCROLL_ITEM);
-        mScrollableHelper.smoothScrollEnabled(Preferences.smoothScrollEnabled(getActivity()));
+        mScrollableHelper.smoothScrollEnabled(mPreferenceStore.get().smoothScrollEnabled());
 
     }
 
@@ -219,7 +233,13 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
         super.onSaveInstanceState(outState);
         outState.putParcelable(STATE_ITEM, mItem);
         outState.putString(STATE_ITEM_ID, mItemId);
-        outState.putParcelable(STATE_ADAPTER_ITEMS, mAdapterItems);
+        // only a flag, thread state can be too large for saved instance state
+        if (mAdapterItems != null && !TextUtils.isEmpty(mItemId)) {
+            mThreadStateStore.put(mItemId, mAdapterItems);
+            outState.putBoolean(STATE_THREAD_SAVED, true);
+        } else if (mRestoreAdapterItems) { // not yet restored
+            outState.putBoolean(STATE_THREAD_SAVED, true);
+        }
         outState.putInt(STATE_CACHE_MODE, mCacheMode);
     }
 
@@ -232,6 +252,10 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
         if (mAdapter != null) {
             mAdapter.detach(getActivity(), mRecyclerView);
         }
+        if (getActivity() != null && getActivity().isFinishing() &&
+                !TextUtils.isEmpty(mItemId)) {
+            mThreadStateStore.remove(mItemId);
+        }
     }
 
     /**
@@ -239,7 +263,8 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
      */
     @Override
     public void onDetach() {
-        mPreferenceObservable.unsubscribe(getActivity());
+        mPreferenceSubscription.dispose();
+        cancelItemRequest();
         super.onDetach();
     }
 
@@ -310,13 +335,22 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
     }
 
     private void loadKidData() {
-        mItemManager.getItem(mItemId, mCacheMode, new ItemResponseListener(this));
+        cancelItemRequest();
+        mItemRequest = mItemManager.getItem(mItemId, mCacheMode, new ItemResponseListener(this));
+    }
+
+    private void cancelItemRequest() {
+        if (mItemRequest != null) {
+            mItemRequest.dispose();
+            mItemRequest = null;
+        }
     }
 
     void onItemLoaded(@Nullable Item item) {
         mSwipeRefreshLayout.setRefreshing(false);
         if (item != null) {
             mAdapterItems = null;
+            mRestoreAdapterItems = false;
             mItem = item;
             notifyItemLoaded(item);
             bindKidData();
@@ -330,23 +364,29 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
         }
 
         mEmptyView.setVisibility(View.GONE);
-        String displayOption = Preferences.getCommentDisplayOption(getActivity());
-        if (Preferences.isSinglePage(getActivity(), displayOption)) {
-            boolean autoExpand = Preferences.isAutoExpand(getActivity(), displayOption);
+        Preferences.Snapshot preferences = mPreferenceStore.get();
+        if (preferences.isSinglePage()) {
+            boolean autoExpand = preferences.isAutoExpand();
+            if (mRestoreAdapterItems) {
+                mRestoreAdapterItems = false;
+                mAdapterItems = mThreadStateStore.get(mItemId, mItem);
+            }
             // if collapsed or no saved state then start a fresh (adapter items all
             // collapsed)
             if (!autoExpand || mAdapterItems == null) {
-                mAdapterItems = new SinglePageItemRecyclerViewAdapter.SavedState(
-                        new ArrayList<>(Arrays.asList(mItem.getKidItems())));
+                mAdapterItems = new SinglePageItemRecyclerViewAdapter.SavedState(mItem);
             }
             mAdapter = new SinglePageItemRecyclerViewAdapter(mItemManager, mAdapterItems, autoExpand);
         } else {
-            mAdapter = new MultiPageItemRecyclerViewAdapter(mItemManager, mItem.getKidItems());
+            mAdapter = new MultiPageItemRecyclerViewAdapter(mItemManager, mItem);
         }
         mAdapter.setCacheMode(mCacheMode);
         mAdapter.initDisplayOptions(getActivity());
         mAdapter.attach(getActivity(), mRecyclerView);
-        mRecyclerView.setAdapter(mAdapter);
+        mViewPool.measureFirstFrame(mRecyclerView, "Comments");
+        // comment adapters share view types, keep pooled rows when replacing one
+        mRecyclerView.swapAdapter(mAdapter, true);
+        mViewPool.prewarm(getActivity(), R.layout.item_comment, R.id.view_type_comment, mRecyclerView);
     }
 
     @SuppressLint("NotifyDataSetChanged")
@@ -354,9 +394,10 @@ public class ItemFragment extends LazyLoadFragment implements Scrollable, Naviga
         if (contextChanged || key == R.string.pref_comment_display) {
             load();
         } else if (mAdapter != null) {
-            mScrollableHelper.smoothScrollEnabled(Preferences.smoothScrollEnabled(getActivity()));
-            mItemDecoration.setColorCodeEnabled(Preferences.colorCodeEnabled(getActivity()));
-            mItemDecoration.setThreadIndicatorEnabled(Preferences.threadIndicatorEnabled(getActivity()));
+            Preferences.Snapshot preferences = mPreferenceStore.get();
+            mScrollableHelper.smoothScrollEnabled(preferences.smoothScrollEnabled());
+            mItemDecoration.setColorCodeEnabled(preferences.colorCodeEnabled());
+            mItemDecoration.setThreadIndicatorEnabled(preferences.threadIndicatorEnabled());
             mAdapter.initDisplayOptions(getActivity());
             mAdapter.notifyDataSetChanged();
         }
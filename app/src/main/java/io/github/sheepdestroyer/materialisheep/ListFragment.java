@@ -20,17 +20,25 @@ import androidx.lifecycle.Observer;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.snackbar.Snackbar;
 
 import androidx.lifecycle.ViewModelProvider;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.Toast;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -44,19 +52,26 @@ import io.github.sheepdestroyer.materialisheep.data.FavoriteManager;
 import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase;
+import io.github.sheepdestroyer.materialisheep.data.StorySearch;
+import io.github.sheepdestroyer.materialisheep.data.StorySnapshotStore;
+import io.github.sheepdestroyer.materialisheep.widget.SharedViewPool;
 import io.github.sheepdestroyer.materialisheep.widget.StoryRecyclerViewAdapter;
 import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * A fragment that displays a list of stories.
  */
 public class ListFragment extends BaseListFragment {
+    private static final String TAG = "ListFragment";
 
     public static final String EXTRA_ITEM_MANAGER = ListFragment.class.getName() + ".EXTRA_ITEM_MANAGER";
     public static final String EXTRA_FILTER = ListFragment.class.getName() + ".EXTRA_FILTER";
     private static final String STATE_FILTER = "state:filter";
     private static final String STATE_CACHE_MODE = "state:cacheMode";
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    // stories left to scroll through when next page is requested, about a screen
+    private static final int PREFETCH_DISTANCE = 10;
+    private Disposable mPreferenceSubscription;
     private final Observer<Uri> mObserver = uri -> {
         if (uri == null) {
             return;
@@ -88,17 +103,43 @@ public class ListFragment extends BaseListFragment {
     @Inject
     @Named(DataModule.IO_THREAD)
     Scheduler mIoThreadScheduler;
+    @Inject
+    SharedViewPool mViewPool;
+    @Inject
+    StorySnapshotStore mSnapshotStore;
     private StoryListViewModel mStoryListViewModel;
     private View mErrorView;
     private View mEmptyView;
     private RefreshCallback mRefreshCallback;
+    private LoadMoreCallback mLoadMoreCallback;
+    private final RecyclerView.OnScrollListener mPrefetchListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (dy <= 0) {
+                return;
+            }
+            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            if (layoutManager.findLastVisibleItemPosition() >=
+                    layoutManager.getItemCount() - PREFETCH_DISTANCE) {
+                loadMore(); // ignored while next page is loading, or if there is none
+            }
+        }
+    };
     private String mFilter;
+    private String mManagerClassName;
     private int mCacheMode = ItemManager.MODE_DEFAULT;
 
     public interface RefreshCallback {
         void onRefreshed();
     }
 
+    /**
+     * Callback for hosts that deliver stories searched as user types, to load next page.
+     */
+    public interface LoadMoreCallback {
+        void onLoadMore();
+    }
+
     /**
      * Called when a fragment is first attached to its context.
      *
@@ -111,10 +152,14 @@ public class ListFragment extends BaseListFragment {
         if (context instanceof RefreshCallback) {
             mRefreshCallback = (RefreshCallback) context;
         }
-        mPreferenceObservable.subscribe(context, this::onPreferenceChanged,
-                R.string.pref_highlight_updated,
-                R.string.pref_username,
-                R.string.pref_auto_viewed);
+        if (context instanceof LoadMoreCallback) {
+            mLoadMoreCallback = (LoadMoreCallback) context;
+        }
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_highlight_updated,
+                        R.string.pref_username,
+                        R.string.pref_auto_viewed)
+                .subscribe(change -> onPreferenceChanged(change.getKey(), change.isContextChanged()));
     }
 
     /**
@@ -157,6 +202,7 @@ public class ListFragment extends BaseListFragment {
         mErrorView = view.findViewById(R.id.empty);
         mEmptyView = view.findViewById(R.id.empty_search);
         mRecyclerView = view.findViewById(R.id.recycler_view);
+        mViewPool.install(mRecyclerView);
         mSwipeRefreshLayout = view.findViewById(R.id.swipe_layout);
         mSwipeRefreshLayout.setColorSchemeResources(R.color.white);
         mSwipeRefreshLayout.setProgressBackgroundColorSchemeResource(
@@ -187,12 +233,17 @@ public class ListFragment extends BaseListFragment {
     @Override
     public void onViewCreated(View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        mViewPool.measureFirstFrame(mRecyclerView, "Stories");
+        mViewPool.prewarm(getActivity(), R.layout.item_story, getAdapter().isCardViewEnabled() ?
+                R.id.view_type_story_card : R.id.view_type_story_flat, mRecyclerView);
+        // rows of the thread likely to be opened next
+        mViewPool.prewarm(getActivity(), R.layout.item_comment, R.id.view_type_comment, mRecyclerView);
         MaterialisticDatabase.getInstance(getContext()).getLiveData().observe(getViewLifecycleOwner(), mObserver);
-        String managerClassName = getArguments().getString(EXTRA_ITEM_MANAGER);
+        mManagerClassName = getArguments().getString(EXTRA_ITEM_MANAGER);
         ItemManager itemManager;
-        if (TextUtils.equals(managerClassName, AlgoliaClient.class.getName())) {
+        if (TextUtils.equals(mManagerClassName, AlgoliaClient.class.getName())) {
             itemManager = mAlgoliaItemManager;
-        } else if (TextUtils.equals(managerClassName, AlgoliaPopularClient.class.getName())) {
+        } else if (TextUtils.equals(mManagerClassName, AlgoliaPopularClient.class.getName())) {
             itemManager = mPopularItemManager;
         } else {
             itemManager = mHnItemManager;
@@ -212,6 +263,7 @@ public class ListFragment extends BaseListFragment {
         }
         getAdapter().initDisplayOptions(mRecyclerView);
         getAdapter().setCacheMode(mCacheMode);
+        mRecyclerView.addOnScrollListener(mPrefetchListener);
         getAdapter().setUpdateListener((showAll, itemCount, actionClickListener) -> {
             if (showAll) {
                 Snackbar.make(mRecyclerView,
@@ -229,6 +281,15 @@ public class ListFragment extends BaseListFragment {
             }
 
         });
+        // a new fragment has nothing to show until stories are fetched, unless
+        // there is a snapshot from last time, which is then revalidated
+        boolean restored = savedInstanceState == null && restoreSnapshot();
+        measureFirstMeaningfulList(restored);
+        if (isSearchedAsTyped()) {
+            getAdapter().setHighlightUpdated(false); // results of another query are not new
+            mSwipeRefreshLayout.setEnabled(false);
+            return;
+        }
         mStoryListViewModel = new ViewModelProvider(this, new StoryListViewModel.Factory(
                 itemManager,
                 kotlinx.coroutines.Dispatchers.getIO()
@@ -249,11 +310,22 @@ public class ListFragment extends BaseListFragment {
                      mSwipeRefreshLayout.setRefreshing(false);
                 }
 
-                if (state.getPrevious() != null) {
-                    onItemsLoaded(state.getPrevious().toArray(new Item[0]));
+                List<Item> appended = state.getAppended();
+                if (appended != null && state.getCurrent() != null &&
+                        getAdapter().getItems().size() + appended.size() ==
+                                state.getCurrent().size()) { // showing stories before page
+                    getAdapter().appendItems(appended.toArray(new Item[0]),
+                            state.getCurrent().toArray(new Item[0]));
+                    return;
                 }
+                Item[] previous = state.getPrevious() != null ?
+                        state.getPrevious().toArray(new Item[0]) : null;
                 if (state.getCurrent() != null) {
-                    onItemsLoaded(state.getCurrent().toArray(new Item[0]));
+                    // highlighted against previous stories in the same update, as a pending
+                    // update is dropped in favor of a newer one
+                    onItemsLoaded(previous, state.getCurrent().toArray(new Item[0]));
+                } else if (previous != null) {
+                    onItemsLoaded(previous);
                 }
             }
         });
@@ -274,13 +346,23 @@ public class ListFragment extends BaseListFragment {
         outState.putInt(STATE_CACHE_MODE, mCacheMode);
     }
 
+    /**
+     * Called when the fragment is no longer started, saves a snapshot of current stories.
+     */
+    @Override
+    public void onStop() {
+        super.onStop();
+        saveSnapshot();
+    }
+
     /**
      * Called when the fragment is no longer attached to its activity.
      */
     @Override
     public void onDetach() {
-        mPreferenceObservable.unsubscribe(getActivity());
+        mPreferenceSubscription.dispose();
         mRefreshCallback = null;
+        mLoadMoreCallback = null;
         super.onDetach();
     }
 
@@ -296,6 +378,17 @@ public class ListFragment extends BaseListFragment {
         refresh();
     }
 
+    /**
+     * Shows stories searched as user types, in place of current ones. Only applicable to
+     * fragments with {@link StorySearch} as item manager, as other fragments fetch their
+     * own stories.
+     *
+     * @param items The stories to show.
+     */
+    public void showStories(Item[] items) {
+        onItemsLoaded(items);
+    }
+
     /**
      * Gets the adapter for the RecyclerView.
      *
@@ -312,16 +405,108 @@ public class ListFragment extends BaseListFragment {
     private void onPreferenceChanged(int key, boolean contextChanged) {
         if (!contextChanged) {
             getAdapter().initDisplayOptions(mRecyclerView);
+            if (isSearchedAsTyped()) {
+                getAdapter().setHighlightUpdated(false);
+            }
+        }
+    }
+
+    /**
+     * @return snapshot key of current section, or null if it should not be persisted
+     */
+    @Nullable
+    private String getSnapshotSection() {
+        if (TextUtils.equals(mManagerClassName, AlgoliaClient.class.getName()) ||
+                isSearchedAsTyped()) {
+            return null; // search results
+        }
+        return mManagerClassName + "_" + mFilter;
+    }
+
+    private boolean restoreSnapshot() {
+        String section = getSnapshotSection();
+        Item[] items = section != null ? mSnapshotStore.read(section) : null;
+        if (items == null || items.length == 0) {
+            return false;
+        }
+        getAdapter().restoreItems(items);
+        mEmptyView.setVisibility(View.GONE);
+        mErrorView.setVisibility(View.GONE);
+        mRecyclerView.setVisibility(View.VISIBLE);
+        return true;
+    }
+
+    private void saveSnapshot() {
+        String section = getSnapshotSection();
+        List<Item> items = getAdapter().getItems();
+        if (section == null || items.isEmpty()) {
+            return;
+        }
+        // encode here as items are updated on main thread, only write in background
+        byte[] snapshot = StorySnapshotStore.encode(items);
+        mIoThreadScheduler.scheduleDirect(() -> mSnapshotStore.write(section, snapshot));
+    }
+
+    /**
+     * Logs time from view creation until the list first draws with its top story loaded,
+     * in debug builds.
+     *
+     * @param fromSnapshot true if stories were restored from a snapshot
+     */
+    private void measureFirstMeaningfulList(boolean fromSnapshot) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        final long start = SystemClock.uptimeMillis();
+        mRecyclerView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        List<Item> items = getAdapter().getItems();
+                        if (mRecyclerView.getChildCount() == 0 || items.isEmpty() ||
+                                items.get(0).getLocalRevision() <= 0) {
+                            return true;
+                        }
+                        mRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        Log.d(TAG, "Stories first meaningful list in " +
+                                (SystemClock.uptimeMillis() - start) + "ms, " +
+                                (fromSnapshot ? "with" : "without") + " snapshot");
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * @return true if stories are searched as user types, and delivered by host activity
+     */
+    private boolean isSearchedAsTyped() {
+        return TextUtils.equals(mManagerClassName, StorySearch.class.getName());
+    }
+
+    @Synthetic
+    void loadMore() {
+        if (mStoryListViewModel != null) {
+            mStoryListViewModel.loadMore(mFilter, mCacheMode);
+        } else if (mLoadMoreCallback != null) {
+            mLoadMoreCallback.onLoadMore();
         }
     }
 
     private void refresh() {
+        if (mStoryListViewModel == null) {
+            return;
+        }
         getAdapter().setShowAll(true);
         mStoryListViewModel.refreshStories(mFilter, mCacheMode);
     }
 
     @Synthetic
     void onItemsLoaded(Item[] items) {
+        onItemsLoaded(null, items);
+    }
+
+    @Synthetic
+    void onItemsLoaded(@Nullable Item[] previous, Item[] items) {
         if (!isAttached()) {
             return;
         }
@@ -335,7 +520,7 @@ public class ListFragment extends BaseListFragment {
                         Toast.LENGTH_SHORT).show();
             }
         } else {
-            getAdapter().setItems(items);
+            getAdapter().setItems(previous, items);
             if (items.length == 0) {
                 mEmptyView.setVisibility(View.VISIBLE);
                 mRecyclerView.setVisibility(View.INVISIBLE);
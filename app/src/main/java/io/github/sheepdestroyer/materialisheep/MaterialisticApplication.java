@@ -22,6 +22,7 @@ import android.app.Application;
 import android.graphics.Typeface;
 import androidx.appcompat.app.AppCompatDelegate;
 import android.os.StrictMode;
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox;
 import io.github.sheepdestroyer.materialisheep.data.AlgoliaClient;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
@@ -78,6 +79,7 @@ public class MaterialisticApplication extends android.app.Application {
             });
         }
         Preferences.migrate(this);
+        UserActionOutbox.scheduleFlush(this);
         AppUtils.registerAccountsUpdatedListener(this);
         AdBlocker.init(this, Schedulers.io());
         android.net.ConnectivityManager connectivityManager = (android.net.ConnectivityManager) getSystemService(android.content.Context.CONNECTIVITY_SERVICE);
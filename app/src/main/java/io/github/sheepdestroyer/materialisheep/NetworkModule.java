@@ -31,7 +31,10 @@ import javax.net.SocketFactory;
 
 import dagger.Module;
 import dagger.Provides;
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
 import io.github.sheepdestroyer.materialisheep.data.AlgoliaClient;
+import io.github.sheepdestroyer.materialisheep.data.ConditionalRequestInterceptor;
+import io.github.sheepdestroyer.materialisheep.data.ETagStore;
 import io.github.sheepdestroyer.materialisheep.data.FileDownloader;
 import io.github.sheepdestroyer.materialisheep.data.HackerNewsClient;
 import io.github.sheepdestroyer.materialisheep.data.ReadabilityClient;
@@ -68,12 +71,15 @@ public class NetworkModule {
     /**
      * Provides a singleton instance of {@link Call.Factory}.
      *
-     * @param context The application context.
+     * @param context   The application context.
+     * @param eTagStore The {@link ETagStore} to make requests conditional with.
+     * @param cookieJar The {@link SessionCookieJar} to keep Hacker News session in.
      * @return The singleton instance of {@link Call.Factory}.
      */
     @Provides
     @Singleton
-    public Call.Factory provideCallFactory(Context context) {
+    public Call.Factory provideCallFactory(Context context, ETagStore eTagStore,
+                                           SessionCookieJar cookieJar) {
         return new OkHttpClient.Builder()
                 .socketFactory(new SocketFactory() {
                     private SocketFactory mDefaultFactory = SocketFactory.getDefault();
@@ -116,7 +122,9 @@ public class NetworkModule {
                     }
                 })
                 .cache(new Cache(context.getApplicationContext().getCacheDir(), CACHE_SIZE))
+                .cookieJar(cookieJar)
                 .addNetworkInterceptor(new CacheOverrideNetworkInterceptor())
+                .addNetworkInterceptor(new ConditionalRequestInterceptor(eTagStore))
                 .addInterceptor(new ConnectionAwareInterceptor(context))
                 .addInterceptor(new LoggingInterceptor())
                 .followRedirects(false)
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable set of EasyList style URL path rules, matched in a single pass over a path with an
+ * Aho-Corasick automaton, so matching cost does not grow with the number of rules.
+ * <p>
+ * Only plain substring rules are supported, e.g. {@code /pagead/} or {@code &ad_type=}, with
+ * optional leading {@code |} anchors and trailing {@code ^} or {@code *} which are ignored.
+ * As in filter lists, a rule enclosed in slashes is only a regex if it has regex special
+ * characters, e.g. {@code /ad[0-9]/}, and such rules are skipped; others, e.g.
+ * {@code /banners/}, are plain substrings including their slashes. Comments, exceptions,
+ * element hiding, domain, wildcard and option rules are skipped too, as hosts are already
+ * covered by {@link HostTrie}.
+ */
+final class PathRules {
+    private static final String REGEX_SPECIAL_CHARACTERS = "\\^$.*+?()[]{}|";
+    static final PathRules EMPTY = compile(Collections.emptyList());
+
+    // goto function as sorted labels and target states per state
+    private final char[][] mLabels;
+    private final int[][] mTargets;
+    private final int[] mFailures;
+    // whether a rule ends at a state, or at any state along its failure chain
+    private final boolean[] mMatches;
+
+    /**
+     * Compiles given rules. Rules are matched case insensitively.
+     *
+     * @param rules rules, one per line
+     * @return compiled rules
+     */
+    @NonNull
+    static PathRules compile(@NonNull Iterable<String> rules) {
+        List<char[]> labels = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<Boolean> terminals = new ArrayList<>();
+        labels.add(new char[0]);
+        targets.add(new int[0]);
+        terminals.add(false);
+        for (String line : rules) {
+            String pattern = parse(line);
+            if (pattern == null) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = getTarget(labels.get(state), targets.get(state), c);
+                if (next < 0) {
+                    next = labels.size();
+                    labels.add(new char[0]);
+                    targets.add(new int[0]);
+                    terminals.add(false);
+                    int index = -(Arrays.binarySearch(labels.get(state), c) + 1);
+                    labels.set(state, insert(labels.get(state), index, c));
+                    targets.set(state, insert(targets.get(state), index, next));
+                }
+                state = next;
+            }
+            terminals.set(state, true);
+        }
+        int count = labels.size();
+        char[][] labelArray = labels.toArray(new char[count][]);
+        int[][] targetArray = targets.toArray(new int[count][]);
+        int[] failures = new int[count];
+        boolean[] matches = new boolean[count];
+        // breadth first, so failure states are always resolved before states that point to them
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targetArray[0]) {
+            queue.add(child);
+        }
+        for (int i = 0; i < count; i++) {
+            matches[i] = terminals.get(i);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            matches[state] |= matches[failures[state]];
+            for (int i = 0; i < labelArray[state].length; i++) {
+                int child = targetArray[state][i];
+                int failure = failures[state];
+                int next;
+                while ((next = getTarget(labelArray[failure], targetArray[failure],
+                        labelArray[state][i])) < 0 && failure != 0) {
+                    failure = failures[failure];
+                }
+                failures[child] = next >= 0 ? next : 0;
+                queue.add(child);
+            }
+        }
+        return new PathRules(labelArray, targetArray, failures, matches);
+    }
+
+    private PathRules(char[][] labels, int[][] targets, int[] failures, boolean[] matches) {
+        mLabels = labels;
+        mTargets = targets;
+        mFailures = failures;
+        mMatches = matches;
+    }
+
+    /**
+     * Checks if any rule occurs in given path.
+     *
+     * @param path URL path, optionally followed by query
+     * @return true if path matches a rule, false otherwise
+     */
+    boolean matches(String path) {
+        if (path == null || mLabels[0].length == 0) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            int next;
+            while ((next = getTarget(mLabels[state], mTargets[state], c)) < 0 && state != 0) {
+                state = mFailures[state];
+            }
+            state = next >= 0 ? next : 0;
+            if (mMatches[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of automaton states, including root
+     */
+    int size() {
+        return mLabels.length;
+    }
+
+    private static String parse(String line) {
+        String rule = line.trim();
+        if (rule.isEmpty() || rule.startsWith("!") || rule.startsWith("[") ||
+                rule.startsWith("@@") || rule.startsWith("||") || rule.contains("#") ||
+                rule.contains("$")) {
+            return null;
+        }
+        if (rule.length() > 2 && rule.startsWith("/") && rule.endsWith("/")) {
+            // regex rule if it has special characters, which is not supported,
+            // otherwise a plain path segment rule that keeps its slashes
+            for (int i = 1; i < rule.length() - 1; i++) {
+                if (REGEX_SPECIAL_CHARACTERS.indexOf(rule.charAt(i)) >= 0) {
+                    return null;
+                }
+            }
+        }
+        int start = 0, end = rule.length();
+        while (start < end && rule.charAt(start) == '|') {
+            start++;
+        }
+        while (end > start && (rule.charAt(end - 1) == '^' || rule.charAt(end - 1) == '*' ||
+                rule.charAt(end - 1) == '|')) {
+            end--;
+        }
+        String pattern = rule.substring(start, end).toLowerCase(Locale.US);
+        if (pattern.isEmpty() || pattern.contains("*") || pattern.contains("^") ||
+                pattern.contains("|")) {
+            return null;
+        }
+        return pattern;
+    }
+
+    private static int getTarget(char[] labels, int[] targets, char c) {
+        int index = Arrays.binarySearch(labels, c);
+        return index >= 0 ? targets[index] : -1;
+    }
+
+    private static char[] insert(char[] array, int index, char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static int[] insert(int[] array, int index, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+}
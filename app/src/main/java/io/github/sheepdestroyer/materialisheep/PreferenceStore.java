@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StringRes;
+import androidx.preference.PreferenceManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+
+/**
+ * Keeps an up to date {@link Preferences.Snapshot}, rebuilt by a single
+ * {@link SharedPreferences.OnSharedPreferenceChangeListener} whenever preferences change,
+ * and publishes those changes as a stream.
+ */
+@Singleton
+public class PreferenceStore {
+    private final Context mContext;
+    private final Set<String> mContextKeys = new HashSet<>();
+    private final PublishSubject<String> mChanges = PublishSubject.create();
+    // held strongly, as shared preferences only keep weak references to listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener mListener =
+            (sharedPreferences, key) -> onChanged(key);
+    private volatile Preferences.Snapshot mSnapshot;
+
+    /**
+     * Constructs a new {@code PreferenceStore}.
+     *
+     * @param context the application context
+     */
+    @Inject
+    public PreferenceStore(Context context) {
+        mContext = context.getApplicationContext();
+        mContextKeys.add(mContext.getString(R.string.pref_theme));
+        mContextKeys.add(mContext.getString(R.string.pref_text_size));
+        mContextKeys.add(mContext.getString(R.string.pref_font));
+        mContextKeys.add(mContext.getString(R.string.pref_daynight_auto));
+        mSnapshot = new Preferences.Snapshot(mContext);
+        PreferenceManager.getDefaultSharedPreferences(mContext)
+                .registerOnSharedPreferenceChangeListener(mListener);
+    }
+
+    /**
+     * Gets the current preferences.
+     *
+     * @return snapshot of preferences as of now
+     */
+    @NonNull
+    public Preferences.Snapshot get() {
+        return mSnapshot;
+    }
+
+    /**
+     * Gets a stream of changes to given preferences, emitted on the main thread
+     * after the snapshot has been rebuilt. Subscribers should dispose once done.
+     *
+     * @param preferenceKeys string resource ids of preference keys to observe
+     * @return stream of changes
+     */
+    @NonNull
+    public Observable<Change> changes(@NonNull @StringRes int... preferenceKeys) {
+        Map<String, Integer> keys = new HashMap<>();
+        for (int key : preferenceKeys) {
+            keys.put(mContext.getString(key), key);
+        }
+        return mChanges.filter(keys::containsKey)
+                .map(key -> new Change(keys.get(key), mContextKeys.contains(key), mSnapshot));
+    }
+
+    @MainThread
+    @Synthetic
+    void onChanged(@Nullable String key) {
+        mSnapshot = new Preferences.Snapshot(mContext);
+        if (key != null) { // null if preferences have been cleared
+            mChanges.onNext(key);
+        }
+    }
+
+    /**
+     * A change to a preference.
+     */
+    public static class Change {
+        private final int mKey;
+        private final boolean mContextChanged;
+        private final Preferences.Snapshot mSnapshot;
+
+        @Synthetic
+        Change(@StringRes int key, boolean contextChanged, Preferences.Snapshot snapshot) {
+            mKey = key;
+            mContextChanged = contextChanged;
+            mSnapshot = snapshot;
+        }
+
+        /**
+         * @return string resource id of the changed preference key
+         */
+        @StringRes
+        public int getKey() {
+            return mKey;
+        }
+
+        /**
+         * @return true if the change affects context, e.g. theme or text appearance,
+         * which requires views to be recreated
+         */
+        public boolean isContextChanged() {
+            return mContextChanged;
+        }
+
+        /**
+         * @return snapshot of preferences including this change
+         */
+        @NonNull
+        public Preferences.Snapshot getSnapshot() {
+            return mSnapshot;
+        }
+    }
+}
@@ -16,18 +16,14 @@
 
 package io.github.sheepdestroyer.materialisheep;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.text.TextUtils;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -137,6 +133,16 @@ public class Preferences {
                 .equals(context.getString(R.string.pref_search_sort_value_recent));
     }
 
+    /**
+     * Checks if comment text is indexed for offline search.
+     *
+     * @param context The application context.
+     * @return True if comments are searched offline, false otherwise.
+     */
+    public static boolean isSearchCommentsEnabled(Context context) {
+        return get(context, R.string.pref_search_comments, false);
+    }
+
     /**
      * Sets the search sort order.
      *
@@ -419,6 +425,16 @@ public class Preferences {
         return get(context, R.string.pref_ad_block, true);
     }
 
+    /**
+     * Checks if ad blocking should also match ad path rules, besides ad hosts.
+     *
+     * @param context The application context.
+     * @return True if ad path rules are enabled, false otherwise.
+     */
+    public static boolean adBlockPathsEnabled(Context context) {
+        return get(context, R.string.pref_ad_block_paths, false);
+    }
+
     /**
      * Saves a draft of a comment.
      *
@@ -752,56 +768,186 @@ public class Preferences {
         }
     }
 
-    public static class Observable {
-        private static Set<String> CONTEXT_KEYS;
-        private final Map<String, Integer> mSubscribedKeys = new HashMap<>();
-        private final SharedPreferences.OnSharedPreferenceChangeListener mListener = (sharedPreferences, key) -> {
-            if (mSubscribedKeys.containsKey(key)) {
-                notifyChanged(mSubscribedKeys.get(key), CONTEXT_KEYS.contains(key));
-            }
-        };
-        private Observer mObserver;
+    /**
+     * Immutable snapshot of preferences read on hot paths, e.g. while binding list items,
+     * so that those paths read plain fields. The current snapshot is kept by
+     * {@link PreferenceStore}, which rebuilds it whenever preferences change.
+     */
+    public static final class Snapshot {
+        private final int mCommentMaxLines;
+        private final float mLineHeight;
+        private final boolean mColorCodeEnabled;
+        private final int mColorCodeOpacity;
+        private final boolean mThreadIndicatorEnabled;
+        private final boolean mSmoothScrollEnabled;
+        private final boolean mHighlightUpdatedEnabled;
+        private final boolean mAutoMarkAsViewed;
+        private final boolean mListItemCardView;
+        private final boolean mMultiWindowEnabled;
+        private final boolean mNavigationEnabled;
+        private final boolean mNavigationVibrationEnabled;
+        private final boolean mExternalBrowserEnabled;
+        private final StoryViewMode mDefaultStoryView;
+        private final String mUsername;
+        private final String mCommentDisplayOption;
+        private final boolean mSinglePage;
+        private final boolean mAutoExpand;
+        private final SwipeAction[] mListSwipePreferences;
+
+        Snapshot(Context context) {
+            mCommentMaxLines = getCommentMaxLines(context);
+            mLineHeight = getLineHeight(context);
+            mColorCodeEnabled = colorCodeEnabled(context);
+            mColorCodeOpacity = colorCodeOpacity(context);
+            mThreadIndicatorEnabled = threadIndicatorEnabled(context);
+            mSmoothScrollEnabled = smoothScrollEnabled(context);
+            mHighlightUpdatedEnabled = highlightUpdatedEnabled(context);
+            mAutoMarkAsViewed = autoMarkAsViewed(context);
+            mListItemCardView = isListItemCardView(context);
+            mMultiWindowEnabled = multiWindowEnabled(context);
+            mNavigationEnabled = navigationEnabled(context);
+            mNavigationVibrationEnabled = navigationVibrationEnabled(context);
+            mExternalBrowserEnabled = externalBrowserEnabled(context);
+            mDefaultStoryView = getDefaultStoryView(context);
+            mUsername = getUsername(context);
+            mCommentDisplayOption = getCommentDisplayOption(context);
+            mSinglePage = isSinglePage(context, mCommentDisplayOption);
+            mAutoExpand = isAutoExpand(context, mCommentDisplayOption);
+            mListSwipePreferences = getListSwipePreferences(context);
+        }
+
+        /**
+         * @return see {@link Preferences#getCommentMaxLines(Context)}
+         */
+        public int getCommentMaxLines() {
+            return mCommentMaxLines;
+        }
+
+        /**
+         * @return see {@link Preferences#getLineHeight(Context)}
+         */
+        public float getLineHeight() {
+            return mLineHeight;
+        }
+
+        /**
+         * @return see {@link Preferences#colorCodeEnabled(Context)}
+         */
+        public boolean colorCodeEnabled() {
+            return mColorCodeEnabled;
+        }
+
+        /**
+         * @return see {@link Preferences#colorCodeOpacity(Context)}
+         */
+        public int colorCodeOpacity() {
+            return mColorCodeOpacity;
+        }
 
-        public void subscribe(Context context, @NonNull Observer observer, @NonNull int... preferenceKeys) {
-            ensureContextKeys(context);
-            setSubscription(context, preferenceKeys);
-            mObserver = observer;
-            PreferenceManager.getDefaultSharedPreferences(context)
-                    .registerOnSharedPreferenceChangeListener(mListener);
+        /**
+         * @return see {@link Preferences#threadIndicatorEnabled(Context)}
+         */
+        public boolean threadIndicatorEnabled() {
+            return mThreadIndicatorEnabled;
+        }
+
+        /**
+         * @return see {@link Preferences#smoothScrollEnabled(Context)}
+         */
+        public boolean smoothScrollEnabled() {
+            return mSmoothScrollEnabled;
+        }
+
+        /**
+         * @return see {@link Preferences#highlightUpdatedEnabled(Context)}
+         */
+        public boolean highlightUpdatedEnabled() {
+            return mHighlightUpdatedEnabled;
+        }
+
+        /**
+         * @return see {@link Preferences#autoMarkAsViewed(Context)}
+         */
+        public boolean autoMarkAsViewed() {
+            return mAutoMarkAsViewed;
+        }
+
+        /**
+         * @return see {@link Preferences#isListItemCardView(Context)}
+         */
+        public boolean isListItemCardView() {
+            return mListItemCardView;
+        }
+
+        /**
+         * @return see {@link Preferences#multiWindowEnabled(Context)}
+         */
+        public boolean multiWindowEnabled() {
+            return mMultiWindowEnabled;
+        }
+
+        /**
+         * @return see {@link Preferences#navigationEnabled(Context)}
+         */
+        public boolean navigationEnabled() {
+            return mNavigationEnabled;
         }
 
-        public void unsubscribe(Context context) {
-            PreferenceManager.getDefaultSharedPreferences(context)
-                    .unregisterOnSharedPreferenceChangeListener(mListener);
+        /**
+         * @return see {@link Preferences#navigationVibrationEnabled(Context)}
+         */
+        public boolean navigationVibrationEnabled() {
+            return mNavigationVibrationEnabled;
         }
 
-        private void setSubscription(Context context, int[] preferenceKeys) {
-            mSubscribedKeys.clear();
-            for (int key : preferenceKeys) {
-                mSubscribedKeys.put(context.getString(key), key);
-            }
+        /**
+         * @return see {@link Preferences#externalBrowserEnabled(Context)}
+         */
+        public boolean externalBrowserEnabled() {
+            return mExternalBrowserEnabled;
         }
 
-        private void notifyChanged(int key, boolean contextChanged) {
-            if (mObserver != null) {
-                mObserver.onPreferenceChanged(key, contextChanged);
-            }
+        /**
+         * @return see {@link Preferences#getDefaultStoryView(Context)}
+         */
+        public StoryViewMode getDefaultStoryView() {
+            return mDefaultStoryView;
         }
 
-        @SuppressLint("UseSparseArrays")
-        private void ensureContextKeys(Context context) {
-            if (CONTEXT_KEYS != null) {
-                return;
-            }
-            CONTEXT_KEYS = new HashSet<>();
-            CONTEXT_KEYS.add(context.getString(R.string.pref_theme));
-            CONTEXT_KEYS.add(context.getString(R.string.pref_text_size));
-            CONTEXT_KEYS.add(context.getString(R.string.pref_font));
-            CONTEXT_KEYS.add(context.getString(R.string.pref_daynight_auto));
+        /**
+         * @return see {@link Preferences#getUsername(Context)}
+         */
+        @Nullable
+        public String getUsername() {
+            return mUsername;
         }
-    }
 
-    public interface Observer {
-        void onPreferenceChanged(@StringRes int key, boolean contextChanged);
+        /**
+         * @return see {@link Preferences#getCommentDisplayOption(Context)}
+         */
+        public String getCommentDisplayOption() {
+            return mCommentDisplayOption;
+        }
+
+        /**
+         * @return see {@link Preferences#isSinglePage(Context, String)}
+         */
+        public boolean isSinglePage() {
+            return mSinglePage;
+        }
+
+        /**
+         * @return see {@link Preferences#isAutoExpand(Context, String)}
+         */
+        public boolean isAutoExpand() {
+            return mAutoExpand;
+        }
+
+        /**
+         * @return see {@link Preferences#getListSwipePreferences(Context)}
+         */
+        public SwipeAction[] getListSwipePreferences() {
+            return mListSwipePreferences.clone();
+        }
     }
 }
@@ -19,22 +19,39 @@ package io.github.sheepdestroyer.materialisheep;
 import android.app.SearchManager;
 import android.os.Bundle;
 import android.provider.SearchRecentSuggestions;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
 
+import javax.inject.Inject;
+
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
 import io.github.sheepdestroyer.materialisheep.data.AlgoliaClient;
-import io.github.sheepdestroyer.materialisheep.data.HackerNewsClient;
+import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.SearchRecentSuggestionsProvider;
+import io.github.sheepdestroyer.materialisheep.data.StorySearch;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.subjects.BehaviorSubject;
+import io.reactivex.rxjava3.subjects.PublishSubject;
 
 /**
- * An activity that displays search results.
+ * An activity that displays search results, searched as the user types and paged in as
+ * the user scrolls.
  */
-public class SearchActivity extends BaseListActivity {
+public class SearchActivity extends BaseListActivity implements ListFragment.LoadMoreCallback {
 
     private static final int MAX_RECENT_SUGGESTIONS = 10;
+    private static final String STATE_QUERY = "state:query";
+    @Inject
+    StorySearch mStorySearch;
+    private final BehaviorSubject<StorySearch.Query> mQueries = BehaviorSubject.create();
+    private final PublishSubject<Object> mMore = PublishSubject.create();
+    private Disposable mSearchSubscription;
     private String mQuery;
+    private boolean mSortByTime;
+    private Item[] mPendingStories;
 
     /**
      * Called when the activity is first created.
@@ -48,23 +65,54 @@ public class SearchActivity extends BaseListActivity {
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        if (getIntent().hasExtra(SearchManager.QUERY)) {
+        if (savedInstanceState != null) {
+            mQuery = savedInstanceState.getString(STATE_QUERY);
+        } else if (getIntent().hasExtra(SearchManager.QUERY)) {
             mQuery = getIntent().getStringExtra(SearchManager.QUERY);
         }
         super.onCreate(savedInstanceState);
-        if (!TextUtils.isEmpty(mQuery)) {
-            getSupportActionBar().setSubtitle(mQuery);
-            SearchRecentSuggestions suggestions = new SearchRecentSuggestions(this,
-                    SearchRecentSuggestionsProvider.PROVIDER_AUTHORITY,
-                    SearchRecentSuggestionsProvider.MODE) {
-                @Override
-                public void saveRecentQuery(String queryString, String line2) {
-                    truncateHistory(getContentResolver(), MAX_RECENT_SUGGESTIONS - 1);
-                    super.saveRecentQuery(queryString, line2);
-                }
-            };
-            suggestions.saveRecentQuery(mQuery, null);
+        ((MaterialisticApplication) getApplication()).applicationComponent.inject(this);
+        mSortByTime = Preferences.isSortByRecent(this);
+        getSupportActionBar().setSubtitle(mQuery);
+        if (savedInstanceState == null) {
+            saveRecentQuery(mQuery);
         }
+        mSearchSubscription = mStorySearch.search(mQueries, mMore)
+                .subscribe(this::onSearched);
+        mQueries.onNext(new StorySearch.Query(mQuery, mSortByTime));
+    }
+
+    /**
+     * Called after {@link #onCreate(Bundle)}, shows stories searched before list was ready.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (mPendingStories != null) {
+            Item[] stories = mPendingStories;
+            mPendingStories = null;
+            onSearched(stories);
+        }
+    }
+
+    /**
+     * Called to retrieve per-instance state from an activity before being killed.
+     *
+     * @param outState Bundle in which to place your saved state.
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_QUERY, mQuery);
+    }
+
+    /**
+     * Called when the activity is being destroyed, cancels any pending search.
+     */
+    @Override
+    protected void onDestroy() {
+        mSearchSubscription.dispose();
+        super.onDestroy();
     }
 
     /**
@@ -77,7 +125,12 @@ public class SearchActivity extends BaseListActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_sort, menu);
-        return super.onCreateOptionsMenu(menu);
+        boolean result = super.onCreateOptionsMenu(menu);
+        MenuItem menuSearch = menu.findItem(R.id.menu_search);
+        if (menuSearch != null) {
+            bindSearchView((SearchView) mActionViewResolver.getActionView(menuSearch));
+        }
+        return result;
     }
 
     /**
@@ -90,7 +143,7 @@ public class SearchActivity extends BaseListActivity {
      */
     @Override
     public boolean onPrepareOptionsMenu(Menu menu) {
-        menu.findItem(AlgoliaClient.sSortByTime ? R.id.menu_sort_recent : R.id.menu_sort_popular)
+        menu.findItem(mSortByTime ? R.id.menu_sort_recent : R.id.menu_sort_popular)
                 .setChecked(true);
         return super.onPrepareOptionsMenu(menu);
     }
@@ -131,26 +184,82 @@ public class SearchActivity extends BaseListActivity {
     protected Fragment instantiateListFragment() {
         Bundle args = new Bundle();
         args.putString(ListFragment.EXTRA_FILTER, mQuery);
-        if (TextUtils.isEmpty(mQuery)) {
-            args.putString(ListFragment.EXTRA_ITEM_MANAGER, HackerNewsClient.class.getName());
-        } else {
-            args.putString(ListFragment.EXTRA_ITEM_MANAGER, AlgoliaClient.class.getName());
-        }
+        args.putString(ListFragment.EXTRA_ITEM_MANAGER, StorySearch.class.getName());
         ListFragment fragment = new ListFragment();
         fragment.setArguments(args);
         return fragment;
     }
 
-    private void sort(boolean byTime) {
-        if (AlgoliaClient.sSortByTime == byTime) {
+    private void bindSearchView(SearchView searchView) {
+        searchView.setIconified(TextUtils.isEmpty(mQuery));
+        searchView.setQuery(mQuery, false);
+        searchView.clearFocus(); // results first, keyboard once user taps to refine
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                saveRecentQuery(query);
+                searchView.clearFocus();
+                return true; // already searched as typed, stay in this activity
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                onQueryChanged(newText);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Called when search results are scrolled near their end, requests next page if any.
+     */
+    @Override
+    public void onLoadMore() {
+        mMore.onNext(Boolean.TRUE);
+    }
+
+    @Synthetic
+    void onQueryChanged(String query) {
+        mQuery = query;
+        getSupportActionBar().setSubtitle(query);
+        mQueries.onNext(new StorySearch.Query(query, mSortByTime));
+    }
+
+    @Synthetic
+    void saveRecentQuery(String query) {
+        if (TextUtils.isEmpty(query)) {
             return;
         }
-        AlgoliaClient.sSortByTime = byTime;
-        Preferences.setSortByRecent(this, byTime);
+        SearchRecentSuggestions suggestions = new SearchRecentSuggestions(this,
+                SearchRecentSuggestionsProvider.PROVIDER_AUTHORITY,
+                SearchRecentSuggestionsProvider.MODE) {
+            @Override
+            public void saveRecentQuery(String queryString, String line2) {
+                truncateHistory(getContentResolver(), MAX_RECENT_SUGGESTIONS - 1);
+                super.saveRecentQuery(queryString, line2);
+            }
+        };
+        suggestions.saveRecentQuery(query, null);
+    }
+
+    private void onSearched(Item[] stories) {
         ListFragment listFragment = (ListFragment) getSupportFragmentManager()
                 .findFragmentByTag(LIST_FRAGMENT_TAG);
-        if (listFragment != null) {
-            listFragment.filter(mQuery);
+        if (listFragment != null && listFragment.getView() != null) {
+            listFragment.showStories(stories);
+        } else {
+            mPendingStories = stories;
+        }
+    }
+
+    private void sort(boolean byTime) {
+        if (mSortByTime == byTime) {
+            return;
         }
+        mSortByTime = byTime;
+        AlgoliaClient.sSortByTime = byTime; // for widgets searching custom queries
+        Preferences.setSortByRecent(this, byTime);
+        // cached if searched in this order before
+        mQueries.onNext(new StorySearch.Query(mQuery, byTime));
     }
 }
@@ -8,7 +8,9 @@ import androidx.lifecycle.asLiveData
 import androidx.lifecycle.viewModelScope
 import io.github.sheepdestroyer.materialisheep.data.Item
 import io.github.sheepdestroyer.materialisheep.data.ItemManager
+import io.github.sheepdestroyer.materialisheep.data.PagedItemManager
 import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -25,7 +27,9 @@ class StoryListViewModel(
         val previous: List<Item>? = null,
         val current: List<Item>? = null,
         val isLoading: Boolean = false,
-        val error: Throwable? = null
+        val error: Throwable? = null,
+        // stories just appended to current ones, as next page
+        val appended: List<Item>? = null
     )
 
     private val _stories = MutableStateFlow(StoryState())
@@ -34,6 +38,11 @@ class StoryListViewModel(
     // For Java compatibility
     val storiesLiveData: LiveData<StoryState> = _stories.asLiveData()
 
+    // paging, only for paged item managers: next page to load, and whether there may be one
+    private var nextPage = 0
+    private var hasMore = false
+    private var loadMoreJob: Job? = null
+
     fun getStories(filter: String?, @ItemManager.CacheMode cacheMode: Int) {
         if (_stories.value.current != null) return
         fetchStories(filter, cacheMode)
@@ -44,20 +53,59 @@ class StoryListViewModel(
         fetchStories(filter, cacheMode)
     }
 
+    /**
+     * Appends next page of stories, if item manager is paged and there may be more stories.
+     * Does nothing while stories are being fetched.
+     */
+    fun loadMore(filter: String?, @ItemManager.CacheMode cacheMode: Int) {
+        val pagedItemManager = itemManager as? PagedItemManager ?: return
+        if (!hasMore || _stories.value.isLoading || loadMoreJob?.isActive == true) return
+        val page = nextPage
+        log("Loading page $page. Filter: $filter, CacheMode: $cacheMode")
+        loadMoreJob = viewModelScope.launch {
+            try {
+                val pageItems = withContext(ioDispatcher) {
+                    pagedItemManager.getStories(filter, page, PagedItemManager.PAGE_SIZE, cacheMode)
+                }
+                log("Loaded ${pageItems.size} stories of page $page.")
+                nextPage = page + 1
+                hasMore = pageItems.size == PagedItemManager.PAGE_SIZE
+                _stories.update { currentState ->
+                    val current = currentState.current.orEmpty()
+                    // pages shift as stories come and go, skip those already shown
+                    val ids = current.mapTo(HashSet(current.size)) { it.id }
+                    val appended = pageItems.filter { ids.add(it.id) }
+                    currentState.copy(
+                        previous = current,
+                        current = current + appended,
+                        appended = appended
+                    )
+                }
+            } catch (e: Exception) {
+                Log.e(TAG, "Error loading more stories", e)
+            }
+        }
+    }
+
     private fun fetchStories(filter: String?, @ItemManager.CacheMode cacheMode: Int) {
         if (_stories.value.isLoading) return
 
-        _stories.update { it.copy(isLoading = true, error = null) }
+        loadMoreJob?.cancel() // would append to stories being replaced
+        _stories.update { it.copy(isLoading = true, error = null, appended = null) }
         log("Fetching stories. Filter: $filter, CacheMode: $cacheMode")
 
         viewModelScope.launch {
             try {
                 // ItemManager.getStories is blocking, so we switch to IO dispatcher
+                val pagedItemManager = itemManager as? PagedItemManager
                 val itemsArray = withContext(ioDispatcher) {
-                    itemManager.getStories(filter, cacheMode)
+                    pagedItemManager?.getStories(filter, 0, PagedItemManager.PAGE_SIZE, cacheMode)
+                        ?: itemManager.getStories(filter, cacheMode)
                 }
                 val itemsList = itemsArray?.toList() ?: emptyList()
                 log("Fetched ${itemsList.size} stories.")
+                nextPage = 1
+                hasMore = pagedItemManager != null && itemsList.size == PagedItemManager.PAGE_SIZE
 
                 _stories.update { currentState ->
                     StoryState(
@@ -28,12 +28,18 @@ import androidx.appcompat.app.AppCompatDelegate;
 import android.text.TextUtils;
 import android.view.Menu;
 
+import javax.inject.Inject;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+
 /**
  * An abstract base activity that supports different themes.
  */
 public abstract class ThemedActivity extends AppCompatActivity {
     private final MenuTintDelegate mMenuTintDelegate = new MenuTintDelegate();
-    private final Preferences.Observable mThemeObservable = new Preferences.Observable();
+    @Inject
+    PreferenceStore mPreferenceStore;
+    private Disposable mThemeSubscription;
     private boolean mResumed = true;
     private boolean mPendingThemeChanged;
 
@@ -68,8 +74,10 @@ public abstract class ThemedActivity extends AppCompatActivity {
     @Override
     protected void onPostCreate(@Nullable Bundle savedInstanceState) {
         super.onPostCreate(savedInstanceState);
-        mThemeObservable.subscribe(this, (key, contextChanged) -> onThemeChanged(key),
-                R.string.pref_theme, R.string.pref_daynight_auto);
+        // injected by subclasses in their onCreate()
+        mThemeSubscription = mPreferenceStore
+                .changes(R.string.pref_theme, R.string.pref_daynight_auto)
+                .subscribe(change -> onThemeChanged(change.getKey()));
     }
 
     /**
@@ -116,7 +124,9 @@ public abstract class ThemedActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        mThemeObservable.unsubscribe(this);
+        if (mThemeSubscription != null) {
+            mThemeSubscription.dispose();
+        }
     }
 
     /**
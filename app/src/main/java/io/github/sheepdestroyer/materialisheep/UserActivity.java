@@ -49,6 +49,7 @@ import io.github.sheepdestroyer.materialisheep.data.UserManager;
 import io.github.sheepdestroyer.materialisheep.widget.CommentItemDecoration;
 import io.github.sheepdestroyer.materialisheep.widget.SnappyLinearLayoutManager;
 import io.github.sheepdestroyer.materialisheep.widget.SubmissionRecyclerViewAdapter;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * An activity that displays a user's profile.
@@ -68,6 +69,7 @@ public class UserActivity extends ThemedActivity implements Scrollable {
     private KeyDelegate.RecyclerViewHelper mScrollableHelper;
     private String mUsername;
     private UserManager.User mUser;
+    private Disposable mUserRequest;
     private TextView mTitle;
     private TextView mInfo;
     private TextView mAbout;
@@ -204,6 +206,17 @@ public class UserActivity extends ThemedActivity implements Scrollable {
         mKeyDelegate.detach(this);
     }
 
+    /**
+     * Called before the activity is destroyed, cancels loading user if still in progress.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mUserRequest != null) {
+            mUserRequest.dispose();
+        }
+    }
+
     /**
      * Called when a key was pressed down and not handled by any of the views
      * inside of the activity.
@@ -289,7 +302,7 @@ public class UserActivity extends ThemedActivity implements Scrollable {
     }
 
     private void load() {
-        mUserManager.getUser(mUsername, new UserResponseListener(this));
+        mUserRequest = mUserManager.getUser(mUsername, new UserResponseListener(this));
     }
 
     @Synthetic
@@ -26,6 +26,7 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Base64;
 import android.util.Log;
@@ -40,6 +41,7 @@ import androidx.core.view.MenuProvider;
 import android.view.inputmethod.InputMethodManager;
 import android.webkit.JavascriptInterface;
 import android.widget.EditText;
+import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.ProgressBar;
 import android.widget.Toast;
@@ -68,8 +70,11 @@ import io.github.sheepdestroyer.materialisheep.data.ResponseListener;
 import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import io.github.sheepdestroyer.materialisheep.widget.AdBlockWebViewClient;
 import io.github.sheepdestroyer.materialisheep.widget.CacheableWebView;
+import io.github.sheepdestroyer.materialisheep.widget.PdfView;
 import io.github.sheepdestroyer.materialisheep.widget.PopupMenu;
 import io.github.sheepdestroyer.materialisheep.widget.WebView;
+import io.github.sheepdestroyer.materialisheep.widget.WebViewPool;
+import io.reactivex.rxjava3.disposables.Disposable;
 import okhttp3.Call;
 
 import static android.view.View.GONE;
@@ -99,7 +104,8 @@ public class WebFragment extends LazyLoadFragment
     @Inject
     PopupMenu mPopupMenu;
     private KeyDelegate.NestedScrollViewHelper mScrollableHelper;
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    private Disposable mPreferenceSubscription;
+    private Disposable mItemRequest;
     private FullscreenViewModel mFullscreenViewModel;
     private ViewGroup mFullscreenView;
     private ViewGroup mScrollViewContent;
@@ -119,18 +125,27 @@ public class WebFragment extends LazyLoadFragment
     ReadabilityClient mReadabilityClient;
     @Inject
     FileDownloader mFileDownloader;
+    @Inject
+    WebViewPool mWebViewPool;
+    @Inject
+    PreferenceStore mPreferenceStore;
     private WebItem mItem;
     private boolean mIsHackerNewsUrl, mEmpty, mReadability;
     private PdfAndroidJavascriptBridge mPdfAndroidJavascriptBridge;
+    @Synthetic
+    PdfView mPdfView;
+    private boolean mWebViewPrewarmed, mFirstPaintPreconnected;
+    private long mFirstPaintStart;
 
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
         ((MaterialisticApplication) getActivity().getApplication()).applicationComponent.inject(this);
-        mPreferenceObservable.subscribe(context, this::onPreferenceChanged,
-                R.string.pref_readability_font,
-                R.string.pref_readability_line_height,
-                R.string.pref_readability_text_size);
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_readability_font,
+                        R.string.pref_readability_line_height,
+                        R.string.pref_readability_text_size)
+                .subscribe(change -> onPreferenceChanged(change.getKey(), change.isContextChanged()));
         mFullscreenViewModel = new androidx.lifecycle.ViewModelProvider(requireActivity()).get(FullscreenViewModel.class);
         mFullscreenViewModel.getIsFullscreen().observe(this, this::setFullscreen);
     }
@@ -160,7 +175,13 @@ public class WebFragment extends LazyLoadFragment
         mScrollViewContent = (ViewGroup) mFragmentView.findViewById(R.id.scroll_view_content);
         mScrollView = (NestedScrollView) mFragmentView.findViewById(R.id.nested_scroll_view);
         mControls = (ViewSwitcher) mFragmentView.findViewById(R.id.control_switcher);
-        mWebView = (WebView) mFragmentView.findViewById(R.id.web_view);
+        mWebViewPrewarmed = mWebViewPool.hasPrewarmed();
+        mWebView = mWebViewPool.acquire(getActivity());
+        mWebView.setId(R.id.web_view);
+        ((ViewGroup) mFragmentView.findViewById(R.id.web_view_container)).addView(mWebView, 0,
+                new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                        ViewGroup.LayoutParams.WRAP_CONTENT));
+        mPdfView = (PdfView) mFragmentView.findViewById(R.id.pdf_view);
         mButtonRefresh = (ImageButton) mFragmentView.findViewById(R.id.button_refresh);
         mButtonMore = mFragmentView.findViewById(R.id.button_more);
         mButtonNext = mFragmentView.findViewById(R.id.button_next);
@@ -242,6 +263,7 @@ public class WebFragment extends LazyLoadFragment
         if (mPdfAndroidJavascriptBridge != null) {
             mPdfAndroidJavascriptBridge.cleanUp();
         }
+        mPdfView.close();
         mWebView.destroy();
         // Note: mReadabilityClient is a singleton, do not call destroy() here.
         // Subscriptions are fire-and-forget and managed internally.
@@ -249,13 +271,18 @@ public class WebFragment extends LazyLoadFragment
 
     @Override
     public void onDetach() {
-        mPreferenceObservable.unsubscribe(getActivity());
+        mPreferenceSubscription.dispose();
+        if (mItemRequest != null) {
+            mItemRequest.dispose();
+        }
         super.onDetach();
     }
 
     @Override
     public void scrollToTop() {
-        if (mFullscreen) {
+        if (mPdfView.isOpen()) {
+            mPdfView.scrollToTop();
+        } else if (mFullscreen) {
             mWebView.pageUp(true);
         } else {
             mScrollableHelper.scrollToTop();
@@ -264,7 +291,9 @@ public class WebFragment extends LazyLoadFragment
 
     @Override
     public boolean scrollToNext() {
-        if (mFullscreen) {
+        if (mPdfView.isOpen()) {
+            return mPdfView.pageScroll(true);
+        } else if (mFullscreen) {
             mWebView.pageDown(false);
             return true;
         } else {
@@ -274,7 +303,9 @@ public class WebFragment extends LazyLoadFragment
 
     @Override
     public boolean scrollToPrevious() {
-        if (mFullscreen) {
+        if (mPdfView.isOpen()) {
+            return mPdfView.pageScroll(false);
+        } else if (mFullscreen) {
             mWebView.pageUp(false);
             return true;
         } else {
@@ -309,6 +340,10 @@ public class WebFragment extends LazyLoadFragment
 
     private void loadUrl() {
         setWebSettings(true);
+        if (mFirstPaintStart == 0) { // only measure first article load
+            mFirstPaintStart = SystemClock.uptimeMillis();
+            mFirstPaintPreconnected = mWebViewPool.isPreconnected(mItem.getUrl());
+        }
         reloadUrl(mItem.getUrl());
     }
 
@@ -319,6 +354,8 @@ public class WebFragment extends LazyLoadFragment
     @SuppressLint({"AddJavascriptInterface", "SetJavaScriptEnabled"}) // We are a browser and need JS; PDF loader is local and trusted
     private void reloadUrl(String url, @Nullable String pdfFilePath) {
         mIsPdf = false;
+        mPdfView.close();
+        mPdfView.setVisibility(GONE);
         if (mPdfAndroidJavascriptBridge != null) {
             mPdfAndroidJavascriptBridge.cleanUp();
             mWebView.removeJavascriptInterface("PdfAndroidJavascriptBridge");
@@ -362,7 +399,8 @@ public class WebFragment extends LazyLoadFragment
             mContent = ((Item) mItem).getText();
             loadContent();
         } else {
-            mItemManager.getItem(mItem.getId(), ItemManager.MODE_DEFAULT, new ItemResponseListener(this));
+            mItemRequest = mItemManager.getItem(mItem.getId(), ItemManager.MODE_DEFAULT,
+                    new ItemResponseListener(this));
         }
     }
 
@@ -431,7 +469,8 @@ public class WebFragment extends LazyLoadFragment
     private void setUpWebView(View view) {
         mProgressBar = (ProgressBar) view.findViewById(R.id.progress);
         mWebView.setBackgroundColor(Color.TRANSPARENT);
-        mWebView.setWebViewClient(new AdBlockWebViewClient(Preferences.adBlockEnabled(getActivity())) {
+        mWebView.setWebViewClient(new AdBlockWebViewClient(Preferences.adBlockEnabled(getActivity()),
+                Preferences.adBlockPathsEnabled(getActivity())) {
             @Override
             public void onPageStarted(android.webkit.WebView view, String url, Bitmap favicon) {
                 super.onPageStarted(view, url, favicon);
@@ -447,6 +486,12 @@ public class WebFragment extends LazyLoadFragment
                     getActivity().invalidateOptionsMenu();
                 }
             }
+
+            @Override
+            public void onPageCommitVisible(android.webkit.WebView view, String url) {
+                super.onPageCommitVisible(view, url);
+                onFirstPaint(url);
+            }
         });
         mWebView.setWebChromeClient(new CacheableWebView.ArchiveClient() {
             @Override
@@ -617,6 +662,16 @@ public class WebFragment extends LazyLoadFragment
         bindContent();
     }
 
+    @Synthetic
+    void onFirstPaint(String url) {
+        if (mFirstPaintStart <= 0 || !AppUtils.urlEquals(url, mItem.getUrl())) {
+            return;
+        }
+        mWebViewPool.recordFirstPaint(url, SystemClock.uptimeMillis() - mFirstPaintStart,
+                mWebViewPrewarmed, mFirstPaintPreconnected);
+        mFirstPaintStart = -1;
+    }
+
     private void downloadFileAndRenderPdf() {
         mFileDownloader.downloadFile(mItem.getUrl(), PDF_MIME_TYPE, new FileDownloader.FileDownloaderCallback() {
             @Override
@@ -626,6 +681,37 @@ public class WebFragment extends LazyLoadFragment
 
             @Override
             public void onSuccess(String filePath) {
+                renderPdf(filePath);
+            }
+
+            @Override
+            public void onProgress(long bytesRead, long contentLength) {
+                if (isAttached() && contentLength > 0) {
+                    // downloading takes progress from 10 to 80, rendering the rest
+                    setProgress(10 + (int) (70 * bytesRead / contentLength));
+                }
+            }
+        });
+    }
+
+    /**
+     * Renders given PDF natively, falling back to pdf.js if it cannot be rendered.
+     */
+    @Synthetic
+    void renderPdf(String filePath) {
+        if (!isAttached()) {
+            return;
+        }
+        setProgress(80);
+        mPdfView.setVisibility(VISIBLE);
+        mPdfView.open(new File(filePath), new PdfView.Listener() {
+            @Override
+            public void onOpen() {
+                setProgress(100);
+            }
+
+            @Override
+            public void onFailure() {
                 reloadUrl(PDF_LOADER_URL, filePath);
             }
         });
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.accounts;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+import javax.inject.Inject;
+
+import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
+
+/**
+ * A {@link JobService} that sends user actions queued in {@link UserActionOutbox}, and asks to
+ * be rescheduled with backoff if some remain.
+ */
+public class OutboxJobService extends JobService {
+    @Inject
+    UserServices mUserServices;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ((MaterialisticApplication) getApplication()).applicationComponent.inject(this);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters jobParameters) {
+        mUserServices.flush(this, new UserServices.Callback() {
+            @Override
+            public void onDone(boolean successful) {
+                jobFinished(jobParameters, !successful);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                jobFinished(jobParameters, true);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters jobParameters) {
+        return true; // flush stops at first failure, remaining actions are retried
+    }
+}
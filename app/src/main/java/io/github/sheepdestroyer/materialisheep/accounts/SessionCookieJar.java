@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.accounts;
+
+import android.content.Context;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+/**
+ * A {@link CookieJar} that keeps Hacker News session cookies, most importantly the {@code user}
+ * cookie set on login, so that user actions can be authenticated by session instead of posting
+ * credentials each time. Cookies of other hosts are neither stored nor sent. Persistent cookies
+ * are kept on disk, encrypted with an AES/GCM key held by Android Keystore, so that they
+ * survive process death but cannot be read off the device. A store that cannot be decrypted,
+ * e.g. after its key is lost, is discarded and the session is simply renewed on next action.
+ */
+@Singleton
+public class SessionCookieJar implements CookieJar {
+    private static final String TAG = "SessionCookieJar";
+    @VisibleForTesting
+    static final String FILE_NAME = "session";
+    private static final String HOST = "news.ycombinator.com";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "session_cookies";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int FORMAT_VERSION = 1;
+    static final String COOKIE_USER = "user";
+    private final File mFile;
+    private final String mHost;
+    private SecretKey mKey;
+    private List<Cookie> mCookies;
+
+    /**
+     * Constructs a new {@code SessionCookieJar}.
+     *
+     * @param context the application context
+     */
+    @Inject
+    public SessionCookieJar(Context context) {
+        this(new File(context.getNoBackupFilesDir(), FILE_NAME), HOST, null);
+    }
+
+    @VisibleForTesting
+    SessionCookieJar(File file, String host, @Nullable SecretKey key) {
+        mFile = file;
+        mHost = host;
+        mKey = key;
+    }
+
+    @Override
+    public synchronized void saveFromResponse(@NonNull HttpUrl url, @NonNull List<Cookie> cookies) {
+        if (!mHost.equals(url.host()) || cookies.isEmpty()) {
+            return;
+        }
+        List<Cookie> stored = getCookies();
+        boolean persist = false;
+        for (Cookie cookie : cookies) {
+            for (Iterator<Cookie> iterator = stored.iterator(); iterator.hasNext(); ) {
+                Cookie existing = iterator.next();
+                if (existing.name().equals(cookie.name()) &&
+                        existing.domain().equals(cookie.domain()) &&
+                        existing.path().equals(cookie.path())) {
+                    iterator.remove();
+                    persist |= existing.persistent();
+                }
+            }
+            // an expired cookie is how a server deletes one
+            if (cookie.expiresAt() > System.currentTimeMillis()) {
+                stored.add(cookie);
+            }
+            persist |= cookie.persistent();
+        }
+        if (persist) {
+            write(stored);
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Cookie> loadForRequest(@NonNull HttpUrl url) {
+        if (!mHost.equals(url.host())) {
+            return Collections.emptyList();
+        }
+        List<Cookie> cookies = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Iterator<Cookie> iterator = getCookies().iterator(); iterator.hasNext(); ) {
+            Cookie cookie = iterator.next();
+            if (cookie.expiresAt() <= now) {
+                iterator.remove();
+            } else if (cookie.matches(url)) {
+                cookies.add(cookie);
+            }
+        }
+        return cookies;
+    }
+
+    /**
+     * Checks if there is a session for given user, i.e. an unexpired {@code user} cookie,
+     * which holds user name and session token.
+     *
+     * @param username user name
+     * @return true if there is a session to authenticate given user with, false otherwise
+     */
+    public synchronized boolean hasSession(@Nullable String username) {
+        if (TextUtils.isEmpty(username)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Cookie cookie : getCookies()) {
+            if (COOKIE_USER.equals(cookie.name()) && cookie.expiresAt() > now &&
+                    cookie.value().startsWith(username + '&')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clears all cookies, e.g. when session turns out to have expired or user logs out.
+     */
+    public synchronized void clear() {
+        mCookies = new ArrayList<>(); // no need to read stored cookies only to drop them
+        new AtomicFile(mFile).delete();
+    }
+
+    private List<Cookie> getCookies() {
+        if (mCookies == null) {
+            mCookies = read();
+        }
+        return mCookies;
+    }
+
+    private List<Cookie> read() {
+        List<Cookie> cookies = new ArrayList<>();
+        if (!mFile.exists()) {
+            return cookies;
+        }
+        AtomicFile file = new AtomicFile(mFile);
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                    decrypt(file.readFully())));
+            if (input.readInt() != FORMAT_VERSION) {
+                file.delete();
+                return cookies;
+            }
+            for (int i = 0, count = input.readInt(); i < count; i++) {
+                Cookie.Builder builder = new Cookie.Builder()
+                        .name(input.readUTF())
+                        .value(input.readUTF())
+                        .expiresAt(input.readLong())
+                        .path(input.readUTF());
+                String domain = input.readUTF();
+                if (input.readBoolean()) {
+                    builder.hostOnlyDomain(domain);
+                } else {
+                    builder.domain(domain);
+                }
+                if (input.readBoolean()) {
+                    builder.secure();
+                }
+                if (input.readBoolean()) {
+                    builder.httpOnly();
+                }
+                cookies.add(builder.build());
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            Log.e(TAG, "Discarding unreadable session", e);
+            file.delete();
+            cookies.clear();
+        }
+        return cookies;
+    }
+
+    private void write(List<Cookie> cookies) {
+        AtomicFile file = new AtomicFile(mFile);
+        FileOutputStream output = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeInt(FORMAT_VERSION);
+            int count = 0;
+            for (Cookie cookie : cookies) {
+                if (cookie.persistent()) {
+                    count++;
+                }
+            }
+            data.writeInt(count);
+            for (Cookie cookie : cookies) {
+                if (!cookie.persistent()) {
+                    continue;
+                }
+                data.writeUTF(cookie.name());
+                data.writeUTF(cookie.value());
+                data.writeLong(cookie.expiresAt());
+                data.writeUTF(cookie.path());
+                data.writeUTF(cookie.domain());
+                data.writeBoolean(cookie.hostOnly());
+                data.writeBoolean(cookie.secure());
+                data.writeBoolean(cookie.httpOnly());
+            }
+            data.flush();
+            byte[] encrypted = encrypt(bytes.toByteArray());
+            File parent = mFile.getParentFile();
+            if (parent != null && !parent.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                parent.mkdirs();
+            }
+            output = file.startWrite();
+            output.write(encrypted);
+            file.finishWrite(output);
+        } catch (IOException | GeneralSecurityException e) {
+            Log.e(TAG, "Failed to persist session", e);
+            if (output != null) {
+                file.failWrite(output);
+            }
+        }
+    }
+
+    private byte[] encrypt(byte[] plain) throws GeneralSecurityException, IOException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, getKey()); // IV is generated by cipher
+        byte[] iv = cipher.getIV();
+        byte[] encrypted = cipher.doFinal(plain);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 + iv.length + encrypted.length);
+        bytes.write(iv.length);
+        bytes.write(iv);
+        bytes.write(encrypted);
+        return bytes.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        if (data.length == 0 || data[0] <= 0 || data[0] >= data.length) {
+            throw new GeneralSecurityException("Malformed session store");
+        }
+        int ivLength = data[0];
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, getKey(),
+                new GCMParameterSpec(TAG_LENGTH_BITS, data, 1, ivLength));
+        return cipher.doFinal(data, 1 + ivLength, data.length - 1 - ivLength);
+    }
+
+    private SecretKey getKey() throws GeneralSecurityException {
+        if (mKey != null) {
+            return mKey;
+        }
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+            keyStore.load(null);
+            KeyStore.Entry entry = keyStore.getEntry(KEY_ALIAS, null);
+            if (entry instanceof KeyStore.SecretKeyEntry) {
+                mKey = ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+                return mKey;
+            }
+        } catch (IOException e) {
+            throw new GeneralSecurityException(e);
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .build());
+        mKey = generator.generateKey();
+        return mKey;
+    }
+}
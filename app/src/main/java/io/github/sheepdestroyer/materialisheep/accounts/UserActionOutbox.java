@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.accounts;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
+import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase;
+import io.github.sheepdestroyer.materialisheep.data.OutboxDao;
+
+/**
+ * A durable outbox of user actions, i.e. votes and replies, that could not reach the server,
+ * to be sent by {@link OutboxJobService} when network is available again. Queued actions are
+ * treated as applied: queued votes keep their items voted, see
+ * {@link io.github.sheepdestroyer.materialisheep.data.Item#isPendingVoted()}. Failed attempts
+ * are retried with exponential backoff, up to {@link #MAX_ATTEMPTS}.
+ */
+@Singleton
+public class UserActionOutbox {
+    private static final String TAG = "UserActionOutbox";
+    static final String ACTION_VOTE = "vote";
+    static final String ACTION_REPLY = "reply";
+    @VisibleForTesting
+    static final int JOB_ID = -1; // item IDs, which sync jobs use, are positive
+    @VisibleForTesting
+    static final int MAX_ATTEMPTS = 8;
+    private static final long INITIAL_BACKOFF_MILLIS = 30 * DateUtils.SECOND_IN_MILLIS;
+    private static final long MAX_BACKOFF_MILLIS = DateUtils.HOUR_IN_MILLIS;
+    private final Context mContext;
+    private final OutboxDao mDao;
+    private final PreferenceStore mPreferenceStore;
+    // looked up for every fetched item, so read without locking
+    private volatile Votes mVotes;
+
+    /**
+     * Constructs a new {@code UserActionOutbox}.
+     *
+     * @param context         the application context
+     * @param dao             the {@link OutboxDao} to keep actions in
+     * @param preferenceStore the {@link PreferenceStore} to look up current user in
+     */
+    @Inject
+    public UserActionOutbox(Context context, OutboxDao dao, PreferenceStore preferenceStore) {
+        mContext = context.getApplicationContext();
+        mDao = dao;
+        mPreferenceStore = preferenceStore;
+    }
+
+    /**
+     * Schedules outbox to be flushed once network is available, e.g. on app start, in case
+     * actions have been queued in a previous process. A flush that leaves actions behind is
+     * rescheduled by {@link JobScheduler} with exponential backoff.
+     *
+     * @param context a context
+     */
+    public static void scheduleFlush(Context context) {
+        ((JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE))
+                .schedule(new JobInfo.Builder(JOB_ID, new ComponentName(context.getPackageName(),
+                        OutboxJobService.class.getName()))
+                        .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                        .setBackoffCriteria(INITIAL_BACKOFF_MILLIS,
+                                JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                        .build());
+    }
+
+    /**
+     * Queues a vote.
+     *
+     * @param account user name of the account to vote as
+     * @param itemId  the ID of the item to vote up
+     */
+    @WorkerThread
+    void addVote(@NonNull String account, @NonNull String itemId) {
+        add(new MaterialisticDatabase.OutboxEntry(account, ACTION_VOTE, itemId, ""));
+    }
+
+    /**
+     * Queues a reply.
+     *
+     * @param account  user name of the account to reply as
+     * @param parentId the ID of the item to reply to
+     * @param text     reply content
+     */
+    @WorkerThread
+    void addReply(@NonNull String account, @NonNull String parentId, @NonNull String text) {
+        add(new MaterialisticDatabase.OutboxEntry(account, ACTION_REPLY, parentId, text));
+    }
+
+    /**
+     * Checks if current user has a queued vote for given item.
+     *
+     * @param itemId the ID of the item
+     * @return true if there is a queued vote, false otherwise
+     */
+    @WorkerThread
+    public boolean hasPendingVote(@NonNull String itemId) {
+        String account = mPreferenceStore.get().getUsername();
+        if (TextUtils.isEmpty(account)) {
+            return false;
+        }
+        Votes votes = mVotes;
+        if (votes == null || !TextUtils.equals(votes.mAccount, account)) {
+            votes = loadVotes(account);
+        }
+        return votes.mItemIds.contains(itemId);
+    }
+
+    /**
+     * Gets actions due to be sent, grouped by account so that each account's actions can be
+     * sent in one batch over a shared session.
+     *
+     * @return due actions
+     */
+    @WorkerThread
+    List<MaterialisticDatabase.OutboxEntry> getDue() {
+        return mDao.getDue(System.currentTimeMillis());
+    }
+
+    /**
+     * Removes an action that has been sent, or rejected by server.
+     *
+     * @param entry the sent action
+     */
+    @WorkerThread
+    synchronized void remove(@NonNull MaterialisticDatabase.OutboxEntry entry) {
+        mDao.delete(entry);
+        Votes votes = mVotes;
+        if (votes != null && ACTION_VOTE.equals(entry.getAction()) &&
+                TextUtils.equals(votes.mAccount, entry.getAccount())) {
+            votes.mItemIds.remove(entry.getItemId());
+        }
+    }
+
+    /**
+     * Backs off an action that failed to be sent, or drops it after {@link #MAX_ATTEMPTS}.
+     *
+     * @param entry the failed action
+     */
+    @WorkerThread
+    void retryLater(@NonNull MaterialisticDatabase.OutboxEntry entry) {
+        int attempts = entry.getAttempts() + 1;
+        if (attempts >= MAX_ATTEMPTS) {
+            Log.e(TAG, "Dropping " + entry.getAction() + " of item " + entry.getItemId() +
+                    " after " + attempts + " attempts");
+            remove(entry);
+            return;
+        }
+        entry.setAttempts(attempts);
+        entry.setNextAttempt(System.currentTimeMillis() + getBackoffMillis(attempts));
+        mDao.update(entry);
+    }
+
+    /**
+     * Checks if there are no more queued actions, due or not.
+     *
+     * @return true if outbox is empty, false otherwise
+     */
+    @WorkerThread
+    boolean isEmpty() {
+        return mDao.count() == 0;
+    }
+
+    @VisibleForTesting
+    static long getBackoffMillis(int attempts) {
+        return Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (attempts - 1));
+    }
+
+    private synchronized void add(MaterialisticDatabase.OutboxEntry entry) {
+        entry.setNextAttempt(System.currentTimeMillis());
+        if (mDao.insert(entry) < 0) {
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Already queued " + entry.getAction() + " of item " +
+                        entry.getItemId());
+            }
+        } else {
+            Votes votes = mVotes;
+            if (votes != null && ACTION_VOTE.equals(entry.getAction()) &&
+                    TextUtils.equals(votes.mAccount, entry.getAccount())) {
+                votes.mItemIds.add(entry.getItemId());
+            }
+        }
+        scheduleFlush(mContext);
+    }
+
+    /**
+     * Loads queued votes of given account, synchronized with changes to outbox so that none
+     * are missed.
+     */
+    private synchronized Votes loadVotes(String account) {
+        Votes votes = mVotes;
+        if (votes == null || !TextUtils.equals(votes.mAccount, account)) {
+            Set<String> itemIds = Collections.newSetFromMap(new ConcurrentHashMap<>());
+            itemIds.addAll(mDao.getItemIds(account, ACTION_VOTE));
+            votes = new Votes(account, itemIds);
+            mVotes = votes;
+        }
+        return votes;
+    }
+
+    /**
+     * IDs of items with queued votes of an account.
+     */
+    private static final class Votes {
+        final String mAccount;
+        final Set<String> mItemIds;
+
+        Votes(String account, Set<String> itemIds) {
+            mAccount = account;
+            mItemIds = itemIds;
+        }
+    }
+}
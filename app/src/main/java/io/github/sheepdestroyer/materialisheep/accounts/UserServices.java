@@ -43,6 +43,15 @@ public interface UserServices {
          * @param throwable The throwable that caused the failure.
          */
         public void onError(Throwable throwable) {}
+
+        /**
+         * Called when the service call could not reach the server and has been queued, to be
+         * sent when network is available again. Queued actions are treated as applied, so this
+         * defaults to reporting success.
+         */
+        public void onQueued() {
+            onDone(true);
+        }
     }
 
     /**
@@ -102,4 +111,13 @@ public interface UserServices {
      * @param callback The callback to be invoked when the call is complete.
      */
     void submit(Context context, String title, String content, boolean isUrl, Callback callback);
+
+    /**
+     * Sends votes and replies queued while network was unavailable.
+     *
+     * @param context  The context.
+     * @param callback The callback to be invoked when the call is complete, with true if all
+     *                 queued actions have been sent, false if some remain to be retried.
+     */
+    void flush(Context context, Callback callback);
 }
@@ -16,10 +16,18 @@
 
 package io.github.sheepdestroyer.materialisheep.accounts;
 
+import android.accounts.Account;
+import android.accounts.AccountManager;
 import android.content.Context;
 import android.net.Uri;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import androidx.core.util.Pair;
 import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.util.Log;
 import android.widget.Toast;
 
 import java.io.IOException;
@@ -30,7 +38,9 @@ import java.util.regex.Pattern;
 import javax.inject.Inject;
 
 import io.github.sheepdestroyer.materialisheep.AppUtils;
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
 import io.github.sheepdestroyer.materialisheep.R;
+import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase;
 import okhttp3.Call;
 import okhttp3.FormBody;
 import okhttp3.HttpUrl;
@@ -41,9 +51,15 @@ import io.reactivex.rxjava3.core.Scheduler;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 
 /**
- * A client that provides user-related services.
+ * A client that provides user-related services. User actions are authenticated by session, i.e.
+ * the {@code user} cookie kept by {@link SessionCookieJar}, and only post credentials, which
+ * renews the session, when there is no session for current user or it turns out to have expired.
+ * Tokens scraped from forms, i.e. submission {@code fnid}, are cached for reuse and scraped again
+ * if rejected. Votes and replies that cannot reach the server are queued in
+ * {@link UserActionOutbox} and sent by {@link #flush(Context, Callback)} later.
  */
 public class UserServicesClient implements UserServices {
+    private static final String TAG = "UserServicesClient";
     private static final String BASE_WEB_URL = "https://news.ycombinator.com";
     private static final String LOGIN_PATH = "login";
     private static final String VOTE_PATH = "vote";
@@ -73,22 +89,44 @@ public class UserServicesClient implements UserServices {
     private static final Pattern PATTERN_INPUT = Pattern.compile("<\\s*input[^>]*>");
     private static final Pattern PATTERN_VALUE = Pattern.compile("value[^\"]*\"([^\"]*)\"");
     private static final Pattern PATTERN_CREATE_ERROR_BODY = Pattern.compile("<body>([^<]*)");
+    private static final String LOGIN_FORM_INPUT = "name=\"" + LOGIN_PARAM_ACCT + "\"";
     private static final String HEADER_LOCATION = "location";
-    private static final String HEADER_COOKIE = "cookie";
-    private static final String HEADER_SET_COOKIE = "set-cookie";
+    private static final long MAX_PEEK_BYTES = 64 * 1024;
+    private static final long TOKEN_MAX_AGE_MILLIS = 30 * DateUtils.MINUTE_IN_MILLIS;
+    private static final int RESULT_FAILED = 0;
+    private static final int RESULT_DONE = 1;
+    private static final int RESULT_QUEUED = 2;
     private final Call.Factory mCallFactory;
     private final Scheduler mIoScheduler;
+    private final SessionCookieJar mCookieJar;
+    private final UserActionOutbox mOutbox;
+    // held while flushing, so that no action is sent twice, never while looking up outbox
+    private final Object mFlushLock = new Object();
+    private final HttpUrl mBaseUrl;
+    private volatile Token mFnid;
 
     /**
      * Constructs a new UserServicesClient.
      *
-     * @param callFactory The call factory.
+     * @param callFactory The call factory, which should keep cookies in {@code cookieJar}.
      * @param ioScheduler The I/O scheduler.
+     * @param cookieJar   The session cookie jar.
+     * @param outbox      The outbox to queue actions that cannot reach the server in.
      */
     @Inject
-    public UserServicesClient(Call.Factory callFactory, Scheduler ioScheduler) {
+    public UserServicesClient(Call.Factory callFactory, Scheduler ioScheduler,
+                              SessionCookieJar cookieJar, UserActionOutbox outbox) {
+        this(callFactory, ioScheduler, cookieJar, outbox, HttpUrl.get(BASE_WEB_URL));
+    }
+
+    @VisibleForTesting
+    UserServicesClient(Call.Factory callFactory, Scheduler ioScheduler,
+                       SessionCookieJar cookieJar, UserActionOutbox outbox, HttpUrl baseUrl) {
         mCallFactory = callFactory;
         mIoScheduler = ioScheduler;
+        mCookieJar = cookieJar;
+        mOutbox = outbox;
+        mBaseUrl = baseUrl;
     }
 
     /**
@@ -129,10 +167,14 @@ public class UserServicesClient implements UserServices {
             return false;
         }
         Toast.makeText(context, R.string.sending, Toast.LENGTH_SHORT).show();
-        execute(postVote(credentials.first, credentials.second, itemId))
-                .map(response -> response.code() == HttpURLConnection.HTTP_MOVED_TEMP)
+        executeAuthenticated(credentials.first, credentials.second,
+                (username, password) -> postVote(username, password, itemId))
+                .map(response -> response.code() == HttpURLConnection.HTTP_MOVED_TEMP ?
+                        RESULT_DONE : RESULT_FAILED)
+                .onErrorResumeNext(throwable -> queueIfOffline(throwable,
+                        () -> mOutbox.addVote(credentials.first, itemId)))
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(callback::onDone, callback::onError);
+                .subscribe(result -> deliver(callback, result), callback::onError);
         return true;
     }
 
@@ -152,10 +194,14 @@ public class UserServicesClient implements UserServices {
             callback.onDone(false);
             return;
         }
-        execute(postReply(parentId, text, credentials.first, credentials.second))
-                .map(response -> response.code() == HttpURLConnection.HTTP_MOVED_TEMP)
+        executeAuthenticated(credentials.first, credentials.second,
+                (username, password) -> postReply(parentId, text, username, password))
+                .map(response -> response.code() == HttpURLConnection.HTTP_MOVED_TEMP ?
+                        RESULT_DONE : RESULT_FAILED)
+                .onErrorResumeNext(throwable -> queueIfOffline(throwable,
+                        () -> mOutbox.addReply(credentials.first, parentId, text)))
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(callback::onDone, callback::onError);
+                .subscribe(result -> deliver(callback, result), callback::onError);
     }
 
     /**
@@ -177,36 +223,33 @@ public class UserServicesClient implements UserServices {
         }
         /*
          * The flow:
-         * POST /submit with acc, pw
-         * if 302 to /login, considered failed
+         * if there is a cached fnid, POST /r with it, and fall back to below unless it is
+         * answered with a 302 to /newest or /item
+         * GET /submit with session, or POST /submit with acct, pw if there is none or it expired
+         * if 302, considered failed
          * POST /r with fnid, fnop, title, url or text
          * if 302 to /newest, considered successful
          * if 302 to /x, considered error, maybe duplicate or invalid input
          * if 200 or anything else, considered error
          */
-        // fetch submit page with given credentials
-        execute(postSubmitForm(credentials.first, credentials.second))
-                .flatMap(response -> response.code() != HttpURLConnection.HTTP_MOVED_TEMP ? Observable.just(response)
-                        : Observable.error(new IOException("Login failed, received redirect")))
-                .flatMap(response -> {
-                    try {
-                        return Observable.just(new String[] {
-                                response.header(HEADER_SET_COOKIE),
-                                response.body().string()
-                        });
-                    } catch (IOException e) {
-                        return Observable.error(e);
-                    } finally {
+        String username = credentials.first, password = credentials.second;
+        Observable<Response> scraped = fetchFnid(username, password)
+                .flatMap(fnid -> execute(postSubmit(title, content, isUrl, fnid)));
+        Observable<Response> submission = scraped;
+        Token cached = mFnid;
+        if (cached != null && cached.isValid(username) && mCookieJar.hasSession(username)) {
+            submission = execute(postSubmit(title, content, isUrl, cached.mValue))
+                    .flatMap(response -> {
+                        if (isSubmitted(response)) {
+                            return Observable.just(response);
+                        }
+                        // stale fnid or session, scrape a new one and try again
                         response.close();
-                    }
-                })
-                .map(array -> {
-                    array[1] = getInputValue(array[1], SUBMIT_PARAM_FNID);
-                    return array;
-                })
-                .flatMap(array -> !TextUtils.isEmpty(array[1]) ? Observable.just(array)
-                        : Observable.error(new IOException("Failed to get fnid for submission")))
-                .flatMap(array -> execute(postSubmit(title, content, isUrl, array[0], array[1])))
+                        mFnid = null;
+                        return scraped;
+                    });
+        }
+        submission
                 .flatMap(response -> {
                     try {
                         if (response.code() == HttpURLConnection.HTTP_MOVED_TEMP) {
@@ -227,6 +270,173 @@ public class UserServicesClient implements UserServices {
                 .subscribe(callback::onDone, callback::onError);
     }
 
+    /**
+     * Sends queued votes and replies that are due.
+     *
+     * @param context  The context.
+     * @param callback The callback to be invoked when the call is complete, with true if all
+     *                 queued actions have been sent, false if some remain to be retried.
+     */
+    @Override
+    @android.annotation.SuppressLint("CheckResult")
+    public void flush(Context context, Callback callback) {
+        Observable.fromCallable(() -> flush(context))
+                .subscribeOn(mIoScheduler)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(callback::onDone, callback::onError);
+    }
+
+    /**
+     * Sends due actions account by account, so that each account's batch shares one session,
+     * stopping at the first that cannot reach the server.
+     */
+    @WorkerThread
+    private boolean flush(Context context) {
+        synchronized (mFlushLock) {
+            String account = null, password = null;
+            for (MaterialisticDatabase.OutboxEntry entry : mOutbox.getDue()) {
+                if (!TextUtils.equals(account, entry.getAccount())) {
+                    account = entry.getAccount();
+                    password = getPassword(context, account);
+                }
+                if (password == null) { // account has been removed
+                    mOutbox.remove(entry);
+                    continue;
+                }
+                AuthenticatedRequest request = UserActionOutbox.ACTION_VOTE.equals(entry.getAction()) ?
+                        (username, pw) -> postVote(username, pw, entry.getItemId()) :
+                        (username, pw) -> postReply(entry.getItemId(), entry.getText(), username, pw);
+                Response response;
+                try {
+                    response = executeAuthenticated(account, password, request).blockingFirst();
+                } catch (RuntimeException e) {
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "Failed to send queued " + entry.getAction(), e);
+                    }
+                    mOutbox.retryLater(entry);
+                    break;
+                }
+                if (response.code() != HttpURLConnection.HTTP_MOVED_TEMP) {
+                    Log.e(TAG, "Queued " + entry.getAction() + " of item " + entry.getItemId() +
+                            " rejected: " + response.code());
+                }
+                response.close();
+                mOutbox.remove(entry);
+            }
+            return mOutbox.isEmpty();
+        }
+    }
+
+    /**
+     * Queues an action that failed to reach the server, or passes on any other error.
+     */
+    private Observable<Integer> queueIfOffline(Throwable throwable, Runnable enqueue) {
+        if (!(throwable instanceof IOException) || throwable instanceof UserServices.Exception) {
+            return Observable.error(throwable);
+        }
+        return Observable.fromCallable(() -> {
+            enqueue.run();
+            return RESULT_QUEUED;
+        });
+    }
+
+    private static void deliver(Callback callback, int result) {
+        if (result == RESULT_QUEUED) {
+            callback.onQueued();
+        } else {
+            callback.onDone(result == RESULT_DONE);
+        }
+    }
+
+    @Nullable
+    private static String getPassword(Context context, String username) {
+        AccountManager accountManager = AccountManager.get(context);
+        for (Account account : accountManager.getAccountsByType(BuildConfig.APPLICATION_ID)) {
+            if (TextUtils.equals(username, account.name)) {
+                return accountManager.getPassword(account);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executes an authenticated request, by session if there is one for given user, otherwise
+     * or if it turns out to have expired, by given credentials, which renews session.
+     */
+    private Observable<Response> executeAuthenticated(String username, String password,
+                                                      AuthenticatedRequest request) {
+        if (!mCookieJar.hasSession(username)) {
+            return execute(request.build(username, password));
+        }
+        return execute(request.build(null, null))
+                .flatMap(response -> {
+                    if (!isLoginRequired(response)) {
+                        return Observable.just(response);
+                    }
+                    response.close();
+                    mCookieJar.clear();
+                    return execute(request.build(username, password));
+                });
+    }
+
+    /**
+     * Scrapes a submission fnid from submit form and caches it for given user.
+     */
+    private Observable<String> fetchFnid(String username, String password) {
+        return executeAuthenticated(username, password, this::requestSubmitForm)
+                .flatMap(response -> response.code() != HttpURLConnection.HTTP_MOVED_TEMP ? Observable.just(response)
+                        : Observable.error(new IOException("Login failed, received redirect")))
+                .flatMap(response -> {
+                    try {
+                        return Observable.just(response.body().string());
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    } finally {
+                        response.close();
+                    }
+                })
+                .flatMap(html -> {
+                    String fnid = getInputValue(html, SUBMIT_PARAM_FNID);
+                    if (TextUtils.isEmpty(fnid)) {
+                        return Observable.error(new IOException("Failed to get fnid for submission"));
+                    }
+                    mFnid = new Token(username, fnid);
+                    return Observable.just(fnid);
+                });
+    }
+
+    /**
+     * Checks if given response is a login form or a redirect to one, i.e. session is missing
+     * or expired.
+     */
+    private boolean isLoginRequired(Response response) throws IOException {
+        if (response.code() == HttpURLConnection.HTTP_MOVED_TEMP) {
+            return TextUtils.equals(getRedirectPath(response), LOGIN_PATH);
+        }
+        return response.code() == HttpURLConnection.HTTP_OK &&
+                response.peekBody(MAX_PEEK_BYTES).string().contains(LOGIN_FORM_INPUT);
+    }
+
+    /**
+     * Checks if given submission response is definitive, i.e. a redirect to the new story or
+     * an existing one, as opposed to an error that a new fnid or session may fix.
+     */
+    private boolean isSubmitted(Response response) {
+        if (response.code() != HttpURLConnection.HTTP_MOVED_TEMP) {
+            return false;
+        }
+        String path = getRedirectPath(response);
+        return TextUtils.equals(path, DEFAULT_SUBMIT_REDIRECT) || TextUtils.equals(path, ITEM_PATH);
+    }
+
+    @Nullable
+    private String getRedirectPath(Response response) {
+        String location = response.header(HEADER_LOCATION);
+        HttpUrl url = TextUtils.isEmpty(location) ? null :
+                response.request().url().resolve(location);
+        return url != null && url.pathSize() > 0 ? url.pathSegments().get(0) : null;
+    }
+
     private Request postLogin(String username, String password, boolean createAccount) {
         FormBody.Builder formBuilder = new FormBody.Builder()
                 .add(LOGIN_PARAM_ACCT, username)
@@ -236,61 +446,52 @@ public class UserServicesClient implements UserServices {
             formBuilder.add(LOGIN_PARAM_CREATING, CREATING_TRUE);
         }
         return new Request.Builder()
-                .url(HttpUrl.parse(BASE_WEB_URL)
-                        .newBuilder()
+                .url(mBaseUrl.newBuilder()
                         .addPathSegment(LOGIN_PATH)
                         .build())
                 .post(formBuilder.build())
                 .build();
     }
 
-    private Request postVote(String username, String password, String itemId) {
+    private Request postVote(@Nullable String username, @Nullable String password, String itemId) {
         return new Request.Builder()
-                .url(HttpUrl.parse(BASE_WEB_URL)
-                        .newBuilder()
+                .url(mBaseUrl.newBuilder()
                         .addPathSegment(VOTE_PATH)
                         .build())
-                .post(new FormBody.Builder()
-                        .add(LOGIN_PARAM_ACCT, username)
-                        .add(LOGIN_PARAM_PW, password)
+                .post(credentials(username, password)
                         .add(VOTE_PARAM_ID, itemId)
                         .add(VOTE_PARAM_HOW, VOTE_DIR_UP)
                         .build())
                 .build();
     }
 
-    private Request postReply(String parentId, String text, String username, String password) {
+    private Request postReply(String parentId, String text,
+                              @Nullable String username, @Nullable String password) {
         return new Request.Builder()
-                .url(HttpUrl.parse(BASE_WEB_URL)
-                        .newBuilder()
+                .url(mBaseUrl.newBuilder()
                         .addPathSegment(COMMENT_PATH)
                         .build())
-                .post(new FormBody.Builder()
-                        .add(LOGIN_PARAM_ACCT, username)
-                        .add(LOGIN_PARAM_PW, password)
+                .post(credentials(username, password)
                         .add(COMMENT_PARAM_PARENT, parentId)
                         .add(COMMENT_PARAM_TEXT, text)
                         .build())
                 .build();
     }
 
-    private Request postSubmitForm(String username, String password) {
-        return new Request.Builder()
-                .url(HttpUrl.parse(BASE_WEB_URL)
-                        .newBuilder()
+    private Request requestSubmitForm(@Nullable String username, @Nullable String password) {
+        Request.Builder builder = new Request.Builder()
+                .url(mBaseUrl.newBuilder()
                         .addPathSegment(SUBMIT_PATH)
-                        .build())
-                .post(new FormBody.Builder()
-                        .add(LOGIN_PARAM_ACCT, username)
-                        .add(LOGIN_PARAM_PW, password)
-                        .build())
-                .build();
+                        .build());
+        if (username != null) {
+            builder.post(credentials(username, password).build());
+        }
+        return builder.build();
     }
 
-    private Request postSubmit(String title, String content, boolean isUrl, String cookie, String fnid) {
-        Request.Builder builder = new Request.Builder()
-                .url(HttpUrl.parse(BASE_WEB_URL)
-                        .newBuilder()
+    private Request postSubmit(String title, String content, boolean isUrl, String fnid) {
+        return new Request.Builder()
+                .url(mBaseUrl.newBuilder()
                         .addPathSegment(SUBMIT_POST_PATH)
                         .build())
                 .post(new FormBody.Builder()
@@ -298,11 +499,17 @@ public class UserServicesClient implements UserServices {
                         .add(SUBMIT_PARAM_FNOP, DEFAULT_FNOP)
                         .add(SUBMIT_PARAM_TITLE, title)
                         .add(isUrl ? SUBMIT_PARAM_URL : SUBMIT_PARAM_TEXT, content)
-                        .build());
-        if (!TextUtils.isEmpty(cookie)) {
-            builder.addHeader(HEADER_COOKIE, cookie);
+                        .build())
+                .build();
+    }
+
+    private FormBody.Builder credentials(@Nullable String username, @Nullable String password) {
+        FormBody.Builder builder = new FormBody.Builder();
+        if (username != null && password != null) {
+            builder.add(LOGIN_PARAM_ACCT, username)
+                    .add(LOGIN_PARAM_PW, password);
         }
-        return builder.build();
+        return builder;
     }
 
     private Observable<Response> execute(Request request) {
@@ -351,4 +558,30 @@ public class UserServicesClient implements UserServices {
             return null;
         }
     }
+
+    /**
+     * Builds a request authenticated by given credentials, or by session if they are null.
+     */
+    private interface AuthenticatedRequest {
+        Request build(@Nullable String username, @Nullable String password);
+    }
+
+    /**
+     * A token scraped for a user, valid for a limited time.
+     */
+    private static class Token {
+        final String mUsername;
+        final String mValue;
+        final long mCreatedAt = SystemClock.elapsedRealtime();
+
+        Token(String username, String value) {
+            mUsername = username;
+            mValue = value;
+        }
+
+        boolean isValid(String username) {
+            return TextUtils.equals(mUsername, username) &&
+                    SystemClock.elapsedRealtime() - mCreatedAt < TOKEN_MAX_AGE_MILLIS;
+        }
+    }
 }
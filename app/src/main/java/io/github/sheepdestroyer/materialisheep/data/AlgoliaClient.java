@@ -34,11 +34,12 @@ import retrofit2.http.Header;
 import retrofit2.http.Query;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * An {@link ItemManager} that uses the Algolia REST API forHN Search.
  */
-public class AlgoliaClient implements ItemManager {
+public class AlgoliaClient implements PagedItemManager {
 
     /**
      * A flag that indicates whether to sort search results by time.
@@ -48,19 +49,22 @@ public class AlgoliaClient implements ItemManager {
      * The host of the Algolia API.
      */
     public static final String HOST = "hn.algolia.com";
-    private static final String BASE_API_URL = "https://" + HOST + "/api/v1/";
+    static final String BASE_API_URL = "https://" + HOST + "/api/v1/";
 
     static final String MIN_CREATED_AT = "created_at_i>";
     protected final RestService mRestService;
     private final ItemManager mHackerNewsClient;
     private final Scheduler mMainThreadScheduler;
+    private final ItemRegistry mItemRegistry;
 
     @Inject
     public AlgoliaClient(RestServiceFactory factory, @Named(HN) ItemManager hackerNewsClient,
-            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
+            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler,
+            ItemRegistry itemRegistry) {
         mRestService = factory.rxEnabled(true).create(BASE_API_URL, RestService.class);
         mHackerNewsClient = hackerNewsClient;
         mMainThreadScheduler = mainThreadScheduler;
+        mItemRegistry = itemRegistry;
     }
 
     /**
@@ -69,16 +73,16 @@ public class AlgoliaClient implements ItemManager {
      * @param filter    the filter to apply (e.g., query string or range)
      * @param cacheMode the {@link CacheMode} to use
      * @param listener  the {@link ResponseListener} to notify of the results
+     * @return a handle to cancel the request
      */
     @Override
-    @android.annotation.SuppressLint("CheckResult")
-    public void getStories(String filter, @CacheMode int cacheMode,
+    public Disposable getStories(String filter, @CacheMode int cacheMode,
             final ResponseListener<Item[]> listener) {
         if (listener == null) {
-            return;
+            return Disposable.disposed();
         }
-        searchRx(filter)
-                .map(this::toItems)
+        return searchRx(filter)
+                .map(hits -> toItems(mItemRegistry, hits))
                 .observeOn(mMainThreadScheduler)
                 .subscribe(listener::onResponse,
                         t -> {
@@ -88,13 +92,30 @@ public class AlgoliaClient implements ItemManager {
     }
 
     @Override
-    public void getItem(String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener) {
-        mHackerNewsClient.getItem(itemId, cacheMode, listener);
+    public Disposable getItem(String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener) {
+        return mHackerNewsClient.getItem(itemId, cacheMode, listener);
     }
 
     @Override
-    public void getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
-        mHackerNewsClient.getItems(itemIds, cacheMode, listener);
+    public Disposable getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode, listener);
+    }
+
+    @Override
+    public Disposable getItems(long[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode, listener);
+    }
+
+    @Override
+    public Disposable streamItems(String[] itemIds, @CacheMode int cacheMode, long windowMillis,
+            ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.streamItems(itemIds, cacheMode, windowMillis, listener);
+    }
+
+    @Override
+    public Disposable streamItems(long[] itemIds, @CacheMode int cacheMode, long windowMillis,
+            ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.streamItems(itemIds, cacheMode, windowMillis, listener);
     }
 
     /**
@@ -107,13 +128,34 @@ public class AlgoliaClient implements ItemManager {
     @Override
     public Item[] getStories(String filter, @CacheMode int cacheMode) {
         try {
-            return toItems(search(filter).execute().body());
+            return toItems(mItemRegistry, search(filter).execute().body());
         } catch (IOException e) {
             android.util.Log.e("AlgoliaClient", "Error fetching stories synchronously", e);
             return new Item[0];
         }
     }
 
+    /**
+     * Fetches a page of stories from the Algolia API synchronously.
+     *
+     * @param filter    the filter to apply
+     * @param page      the zero based page index
+     * @param pageSize  the maximum number of stories per page
+     * @param cacheMode the {@link CacheMode} to use
+     * @return an array of {@link Item}s, ranked across pages
+     */
+    @NonNull
+    @Override
+    public Item[] getStories(String filter, int page, int pageSize, @CacheMode int cacheMode) {
+        try {
+            return toItems(mItemRegistry, search(filter, page, pageSize).execute().body(),
+                    page * pageSize);
+        } catch (IOException e) {
+            android.util.Log.e("AlgoliaClient", "Error fetching page of stories", e);
+            return new Item[0];
+        }
+    }
+
     @Override
     public Item getItem(String itemId, @CacheMode int cacheMode) {
         return mHackerNewsClient.getItem(itemId, cacheMode);
@@ -124,6 +166,11 @@ public class AlgoliaClient implements ItemManager {
         return mHackerNewsClient.getItems(itemIds, cacheMode);
     }
 
+    @Override
+    public Item[] getItems(long[] itemIds, @CacheMode int cacheMode) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode);
+    }
+
     /**
      * Searches for stories that match the given filter.
      *
@@ -144,55 +191,40 @@ public class AlgoliaClient implements ItemManager {
         return sSortByTime ? mRestService.searchByDate(filter, null) : mRestService.search(filter, null);
     }
 
+    /**
+     * Searches for a page of stories that match the given filter.
+     *
+     * @param filter   the filter to apply
+     * @param page     the zero based page index
+     * @param pageSize the maximum number of stories per page
+     * @return a {@link Call} that can be used to execute the search
+     */
+    protected Call<AlgoliaHits> search(String filter, int page, int pageSize) {
+        return sSortByTime ? mRestService.searchByDatePage(filter, page, pageSize, null) :
+                mRestService.searchPage(filter, page, pageSize, null);
+    }
+
     @NonNull
-    private Item[] toItems(AlgoliaHits algoliaHits) {
+    static Item[] toItems(ItemRegistry itemRegistry, AlgoliaHits algoliaHits) {
+        return toItems(itemRegistry, algoliaHits, 0);
+    }
+
+    @NonNull
+    static Item[] toItems(ItemRegistry itemRegistry, AlgoliaHits algoliaHits, int rankOffset) {
         if (algoliaHits == null) {
             return new Item[0];
         }
         Hit[] hits = algoliaHits.hits;
         Item[] stories = new Item[hits == null ? 0 : hits.length];
         for (int i = 0; i < stories.length; i++) {
+            Hit hit = hits[i];
             // noinspection ConstantConditions
-            HackerNewsItem item = new HackerNewsItem(
-                    Long.parseLong(hits[i].objectID));
-            item.rank = i + 1;
-            final String title = hits[i].title;
-            final String url = hits[i].url;
-            final String author = hits[i].author;
-            final int score = hits[i].points;
-            final int descendants = hits[i].num_comments;
-            final long time = hits[i].created_at_i;
-            item.populate(new HackerNewsItem(0) {
-                @Override
-                public String getTitle() {
-                    return title;
-                }
-
-                @Override
-                public String getRawUrl() {
-                    return url;
-                }
-
-                @Override
-                public String getBy() {
-                    return author;
-                }
-
-                @Override
-                public int getScore() {
-                    return score;
-                }
-
-                @Override
-                public int getDescendants() {
-                    return descendants;
-                }
-
-                @Override
-                public long getTime() {
-                    return time;
-                }
-            });
+            long id = Long.parseLong(hit.objectID);
+            // merged into content shared with other sources, which may already have loaded it
+            HackerNewsItem item = itemRegistry.mergeMetadata(id, hit.title, hit.url,
+                    hit.author, hit.points, hit.num_comments, hit.created_at_i);
+            itemRegistry.publishLater(item);
+            item.rank = rankOffset + i + 1;
             stories[i] = item;
         }
         return stories;
@@ -235,6 +267,46 @@ public class AlgoliaClient implements ItemManager {
         Observable<AlgoliaHits> searchByMinTimestampRx(@Query("numericFilters") String numericFilters,
                 @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
 
+        /**
+         * Asynchronously gets stories by tags, e.g. "(story_1,story_2)" for given stories.
+         *
+         * @param tags        the tag filter, comma separated tags are AND'ed, tags in
+         *                    parentheses are OR'ed
+         * @param hitsPerPage the maximum number of stories to get
+         * @return an Observable of matching stories
+         */
+        @GET("search?attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
+        Observable<AlgoliaHits> searchByTagsRx(@Query("tags") String tags,
+                @Query("hitsPerPage") int hitsPerPage);
+
+        /**
+         * Asynchronously searches for a page of stories by date.
+         *
+         * @param query       the search query
+         * @param page        the zero based page index
+         * @param hitsPerPage the maximum number of stories per page
+         * @param etag        the ETag for a conditional request, can be null
+         * @return an Observable of search results
+         */
+        @GET("search_by_date?tags=story&attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
+        Observable<AlgoliaHits> searchByDatePageRx(@Query("query") String query,
+                @Query("page") int page, @Query("hitsPerPage") int hitsPerPage,
+                @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
+
+        /**
+         * Asynchronously searches for a page of stories.
+         *
+         * @param query       the search query
+         * @param page        the zero based page index
+         * @param hitsPerPage the maximum number of stories per page
+         * @param etag        the ETag for a conditional request, can be null
+         * @return an Observable of search results
+         */
+        @GET("search?tags=story&attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
+        Observable<AlgoliaHits> searchPageRx(@Query("query") String query,
+                @Query("page") int page, @Query("hitsPerPage") int hitsPerPage,
+                @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
+
         /**
          * Synchronously searches for stories by date.
          *
@@ -268,6 +340,49 @@ public class AlgoliaClient implements ItemManager {
         @GET("search?hitsPerPage=100&tags=story&attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
         Call<AlgoliaHits> searchByMinTimestamp(@Query("numericFilters") String numericFilters,
                 @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
+
+        /**
+         * Synchronously searches for a page of stories by date.
+         *
+         * @param query       the search query
+         * @param page        the zero based page index
+         * @param hitsPerPage the maximum number of stories per page
+         * @param etag        the ETag for a conditional request, can be null
+         * @return a {@link Call} of search results
+         */
+        @GET("search_by_date?tags=story&attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
+        Call<AlgoliaHits> searchByDatePage(@Query("query") String query,
+                @Query("page") int page, @Query("hitsPerPage") int hitsPerPage,
+                @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
+
+        /**
+         * Synchronously searches for a page of stories.
+         *
+         * @param query       the search query
+         * @param page        the zero based page index
+         * @param hitsPerPage the maximum number of stories per page
+         * @param etag        the ETag for a conditional request, can be null
+         * @return a {@link Call} of search results
+         */
+        @GET("search?tags=story&attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
+        Call<AlgoliaHits> searchPage(@Query("query") String query,
+                @Query("page") int page, @Query("hitsPerPage") int hitsPerPage,
+                @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
+
+        /**
+         * Synchronously searches for a page of stories created after a minimum timestamp.
+         *
+         * @param numericFilters the numeric filter for creation timestamp (e.g.
+         *                       "created_at_i>12345")
+         * @param page           the zero based page index
+         * @param hitsPerPage    the maximum number of stories per page
+         * @param etag           the ETag for a conditional request, can be null
+         * @return a {@link Call} of search results
+         */
+        @GET("search?tags=story&attributesToRetrieve=objectID,title,url,author,points,num_comments,created_at_i&attributesToHighlight=none")
+        Call<AlgoliaHits> searchByMinTimestampPage(@Query("numericFilters") String numericFilters,
+                @Query("page") int page, @Query("hitsPerPage") int hitsPerPage,
+                @Header(HEADER_IF_NONE_MATCH) @Nullable String etag);
     }
 
     static class AlgoliaHits {
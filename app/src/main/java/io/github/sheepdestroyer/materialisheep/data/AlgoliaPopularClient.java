@@ -42,11 +42,13 @@ public class AlgoliaPopularClient extends AlgoliaClient {
      *                            the REST service
      * @param hackerNewsClient    the {@link ItemManager} for HackerNews items
      * @param mainThreadScheduler the {@link Scheduler} for observing on main thread
+     * @param itemRegistry        the {@link ItemRegistry} to resolve items through
      */
     @Inject
     public AlgoliaPopularClient(RestServiceFactory factory, @Named(DataModule.HN) ItemManager hackerNewsClient,
-            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
-        super(factory, hackerNewsClient, mainThreadScheduler);
+            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler,
+            ItemRegistry itemRegistry) {
+        super(factory, hackerNewsClient, mainThreadScheduler, itemRegistry);
     }
 
     @Retention(RetentionPolicy.SOURCE)
@@ -63,6 +65,8 @@ public class AlgoliaPopularClient extends AlgoliaClient {
     public static final String PAST_WEEK = "past_week";
     public static final String PAST_MONTH = "past_month";
     public static final String PAST_YEAR = "past_year";
+    private static final long TIMESTAMP_GRANULARITY_MILLIS =
+            java.util.concurrent.TimeUnit.MINUTES.toMillis(10);
 
     /**
      * Searches for popular stories using Algolia's numeric filters.
@@ -86,12 +90,29 @@ public class AlgoliaPopularClient extends AlgoliaClient {
         return mRestService.searchByMinTimestamp(getNumericFilter(filter), null);
     }
 
+    /**
+     * Searches for a page of popular stories using Algolia's numeric filters.
+     *
+     * @param filter   the {@link Range} filter to apply
+     * @param page     the zero based page index
+     * @param pageSize the maximum number of stories per page
+     * @return a {@link Call} that can be used to execute the search
+     */
+    @Override
+    protected Call<AlgoliaHits> search(@Range String filter, int page, int pageSize) {
+        return mRestService.searchByMinTimestampPage(getNumericFilter(filter), page, pageSize,
+                null);
+    }
+
     private String getNumericFilter(@Range String filter) {
         return MIN_CREATED_AT + toTimestamp(filter) / 1000;
     }
 
     private long toTimestamp(@Range String filter) {
+        // round down, so that refreshes within the same window request the same URL and can
+        // be revalidated, rather than a new URL every second
         long timestamp = System.currentTimeMillis();
+        timestamp -= timestamp % TIMESTAMP_GRANULARITY_MILLIS;
         switch (filter) {
             case LAST_24H:
             default:
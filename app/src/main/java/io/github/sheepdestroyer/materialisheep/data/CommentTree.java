@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact model of the comments of an item, for very large threads. Instead of an item object
+ * per comment, with its cached spans, kid items and parent item, comments are kept in parallel
+ * primitive arrays: ids, parent indices, levels, times, flags, and offsets into a shared text
+ * buffer and a shared author pool. Comments are referred to by index; kids of a comment are
+ * added as a contiguous range once it is loaded, kids of the item come first.
+ * <p>
+ * Items are only materialized as rows for comments in use, e.g. bound to a view. Rows are
+ * cached up to {@link #MAX_ROWS}, more than a screen of comments, and changes made to them,
+ * e.g. loaded content or collapsed state, are written back once they are evicted or
+ * {@link #store(Item) stored}.
+ */
+@MainThread
+public final class CommentTree {
+    public static final int NO_INDEX = -1;
+    private static final int MAX_ROWS = 128;
+    private static final int FLAG_LOADED = 1, FLAG_DEAD = 1 << 1, FLAG_DELETED = 1 << 2,
+            FLAG_COLLAPSED = 1 << 3, FLAG_CONTENT_EXPANDED = 1 << 4, FLAG_VOTED = 1 << 5,
+            FLAG_EXPANDED = 1 << 6, FLAG_KIDS = 1 << 7;
+    private static final int NULL = -1;
+
+    private final long mRootId;
+    private final int mRootCount;
+    private int mSize;
+    private long[] mIds;
+    private int[] mParents;
+    private short[] mLevels;
+    private long[] mTimes;
+    private int[] mFlags;
+    private int[] mFirstKids;
+    private int[] mKidCounts;
+    private int[] mTypes;
+    private int[] mAuthors;
+    private int[] mTextStarts;
+    private int[] mTextLengths;
+    private char[] mText = new char[1024];
+    private int mTextSize;
+    private final List<String> mStrings = new ArrayList<>();
+    private final Map<String, Integer> mStringIndices = new HashMap<>();
+    // open addressing map of id to latest index, ids are never 0
+    private long[] mHashIds;
+    private int[] mHashIndices;
+    private final LruCache<Integer, HackerNewsItem> mRows =
+            new LruCache<Integer, HackerNewsItem>(MAX_ROWS) {
+        @Override
+        protected void entryRemoved(boolean evicted, Integer key, HackerNewsItem oldValue,
+                                    HackerNewsItem newValue) {
+            write(key, oldValue);
+        }
+    };
+
+    /**
+     * Constructs a tree of the comments of given item, with its kids not yet loaded.
+     *
+     * @param item item whose comments are modeled
+     */
+    public CommentTree(@NonNull Item item) {
+        long[] kids = item.getKids();
+        mRootId = item.getLongId();
+        mRootCount = kids != null ? kids.length : 0;
+        int capacity = Math.max(16, mRootCount * 2);
+        mIds = new long[capacity];
+        mParents = new int[capacity];
+        mLevels = new short[capacity];
+        mTimes = new long[capacity];
+        mFlags = new int[capacity];
+        mFirstKids = new int[capacity];
+        mKidCounts = new int[capacity];
+        mTypes = new int[capacity];
+        mAuthors = new int[capacity];
+        mTextStarts = new int[capacity];
+        mTextLengths = new int[capacity];
+        mHashIds = new long[Integer.highestOneBit(capacity) * 4];
+        mHashIndices = new int[mHashIds.length];
+        if (kids != null) {
+            add(kids, NO_INDEX, item.getLevel() + 1);
+        }
+    }
+
+    /**
+     * @return number of comments known, loaded or not
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return number of kids of the item, which are the first comments
+     */
+    public int getRootCount() {
+        return mRootCount;
+    }
+
+    /**
+     * Finds index of given comment.
+     *
+     * @param id comment ID
+     * @return comment index, or {@link #NO_INDEX} if comment is not known
+     */
+    public int indexOf(long id) {
+        int mask = mHashIds.length - 1;
+        for (int slot = hash(id) & mask; mHashIds[slot] != 0; slot = (slot + 1) & mask) {
+            if (mHashIds[slot] == id) {
+                return mHashIndices[slot];
+            }
+        }
+        return NO_INDEX;
+    }
+
+    /**
+     * Gets item row of given comment, materializing it if it is not in use yet. Rows stay the
+     * same object until they are evicted.
+     *
+     * @param index comment index
+     * @return item row
+     */
+    @NonNull
+    public Item getRow(int index) {
+        HackerNewsItem row = mRows.get(index);
+        if (row == null) {
+            row = materialize(index);
+            mRows.put(index, row);
+        }
+        return row;
+    }
+
+    /**
+     * Gets item row of given comment if it is in use, otherwise a transient row that is not
+     * kept, e.g. to read through all comments.
+     *
+     * @param index comment index
+     * @return item row
+     */
+    @NonNull
+    public Item peekRow(int index) {
+        HackerNewsItem row = mRows.get(index);
+        return row != null ? row : materialize(index);
+    }
+
+    /**
+     * Writes back changes made to given row, adding its kids if it has been loaded.
+     *
+     * @param item item row
+     * @return comment index, or {@link #NO_INDEX} if comment is not known
+     */
+    public int store(@NonNull Item item) {
+        int index = indexOf(item.getLongId());
+        if (index == NO_INDEX) {
+            return NO_INDEX;
+        }
+        write(index, item);
+        HackerNewsItem row = mRows.get(index);
+        if (row != null && row != item) { // given row had been evicted, keep its successor current
+            row.restore(this, index);
+        }
+        return index;
+    }
+
+    public long getId(int index) {
+        return mIds[index];
+    }
+
+    /**
+     * @return index of parent comment, or {@link #NO_INDEX} if parent is the item
+     */
+    public int getParent(int index) {
+        return mParents[index];
+    }
+
+    public int getLevel(int index) {
+        return mLevels[index];
+    }
+
+    public long getTime(int index) {
+        return mTimes[index];
+    }
+
+    public boolean isLoaded(int index) {
+        return hasFlag(index, FLAG_LOADED);
+    }
+
+    public boolean isDead(int index) {
+        return hasFlag(index, FLAG_DEAD);
+    }
+
+    public boolean isDeleted(int index) {
+        return hasFlag(index, FLAG_DELETED);
+    }
+
+    public boolean isCollapsed(int index) {
+        return hasFlag(index, FLAG_COLLAPSED);
+    }
+
+    public boolean isContentExpanded(int index) {
+        return hasFlag(index, FLAG_CONTENT_EXPANDED);
+    }
+
+    public boolean isVoted(int index) {
+        return hasFlag(index, FLAG_VOTED);
+    }
+
+    /**
+     * @return true if kids of given comment are shown, as tracked by {@link #setExpanded}
+     */
+    public boolean isExpanded(int index) {
+        return hasFlag(index, FLAG_EXPANDED);
+    }
+
+    public void setExpanded(int index, boolean expanded) {
+        setFlag(index, FLAG_EXPANDED, expanded);
+    }
+
+    @Nullable
+    public String getType(int index) {
+        return mTypes[index] == NULL ? null : mStrings.get(mTypes[index]);
+    }
+
+    @Nullable
+    public String getBy(int index) {
+        return mAuthors[index] == NULL ? null : mStrings.get(mAuthors[index]);
+    }
+
+    @Nullable
+    public String getText(int index) {
+        return mTextStarts[index] == NULL ? null :
+                new String(mText, mTextStarts[index], mTextLengths[index]);
+    }
+
+    /**
+     * @return index of first kid of given comment, valid if it has kids
+     */
+    public int getFirstKid(int index) {
+        return mFirstKids[index];
+    }
+
+    /**
+     * @return number of kids of given comment, 0 until it is loaded
+     */
+    public int getKidCount(int index) {
+        return hasFlag(index, FLAG_KIDS) ? mKidCounts[index] : 0;
+    }
+
+    /**
+     * @return kid IDs of given comment, or null if it has no kids or is not loaded
+     */
+    @Nullable
+    public long[] getKids(int index) {
+        if (!hasFlag(index, FLAG_KIDS)) {
+            return null;
+        }
+        int first = mFirstKids[index];
+        return Arrays.copyOfRange(mIds, first, first + mKidCounts[index]);
+    }
+
+    /**
+     * @return ID of parent comment, or of the item if given comment is one of its kids
+     */
+    public long getParentId(int index) {
+        return mParents[index] == NO_INDEX ? mRootId : mIds[mParents[index]];
+    }
+
+    /**
+     * @return 1 based position of given comment among its siblings
+     */
+    public int getRank(int index) {
+        return index - getSiblingStart(index) + 1;
+    }
+
+    /**
+     * @return ID of previous sibling, or 0 if given comment is the first
+     */
+    public long getPreviousId(int index) {
+        return index > getSiblingStart(index) ? mIds[index - 1] : 0L;
+    }
+
+    /**
+     * @return ID of next sibling, or 0 if given comment is the last
+     */
+    public long getNextId(int index) {
+        int parent = mParents[index];
+        int end = parent == NO_INDEX ? mRootCount : mFirstKids[parent] + mKidCounts[parent];
+        return index + 1 < end ? mIds[index + 1] : 0L;
+    }
+
+    /**
+     * @return approximate retained size in bytes of this tree, excluding rows in use
+     */
+    public long byteSize() {
+        return (long) mIds.length * (8 + 4 + 2 + 8 + 4 * 7) +
+                mHashIds.length * (8 + 4) +
+                mText.length * 2L;
+    }
+
+    private int getSiblingStart(int index) {
+        int parent = mParents[index];
+        return parent == NO_INDEX ? 0 : mFirstKids[parent];
+    }
+
+    private HackerNewsItem materialize(int index) {
+        HackerNewsItem row = new HackerNewsItem(mIds[index]);
+        row.restore(this, index);
+        return row;
+    }
+
+    private void write(int index, Item item) {
+        setFlag(index, FLAG_COLLAPSED, item.isCollapsed());
+        setFlag(index, FLAG_CONTENT_EXPANDED, item.isContentExpanded());
+        setFlag(index, FLAG_VOTED, item.isVoted());
+        if (item.getLocalRevision() <= 0) {
+            return;
+        }
+        mTimes[index] = item.getTime();
+        setFlag(index, FLAG_DEAD, item.isDead());
+        setFlag(index, FLAG_DELETED, item.isDeleted());
+        mTypes[index] = intern(item.getRawType());
+        mAuthors[index] = intern(item.getBy());
+        String text = item.getText();
+        if (!isLoaded(index) || !textEquals(index, text)) {
+            writeText(index, text);
+        }
+        setFlag(index, FLAG_LOADED, true);
+        long[] kids = item.getKids();
+        if (kids != null && kids.length > 0 && !kidsEqual(index, kids)) {
+            // a refreshed comment may have new kids, previous range is left unused
+            int first = add(kids, index, mLevels[index] + 1);
+            mFirstKids[index] = first;
+            mKidCounts[index] = kids.length;
+            setFlag(index, FLAG_KIDS, true);
+        }
+    }
+
+    private int add(long[] ids, int parent, int level) {
+        ensureCapacity(mSize + ids.length);
+        int first = mSize;
+        for (long id : ids) {
+            int index = mSize++;
+            mIds[index] = id;
+            mParents[index] = parent;
+            mLevels[index] = (short) Math.min(level, Short.MAX_VALUE);
+            mTypes[index] = NULL;
+            mAuthors[index] = NULL;
+            mTextStarts[index] = NULL;
+            putIndex(id, index);
+        }
+        return first;
+    }
+
+    private boolean kidsEqual(int index, long[] kids) {
+        if (!hasFlag(index, FLAG_KIDS) || mKidCounts[index] != kids.length) {
+            return false;
+        }
+        int first = mFirstKids[index];
+        for (int i = 0; i < kids.length; i++) {
+            if (mIds[first + i] != kids[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean textEquals(int index, String text) {
+        int start = mTextStarts[index];
+        if (start == NULL || text == null) {
+            return start == NULL && text == null;
+        }
+        if (mTextLengths[index] != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (mText[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeText(int index, String text) {
+        if (text == null) {
+            mTextStarts[index] = NULL;
+            return;
+        }
+        int length = text.length();
+        if (mTextSize + length > mText.length) {
+            mText = Arrays.copyOf(mText, Math.max(mText.length * 2, mTextSize + length));
+        }
+        text.getChars(0, length, mText, mTextSize);
+        mTextStarts[index] = mTextSize;
+        mTextLengths[index] = length;
+        mTextSize += length;
+    }
+
+    private int intern(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer index = mStringIndices.get(value);
+        if (index == null) {
+            index = mStrings.size();
+            mStrings.add(value);
+            mStringIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private boolean hasFlag(int index, int flag) {
+        return (mFlags[index] & flag) != 0;
+    }
+
+    private void setFlag(int index, int flag, boolean set) {
+        mFlags[index] = set ? mFlags[index] | flag : mFlags[index] & ~flag;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > mIds.length) {
+            int capacity = Math.max(mIds.length * 2, size);
+            mIds = Arrays.copyOf(mIds, capacity);
+            mParents = Arrays.copyOf(mParents, capacity);
+            mLevels = Arrays.copyOf(mLevels, capacity);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mFlags = Arrays.copyOf(mFlags, capacity);
+            mFirstKids = Arrays.copyOf(mFirstKids, capacity);
+            mKidCounts = Arrays.copyOf(mKidCounts, capacity);
+            mTypes = Arrays.copyOf(mTypes, capacity);
+            mAuthors = Arrays.copyOf(mAuthors, capacity);
+            mTextStarts = Arrays.copyOf(mTextStarts, capacity);
+            mTextLengths = Arrays.copyOf(mTextLengths, capacity);
+        }
+        if (size * 2 > mHashIds.length) {
+            long[] ids = mHashIds;
+            int[] indices = mHashIndices;
+            mHashIds = new long[Integer.highestOneBit(size) * 4];
+            mHashIndices = new int[mHashIds.length];
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != 0) {
+                    putIndex(ids[i], indices[i]);
+                }
+            }
+        }
+    }
+
+    private void putIndex(long id, int index) {
+        int mask = mHashIds.length - 1;
+        int slot = hash(id) & mask;
+        while (mHashIds[slot] != 0 && mHashIds[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        mHashIds[slot] = id;
+        mHashIndices[slot] = index;
+    }
+
+    private static int hash(long id) {
+        int hash = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+}
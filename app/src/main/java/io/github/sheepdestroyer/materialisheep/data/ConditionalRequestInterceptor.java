@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * A network interceptor that makes search, popular and story list requests conditional with
+ * validators from {@link ETagStore}, and turns {@code 304 Not Modified} into full responses
+ * from store, which the HTTP cache then stores as usual.
+ * <p>
+ * The HTTP cache revalidates its own stale entries, but not requests that force network, e.g.
+ * on refresh, nor entries it has evicted. Requests the HTTP cache already made conditional
+ * are left alone.
+ */
+public class ConditionalRequestInterceptor implements Interceptor {
+    static final String HEADER_ETAG = "ETag";
+    static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    // Firebase only sends ETags when asked to
+    static final String HEADER_FIREBASE_ETAG = "X-Firebase-ETag";
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String ALGOLIA_SEARCH_PATH_PREFIX = "/api/v1/search";
+    private static final String HN_STORIES_PATH_SUFFIX = "stories.json";
+    private final ETagStore mStore;
+
+    /**
+     * Constructs a new {@code ConditionalRequestInterceptor}.
+     *
+     * @param store the {@link ETagStore} to read and record validators with
+     */
+    public ConditionalRequestInterceptor(ETagStore store) {
+        mStore = store;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method()) || !isConditionable(request.url())) {
+            return chain.proceed(request);
+        }
+        Request.Builder builder = request.newBuilder();
+        if (HackerNewsClient.HOST.equals(request.url().host())) {
+            builder.header(HEADER_FIREBASE_ETAG, "true");
+        }
+        String key = ETagStore.normalize(request.url());
+        ETagStore.Entry entry = null;
+        if (request.header(HEADER_IF_NONE_MATCH) == null &&
+                request.header(HEADER_IF_MODIFIED_SINCE) == null) {
+            entry = mStore.get(key);
+            if (entry != null) {
+                if (entry.etag != null) {
+                    builder.header(HEADER_IF_NONE_MATCH, entry.etag);
+                }
+                if (entry.lastModified != null) {
+                    builder.header(HEADER_IF_MODIFIED_SINCE, entry.lastModified);
+                }
+                mStore.recordConditional();
+            }
+        }
+        long start = SystemClock.elapsedRealtime();
+        Response response = chain.proceed(builder.build());
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            if (entry == null) { // revalidating HTTP cache entry
+                return response;
+            }
+            mStore.recordNotModified(entry, SystemClock.elapsedRealtime() - start);
+            response.close();
+            Response.Builder notModified = response.newBuilder()
+                    .code(HttpURLConnection.HTTP_OK)
+                    .message("OK")
+                    .removeHeader(HEADER_CONTENT_ENCODING)
+                    .header(HEADER_CONTENT_LENGTH, String.valueOf(entry.body.length))
+                    .body(ResponseBody.create(entry.body, entry.contentType != null ?
+                            MediaType.parse(entry.contentType) : null));
+            if (entry.contentType != null) {
+                notModified.header(HEADER_CONTENT_TYPE, entry.contentType);
+            }
+            if (entry.contentEncoding != null) { // stored as transferred, e.g. gzip
+                notModified.header(HEADER_CONTENT_ENCODING, entry.contentEncoding);
+            }
+            return notModified.build();
+        }
+        if (response.isSuccessful()) {
+            store(key, response, start);
+        }
+        return response;
+    }
+
+    private void store(String key, Response response, long start) throws IOException {
+        String etag = response.header(HEADER_ETAG);
+        String lastModified = response.header(HEADER_LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            mStore.remove(key);
+            return;
+        }
+        // peek leaves body to be read by caller, reading one byte over tells if it is too big
+        byte[] body = response.peekBody(ETagStore.MAX_BODY_SIZE + 1).bytes();
+        if (body.length > ETagStore.MAX_BODY_SIZE) {
+            mStore.remove(key);
+            return;
+        }
+        mStore.put(new ETagStore.Entry(key, etag, lastModified,
+                response.header(HEADER_CONTENT_TYPE),
+                response.header(HEADER_CONTENT_ENCODING),
+                SystemClock.elapsedRealtime() - start,
+                body));
+    }
+
+    private static boolean isConditionable(HttpUrl url) {
+        if (AlgoliaClient.HOST.equals(url.host())) {
+            return url.encodedPath().startsWith(ALGOLIA_SEARCH_PATH_PREFIX);
+        }
+        return HackerNewsClient.HOST.equals(url.host()) &&
+                url.encodedPath().endsWith(HN_STORIES_PATH_SUFFIX);
+    }
+}
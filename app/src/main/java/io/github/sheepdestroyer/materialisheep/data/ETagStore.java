@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+import okhttp3.HttpUrl;
+import okio.ByteString;
+
+/**
+ * Persists response validators, i.e. {@code ETag} and {@code Last-Modified}, together with
+ * response bodies they validate, keyed by normalised request, so that a request can be made
+ * conditional and a {@code 304 Not Modified} answered from store. Recently used entries are
+ * kept in memory, all entries are kept on disk, so they survive HTTP cache eviction and
+ * process death. Also tracks what conditional requests saved.
+ */
+@Singleton
+public class ETagStore {
+    private static final String TAG = "ETagStore";
+    private static final String DIR = "etags";
+    private static final String SEARCH_QUERY = "query";
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_MEMORY_BYTES = 1024 * 1024; // 1 MB
+    @VisibleForTesting
+    static final int MAX_DISK_COUNT = 100;
+    /**
+     * Maximum size of a response body to store, larger responses are not made conditional.
+     */
+    static final int MAX_BODY_SIZE = 512 * 1024; // 512 KB
+    private final File mDir;
+    private final LruCache<String, Entry> mEntries = new LruCache<String, Entry>(MAX_MEMORY_BYTES) {
+        @Override
+        protected int sizeOf(String key, Entry value) {
+            return value.body.length;
+        }
+    };
+    private final AtomicLong mConditionalCount = new AtomicLong();
+    private final AtomicLong mNotModifiedCount = new AtomicLong();
+    private final AtomicLong mBytesSaved = new AtomicLong();
+    private final AtomicLong mLatencySavedMillis = new AtomicLong();
+
+    /**
+     * Constructs a new {@code ETagStore}.
+     *
+     * @param context the application context
+     */
+    @Inject
+    public ETagStore(Context context) {
+        this(new File(context.getCacheDir(), DIR));
+    }
+
+    @VisibleForTesting
+    ETagStore(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * Normalises given request URL into a store key: query parameters are sorted, and search
+     * queries are trimmed, lower cased and have their whitespaces collapsed, so that the same
+     * search typed differently shares its validators. The server still decides whether a
+     * stored response is valid for the actual request.
+     *
+     * @param url request URL
+     * @return store key
+     */
+    @NonNull
+    static String normalize(@NonNull HttpUrl url) {
+        List<String> params = new ArrayList<>(url.querySize());
+        for (int i = 0; i < url.querySize(); i++) {
+            String name = url.queryParameterName(i);
+            String value = url.queryParameterValue(i);
+            if (value == null) {
+                value = "";
+            } else if (SEARCH_QUERY.equals(name)) {
+                value = value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+            }
+            params.add(name + '=' + value);
+        }
+        Collections.sort(params);
+        StringBuilder key = new StringBuilder(url.host()).append(url.encodedPath());
+        for (int i = 0; i < params.size(); i++) {
+            key.append(i == 0 ? '?' : '&').append(params.get(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Gets stored validators and body of given key.
+     *
+     * @param key store key, see {@link #normalize(HttpUrl)}
+     * @return stored entry, or null if none
+     */
+    @WorkerThread
+    @Nullable
+    synchronized Entry get(@NonNull String key) {
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = read(key);
+            if (entry != null) {
+                mEntries.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Stores validators and body of a response, replacing any stored before for its key.
+     *
+     * @param entry entry to store
+     */
+    @WorkerThread
+    synchronized void put(@NonNull Entry entry) {
+        mEntries.put(entry.key, entry);
+        write(entry);
+    }
+
+    /**
+     * Removes stored entry of given key, e.g. when a response no longer has validators.
+     *
+     * @param key store key
+     */
+    @WorkerThread
+    synchronized void remove(@NonNull String key) {
+        mEntries.remove(key);
+        //noinspection ResultOfMethodCallIgnored
+        getFile(key).delete();
+    }
+
+    /**
+     * Records that a conditional request has been made.
+     */
+    void recordConditional() {
+        mConditionalCount.incrementAndGet();
+    }
+
+    /**
+     * Records that a conditional request has been answered from store.
+     *
+     * @param entry         stored entry that answered the request
+     * @param latencyMillis latency of the conditional request
+     */
+    void recordNotModified(@NonNull Entry entry, long latencyMillis) {
+        mNotModifiedCount.incrementAndGet();
+        mBytesSaved.addAndGet(entry.body.length);
+        long latencySaved = Math.max(0, entry.latencyMillis - latencyMillis);
+        mLatencySavedMillis.addAndGet(latencySaved);
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, String.format(Locale.US,
+                    "Not modified %s: saved %d bytes, %d ms (%d/%d conditional requests, " +
+                            "%d bytes, %d ms in total)",
+                    entry.key, entry.body.length, latencySaved, mNotModifiedCount.get(),
+                    mConditionalCount.get(), mBytesSaved.get(), mLatencySavedMillis.get()));
+        }
+    }
+
+    /**
+     * Gets number of requests made conditional since process start.
+     *
+     * @return number of conditional requests
+     */
+    public long getConditionalCount() {
+        return mConditionalCount.get();
+    }
+
+    /**
+     * Gets number of conditional requests answered from store since process start.
+     *
+     * @return number of {@code 304 Not Modified} responses
+     */
+    public long getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    /**
+     * Gets response body bytes not downloaded thanks to conditional requests since process
+     * start, as they would have been transferred, i.e. possibly compressed.
+     *
+     * @return bytes saved
+     */
+    public long getBytesSaved() {
+        return mBytesSaved.get();
+    }
+
+    /**
+     * Gets latency saved by conditional requests since process start, compared to latency
+     * of the full responses they revalidated.
+     *
+     * @return latency saved, in milliseconds
+     */
+    public long getLatencySavedMillis() {
+        return mLatencySavedMillis.get();
+    }
+
+    @Nullable
+    private Entry read(String key) {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            if (input.readInt() != FORMAT_VERSION || !key.equals(input.readUTF())) {
+                throw new IOException("Unexpected entry");
+            }
+            String etag = readNullable(input);
+            String lastModified = readNullable(input);
+            String contentType = readNullable(input);
+            String contentEncoding = readNullable(input);
+            long latencyMillis = input.readLong();
+            byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new Entry(key, etag, lastModified, contentType, contentEncoding,
+                    latencyMillis, body);
+        } catch (IOException e) {
+            if (BuildConfig.DEBUG) {
+                Log.w(TAG, "Discarding entry of " + key, e);
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    private void write(Entry entry) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            return;
+        }
+        AtomicFile file = new AtomicFile(getFile(entry.key));
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream output = new DataOutputStream(stream);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(entry.key);
+            writeNullable(output, entry.etag);
+            writeNullable(output, entry.lastModified);
+            writeNullable(output, entry.contentType);
+            writeNullable(output, entry.contentEncoding);
+            output.writeLong(entry.latencyMillis);
+            output.writeInt(entry.body.length);
+            output.write(entry.body);
+            output.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+            if (BuildConfig.DEBUG) {
+                Log.w(TAG, "Failed to save entry of " + entry.key, e);
+            }
+        }
+        trim();
+    }
+
+    private void trim() {
+        File[] files = mDir.listFiles();
+        if (files == null || files.length <= MAX_DISK_COUNT) {
+            return;
+        }
+        long[] lastModified = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+        }
+        Arrays.sort(lastModified);
+        long threshold = lastModified[files.length - MAX_DISK_COUNT];
+        for (File file : files) {
+            if (file.lastModified() < threshold) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    private File getFile(String key) {
+        // keys are URLs, hash them to keep them file name safe and short
+        return new File(mDir, ByteString.encodeUtf8(key).md5().hex());
+    }
+
+    @Nullable
+    private static String readNullable(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream output, @Nullable String value)
+            throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    /**
+     * Validators of a response and the body they validate.
+     */
+    static class Entry {
+        final String key;
+        @Nullable
+        final String etag;
+        @Nullable
+        final String lastModified;
+        @Nullable
+        final String contentType;
+        @Nullable
+        final String contentEncoding;
+        // latency of the full response, to compare conditional requests with
+        final long latencyMillis;
+        final byte[] body;
+
+        Entry(@NonNull String key, @Nullable String etag, @Nullable String lastModified,
+              @Nullable String contentType, @Nullable String contentEncoding,
+              long latencyMillis, @NonNull byte[] body) {
+            this.key = key;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.latencyMillis = latencyMillis;
+            this.body = body;
+        }
+    }
+}
@@ -254,6 +254,22 @@ class FavoriteManager @Inject constructor(
     }
   }
 
+  /**
+   * Checks if multiple items are favorites, without boxing or formatting their IDs.
+   *
+   * @param itemIds the IDs of the items to check
+   * @return an [Observable] that emits an array of booleans indicating if each item is a
+   * favorite
+   */
+  @WorkerThread
+  fun check(itemIds: LongArray): Observable<BooleanArray> = Observable.fromCallable {
+    if (itemIds.isEmpty()) {
+      BooleanArray(0)
+    } else {
+      cache.isFavorite(itemIds)
+    }
+  }
+
   @WorkerThread
   private fun toFile(context: Context, cursor: Cursor): Uri? {
     if (cursor.count == 0) return null
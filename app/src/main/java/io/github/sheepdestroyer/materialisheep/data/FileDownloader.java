@@ -3,28 +3,77 @@ package io.github.sheepdestroyer.materialisheep.data;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
 import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
 import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
 import okio.Okio;
 
 /**
- * A utility class for downloading files.
+ * A utility class for downloading files. Files are keyed by URL hash, and concurrent requests
+ * for the same URL share one download. A download that drops mid-body is resumed with a
+ * {@code Range} request, validated by {@code If-Range}, so it does not start over. Downloads
+ * are capped at {@link #MAX_FILE_SIZE}, and downloaded files are kept within a storage budget
+ * of {@link #MAX_CACHE_SIZE}, least recently used files being deleted first.
  */
 public class FileDownloader {
-    private Call.Factory mCallFactory;
-    private final String mCacheDir;
-    @Synthetic final Handler mMainHandler;
+    private static final String TAG = "FileDownloader";
+    private static final String DIR = "downloads";
+    private static final String PART_SUFFIX = ".part";
+    private static final String VALIDATOR_SUFFIX = ".validator";
+    private static final String HEADER_RANGE = "Range";
+    private static final String HEADER_IF_RANGE = "If-Range";
+    private static final String HEADER_CONTENT_RANGE = "Content-Range";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final Pattern PATTERN_CONTENT_RANGE =
+            Pattern.compile("bytes (\\d+)-\\d+/(\\d+|\\*)");
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final long PROGRESS_INTERVAL_BYTES = 64 * 1024;
+    /**
+     * Maximum number of consecutive attempts that make no progress before giving up.
+     */
+    @VisibleForTesting
+    static final int MAX_ATTEMPTS = 3;
+    @VisibleForTesting
+    static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50 MB
+    @VisibleForTesting
+    static final long MAX_CACHE_SIZE = 100 * 1024 * 1024; // 100 MB
+    private final Call.Factory mCallFactory;
+    private final File mDir;
+    private final Executor mCallbackExecutor;
+    private final Map<String, Download> mDownloads = new HashMap<>();
+    private final long mMaxFileSize;
+    private final long mMaxCacheSize;
 
     /**
      * Constructs a new `FileDownloader`.
@@ -34,48 +83,289 @@ public class FileDownloader {
      */
     @Inject
     public FileDownloader(Context context, Call.Factory callFactory) {
-        mCacheDir = context.getCacheDir().getPath(); // don't need to keep a reference to context after this
+        // don't need to keep a reference to context after this
+        this(new File(context.getCacheDir(), DIR), callFactory,
+                new Handler(Looper.getMainLooper())::post, MAX_FILE_SIZE, MAX_CACHE_SIZE);
+    }
+
+    @VisibleForTesting
+    FileDownloader(File dir, Call.Factory callFactory, Executor callbackExecutor,
+                   long maxFileSize, long maxCacheSize) {
+        mDir = dir;
         mCallFactory = callFactory;
-        mMainHandler = new Handler(Looper.getMainLooper());
+        mCallbackExecutor = callbackExecutor;
+        mMaxFileSize = maxFileSize;
+        mMaxCacheSize = maxCacheSize;
     }
 
     /**
-     * Downloads a file from the given URL.
+     * Downloads a file from the given URL, or joins its download if one is in progress.
      *
      * @param url      the URL of the file to download
      * @param mimeType the MIME type of the file
-     * @param callback the callback to be invoked when the download is complete
+     * @param callback the callback to be invoked on progress and when the download is complete
      */
     @WorkerThread
     public void downloadFile(String url, String mimeType, FileDownloaderCallback callback) {
-        File outputFile = new File(mCacheDir, new File(url).getName());
+        String key = getKey(url);
+        File outputFile = new File(mDir, key);
         if (outputFile.exists()) {
-            mMainHandler.post(() -> callback.onSuccess(outputFile.getPath()));
+            //noinspection ResultOfMethodCallIgnored
+            outputFile.setLastModified(System.currentTimeMillis()); // recently used
+            mCallbackExecutor.execute(() -> callback.onSuccess(outputFile.getPath()));
+            return;
+        }
+        Download download;
+        synchronized (mDownloads) {
+            download = mDownloads.get(key);
+            if (download != null) {
+                download.mCallbacks.add(callback);
+                return;
+            }
+            download = new Download(url, mimeType, key);
+            download.mCallbacks.add(callback);
+            mDownloads.put(key, download);
+        }
+        download.start();
+    }
+
+    /**
+     * Gets file name that given URL is downloaded to.
+     *
+     * @param url file URL
+     * @return file name
+     */
+    @VisibleForTesting
+    static String getKey(String url) {
+        return ByteString.encodeUtf8(url).sha256().hex();
+    }
+
+    /**
+     * Deletes least recently used downloaded files until they fit in storage budget.
+     */
+    @Synthetic
+    void trim(File keep) {
+        File[] files = mDir.listFiles((dir, name) ->
+                !name.endsWith(PART_SUFFIX) && !name.endsWith(VALIDATOR_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxCacheSize) {
             return;
         }
+        long[] lastModified = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+        }
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(lastModified[a], lastModified[b]));
+        for (Integer i : order) {
+            if (size <= mMaxCacheSize) {
+                break;
+            }
+            if (files[i].equals(keep)) {
+                continue;
+            }
+            long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
 
-        final Request request = new Request.Builder().url(url)
-                .addHeader("Content-Type", mimeType)
-                .build();
+    /**
+     * A file being downloaded, which may take several requests if connection drops.
+     */
+    private class Download implements Callback {
+        @Synthetic final List<FileDownloaderCallback> mCallbacks = new ArrayList<>();
+        private final String mUrl;
+        private final String mMimeType;
+        private final File mFile;
+        private final File mPartFile;
+        private final File mValidatorFile;
+        private int mAttempts;
+        private long mProgressNotified = -1;
+
+        @Synthetic
+        Download(String url, String mimeType, String key) {
+            mUrl = url;
+            mMimeType = mimeType;
+            mFile = new File(mDir, key);
+            mPartFile = new File(mDir, key + PART_SUFFIX);
+            mValidatorFile = new File(mDir, key + VALIDATOR_SUFFIX);
+        }
+
+        @Synthetic
+        void start() {
+            Request.Builder builder = new Request.Builder().url(mUrl)
+                    .addHeader("Content-Type", mMimeType);
+            long offset = mPartFile.length();
+            String validator = offset > 0 ? readValidator() : null;
+            if (validator != null) {
+                builder.header(HEADER_RANGE, "bytes=" + offset + "-")
+                        .header(HEADER_IF_RANGE, validator);
+            }
+            mAttempts++;
+            mCallFactory.newCall(builder.build()).enqueue(this);
+        }
+
+        @Override
+        public void onFailure(@NonNull Call call, @NonNull IOException e) {
+            if (mAttempts < MAX_ATTEMPTS && !(e instanceof FileTooLargeException)) {
+                if (BuildConfig.DEBUG) {
+                    Log.d(TAG, "Resuming " + mUrl + " from " + mPartFile.length(), e);
+                }
+                start();
+                return;
+            }
+            //noinspection ResultOfMethodCallIgnored
+            mPartFile.delete(); // could be corrupted, or just too large
+            //noinspection ResultOfMethodCallIgnored
+            mValidatorFile.delete();
+            for (FileDownloaderCallback callback : finish()) {
+                mCallbackExecutor.execute(() -> callback.onFailure(call, e));
+            }
+        }
 
-        mCallFactory.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                mMainHandler.post(() -> callback.onFailure(call, e));
+        @Override
+        public void onResponse(@NonNull Call call, @NonNull Response response) {
+            try {
+                write(response);
+            } catch (IOException e) {
+                onFailure(call, e);
+                return;
+            } finally {
+                response.close();
+            }
+            if (!mPartFile.renameTo(mFile)) {
+                onFailure(call, new IOException("Failed to save " + mFile));
+                return;
             }
+            //noinspection ResultOfMethodCallIgnored
+            mValidatorFile.delete();
+            trim(mFile);
+            String path = mFile.getPath();
+            for (FileDownloaderCallback callback : finish()) {
+                mCallbackExecutor.execute(() -> callback.onSuccess(path));
+            }
+        }
 
-            @Override
-            public void onResponse(Call call, Response response) {
-                try {
-                    BufferedSink sink = Okio.buffer(Okio.sink(outputFile));
-                    sink.writeAll(response.body().source());
-                    sink.close();
-                    mMainHandler.post(() -> callback.onSuccess(outputFile.getPath()));
-                } catch (IOException e) {
-                    this.onFailure(call, e);
+        private void write(Response response) throws IOException {
+            ResponseBody body = response.body();
+            long offset = 0;
+            long total;
+            if (response.code() == HttpURLConnection.HTTP_PARTIAL) {
+                Matcher matcher = PATTERN_CONTENT_RANGE.matcher(
+                        response.header(HEADER_CONTENT_RANGE, ""));
+                if (!matcher.matches() ||
+                        Long.parseLong(matcher.group(1)) != mPartFile.length()) {
+                    //noinspection ResultOfMethodCallIgnored
+                    mValidatorFile.delete(); // start over
+                    throw new IOException("Unexpected content range");
+                }
+                offset = mPartFile.length();
+                total = "*".equals(matcher.group(2)) ? -1 : Long.parseLong(matcher.group(2));
+            } else if (response.isSuccessful()) {
+                // new download, or resource has changed since partially downloaded
+                total = body.contentLength();
+                writeValidator(response);
+            } else {
+                if (response.code() == 416) { // range not satisfiable, start over
+                    //noinspection ResultOfMethodCallIgnored
+                    mValidatorFile.delete();
+                }
+                throw new IOException("Unexpected response " + response.code());
+            }
+            if (total > mMaxFileSize) {
+                throw new FileTooLargeException(total);
+            }
+            if (!mDir.exists() && !mDir.mkdirs()) {
+                throw new IOException("Failed to create " + mDir);
+            }
+            long read = offset;
+            BufferedSource source = body.source();
+            try (BufferedSink sink = Okio.buffer(offset > 0 ?
+                    Okio.appendingSink(mPartFile) : Okio.sink(mPartFile))) {
+                Buffer buffer = sink.getBuffer();
+                long count;
+                while ((count = source.read(buffer, BUFFER_SIZE)) != -1) {
+                    sink.emitCompleteSegments();
+                    read += count;
+                    mAttempts = 0; // made progress
+                    if (read > mMaxFileSize) {
+                        throw new FileTooLargeException(read);
+                    }
+                    notifyProgress(read, total);
                 }
             }
-        });
+            notifyProgress(read, total);
+        }
+
+        private void notifyProgress(long read, long total) {
+            if (read == mProgressNotified ||
+                    read - mProgressNotified < PROGRESS_INTERVAL_BYTES && read != total) {
+                return;
+            }
+            mProgressNotified = read;
+            List<FileDownloaderCallback> callbacks;
+            synchronized (mDownloads) {
+                callbacks = new ArrayList<>(mCallbacks);
+            }
+            for (FileDownloaderCallback callback : callbacks) {
+                mCallbackExecutor.execute(() -> callback.onProgress(read, total));
+            }
+        }
+
+        private List<FileDownloaderCallback> finish() {
+            synchronized (mDownloads) {
+                mDownloads.remove(mFile.getName());
+                return new ArrayList<>(mCallbacks);
+            }
+        }
+
+        @Nullable
+        private String readValidator() {
+            try (BufferedSource source = Okio.buffer(Okio.source(mValidatorFile))) {
+                String validator = source.readUtf8();
+                return TextUtils.isEmpty(validator) ? null : validator;
+            } catch (IOException e) {
+                return null; // cannot resume without validating
+            }
+        }
+
+        private void writeValidator(Response response) throws IOException {
+            String validator = response.header(HEADER_ETAG);
+            if (TextUtils.isEmpty(validator) || validator.startsWith("W/")) { // weak
+                validator = response.header(HEADER_LAST_MODIFIED);
+            }
+            if (TextUtils.isEmpty(validator)) {
+                //noinspection ResultOfMethodCallIgnored
+                mValidatorFile.delete();
+                return;
+            }
+            if (!mDir.exists() && !mDir.mkdirs()) {
+                throw new IOException("Failed to create " + mDir);
+            }
+            try (BufferedSink sink = Okio.buffer(Okio.sink(mValidatorFile))) {
+                sink.writeUtf8(validator);
+            }
+        }
+    }
+
+    /**
+     * Thrown when a file exceeds {@link #MAX_FILE_SIZE}, not to be retried.
+     */
+    static class FileTooLargeException extends IOException {
+        FileTooLargeException(long size) {
+            super("File too large: " + size + " bytes");
+        }
     }
 
     /**
@@ -96,5 +386,14 @@ public class FileDownloader {
          * @param filePath the path to the downloaded file
          */
         void onSuccess(String filePath);
+
+        /**
+         * Called as the file is being downloaded.
+         *
+         * @param bytesRead     number of bytes downloaded so far, including any resumed from
+         * @param contentLength total number of bytes, or -1 if unknown
+         */
+        default void onProgress(long bytesRead, long contentLength) {
+        }
     }
 }
@@ -20,17 +20,20 @@ import androidx.annotation.NonNull;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Headers;
 import retrofit2.http.Path;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * A client that retrieves content from the Hacker News API.
@@ -62,6 +65,9 @@ public class HackerNewsClient implements ItemManager, UserManager {
     private final RestService mRestService;
     private final SessionManager mSessionManager;
     private final FavoriteManager mFavoriteManager;
+    private final ItemRegistry mItemRegistry;
+    private final SearchIndex mSearchIndex;
+    private final UserActionOutbox mOutbox;
 
     /**
      * Constructs a new {@code HackerNewsClient}.
@@ -72,24 +78,32 @@ public class HackerNewsClient implements ItemManager, UserManager {
      *                        sessions
      * @param favoriteManager the {@link FavoriteManager} to use for managing
      *                        favorite items
+     * @param itemRegistry    the {@link ItemRegistry} to resolve items through
+     * @param searchIndex     the {@link SearchIndex} to index fetched items in
+     * @param outbox          the {@link UserActionOutbox} to check for queued votes
      */
     @Inject
     public HackerNewsClient(RestServiceFactory factory,
             SessionManager sessionManager,
-            FavoriteManager favoriteManager) {
+            FavoriteManager favoriteManager,
+            ItemRegistry itemRegistry,
+            SearchIndex searchIndex,
+            UserActionOutbox outbox) {
         mRestService = factory.rxEnabled(true).create(BASE_API_URL, RestService.class);
         mSessionManager = sessionManager;
         mFavoriteManager = favoriteManager;
+        mItemRegistry = itemRegistry;
+        mSearchIndex = searchIndex;
+        mOutbox = outbox;
     }
 
     @Override
-    @android.annotation.SuppressLint("CheckResult")
-    public void getStories(@FetchMode String filter, @CacheMode int cacheMode,
+    public Disposable getStories(@FetchMode String filter, @CacheMode int cacheMode,
             final ResponseListener<Item[]> listener) {
         if (listener == null) {
-            return;
+            return Disposable.disposed();
         }
-        Observable.defer(() -> getStoriesObservable(filter, cacheMode))
+        return Observable.defer(() -> getStoriesObservable(filter, cacheMode))
                 .subscribeOn(mIoScheduler)
                 .observeOn(mMainThreadScheduler)
                 .subscribe(listener::onResponse,
@@ -100,32 +114,16 @@ public class HackerNewsClient implements ItemManager, UserManager {
     }
 
     @Override
-    @android.annotation.SuppressLint("CheckResult")
-    public void getItem(final String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener) {
+    public Disposable getItem(final String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener) {
         if (listener == null) {
-            return;
+            return Disposable.disposed();
         }
-        Observable<HackerNewsItem> itemObservable;
-        switch (cacheMode) {
-            case MODE_DEFAULT:
-            default:
-                itemObservable = mRestService.itemRx(itemId);
-                break;
-            case MODE_NETWORK:
-                itemObservable = mRestService.networkItemRx(itemId);
-                break;
-            case MODE_CACHE:
-                itemObservable = mRestService.cachedItemRx(itemId)
-                        .onErrorResumeNext(t -> mRestService.itemRx(itemId));
-                break;
-        }
-        Observable.defer(() -> Observable.zip(
+        return Observable.defer(() -> Observable.zip(
                 mSessionManager.isViewed(itemId),
                 mFavoriteManager.check(itemId),
-                itemObservable.map(Optional::ofNullable),
+                itemRx(toLongId(itemId), itemId, cacheMode).map(Optional::ofNullable),
                 (isViewed, favorite, optionalItem) -> {
                     optionalItem.ifPresent(hackerNewsItem -> {
-                        hackerNewsItem.preload();
                         hackerNewsItem.setIsViewed(isViewed);
                         hackerNewsItem.setFavorite(favorite);
                     });
@@ -133,76 +131,96 @@ public class HackerNewsClient implements ItemManager, UserManager {
                 }))
                 .subscribeOn(mIoScheduler)
                 .observeOn(mMainThreadScheduler)
-                .subscribe(optionalItem -> listener.onResponse(optionalItem.orElse(null)),
+                .subscribe(optionalItem -> listener.onResponse(
+                                mItemRegistry.publish(optionalItem.orElse(null))),
                         t -> {
                             android.util.Log.e("HackerNewsClient", "Error fetching item " + itemId, t);
                             listener.onError(t != null ? t.getMessage() : "Unknown error");
                         });
+    }
 
+    @Override
+    public Disposable getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
+        return getItems(toLongIds(itemIds), cacheMode, listener);
     }
 
     @Override
-    @android.annotation.SuppressLint("CheckResult")
-    public void getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
+    public Disposable getItems(long[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
         if (listener == null) {
-            return;
+            return Disposable.disposed();
         }
         if (itemIds == null || itemIds.length == 0) {
             listener.onResponse(new Item[0]);
-            return;
+            return Disposable.disposed();
         }
+        return itemsObservable(itemIds, cacheMode)
+                .toList()
+                .map(list -> list.toArray(new Item[0]))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .subscribe(items -> listener.onResponse(mItemRegistry.publish(items)), t -> {
+                    android.util.Log.e("HackerNewsClient", "Error fetching items", t);
+                    listener.onError(t != null ? t.getMessage() : "Unknown error");
+                });
+    }
 
-        java.util.List<String> idList = java.util.Arrays.asList(itemIds);
-        Observable.zip(
-                mSessionManager.isViewed(idList),
-                mFavoriteManager.check(idList),
+    @Override
+    public Disposable streamItems(String[] itemIds, @CacheMode int cacheMode, long windowMillis,
+            ResponseListener<Item[]> listener) {
+        return streamItems(toLongIds(itemIds), cacheMode, windowMillis, listener);
+    }
+
+    @Override
+    public Disposable streamItems(long[] itemIds, @CacheMode int cacheMode, long windowMillis,
+            ResponseListener<Item[]> listener) {
+        if (listener == null) {
+            return Disposable.disposed();
+        }
+        if (itemIds == null || itemIds.length == 0) {
+            return Disposable.disposed();
+        }
+        return itemsObservable(itemIds, cacheMode)
+                .buffer(windowMillis, TimeUnit.MILLISECONDS, mIoScheduler)
+                .filter(chunk -> !chunk.isEmpty())
+                .map(chunk -> chunk.toArray(new Item[0]))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .subscribe(items -> listener.onResponse(mItemRegistry.publish(items)), t -> {
+                    android.util.Log.e("HackerNewsClient", "Error streaming items", t);
+                    listener.onError(t != null ? t.getMessage() : "Unknown error");
+                });
+    }
+
+    /**
+     * Fetches given items concurrently, emitting each one as soon as it is loaded,
+     * in no particular order. Items that fail to load are skipped.
+     */
+    private Observable<HackerNewsItem> itemsObservable(long[] itemIds, @CacheMode int cacheMode) {
+        return Observable.zip(
+                mSessionManager.isViewed(itemIds),
+                mFavoriteManager.check(itemIds),
                 (viewed, favorite) -> new android.util.Pair<>(viewed, favorite))
                 .flatMap(pair -> {
-                    java.util.List<Boolean> viewed = pair.first;
-                    java.util.List<Boolean> favorite = pair.second;
+                    boolean[] viewed = pair.first;
+                    boolean[] favorite = pair.second;
                     return Observable.range(0, itemIds.length)
                             .flatMap(i -> {
-                                String id = itemIds[i];
-                                Observable<HackerNewsItem> itemObservable;
-                                switch (cacheMode) {
-                                    case MODE_NETWORK:
-                                        itemObservable = mRestService.networkItemRx(id);
-                                        break;
-                                    case MODE_CACHE:
-                                        itemObservable = mRestService.cachedItemRx(id)
-                                                .onErrorResumeNext(t -> mRestService.itemRx(id));
-                                        break;
-                                    default:
-                                        itemObservable = mRestService.itemRx(id);
-                                        break;
-                                }
-                                return itemObservable.map(Optional::of).onErrorReturn(t -> Optional.empty())
+                                // formatted for request path only
+                                return itemRx(itemIds[i], String.valueOf(itemIds[i]), cacheMode)
+                                        .map(Optional::of).onErrorReturn(t -> Optional.empty())
                                         .map(optionalItem -> {
                                             if (optionalItem.isPresent()) {
                                                 HackerNewsItem item = optionalItem.get();
-                                                item.preload();
-                                                item.setIsViewed(viewed.get(i));
-                                                item.setFavorite(favorite.get(i));
+                                                item.setIsViewed(viewed[i]);
+                                                item.setFavorite(favorite[i]);
                                                 return optionalItem;
                                             }
                                             return Optional.<HackerNewsItem>empty();
                                         });
                             }, 8);
                 })
-                .toList()
-                .map(list -> {
-                    java.util.List<HackerNewsItem> valid = new java.util.ArrayList<>();
-                    for (Optional<HackerNewsItem> o : list) {
-                        o.ifPresent(valid::add);
-                    }
-                    return valid.toArray(new HackerNewsItem[0]);
-                })
-                .subscribeOn(mIoScheduler)
-                .observeOn(mMainThreadScheduler)
-                .subscribe(listener::onResponse, t -> {
-                    android.util.Log.e("HackerNewsClient", "Error fetching items", t);
-                    listener.onError(t != null ? t.getMessage() : "Unknown error");
-                });
+                .filter(Optional::isPresent)
+                .map(Optional::get);
     }
 
     @Override
@@ -229,7 +247,9 @@ public class HackerNewsClient implements ItemManager, UserManager {
                 break;
         }
         try {
-            return call.execute().body();
+            HackerNewsItem item = intern(call.execute().body());
+            mItemRegistry.publishLater(item);
+            return item;
         } catch (IOException e) {
             return null;
         }
@@ -237,12 +257,20 @@ public class HackerNewsClient implements ItemManager, UserManager {
 
     @Override
     public Item[] getItems(String[] itemIds, @CacheMode int cacheMode) {
+        return getItems(toLongIds(itemIds), cacheMode);
+    }
+
+    @Override
+    public Item[] getItems(long[] itemIds, @CacheMode int cacheMode) {
         if (itemIds == null) {
             return new Item[0];
         }
-        return Observable.fromArray(itemIds)
-                .concatMapEager(id -> getItemRx(id, cacheMode)
-                        .map(item -> Optional.ofNullable((Item) item))
+        return Observable.range(0, itemIds.length)
+                .concatMapEager(i -> itemRx(itemIds[i], String.valueOf(itemIds[i]), cacheMode)
+                        .map(item -> {
+                            mItemRegistry.publishLater(item);
+                            return Optional.of((Item) item);
+                        })
                         .onErrorReturn(t -> Optional.empty()))
                 .toList()
                 .blockingGet()
@@ -251,24 +279,80 @@ public class HackerNewsClient implements ItemManager, UserManager {
                 .toArray(Item[]::new);
     }
 
-    private Observable<HackerNewsItem> getItemRx(String itemId, @CacheMode int cacheMode) {
+    /**
+     * Gets content of given item, from registry if it was fetched recently enough for given
+     * cache mode, otherwise fetched, rendered and recorded into registry. Content is a copy
+     * owned by caller, to be published into canonical item on main thread.
+     */
+    private Observable<HackerNewsItem> itemRx(long id, String itemId, @CacheMode int cacheMode) {
+        return Observable.defer(() -> {
+            HackerNewsItem cached = mItemRegistry.get(id, getMaxAgeMillis(cacheMode));
+            if (cached != null) {
+                return Observable.just(applyPendingVote(cached));
+            }
+            Observable<HackerNewsItem> itemObservable;
+            switch (cacheMode) {
+                case MODE_NETWORK:
+                    itemObservable = mRestService.networkItemRx(itemId);
+                    break;
+                case MODE_CACHE:
+                    itemObservable = mRestService.cachedItemRx(itemId)
+                            .onErrorResumeNext(t -> mRestService.itemRx(itemId));
+                    break;
+                case MODE_DEFAULT:
+                default:
+                    itemObservable = mRestService.itemRx(itemId);
+                    break;
+            }
+            return itemObservable.map(item -> {
+                item.preload();
+                return intern(item);
+            });
+        });
+    }
+
+    /**
+     * Records given freshly fetched item into registry, indexing it for offline search, and
+     * applies any vote queued for it.
+     */
+    private HackerNewsItem intern(HackerNewsItem fetched) {
+        if (fetched == null) {
+            return null;
+        }
+        mItemRegistry.put(fetched);
+        mSearchIndex.add(fetched);
+        return applyPendingVote(fetched);
+    }
+
+    private HackerNewsItem applyPendingVote(HackerNewsItem item) {
+        if (!item.isVoted() && mOutbox.hasPendingVote(item.getId())) {
+            item.incrementScore();
+        }
+        return item;
+    }
+
+    /**
+     * Gets maximum age of canonical items that given cache mode accepts, matching that of
+     * HTTP cache.
+     */
+    private static long getMaxAgeMillis(@CacheMode int cacheMode) {
         switch (cacheMode) {
             case MODE_NETWORK:
-                return mRestService.networkItemRx(itemId);
-            case MODE_DEFAULT:
+                return -1;
             case MODE_CACHE:
+                return ItemRegistry.ANY_AGE;
+            case MODE_DEFAULT:
             default:
-                return mRestService.itemRx(itemId);
+                return TimeUnit.MINUTES.toMillis(30);
         }
     }
 
     @Override
-    @android.annotation.SuppressLint("CheckResult")
-    public void getUser(String username, final ResponseListener<User> listener) {
+    public Disposable getUser(String username, final ResponseListener<User> listener) {
         if (listener == null) {
-            return;
+            return Disposable.disposed();
         }
-        mRestService.userRx(username)
+        return mRestService.userRx(username)
                 .map(userItem -> {
                     if (userItem != null) {
                         userItem.setSubmittedItems(toItems(userItem.getSubmitted()));
@@ -343,6 +427,30 @@ public class HackerNewsClient implements ItemManager, UserManager {
         return call;
     }
 
+    /**
+     * Parses string IDs once at API boundary, so that batches only carry primitives further.
+     * IDs that are not numeric are mapped to 0, which is never an item, so that results stay
+     * aligned with given IDs.
+     */
+    private static long[] toLongIds(String[] itemIds) {
+        if (itemIds == null) {
+            return null;
+        }
+        long[] ids = new long[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++) {
+            ids[i] = toLongId(itemIds[i]);
+        }
+        return ids;
+    }
+
+    private static long toLongId(String itemId) {
+        try {
+            return Long.parseLong(itemId);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private HackerNewsItem[] toItems(int[] ids) {
         if (ids == null) {
             return new HackerNewsItem[0];
@@ -0,0 +1,510 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.StyleSpan;
+import android.text.style.URLSpan;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+
+import io.github.sheepdestroyer.materialisheep.AppUtils;
+
+/**
+ * Single pass renderer for the subset of HTML that Hacker News emits in item text:
+ * {@code <p>}, {@code <i>}, {@code <a href>}, {@code <pre><code>} and character entities.
+ * Output matches {@link AppUtils#fromHtml(String)} (legacy {@link android.text.Html} mode)
+ * span for span, without its SAX pipeline. Markup outside the subset, or nesting that
+ * the legacy parser would repair in ways not modelled here, falls back to
+ * {@link AppUtils#fromHtml(String)}.
+ */
+final class HackerNewsHtml {
+    private static final ThreadLocal<HackerNewsHtml> RENDERER =
+            ThreadLocal.withInitial(HackerNewsHtml::new);
+    private static final int MARGIN_PARAGRAPH = 2;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final int TAG_UNKNOWN = 0;
+    private static final int TAG_P = 1;
+    private static final int TAG_I = 2;
+    private static final int TAG_A = 3;
+    private static final int TAG_PRE = 4;
+    private static final int TAG_CODE = 5;
+    private static final int TAG_BR = 6;
+
+    private StringBuilder mText = new StringBuilder();
+    // open inline elements
+    private int[] mOpenTags = new int[8];
+    private int[] mOpenStarts = new int[8];
+    private String[] mOpenHrefs = new String[8];
+    private int mOpenCount;
+    // closed spans, in order of closing
+    private int[] mSpanStarts = new int[16];
+    private int[] mSpanEnds = new int[16];
+    private Object[] mSpans = new Object[16];
+    private int mSpanCount;
+    private boolean mParagraphOpen;
+    private boolean mPreOpen;
+    // scratch state of the tag being parsed
+    private String mHref;
+    private boolean mHasStyle;
+
+    /**
+     * Converts Hacker News item HTML to styled text.
+     *
+     * @param html item HTML
+     * @return styled text, or {@code null} if given HTML is empty
+     */
+    @Nullable
+    static CharSequence fromHtml(String html) {
+        if (TextUtils.isEmpty(html)) {
+            return null;
+        }
+        CharSequence rendered = RENDERER.get().render(html);
+        return rendered != null ? rendered : AppUtils.fromHtml(html);
+    }
+
+    /**
+     * Renders given HTML if it stays within the supported subset.
+     *
+     * @param html non-empty HTML
+     * @return styled text, or {@code null} if HTML needs the full parser
+     */
+    @VisibleForTesting
+    @Nullable
+    CharSequence render(String html) {
+        try {
+            return parse(html) ? build() : null;
+        } finally {
+            reset();
+        }
+    }
+
+    private boolean parse(String html) {
+        final int length = html.length();
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                i = parseTag(html, i + 1);
+            } else if (c == '&') {
+                i = parseEntity(html, i + 1);
+            } else if (c == '\t' || c == '\r' || c == '\f') {
+                return false;
+            } else {
+                appendChar(c);
+                i++;
+            }
+            if (i < 0) {
+                return false;
+            }
+        }
+        // end of document closes whatever is still open, innermost first
+        while (mOpenCount > 0) {
+            closeInline(mOpenTags[mOpenCount - 1]);
+        }
+        if (mParagraphOpen) {
+            appendNewlines(MARGIN_PARAGRAPH);
+        }
+        return true;
+    }
+
+    /**
+     * @return index after the tag, or -1 if unsupported
+     */
+    private int parseTag(String html, int start) {
+        final int length = html.length();
+        boolean end = start < length && html.charAt(start) == '/';
+        int nameStart = end ? start + 1 : start;
+        int i = nameStart;
+        while (i < length && isTagNameChar(html.charAt(i))) {
+            i++;
+        }
+        if (i == nameStart) {
+            return -1; // not a tag, e.g. comment, doctype or stray '<'
+        }
+        int tag = toTag(html, nameStart, i - nameStart);
+        if (tag == TAG_UNKNOWN) {
+            return -1;
+        }
+        mHref = null;
+        mHasStyle = false;
+        i = parseAttributes(html, i);
+        if (i < 0) {
+            return -1;
+        }
+        boolean handled = end ? endTag(tag) : startTag(tag);
+        return handled ? i : -1;
+    }
+
+    /**
+     * @return index after closing '>', or -1 if malformed
+     */
+    private int parseAttributes(String html, int i) {
+        final int length = html.length();
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '>') {
+                return i + 1;
+            }
+            if (c == ' ' || c == '\n' || c == '/') {
+                i++;
+                continue;
+            }
+            int nameStart = i;
+            while (i < length && isAttributeNameChar(html.charAt(i))) {
+                i++;
+            }
+            if (i == nameStart) {
+                return -1;
+            }
+            int nameLength = i - nameStart;
+            if (i >= length || html.charAt(i) != '=') {
+                return -1; // valueless attributes are not emitted by HN
+            }
+            i++;
+            if (i >= length) {
+                return -1;
+            }
+            char quote = html.charAt(i);
+            int valueStart, valueEnd;
+            if (quote == '"' || quote == '\'') {
+                valueStart = i + 1;
+                valueEnd = html.indexOf(quote, valueStart);
+                if (valueEnd < 0) {
+                    return -1;
+                }
+                i = valueEnd + 1;
+            } else {
+                valueStart = i;
+                while (i < length && html.charAt(i) != ' ' && html.charAt(i) != '>') {
+                    i++;
+                }
+                valueEnd = i;
+            }
+            if (nameLength == 4 && html.regionMatches(true, nameStart, "href", 0, 4)) {
+                if (mHref == null) {
+                    mHref = decodeAttribute(html, valueStart, valueEnd);
+                    if (mHref == null) {
+                        return -1;
+                    }
+                }
+            } else if (nameLength == 5 && html.regionMatches(true, nameStart, "style", 0, 5)) {
+                mHasStyle = true;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startTag(int tag) {
+        switch (tag) {
+            case TAG_P:
+                if (mOpenCount > 0 || mHasStyle) {
+                    return false; // would be split and restarted, or aligned
+                }
+                mPreOpen = false;
+                if (mParagraphOpen) {
+                    appendNewlines(MARGIN_PARAGRAPH);
+                }
+                appendNewlines(MARGIN_PARAGRAPH);
+                mParagraphOpen = true;
+                return true;
+            case TAG_PRE:
+                if (mOpenCount > 0 || mPreOpen) {
+                    return false;
+                }
+                if (mParagraphOpen) { // block content closes paragraph
+                    appendNewlines(MARGIN_PARAGRAPH);
+                    mParagraphOpen = false;
+                }
+                mPreOpen = true;
+                return true;
+            case TAG_BR:
+                mText.append('\n');
+                return true;
+            case TAG_I:
+            case TAG_CODE:
+                openInline(tag, null);
+                return true;
+            case TAG_A:
+                for (int i = 0; i < mOpenCount; i++) {
+                    if (mOpenTags[i] == TAG_A) {
+                        return false; // nested anchors are closed by parser
+                    }
+                }
+                openInline(tag, mHref);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean endTag(int tag) {
+        switch (tag) {
+            case TAG_P:
+                if (mOpenCount > 0 || !mParagraphOpen) {
+                    return false;
+                }
+                appendNewlines(MARGIN_PARAGRAPH);
+                mParagraphOpen = false;
+                return true;
+            case TAG_PRE:
+                if (mOpenCount > 0 || !mPreOpen) {
+                    return false;
+                }
+                mPreOpen = false;
+                return true;
+            case TAG_BR:
+                return false;
+            default:
+                if (mOpenCount == 0 || mOpenTags[mOpenCount - 1] != tag) {
+                    return false; // misnested
+                }
+                closeInline(tag);
+                return true;
+        }
+    }
+
+    private void openInline(int tag, String href) {
+        if (mOpenCount == mOpenTags.length) {
+            int size = mOpenCount * 2;
+            mOpenTags = Arrays.copyOf(mOpenTags, size);
+            mOpenStarts = Arrays.copyOf(mOpenStarts, size);
+            mOpenHrefs = Arrays.copyOf(mOpenHrefs, size);
+        }
+        mOpenTags[mOpenCount] = tag;
+        mOpenStarts[mOpenCount] = mText.length();
+        mOpenHrefs[mOpenCount] = href;
+        mOpenCount++;
+    }
+
+    private void closeInline(int tag) {
+        mOpenCount--;
+        int start = mOpenStarts[mOpenCount];
+        String href = mOpenHrefs[mOpenCount];
+        mOpenHrefs[mOpenCount] = null;
+        if (start == mText.length()) {
+            return;
+        }
+        if (tag == TAG_I) {
+            addSpan(new StyleSpan(Typeface.ITALIC), start);
+        } else if (tag == TAG_A && href != null) {
+            addSpan(new URLSpan(href), start);
+        }
+    }
+
+    private void addSpan(Object span, int start) {
+        if (mSpanCount == mSpans.length) {
+            int size = mSpanCount * 2;
+            mSpanStarts = Arrays.copyOf(mSpanStarts, size);
+            mSpanEnds = Arrays.copyOf(mSpanEnds, size);
+            mSpans = Arrays.copyOf(mSpans, size);
+        }
+        mSpanStarts[mSpanCount] = start;
+        mSpanEnds[mSpanCount] = mText.length();
+        mSpans[mSpanCount] = span;
+        mSpanCount++;
+    }
+
+    /**
+     * @return index after the entity, or -1 if unsupported
+     */
+    private int parseEntity(String html, int start) {
+        int end = html.indexOf(';', start);
+        if (end < 0) {
+            return -1;
+        }
+        int codePoint = decodeEntity(html, start, end);
+        if (codePoint < 0) {
+            return -1;
+        }
+        appendChar((char) codePoint);
+        return end + 1;
+    }
+
+    /**
+     * Appends text the way the legacy parser does, collapsing runs of spaces and
+     * newlines into a single space, and dropping them at the start of a line.
+     */
+    private void appendChar(char c) {
+        if (c == ' ' || c == '\n') {
+            int length = mText.length();
+            char pred = length == 0 ? '\n' : mText.charAt(length - 1);
+            if (pred != ' ' && pred != '\n') {
+                mText.append(' ');
+            }
+        } else {
+            mText.append(c);
+        }
+    }
+
+    private void appendNewlines(int count) {
+        int length = mText.length();
+        if (length == 0) {
+            return;
+        }
+        int existing = 0;
+        for (int i = length - 1; i >= 0 && mText.charAt(i) == '\n'; i--) {
+            existing++;
+        }
+        for (int i = existing; i < count; i++) {
+            mText.append('\n');
+        }
+    }
+
+    private CharSequence build() {
+        int end = mText.length();
+        while (end > 0 && Character.isWhitespace(mText.charAt(end - 1))) {
+            end--;
+        }
+        SpannableString spannable = new SpannableString(mText.substring(0, end));
+        for (int i = 0; i < mSpanCount; i++) {
+            int spanEnd = Math.min(mSpanEnds[i], end);
+            if (mSpanStarts[i] < spanEnd) {
+                spannable.setSpan(mSpans[i], mSpanStarts[i], spanEnd,
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        return spannable;
+    }
+
+    private void reset() {
+        if (mText.capacity() > MAX_RETAINED_CAPACITY) {
+            mText = new StringBuilder();
+        } else {
+            mText.setLength(0);
+        }
+        Arrays.fill(mOpenHrefs, 0, mOpenCount, null);
+        Arrays.fill(mSpans, 0, mSpanCount, null);
+        mOpenCount = 0;
+        mSpanCount = 0;
+        mParagraphOpen = false;
+        mPreOpen = false;
+        mHref = null;
+        mHasStyle = false;
+    }
+
+    @Nullable
+    private static String decodeAttribute(String html, int start, int end) {
+        int amp = html.indexOf('&', start);
+        if (amp < 0 || amp >= end) {
+            return html.substring(start, end);
+        }
+        StringBuilder value = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            char c = html.charAt(i);
+            if (c != '&') {
+                value.append(c);
+                i++;
+                continue;
+            }
+            int semicolon = html.indexOf(';', i + 1);
+            if (semicolon < 0 || semicolon >= end) {
+                return null;
+            }
+            int codePoint = decodeEntity(html, i + 1, semicolon);
+            if (codePoint < 0) {
+                return null;
+            }
+            value.append((char) codePoint);
+            i = semicolon + 1;
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return decoded character, or -1 if the entity is unknown or maps outside of
+     * printable BMP characters, whose handling differs between parsers
+     */
+    private static int decodeEntity(String html, int start, int end) {
+        int length = end - start;
+        if (length < 2) {
+            return -1;
+        }
+        int codePoint;
+        if (html.charAt(start) == '#') {
+            boolean hex = html.charAt(start + 1) == 'x' || html.charAt(start + 1) == 'X';
+            int digitsStart = hex ? start + 2 : start + 1;
+            if (digitsStart == end || end - digitsStart > 6) {
+                return -1;
+            }
+            codePoint = 0;
+            for (int i = digitsStart; i < end; i++) {
+                int digit = Character.digit(html.charAt(i), hex ? 16 : 10);
+                if (digit < 0) {
+                    return -1;
+                }
+                codePoint = codePoint * (hex ? 16 : 10) + digit;
+            }
+        } else if (html.startsWith("amp", start) && length == 3) {
+            codePoint = '&';
+        } else if (html.startsWith("lt", start) && length == 2) {
+            codePoint = '<';
+        } else if (html.startsWith("gt", start) && length == 2) {
+            codePoint = '>';
+        } else if (html.startsWith("quot", start) && length == 4) {
+            codePoint = '"';
+        } else if (html.startsWith("nbsp", start) && length == 4) {
+            codePoint = '\u00A0';
+        } else {
+            return -1;
+        }
+        if (codePoint < 0x20 || (codePoint >= 0x7F && codePoint < 0xA0) ||
+                (codePoint >= 0xD800 && codePoint < 0xE000) || codePoint > 0xFFFD) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    private static int toTag(String html, int start, int length) {
+        switch (length) {
+            case 1:
+                switch (Character.toLowerCase(html.charAt(start))) {
+                    case 'p':
+                        return TAG_P;
+                    case 'i':
+                        return TAG_I;
+                    case 'a':
+                        return TAG_A;
+                    default:
+                        return TAG_UNKNOWN;
+                }
+            case 2:
+                return html.regionMatches(true, start, "br", 0, 2) ? TAG_BR : TAG_UNKNOWN;
+            case 3:
+                return html.regionMatches(true, start, "pre", 0, 3) ? TAG_PRE : TAG_UNKNOWN;
+            case 4:
+                return html.regionMatches(true, start, "code", 0, 4) ? TAG_CODE : TAG_UNKNOWN;
+            default:
+                return TAG_UNKNOWN;
+        }
+    }
+
+    private static boolean isTagNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAttributeNameChar(char c) {
+        return isTagNameChar(c) || c == '-' || c == '_' || c == ':';
+    }
+}
@@ -42,6 +42,8 @@ import io.github.sheepdestroyer.materialisheep.Navigable;
 import io.github.sheepdestroyer.materialisheep.R;
 import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
 
+import java.util.Arrays;
+
 /**
  * A data model for a Hacker News item.
  */
@@ -178,6 +180,153 @@ class HackerNewsItem implements Item {
         localRevision = 1;
     }
 
+    /**
+     * Merges freshly fetched content of this item, keeping its view state.
+     *
+     * @param fetched freshly fetched item of same ID
+     */
+    void merge(HackerNewsItem fetched) {
+        populate(fetched);
+        kidItems = fetched.kidItems;
+        if (fetched.pendingVoted) {
+            voted = true;
+            pendingVoted = true;
+        }
+    }
+
+    /**
+     * Merges content of given copy of this item, keeping view state, i.e. whether this item
+     * is viewed or favorite, and its comment rows if its comments are unchanged. Only metadata
+     * is merged if given copy has partial content.
+     *
+     * @param content copy of this item
+     */
+    void mergeContent(HackerNewsItem content) {
+        if (content.localRevision < 0) {
+            mergeMetadata(content.title, content.url, content.by, content.score,
+                    content.descendants, content.time);
+            return;
+        }
+        boolean viewed = this.viewed, favorite = this.favorite;
+        HackerNewsItem[] kidItems = Arrays.equals(kids, content.kids) ? this.kidItems : null;
+        merge(content);
+        this.viewed = viewed;
+        this.favorite = favorite;
+        this.kidItems = kidItems;
+    }
+
+    /**
+     * Copies content of this item, without its comment rows, e.g. to be changed off main thread.
+     *
+     * @return a new item holding content of this item
+     */
+    HackerNewsItem copy() {
+        HackerNewsItem copy = new HackerNewsItem(id);
+        copy.title = title;
+        copy.time = time;
+        copy.by = by;
+        copy.kids = kids;
+        copy.parts = parts;
+        copy.url = url;
+        copy.text = text;
+        copy.displayedText = displayedText;
+        copy.type = type;
+        copy.descendants = descendants;
+        copy.lastKidCount = descendants;
+        copy.parent = parent;
+        copy.deleted = deleted;
+        copy.dead = dead;
+        copy.score = score;
+        copy.viewed = viewed;
+        copy.favorite = favorite;
+        copy.localRevision = localRevision;
+        return copy;
+    }
+
+    /**
+     * Merges story metadata, e.g. from a search hit, keeping any other content of this item.
+     * Search indices may lag behind, so scores and comment counts only ever increase.
+     *
+     * @param title       story title
+     * @param url         story URL
+     * @param by          story author
+     * @param score       story score
+     * @param descendants story comment count
+     * @param time        story creation time, in Unix time
+     */
+    void mergeMetadata(String title, String url, String by, int score, int descendants,
+                       long time) {
+        if (title != null) {
+            this.title = title;
+        }
+        if (url != null) {
+            this.url = url;
+        }
+        if (by != null) {
+            this.by = by;
+        }
+        this.score = Math.max(this.score, score);
+        this.descendants = Math.max(this.descendants, descendants);
+        if (time > 0) {
+            this.time = time;
+        }
+    }
+
+    /**
+     * Restores rank and, if it had been loaded, content of this item from given record.
+     *
+     * @param record record of this item
+     */
+    void restore(ItemRecordFile.Record record) {
+        rank = record.getRank();
+        if (!record.isLoaded()) {
+            return;
+        }
+        type = record.getType();
+        by = record.getBy();
+        time = record.getTime();
+        text = record.getText();
+        dead = record.isDead();
+        deleted = record.isDeleted();
+        parent = record.getParent();
+        kids = record.getKids();
+        url = record.getUrl();
+        score = record.getScore();
+        title = record.getTitle();
+        descendants = record.getDescendants();
+        lastKidCount = descendants;
+        localRevision = 1;
+    }
+
+    /**
+     * Restores this comment row from given comment tree.
+     *
+     * @param tree  tree holding this comment
+     * @param index index of this comment in tree
+     */
+    void restore(CommentTree tree, int index) {
+        level = tree.getLevel(index);
+        rank = tree.getRank(index);
+        parent = tree.getParentId(index);
+        previous = tree.getPreviousId(index);
+        next = tree.getNextId(index);
+        collapsed = tree.isCollapsed(index);
+        contentExpanded = tree.isContentExpanded(index);
+        voted = tree.isVoted(index);
+        if (!tree.isLoaded(index)) {
+            return;
+        }
+        type = tree.getType(index);
+        by = tree.getBy(index);
+        time = tree.getTime(index);
+        text = tree.getText(index);
+        dead = tree.isDead(index);
+        deleted = tree.isDeleted(index);
+        kids = tree.getKids(index);
+        kidItems = null;
+        localRevision = 1;
+    }
+
     @Override
     public String getRawType() {
         return type;
@@ -416,7 +565,7 @@ class HackerNewsItem implements Item {
     @Override
     public CharSequence getDisplayedText() {
         if (displayedText == null) {
-            displayedText = AppUtils.fromHtml(text);
+            displayedText = HackerNewsHtml.fromHtml(text);
         }
         return displayedText;
     }
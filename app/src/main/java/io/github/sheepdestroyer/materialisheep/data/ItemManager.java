@@ -23,6 +23,8 @@ import androidx.annotation.WorkerThread;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
+import io.reactivex.rxjava3.disposables.Disposable;
+
 /**
  * An interface for managing {@link Item} data.
  */
@@ -77,8 +79,10 @@ public interface ItemManager {
      * @param filter    the filter to apply to the stories
      * @param cacheMode the cache mode to use
      * @param listener  the listener to be notified of the response
+     * @return a handle to cancel the request, disposing it also cancels the underlying
+     * network calls and drops the response
      */
-    void getStories(String filter, @CacheMode int cacheMode, final ResponseListener<Item[]> listener);
+    Disposable getStories(String filter, @CacheMode int cacheMode, final ResponseListener<Item[]> listener);
 
     /**
      * Gets an individual item by its ID.
@@ -86,8 +90,10 @@ public interface ItemManager {
      * @param itemId    the ID of the item to get
      * @param cacheMode the cache mode to use
      * @param listener  the listener to be notified of the response
+     * @return a handle to cancel the request, disposing it also cancels the underlying
+     * network calls and drops the response
      */
-    void getItem(String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener);
+    Disposable getItem(String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener);
 
     /**
      * Gets an array of items by their IDs.
@@ -95,8 +101,51 @@ public interface ItemManager {
      * @param itemIds   the IDs of the items to get
      * @param cacheMode the cache mode to use
      * @param listener  the listener to be notified of the response
+     * @return a handle to cancel the request, disposing it also cancels the underlying
+     * network calls and drops the response
+     */
+    Disposable getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener);
+
+    /**
+     * Gets an array of items by their numeric IDs, sparing batch callers the formatting,
+     * parsing and boxing of string IDs.
+     *
+     * @param itemIds   the IDs of the items to get
+     * @param cacheMode the cache mode to use
+     * @param listener  the listener to be notified of the response
+     * @return a handle to cancel the request
+     * @see #getItems(String[], int, ResponseListener)
+     */
+    Disposable getItems(long[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener);
+
+    /**
+     * Gets an array of items by their IDs, delivering them progressively as they load.
+     * Items loaded within the same time window are delivered together in one
+     * {@link ResponseListener#onResponse(Object)} call, in no particular order, so that
+     * a slow item does not hold up the others. Items that fail to load are skipped.
+     *
+     * @param itemIds      the IDs of the items to get
+     * @param cacheMode    the cache mode to use
+     * @param windowMillis the time window to collect loaded items in, in milliseconds
+     * @param listener     the listener to be notified of each chunk of loaded items
+     * @return a handle to cancel the request, disposing it also cancels the underlying
+     * network calls and drops the remaining chunks
      */
-    void getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener);
+    Disposable streamItems(String[] itemIds, @CacheMode int cacheMode, long windowMillis,
+            ResponseListener<Item[]> listener);
+
+    /**
+     * Gets an array of items by their numeric IDs, delivering them progressively as they load.
+     *
+     * @param itemIds      the IDs of the items to get
+     * @param cacheMode    the cache mode to use
+     * @param windowMillis the time window to collect loaded items in, in milliseconds
+     * @param listener     the listener to be notified of each chunk of loaded items
+     * @return a handle to cancel the request
+     * @see #streamItems(String[], int, long, ResponseListener)
+     */
+    Disposable streamItems(long[] itemIds, @CacheMode int cacheMode, long windowMillis,
+            ResponseListener<Item[]> listener);
 
     /**
      * Gets an array of stories.
@@ -127,4 +176,15 @@ public interface ItemManager {
      */
     @WorkerThread
     Item[] getItems(String[] itemIds, @CacheMode int cacheMode);
+
+    /**
+     * Gets an array of items by their numeric IDs synchronously.
+     *
+     * @param itemIds   the IDs of the items to get
+     * @param cacheMode the cache mode to use
+     * @return an array of items, in the same order as given IDs, with `null` for items
+     * that could not be loaded
+     */
+    @WorkerThread
+    Item[] getItems(long[] itemIds, @CacheMode int cacheMode);
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.collection.LongSparseArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+/**
+ * Refreshes metadata of stories, i.e. their scores, comment counts, titles and URLs, with one
+ * Algolia request per batch of stories instead of one Hacker News request per story. Refreshed
+ * metadata is merged into content loaded before, which Algolia does not have, so stories that
+ * have not been loaded yet, or that Algolia misses, are loaded from Hacker News instead.
+ * As Algolia may lag behind Hacker News, scores and comment counts are only merged if larger.
+ */
+@Singleton
+public class ItemMetadataRefresher {
+    // keeps request URL short, while a front page still fits in one batch
+    private static final int MAX_BATCH_SIZE = 50;
+    private static final String TAG_PREFIX = "story_";
+    private final AlgoliaClient.RestService mRestService;
+    private final ItemManager mHackerNewsClient;
+    private final ItemRegistry mItemRegistry;
+    private final SessionManager mSessionManager;
+    private final FavoriteManager mFavoriteManager;
+    private final Scheduler mIoScheduler;
+    private final Scheduler mMainThreadScheduler;
+
+    /**
+     * Constructs a new {@code ItemMetadataRefresher}.
+     *
+     * @param factory             the {@link RestServiceFactory} to create Algolia REST service
+     * @param hackerNewsClient    the {@link ItemManager} to load stories Algolia misses
+     * @param itemRegistry        the {@link ItemRegistry} holding loaded stories
+     * @param sessionManager      the {@link SessionManager} to check viewed stories
+     * @param favoriteManager     the {@link FavoriteManager} to check favorite stories
+     * @param ioScheduler         the {@link Scheduler} to request and merge on
+     * @param mainThreadScheduler the {@link Scheduler} to deliver refreshed stories on
+     */
+    @Inject
+    public ItemMetadataRefresher(RestServiceFactory factory,
+            @Named(DataModule.HN) ItemManager hackerNewsClient,
+            ItemRegistry itemRegistry,
+            SessionManager sessionManager,
+            FavoriteManager favoriteManager,
+            @Named(DataModule.IO_THREAD) Scheduler ioScheduler,
+            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
+        mRestService = factory.rxEnabled(true)
+                .create(AlgoliaClient.BASE_API_URL, AlgoliaClient.RestService.class);
+        mHackerNewsClient = hackerNewsClient;
+        mItemRegistry = itemRegistry;
+        mSessionManager = sessionManager;
+        mFavoriteManager = favoriteManager;
+        mIoScheduler = ioScheduler;
+        mMainThreadScheduler = mainThreadScheduler;
+    }
+
+    /**
+     * Refreshes given stories from network, delivering them progressively as
+     * {@link ItemManager#streamItems(long[], int, long, ResponseListener)} does: stories
+     * refreshed by Algolia in one chunk per batch, then stories loaded from Hacker News.
+     *
+     * @param itemIds      the IDs of the stories to refresh
+     * @param windowMillis the time window to collect stories loaded from Hacker News in
+     * @param listener     the listener to be notified of each chunk of refreshed stories
+     * @return a handle to cancel the refresh, including its Hacker News requests
+     */
+    @MainThread
+    @NonNull
+    public Disposable refresh(@Nullable long[] itemIds, long windowMillis,
+                              @Nullable ResponseListener<Item[]> listener) {
+        if (listener == null || itemIds == null || itemIds.length == 0) {
+            return Disposable.disposed();
+        }
+        Request request = new Request();
+        int batchCount = (itemIds.length + MAX_BATCH_SIZE - 1) / MAX_BATCH_SIZE;
+        request.mDisposables.add(Observable.range(0, batchCount)
+                .flatMap(batch -> refreshBatch(Arrays.copyOfRange(itemIds,
+                        batch * MAX_BATCH_SIZE,
+                        Math.min(itemIds.length, (batch + 1) * MAX_BATCH_SIZE))))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .subscribe(result -> {
+                    if (result.mRefreshed.length > 0) {
+                        listener.onResponse(mItemRegistry.publish(result.mRefreshed));
+                    }
+                    if (result.mMissed.length > 0 && !request.isDisposed()) {
+                        request.add(mHackerNewsClient.streamItems(result.mMissed,
+                                ItemManager.MODE_NETWORK, windowMillis, listener));
+                    }
+                }, t -> {
+                    android.util.Log.e("ItemMetadataRefresher", "Error refreshing items", t);
+                    request.dispose();
+                    listener.onError(t != null ? t.getMessage() : "Unknown error");
+                }, request::complete));
+        return request;
+    }
+
+    private Observable<Result> refreshBatch(long[] itemIds) {
+        return Observable.defer(() -> {
+            HackerNewsItem[] loaded = new HackerNewsItem[itemIds.length];
+            StringBuilder tags = new StringBuilder("(");
+            int count = 0;
+            for (int i = 0; i < itemIds.length; i++) {
+                loaded[i] = mItemRegistry.getFetched(itemIds[i]);
+                if (loaded[i] != null) {
+                    tags.append(count++ > 0 ? "," : "").append(TAG_PREFIX).append(itemIds[i]);
+                }
+            }
+            if (count == 0) {
+                return Observable.just(new Result(new Item[0], itemIds));
+            }
+            return Observable.zip(
+                    mRestService.searchByTagsRx(tags.append(')').toString(), count)
+                            .onErrorReturn(t -> new AlgoliaClient.AlgoliaHits()), // all missed
+                    mSessionManager.isViewed(itemIds),
+                    mFavoriteManager.check(itemIds),
+                    (hits, viewed, favorite) -> merge(itemIds, loaded, hits, viewed, favorite));
+        });
+    }
+
+    @WorkerThread
+    private Result merge(long[] itemIds, HackerNewsItem[] loaded, AlgoliaClient.AlgoliaHits hits,
+                         boolean[] viewed, boolean[] favorite) {
+        LongSparseArray<AlgoliaClient.Hit> hitMap = new LongSparseArray<>();
+        if (hits.hits != null) {
+            for (AlgoliaClient.Hit hit : hits.hits) {
+                try {
+                    hitMap.put(Long.parseLong(hit.objectID), hit);
+                } catch (NumberFormatException e) {
+                    // not a story, skip
+                }
+            }
+        }
+        List<Item> refreshed = new ArrayList<>(hitMap.size());
+        long[] missed = new long[itemIds.length];
+        int missedCount = 0;
+        for (int i = 0; i < itemIds.length; i++) {
+            AlgoliaClient.Hit hit = loaded[i] != null ? hitMap.get(itemIds[i]) : null;
+            if (hit == null) {
+                missed[missedCount++] = itemIds[i];
+                continue;
+            }
+            // Algolia may lag behind content loaded since, whose newer values are kept
+            HackerNewsItem item = mItemRegistry.mergeMetadata(itemIds[i], hit.title, hit.url,
+                    hit.author, hit.points, hit.num_comments, hit.created_at_i);
+            item.setIsViewed(viewed[i]);
+            item.setFavorite(favorite[i]);
+            refreshed.add(item);
+        }
+        return new Result(refreshed.toArray(new Item[0]), Arrays.copyOf(missed, missedCount));
+    }
+
+    /**
+     * Handle of a refresh, disposed once its Algolia requests complete and the Hacker News
+     * requests it started for missed stories are done, so that holders can prune it.
+     */
+    @MainThread
+    static class Request implements Disposable {
+        @Synthetic
+        final CompositeDisposable mDisposables = new CompositeDisposable();
+        private final List<Disposable> mStreams = new ArrayList<>();
+        private boolean mCompleted;
+
+        @Synthetic
+        void add(Disposable stream) {
+            mStreams.add(stream);
+            mDisposables.add(stream);
+        }
+
+        @Synthetic
+        void complete() {
+            mCompleted = true;
+            isDisposed();
+        }
+
+        @Override
+        public void dispose() {
+            mDisposables.dispose();
+            mStreams.clear();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            if (mCompleted && !mDisposables.isDisposed()) {
+                mStreams.removeIf(Disposable::isDisposed);
+                if (mStreams.isEmpty()) {
+                    dispose();
+                }
+            }
+            return mDisposables.isDisposed();
+        }
+    }
+
+    static class Result {
+        @Synthetic
+        final Item[] mRefreshed;
+        @Synthetic
+        final long[] mMissed;
+
+        Result(Item[] refreshed, long[] missed) {
+            mRefreshed = refreshed;
+            mMissed = missed;
+        }
+    }
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, versioned binary file of item records, meant to be memory mapped and read in place:
+ * records are found by id with a binary search and their strings are only decoded when asked
+ * for. Used for story list snapshots, and suitable for any other set of items kept on disk,
+ * e.g. offline or widget stories. Only item content is kept, not rendered or view state.
+ * <p>
+ * The buffer is big endian and holds, in order:
+ * <ul>
+ * <li>header: magic, version, record count, string pool offset and size, as ints</li>
+ * <li>offset of each record, in written order, as ints</li>
+ * <li>id index: id as long and record ordinal as int, sorted by id</li>
+ * <li>records: fixed width fields, see {@link #RECORD_SIZE}, then kid count and kid ids as
+ * varints, kid ids as zigzag deltas from the previous kid</li>
+ * <li>string pool: deduplicated strings as varint byte length then UTF-8 bytes, referenced
+ * by their offset in the pool, or -1 for null</li>
+ * </ul>
+ */
+public final class ItemRecordFile {
+    static final int MAGIC = 0x49544d52; // ITMR
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    // id, time, parent, score, descendants, rank, flags + padding, 5 string references
+    private static final int RECORD_SIZE = 8 + 8 + 8 + 4 + 4 + 4 + 4 + 5 * 4;
+    private static final int OFFSET_TIME = 8, OFFSET_PARENT = 16, OFFSET_SCORE = 24,
+            OFFSET_DESCENDANTS = 28, OFFSET_RANK = 32, OFFSET_FLAGS = 36, OFFSET_STRINGS = 40;
+    private static final int STRING_TYPE = 0, STRING_TITLE = 1, STRING_BY = 2, STRING_URL = 3,
+            STRING_TEXT = 4, STRING_COUNT = 5;
+    private static final int FLAG_DELETED = 1, FLAG_DEAD = 1 << 1, FLAG_LOADED = 1 << 2,
+            FLAG_KIDS = 1 << 3;
+    private static final int NULL = -1;
+
+    @Synthetic
+    final ByteBuffer mBuffer;
+    private final int mCount;
+    private final int mIndexOffset;
+    @Synthetic
+    final int mPoolOffset;
+
+    /**
+     * Encodes given items, in given order. Items are only read, so this should be called on
+     * the thread that updates them.
+     *
+     * @param items items to encode
+     * @return encoded file content
+     */
+    @NonNull
+    public static byte[] encode(@NonNull List<? extends Item> items) {
+        int count = items.size();
+        int recordsOffset = HEADER_SIZE + count * (4 + INDEX_ENTRY_SIZE);
+        Buffer records = new Buffer(count * (RECORD_SIZE + 8));
+        Buffer pool = new Buffer(count * 64);
+        Map<String, Integer> strings = new HashMap<>();
+        int[] offsets = new int[count];
+        long[] index = new long[count];
+        for (int i = 0; i < count; i++) {
+            Item item = items.get(i);
+            offsets[i] = recordsOffset + records.size();
+            index[i] = item.getLongId();
+            boolean loaded = item.getLocalRevision() > 0;
+            long[] kids = loaded ? item.getKids() : null;
+            records.writeLong(item.getLongId());
+            records.writeLong(loaded ? item.getTime() : 0);
+            records.writeLong(loaded ? parseParent(item.getParent()) : 0);
+            records.writeInt(loaded ? item.getScore() : 0);
+            records.writeInt(loaded ? item.getDescendants() : -1);
+            records.writeInt(item.getRank());
+            records.writeInt((loaded && item.isDeleted() ? FLAG_DELETED : 0) |
+                    (loaded && item.isDead() ? FLAG_DEAD : 0) |
+                    (loaded ? FLAG_LOADED : 0) |
+                    (kids != null ? FLAG_KIDS : 0));
+            records.writeInt(intern(strings, pool, loaded ? item.getRawType() : null));
+            records.writeInt(intern(strings, pool, loaded ? item.getTitle() : null));
+            records.writeInt(intern(strings, pool, loaded ? item.getBy() : null));
+            records.writeInt(intern(strings, pool, loaded ? item.getRawUrl() : null));
+            records.writeInt(intern(strings, pool, loaded ? item.getText() : null));
+            if (kids != null) {
+                records.writeVarint(kids.length);
+                long previous = 0;
+                for (long kid : kids) {
+                    long delta = kid - previous;
+                    records.writeVarint((delta << 1) ^ (delta >> 63)); // zigzag
+                    previous = kid;
+                }
+            }
+        }
+        Integer[] ordinals = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            ordinals[i] = i;
+        }
+        Arrays.sort(ordinals, (o1, o2) -> Long.compare(index[o1], index[o2]));
+        int poolOffset = recordsOffset + records.size();
+        Buffer out = new Buffer(poolOffset + pool.size());
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        out.writeInt(poolOffset);
+        out.writeInt(pool.size());
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        for (int ordinal : ordinals) {
+            out.writeLong(index[ordinal]);
+            out.writeInt(ordinal);
+        }
+        out.write(records);
+        out.write(pool);
+        return out.toByteArray();
+    }
+
+    /**
+     * Memory maps given file, validating its structure so that reads cannot go out of bounds.
+     *
+     * @param file file written with {@link #encode(List)} content
+     * @return records of given file
+     * @throws IOException if file cannot be read or is not a valid item record file
+     */
+    @NonNull
+    public static ItemRecordFile map(@NonNull File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // mapping stays valid after channel is closed
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Wraps given content, validating its structure so that reads cannot go out of bounds.
+     * The buffer is read with absolute gets only, so records are safe to read from any thread.
+     *
+     * @param buffer content written with {@link #encode(List)}
+     * @return records of given content
+     * @throws IOException if buffer is not a valid item record file
+     */
+    @NonNull
+    public static ItemRecordFile wrap(@NonNull ByteBuffer buffer) throws IOException {
+        buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        int size = buffer.remaining();
+        if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an item record file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported version " + buffer.getInt(4));
+        }
+        int count = buffer.getInt(8), poolOffset = buffer.getInt(12), poolSize = buffer.getInt(16);
+        long recordsOffset = HEADER_SIZE + (long) count * (4 + INDEX_ENTRY_SIZE);
+        if (count < 0 || poolOffset < recordsOffset || poolSize < 0 ||
+                (long) poolOffset + poolSize != size) {
+            throw new IOException("Corrupt item record file header");
+        }
+        ItemRecordFile file = new ItemRecordFile(buffer, count, poolOffset);
+        file.validate((int) recordsOffset, poolSize);
+        return file;
+    }
+
+    private ItemRecordFile(ByteBuffer buffer, int count, int poolOffset) {
+        mBuffer = buffer;
+        mCount = count;
+        mIndexOffset = HEADER_SIZE + count * 4;
+        mPoolOffset = poolOffset;
+    }
+
+    /**
+     * @return number of records
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Gets record at given position, in written order.
+     *
+     * @param ordinal record position
+     * @return record view, strings are decoded lazily
+     */
+    @NonNull
+    public Record get(int ordinal) {
+        if (ordinal < 0 || ordinal >= mCount) {
+            throw new IndexOutOfBoundsException("Record " + ordinal + " of " + mCount);
+        }
+        return new Record(mBuffer.getInt(HEADER_SIZE + ordinal * 4));
+    }
+
+    /**
+     * Finds record of given item, in logarithmic time.
+     *
+     * @param id item ID
+     * @return record view, or null if there is no record for given item
+     */
+    @Nullable
+    public Record find(long id) {
+        int low = 0, high = mCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = mBuffer.getLong(mIndexOffset + mid * INDEX_ENTRY_SIZE);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return get(mBuffer.getInt(mIndexOffset + mid * INDEX_ENTRY_SIZE + 8));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return size in bytes of the backing buffer
+     */
+    public int byteSize() {
+        return mBuffer.capacity();
+    }
+
+    private void validate(int recordsOffset, int poolSize) throws IOException {
+        for (int i = 0; i < mCount; i++) {
+            int offset = mBuffer.getInt(HEADER_SIZE + i * 4);
+            if (offset < recordsOffset || offset > mPoolOffset - RECORD_SIZE) {
+                throw new IOException("Corrupt record offset");
+            }
+            for (int j = 0; j < STRING_COUNT; j++) {
+                int ref = mBuffer.getInt(offset + OFFSET_STRINGS + j * 4);
+                if (ref == NULL) {
+                    continue;
+                }
+                if (ref < 0 || ref >= poolSize) {
+                    throw new IOException("Corrupt string reference");
+                }
+                int[] position = {mPoolOffset + ref};
+                long length = readVarint(position, mPoolOffset + poolSize);
+                if (position[0] < 0 || length < 0 ||
+                        length > mPoolOffset + poolSize - position[0]) {
+                    throw new IOException("Corrupt string");
+                }
+            }
+            if ((mBuffer.getInt(offset + OFFSET_FLAGS) & FLAG_KIDS) != 0) {
+                int[] position = {offset + RECORD_SIZE};
+                long kidCount = readVarint(position, mPoolOffset);
+                // each kid takes at least one byte
+                if (position[0] < 0 || kidCount < 0 || kidCount > mPoolOffset - position[0]) {
+                    throw new IOException("Corrupt kids");
+                }
+                for (long k = 0; k < kidCount; k++) {
+                    readVarint(position, mPoolOffset); // deltas may use all 64 bits
+                    if (position[0] < 0) {
+                        throw new IOException("Corrupt kids");
+                    }
+                }
+            }
+        }
+        long previousId = 0;
+        boolean[] indexed = new boolean[mCount];
+        for (int i = 0; i < mCount; i++) {
+            int entry = mIndexOffset + i * INDEX_ENTRY_SIZE;
+            long id = mBuffer.getLong(entry);
+            int ordinal = mBuffer.getInt(entry + 8);
+            // ids may repeat, e.g. a story listed twice, find() returns any of them
+            if (i > 0 && id < previousId || ordinal < 0 || ordinal >= mCount ||
+                    indexed[ordinal] ||
+                    mBuffer.getLong(mBuffer.getInt(HEADER_SIZE + ordinal * 4)) != id) {
+                throw new IOException("Corrupt id index");
+            }
+            indexed[ordinal] = true;
+            previousId = id;
+        }
+    }
+
+    /**
+     * Reads a varint at given position, advancing it past the varint.
+     *
+     * @param position single element array holding position to read at, set to -1 if the
+     *                 varint does not end before limit or is longer than 10 bytes
+     * @param limit    position the varint must end before
+     * @return value, or 0 if it could not be read
+     */
+    @Synthetic
+    long readVarint(int[] position, int limit) {
+        long value = 0;
+        int p = position[0];
+        for (int shift = 0; shift < 64 && p < limit; shift += 7) {
+            byte b = mBuffer.get(p++);
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                position[0] = p;
+                return value;
+            }
+        }
+        position[0] = -1;
+        return 0;
+    }
+
+    private static long parseParent(String parent) {
+        try {
+            return parent == null ? 0 : Long.parseLong(parent);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int intern(Map<String, Integer> strings, Buffer pool, String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer ref = strings.get(value);
+        if (ref == null) {
+            ref = pool.size();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            pool.writeVarint(bytes.length);
+            pool.write(bytes, bytes.length);
+            strings.put(value, ref);
+        }
+        return ref;
+    }
+
+    /**
+     * View of an item record in the backing buffer. Fixed width fields are read on access,
+     * strings and kids are decoded on access, so only what is used is paid for.
+     */
+    public final class Record {
+        private final int mOffset;
+
+        Record(int offset) {
+            mOffset = offset;
+        }
+
+        public long getId() {
+            return mBuffer.getLong(mOffset);
+        }
+
+        public long getTime() {
+            return mBuffer.getLong(mOffset + OFFSET_TIME);
+        }
+
+        public long getParent() {
+            return mBuffer.getLong(mOffset + OFFSET_PARENT);
+        }
+
+        public int getScore() {
+            return mBuffer.getInt(mOffset + OFFSET_SCORE);
+        }
+
+        public int getDescendants() {
+            return mBuffer.getInt(mOffset + OFFSET_DESCENDANTS);
+        }
+
+        public int getRank() {
+            return mBuffer.getInt(mOffset + OFFSET_RANK);
+        }
+
+        public boolean isDeleted() {
+            return (getFlags() & FLAG_DELETED) != 0;
+        }
+
+        public boolean isDead() {
+            return (getFlags() & FLAG_DEAD) != 0;
+        }
+
+        /**
+         * @return true if item content had been loaded when written, false if only
+         * its id and rank are known
+         */
+        public boolean isLoaded() {
+            return (getFlags() & FLAG_LOADED) != 0;
+        }
+
+        @Nullable
+        public String getType() {
+            return getString(STRING_TYPE);
+        }
+
+        @Nullable
+        public String getTitle() {
+            return getString(STRING_TITLE);
+        }
+
+        @Nullable
+        public String getBy() {
+            return getString(STRING_BY);
+        }
+
+        @Nullable
+        public String getUrl() {
+            return getString(STRING_URL);
+        }
+
+        @Nullable
+        public String getText() {
+            return getString(STRING_TEXT);
+        }
+
+        /**
+         * @return kid ids in ranked order, or null if item has no kids
+         */
+        @Nullable
+        public long[] getKids() {
+            if ((getFlags() & FLAG_KIDS) == 0) {
+                return null;
+            }
+            // varints were validated on wrap
+            int[] position = {mOffset + RECORD_SIZE};
+            long[] kids = new long[(int) readVarint(position, mPoolOffset)];
+            long previous = 0;
+            for (int i = 0; i < kids.length; i++) {
+                long zigzag = readVarint(position, mPoolOffset);
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                kids[i] = previous;
+            }
+            return kids;
+        }
+
+        /**
+         * Creates an item from this record, marked loaded if its content had been loaded.
+         *
+         * @return new item
+         */
+        @NonNull
+        public HackerNewsItem toItem() {
+            HackerNewsItem item = new HackerNewsItem(getId());
+            item.restore(this);
+            return item;
+        }
+
+        private int getFlags() {
+            return mBuffer.getInt(mOffset + OFFSET_FLAGS);
+        }
+
+        private String getString(int field) {
+            int ref = mBuffer.getInt(mOffset + OFFSET_STRINGS + field * 4);
+            if (ref == NULL) {
+                return null;
+            }
+            int[] position = {mPoolOffset + ref};
+            int length = (int) readVarint(position, mBuffer.capacity());
+            if (mBuffer.hasArray()) {
+                return new String(mBuffer.array(), mBuffer.arrayOffset() + position[0], length,
+                        StandardCharsets.UTF_8);
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = mBuffer.get(position[0] + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Minimal growable big endian byte buffer, to avoid stream overhead while encoding.
+     */
+    private static final class Buffer {
+        private byte[] mBytes;
+        private int mSize;
+
+        Buffer(int capacity) {
+            mBytes = new byte[Math.max(capacity, 16)];
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            mBytes[mSize++] = (byte) (value >>> 24);
+            mBytes[mSize++] = (byte) (value >>> 16);
+            mBytes[mSize++] = (byte) (value >>> 8);
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void write(byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, mBytes, mSize, length);
+            mSize += length;
+        }
+
+        void write(Buffer buffer) {
+            write(buffer.mBytes, buffer.mSize);
+        }
+
+        byte[] toByteArray() {
+            return mSize == mBytes.length ? mBytes : Arrays.copyOf(mBytes, mSize);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, Math.max(mBytes.length * 2, mSize + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.LongSparseArray;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A process-wide registry of canonical items, so that an item shown by several sources, e.g.
+ * a story in top stories, search results and popular stories, is held, loaded and rendered
+ * once. Items are softly referenced, so they can be dropped under memory pressure.
+ * <p>
+ * Canonical items are bound to views, so they are only changed on main thread. Sources work on
+ * copies of content recorded in registry, which they are free to change on any thread, and
+ * publish them into canonical items on main thread. Copies are shallow, sharing text, rendered
+ * text and comment IDs with recorded content, and also serve as list rows, as rank is per list.
+ * Content is only recorded once fetched or merged from metadata, not for published items.
+ */
+@Singleton
+public final class ItemRegistry {
+    /**
+     * Maximum age to accept recorded content of any age.
+     */
+    static final long ANY_AGE = Long.MAX_VALUE;
+    private final LongSparseArray<Entry> mItems = new LongSparseArray<>();
+    private final ReferenceQueue<HackerNewsItem> mQueue = new ReferenceQueue<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Constructs a new, empty {@code ItemRegistry}.
+     */
+    @Inject
+    public ItemRegistry() {
+    }
+
+    /**
+     * Gets a copy of content of given item, if it was fetched recently enough and has not
+     * become stale since.
+     *
+     * @param id           item ID
+     * @param maxAgeMillis maximum age of fetched content, in milliseconds
+     * @return a copy of content, or null if none has been fetched within given age
+     */
+    @AnyThread
+    @Nullable
+    synchronized HackerNewsItem get(long id, long maxAgeMillis) {
+        purge();
+        Entry entry = mItems.get(id);
+        if (entry == null || entry.mStale ||
+                SystemClock.elapsedRealtime() - entry.mFetchedAt > maxAgeMillis) {
+            return null;
+        }
+        return getFetched(entry);
+    }
+
+    /**
+     * Gets a copy of content of given item, if it has ever been fetched, regardless of its age
+     * or whether it has become stale, e.g. to merge metadata into it.
+     *
+     * @param id item ID
+     * @return a copy of content, or null if none has been fetched
+     */
+    @AnyThread
+    @Nullable
+    synchronized HackerNewsItem getFetched(long id) {
+        purge();
+        return getFetched(mItems.get(id));
+    }
+
+    /**
+     * Records freshly fetched content of given item.
+     *
+     * @param fetched freshly fetched item, which remains owned by caller
+     */
+    @AnyThread
+    synchronized void put(@NonNull HackerNewsItem fetched) {
+        purge();
+        Entry entry = entry(fetched.getLongId());
+        entry.setContent(fetched.copy(), SystemClock.elapsedRealtime());
+        entry.mStale = false;
+    }
+
+    /**
+     * Merges story metadata, e.g. from a search hit, into recorded content of given item,
+     * keeping scores and comment counts that are larger than given ones. Content becomes stale
+     * if it has fewer comments, as they were fetched before the new ones, so that it is
+     * fetched again when its comments are requested, though it can still be merged into.
+     *
+     * @param id          item ID
+     * @param title       story title
+     * @param url         story URL
+     * @param by          story author
+     * @param score       story score
+     * @param descendants story comment count
+     * @param time        story creation time, in Unix time
+     * @return a copy of merged content, holding only metadata if no content was recorded
+     */
+    @AnyThread
+    @NonNull
+    synchronized HackerNewsItem mergeMetadata(long id, String title, String url, String by,
+                                              int score, int descendants, long time) {
+        purge();
+        Entry entry = entry(id);
+        HackerNewsItem content = entry.getContent();
+        HackerNewsItem merged = content != null ? content.copy() : new HackerNewsItem(id);
+        merged.mergeMetadata(title, url, by, score, descendants, time);
+        if (content != null && merged.getDescendants() > content.getDescendants()) {
+            entry.mStale = true;
+        }
+        entry.setContent(merged.copy(), content != null ? entry.mFetchedAt : -1);
+        return merged;
+    }
+
+    /**
+     * Publishes given content into canonical item of its ID, or makes it canonical if there
+     * is none.
+     *
+     * @param item content owned by caller, which becomes canonical if there is none
+     * @return canonical item, holding given content
+     */
+    @MainThread
+    @Nullable
+    HackerNewsItem publish(@Nullable HackerNewsItem item) {
+        if (item == null) {
+            return null;
+        }
+        HackerNewsItem canonical;
+        synchronized (this) {
+            purge();
+            Entry entry = entry(item.getLongId());
+            canonical = entry.getCanonical();
+            if (canonical == null) {
+                entry.setCanonical(item);
+                return item;
+            }
+        }
+        if (canonical != item) {
+            canonical.merge(item);
+        }
+        return canonical;
+    }
+
+    /**
+     * Publishes given items into canonical items, in place.
+     *
+     * @param items content owned by caller
+     * @return given array, holding canonical items
+     */
+    @MainThread
+    @NonNull
+    Item[] publish(@NonNull Item[] items) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] instanceof HackerNewsItem) {
+                items[i] = publish((HackerNewsItem) items[i]);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Merges given content into canonical item of its ID on main thread, if there is one,
+     * e.g. for content that is not delivered to main thread. View state of canonical item is
+     * kept, as given content may not carry it.
+     *
+     * @param content content owned by caller, which is copied so that caller may keep it
+     */
+    @AnyThread
+    void publishLater(@Nullable HackerNewsItem content) {
+        if (content == null) {
+            return;
+        }
+        HackerNewsItem item = content.copy();
+        Runnable publish = () -> {
+            HackerNewsItem canonical = getCanonical(item.getLongId());
+            if (canonical != null && canonical != content) {
+                canonical.mergeContent(item);
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            publish.run();
+        } else {
+            mMainHandler.post(publish);
+        }
+    }
+
+    /**
+     * Gets number of items currently registered.
+     *
+     * @return number of items
+     */
+    synchronized int size() {
+        purge();
+        return mItems.size();
+    }
+
+    @Nullable
+    private HackerNewsItem getFetched(@Nullable Entry entry) {
+        HackerNewsItem content = entry != null ? entry.getContent() : null;
+        return content != null && entry.mFetchedAt >= 0 ? content.copy() : null;
+    }
+
+    @Nullable
+    private synchronized HackerNewsItem getCanonical(long id) {
+        Entry entry = mItems.get(id);
+        return entry != null ? entry.getCanonical() : null;
+    }
+
+    private Entry entry(long id) {
+        Entry entry = mItems.get(id);
+        if (entry == null) {
+            entry = new Entry();
+            mItems.put(id, entry);
+        }
+        return entry;
+    }
+
+    private void purge() {
+        Ref ref;
+        while ((ref = (Ref) mQueue.poll()) != null) {
+            Entry entry = mItems.get(ref.mId);
+            if (entry != null && entry.getContent() == null && entry.getCanonical() == null) {
+                mItems.remove(ref.mId);
+            }
+        }
+    }
+
+    private final class Entry {
+        Ref mContent; // never changed once recorded, so that it can be copied on any thread
+        Ref mCanonical;
+        // elapsed realtime content was fetched at, or -1 if it only holds partial content
+        long mFetchedAt = -1;
+        // whether content has fewer comments than known since, so they should be fetched again
+        boolean mStale;
+
+        HackerNewsItem getContent() {
+            return mContent != null ? mContent.get() : null;
+        }
+
+        HackerNewsItem getCanonical() {
+            return mCanonical != null ? mCanonical.get() : null;
+        }
+
+        void setContent(HackerNewsItem content, long fetchedAt) {
+            mContent = new Ref(content, mQueue);
+            mFetchedAt = fetchedAt;
+        }
+
+        void setCanonical(HackerNewsItem canonical) {
+            mCanonical = new Ref(canonical, mQueue);
+        }
+    }
+
+    private static class Ref extends SoftReference<HackerNewsItem> {
+        final long mId;
+
+        Ref(HackerNewsItem item, ReferenceQueue<HackerNewsItem> queue) {
+            super(item, queue);
+            mId = item.getLongId();
+        }
+    }
+}
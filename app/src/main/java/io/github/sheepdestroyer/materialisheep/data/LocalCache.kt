@@ -56,6 +56,14 @@ interface LocalCache {
    */
   fun isViewed(itemIds: List<String>): List<Boolean>
 
+  /**
+   * Checks if multiple items have been viewed, without boxing or formatting their IDs.
+   *
+   * @param itemIds the IDs of the items
+   * @return an array of booleans indicating if each item has been viewed
+   */
+  fun isViewed(itemIds: LongArray): BooleanArray
+
   /**
    * Marks an item as viewed.
    *
@@ -78,4 +86,12 @@ interface LocalCache {
    * @return a list of booleans indicating if each item is a favorite
    */
   fun isFavorite(itemIds: List<String>): List<Boolean>
+
+  /**
+   * Checks if multiple items are favorites, without boxing or formatting their IDs.
+   *
+   * @param itemIds the IDs of the items
+   * @return an array of booleans indicating if each item is a favorite
+   */
+  fun isFavorite(itemIds: LongArray): BooleanArray
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+import static io.github.sheepdestroyer.materialisheep.DataModule.HN;
+
+/**
+ * An {@link ItemManager} that searches stories in {@link SearchIndex}, i.e. among those loaded
+ * before, for when search cannot reach Algolia. Stories are sorted by time or relevance as
+ * requested through {@link #search(String, boolean)}, or as Algolia search is through
+ * {@link ItemManager} methods, see {@link AlgoliaClient#sSortByTime}. Items are loaded through
+ * HN client.
+ */
+@Singleton
+public class LocalSearchClient implements ItemManager {
+    private final SearchIndex mSearchIndex;
+    private final ItemManager mHackerNewsClient;
+    private final ItemRegistry mItemRegistry;
+    private final Scheduler mIoScheduler;
+    private final Scheduler mMainThreadScheduler;
+
+    /**
+     * Constructs a new {@code LocalSearchClient}.
+     *
+     * @param searchIndex         the {@link SearchIndex} to search stories in
+     * @param hackerNewsClient    the {@link ItemManager} for HackerNews items
+     * @param itemRegistry        the {@link ItemRegistry} to resolve stories through
+     * @param ioScheduler         the {@link Scheduler} to search on
+     * @param mainThreadScheduler the {@link Scheduler} for observing on main thread
+     */
+    @Inject
+    public LocalSearchClient(SearchIndex searchIndex, @Named(HN) ItemManager hackerNewsClient,
+                             ItemRegistry itemRegistry,
+                             @Named(DataModule.IO_THREAD) Scheduler ioScheduler,
+                             @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
+        mSearchIndex = searchIndex;
+        mHackerNewsClient = hackerNewsClient;
+        mItemRegistry = itemRegistry;
+        mIoScheduler = ioScheduler;
+        mMainThreadScheduler = mainThreadScheduler;
+    }
+
+    @Override
+    public Disposable getStories(String filter, @CacheMode int cacheMode,
+                                 ResponseListener<Item[]> listener) {
+        if (listener == null) {
+            return Disposable.disposed();
+        }
+        return Observable.fromCallable(() -> getStories(filter, cacheMode))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .subscribe(listener::onResponse,
+                        t -> {
+                            android.util.Log.e("LocalSearchClient", "Error searching stories", t);
+                            listener.onError(t != null ? t.getMessage() : "Unknown error");
+                        });
+    }
+
+    @Override
+    public Disposable getItem(String itemId, @CacheMode int cacheMode, ResponseListener<Item> listener) {
+        return mHackerNewsClient.getItem(itemId, cacheMode, listener);
+    }
+
+    @Override
+    public Disposable getItems(String[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode, listener);
+    }
+
+    @Override
+    public Disposable getItems(long[] itemIds, @CacheMode int cacheMode, ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode, listener);
+    }
+
+    @Override
+    public Disposable streamItems(String[] itemIds, @CacheMode int cacheMode, long windowMillis,
+                                  ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.streamItems(itemIds, cacheMode, windowMillis, listener);
+    }
+
+    @Override
+    public Disposable streamItems(long[] itemIds, @CacheMode int cacheMode, long windowMillis,
+                                  ResponseListener<Item[]> listener) {
+        return mHackerNewsClient.streamItems(itemIds, cacheMode, windowMillis, listener);
+    }
+
+    /**
+     * Searches indexed stories synchronously, in global sort order.
+     *
+     * @param filter    the search query
+     * @param cacheMode ignored, stories are only searched locally
+     * @return an array of {@link Item}s, in ranking order
+     */
+    @NonNull
+    @Override
+    public Item[] getStories(String filter, @CacheMode int cacheMode) {
+        return search(filter, AlgoliaClient.sSortByTime);
+    }
+
+    /**
+     * Searches indexed stories synchronously.
+     *
+     * @param query      the search query
+     * @param sortByTime true to sort by time, false to sort by relevance
+     * @return an array of {@link Item}s, in ranking order
+     */
+    @WorkerThread
+    @NonNull
+    public Item[] search(String query, boolean sortByTime) {
+        List<SearchIndex.Document> documents = mSearchIndex.search(query, sortByTime,
+                SearchIndex.MAX_RESULTS);
+        Item[] stories = new Item[documents.size()];
+        for (int i = 0; i < stories.length; i++) {
+            SearchIndex.Document document = documents.get(i);
+            // indexed as fetched, so never newer than recorded content if any
+            HackerNewsItem item = mItemRegistry.mergeMetadata(document.mId, document.mTitle,
+                    document.mUrl, document.mBy, document.mScore, document.mDescendants,
+                    document.mTime);
+            mItemRegistry.publishLater(item);
+            item.rank = i + 1;
+            stories[i] = item;
+        }
+        return stories;
+    }
+
+    @Override
+    public Item getItem(String itemId, @CacheMode int cacheMode) {
+        return mHackerNewsClient.getItem(itemId, cacheMode);
+    }
+
+    @Override
+    public Item[] getItems(String[] itemIds, @CacheMode int cacheMode) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode);
+    }
+
+    @Override
+    public Item[] getItems(long[] itemIds, @CacheMode int cacheMode) {
+        return mHackerNewsClient.getItems(itemIds, cacheMode);
+    }
+}
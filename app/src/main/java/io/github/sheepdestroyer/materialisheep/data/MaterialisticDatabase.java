@@ -29,8 +29,9 @@ import java.util.List;
         MaterialisticDatabase.SavedStory.class,
         MaterialisticDatabase.ReadStory.class,
         MaterialisticDatabase.Readable.class,
-        MaterialisticDatabase.SyncQueueEntry.class
-}, version = 6, exportSchema = false)
+        MaterialisticDatabase.SyncQueueEntry.class,
+        MaterialisticDatabase.OutboxEntry.class
+}, version = 7, exportSchema = false)
 /**
  * A Room database for storing saved stories, read stories, and readable
  * content.
@@ -85,6 +86,12 @@ public abstract class MaterialisticDatabase extends RoomDatabase {
             public void migrate(@NonNull SupportSQLiteDatabase database) {
                 database.execSQL("CREATE INDEX IF NOT EXISTS index_read_itemid ON read(itemid)");
             }
+        }, new Migration(6, 7) {
+            @Override
+            public void migrate(@NonNull SupportSQLiteDatabase database) {
+                database.execSQL(DbConstants.SQL_CREATE_OUTBOX_TABLE);
+                database.execSQL(DbConstants.SQL_CREATE_OUTBOX_INDEX);
+            }
         });
     }
 
@@ -114,6 +121,8 @@ public abstract class MaterialisticDatabase extends RoomDatabase {
 
     public abstract SyncQueueDao getSyncQueueDao();
 
+    public abstract OutboxDao getOutboxDao();
+
     /**
      * Gets a {@link LiveData} that is notified of changes to the database.
      *
@@ -377,12 +386,115 @@ public abstract class MaterialisticDatabase extends RoomDatabase {
         }
     }
 
+    /**
+     * A Room entity that represents a user action, e.g. a vote or a reply, that could not be
+     * sent and is waiting in outbox to be sent again. Actions are unique per account, action,
+     * item and text, so the same action queued twice is only sent once.
+     */
+    @Entity(tableName = "outbox", indices = {@Index(value = {"account", "action", "itemid", "text"},
+            unique = true)})
+    public static class OutboxEntry {
+        @PrimaryKey(autoGenerate = true)
+        @ColumnInfo(name = "_id")
+        private int id;
+        @NonNull
+        private String account;
+        @NonNull
+        private String action;
+        @NonNull
+        @ColumnInfo(name = "itemid")
+        private String itemId;
+        @NonNull
+        private String text;
+        private int attempts;
+        @ColumnInfo(name = "next_attempt")
+        private long nextAttempt;
+
+        /**
+         * Constructs a new {@code OutboxEntry}.
+         *
+         * @param account user name of the account to send action as
+         * @param action  action, e.g. vote or reply
+         * @param itemId  the ID of the item to act on
+         * @param text    action text, e.g. reply content, or empty if none
+         */
+        public OutboxEntry(@NonNull String account, @NonNull String action,
+                           @NonNull String itemId, @NonNull String text) {
+            this.account = account;
+            this.action = action;
+            this.itemId = itemId;
+            this.text = text;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        @NonNull
+        public String getAccount() {
+            return account;
+        }
+
+        public void setAccount(@NonNull String account) {
+            this.account = account;
+        }
+
+        @NonNull
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(@NonNull String action) {
+            this.action = action;
+        }
+
+        @NonNull
+        public String getItemId() {
+            return itemId;
+        }
+
+        public void setItemId(@NonNull String itemId) {
+            this.itemId = itemId;
+        }
+
+        @NonNull
+        public String getText() {
+            return text;
+        }
+
+        public void setText(@NonNull String text) {
+            this.text = text;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public void setAttempts(int attempts) {
+            this.attempts = attempts;
+        }
+
+        public long getNextAttempt() {
+            return nextAttempt;
+        }
+
+        public void setNextAttempt(long nextAttempt) {
+            this.nextAttempt = nextAttempt;
+        }
+    }
+
     static class DbConstants {
         static final String DB_NAME = "Materialistic.db";
         static final String SQL_CREATE_READ_TABLE = "CREATE TABLE read (_id INTEGER NOT NULL PRIMARY KEY, itemid TEXT)";
         static final String SQL_CREATE_READABLE_TABLE = "CREATE TABLE readable (_id INTEGER NOT NULL PRIMARY KEY, itemid TEXT, content TEXT)";
         static final String SQL_CREATE_SAVED_TABLE = "CREATE TABLE saved (_id INTEGER NOT NULL PRIMARY KEY, itemid TEXT, url TEXT, title TEXT, time TEXT)";
         static final String SQL_CREATE_SYNC_QUEUE_TABLE = "CREATE TABLE sync_queue (_id INTEGER NOT NULL PRIMARY KEY, itemid TEXT)";
+        static final String SQL_CREATE_OUTBOX_TABLE = "CREATE TABLE IF NOT EXISTS outbox (_id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, account TEXT NOT NULL, action TEXT NOT NULL, itemid TEXT NOT NULL, text TEXT NOT NULL, attempts INTEGER NOT NULL, next_attempt INTEGER NOT NULL)";
+        static final String SQL_CREATE_OUTBOX_INDEX = "CREATE UNIQUE INDEX IF NOT EXISTS index_outbox_account_action_itemid_text ON outbox (account, action, itemid, text)";
         static final String SQL_INSERT_FAVORITE_SAVED = "INSERT INTO saved SELECT * FROM favorite";
         static final String SQL_INSERT_VIEWED_READ = "INSERT INTO read SELECT * FROM viewed";
         static final String SQL_INSERT_READABILITY_READABLE = "INSERT INTO readable SELECT * FROM readability";
@@ -0,0 +1,41 @@
+package io.github.sheepdestroyer.materialisheep.data
+
+import androidx.room.Dao
+import androidx.room.Delete
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Update
+import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase.OutboxEntry
+
+/**
+ * A DAO for accessing the outbox of user actions waiting to be sent.
+ */
+@Dao
+interface OutboxDao {
+    /**
+     * Inserts an entry, unless the same action is already queued.
+     *
+     * @return row ID of inserted entry, or -1 if it is already queued
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    fun insert(entry: OutboxEntry): Long
+
+    @Update
+    fun update(entry: OutboxEntry)
+
+    @Delete
+    fun delete(entry: OutboxEntry)
+
+    /**
+     * Gets entries due to be sent, grouped by account, in order queued.
+     */
+    @Query("SELECT * FROM outbox WHERE next_attempt <= :now ORDER BY account, _id")
+    fun getDue(now: Long): List<OutboxEntry>
+
+    @Query("SELECT COUNT(*) FROM outbox")
+    fun count(): Int
+
+    @Query("SELECT itemid FROM outbox WHERE account = :account AND action = :action")
+    fun getItemIds(account: String, action: String): List<String>
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * An {@link ItemManager} that can get stories page by page, so that a list pays only for
+ * pages it shows and is not limited to what fits in one response.
+ */
+public interface PagedItemManager extends ItemManager {
+    /**
+     * Default number of stories per page, about two screens.
+     */
+    int PAGE_SIZE = 20;
+
+    /**
+     * Gets a page of stories. Stories are ranked across pages, i.e. the first story of page 1
+     * is ranked {@code pageSize + 1}.
+     *
+     * @param filter    the filter to apply to the stories
+     * @param page      the zero based page index
+     * @param pageSize  the maximum number of stories per page
+     * @param cacheMode the cache mode to use
+     * @return stories of given page, fewer than {@code pageSize} if it is the last page
+     */
+    @WorkerThread
+    @NonNull
+    Item[] getStories(String filter, int page, int pageSize, @CacheMode int cacheMode);
+}
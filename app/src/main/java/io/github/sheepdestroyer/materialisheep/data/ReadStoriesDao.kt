@@ -19,4 +19,8 @@ interface ReadStoriesDao {
 
     @Query("SELECT * FROM read WHERE itemid IN (:itemIds)")
     fun selectByItemIds(itemIds: List<String>): List<ReadStory>
+
+    // ids bind as integers, which TEXT affinity of itemid converts back for comparison
+    @Query("SELECT itemid FROM read WHERE itemid IN (:itemIds)")
+    fun selectItemIds(itemIds: LongArray): List<Long>
 }
@@ -45,4 +45,8 @@ interface SavedStoriesDao {
 
     @Query("SELECT * FROM saved WHERE itemid IN (:itemIds)")
     fun selectByItemIds(itemIds: List<String>): List<SavedStory>
+
+    // ids bind as integers, which TEXT affinity of itemid converts back for comparison
+    @Query("SELECT itemid FROM saved WHERE itemid IN (:itemIds)")
+    fun selectItemIds(itemIds: LongArray): List<Long>
 }
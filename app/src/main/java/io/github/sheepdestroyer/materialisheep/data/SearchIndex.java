@@ -0,0 +1,769 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.github.sheepdestroyer.materialisheep.Preferences;
+import io.reactivex.rxjava3.core.Scheduler;
+import okhttp3.HttpUrl;
+
+/**
+ * Local inverted index over titles, authors, domains and text of items the app has loaded and
+ * of saved stories, so that stories can be searched without network. Comment text is indexed
+ * under its story if enabled in preferences. Fetched items are queued without locking, and
+ * appended by a single background writer to a log of documents, which is only replayed into
+ * memory once stories are searched, and compacted as it grows.
+ * <p>
+ * Search matches stories that have every query word in any of their fields or comments, last
+ * word matching as a prefix as it may still be typed. Matches are ranked by the sum, for each
+ * word, of its inverse document frequency weighted by the field it matched, title first.
+ */
+@Singleton
+public class SearchIndex {
+    private static final String TAG = "SearchIndex";
+    static final String FILE_NAME = "search_index";
+    static final int MAX_RESULTS = 100;
+    static final int MAX_DOCUMENTS = 200000;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte OP_PUT = 1, OP_REMOVE = 2, OP_COMMENT = 3;
+    private static final long FLUSH_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    private static final int MAX_TEXT_LENGTH = 10000;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final long MIN_COMPACTION_LENGTH = 1024 * 1024;
+    private static final int MAX_QUEUED_HASHES = 2048;
+    private static final int REMOVED_HASH = 0;
+    static final int FIELD_TITLE = 1, FIELD_AUTHOR = 1 << 1, FIELD_DOMAIN = 1 << 2,
+            FIELD_TEXT = 1 << 3;
+    private static final float WEIGHT_TITLE = 4, WEIGHT_AUTHOR = 2, WEIGHT_DOMAIN = 2,
+            WEIGHT_TEXT = 1;
+    private final File mFile;
+    @Nullable
+    private final Context mContext;
+    @Nullable
+    private final SavedStoriesDao mSavedStoriesDao;
+    @Nullable
+    private final Scheduler mIoScheduler;
+    private final boolean mIndexComments;
+    // added records, documents, comments or removed IDs, drained by writer or search
+    private final Queue<Object> mQueue = new ConcurrentLinkedQueue<>();
+    // content hashes of recently queued items, so that unchanged items are not logged again
+    private final LruCache<Long, Integer> mQueuedHashes = new LruCache<>(MAX_QUEUED_HASHES);
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+    // guarded by this, only populated once searched
+    private final Map<Long, Document> mDocuments = new HashMap<>();
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+    private final List<Object> mPending = new ArrayList<>(); // applied but not yet written
+    private boolean mLoaded;
+    private long mCompactedLength = -1;
+
+    /**
+     * Constructs a new {@code SearchIndex}, persisted in cache directory.
+     *
+     * @param context         the context to read preferences and resolve cache directory
+     * @param savedStoriesDao the DAO of saved stories, indexed along with loaded items
+     * @param ioScheduler     the {@link Scheduler} to persist changes on
+     */
+    @Inject
+    public SearchIndex(Context context, SavedStoriesDao savedStoriesDao,
+                       @Named(DataModule.IO_THREAD) Scheduler ioScheduler) {
+        mFile = new File(context.getCacheDir(), FILE_NAME);
+        mContext = context.getApplicationContext();
+        mSavedStoriesDao = savedStoriesDao;
+        mIoScheduler = ioScheduler;
+        mIndexComments = false;
+    }
+
+    /**
+     * Constructs a new {@code SearchIndex} persisted in given file, which changes are only
+     * written to on {@link #flush()}.
+     *
+     * @param file          the file to persist index in
+     * @param indexComments true to index comment text
+     */
+    @VisibleForTesting
+    SearchIndex(File file, boolean indexComments) {
+        mFile = file;
+        mContext = null;
+        mSavedStoriesDao = null;
+        mIoScheduler = null;
+        mIndexComments = indexComments;
+    }
+
+    /**
+     * Queues given item to be added or updated, without loading index or blocking on it, so
+     * that it can be called as items are fetched. Stories, jobs and polls are indexed as their
+     * own documents, comments under their story if comments are indexed and their story is
+     * known. Deleted and dead items are removed.
+     *
+     * @param item freshly fetched item
+     */
+    @WorkerThread
+    public void add(@NonNull Item item) {
+        String type = item.getType();
+        boolean comment = Item.COMMENT_TYPE.equals(type);
+        if (!comment && !Item.STORY_TYPE.equals(type) && !Item.JOB_TYPE.equals(type) &&
+                !Item.POLL_TYPE.equals(type)) {
+            return;
+        }
+        if (comment && !isIndexingComments()) {
+            return;
+        }
+        long id = item.getLongId();
+        if (item.isDeleted() || item.isDead()) {
+            enqueue(id, REMOVED_HASH, id);
+            return;
+        }
+        String text = joinTerms(item.getText());
+        if (comment) {
+            long parentId = parseId(item.getParent());
+            enqueue(id, Objects.hash(parentId, text), new Comment(id, parentId, text));
+        } else {
+            Document document = new Document(id, id, item.getTitle(), item.getBy(),
+                    item.getRawUrl(), item.getTime(), item.getScore(), item.getDescendants(),
+                    text);
+            enqueue(id, document.contentHashCode(), document);
+        }
+    }
+
+    /**
+     * Searches indexed stories.
+     *
+     * @param query      search query
+     * @param sortByTime true to sort by time, false to sort by relevance
+     * @param limit      maximum number of results
+     * @return matching stories, in ranking order
+     */
+    @WorkerThread
+    @NonNull
+    synchronized List<Document> search(@Nullable String query, boolean sortByTime, int limit) {
+        ensureLoaded();
+        drain();
+        List<String> words = new ArrayList<>(tokenize(query, 0).keySet());
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Float> scores = null;
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            Map<Long, Float> wordScores = score(word,
+                    i == words.size() - 1 && word.length() >= MIN_PREFIX_LENGTH);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                Iterator<Map.Entry<Long, Float>> iterator = scores.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, Float> entry = iterator.next();
+                    Float wordScore = wordScores.get(entry.getKey());
+                    if (wordScore == null) {
+                        iterator.remove();
+                    } else {
+                        entry.setValue(entry.getValue() + wordScore);
+                    }
+                }
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        List<Map.Entry<Long, Float>> matches = new ArrayList<>(scores.entrySet());
+        Collections.sort(matches, (e1, e2) -> {
+            Document d1 = mDocuments.get(e1.getKey()), d2 = mDocuments.get(e2.getKey());
+            if (!sortByTime) {
+                int compare = Float.compare(e2.getValue(), e1.getValue());
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return Long.compare(d2.mTime, d1.mTime);
+        });
+        List<Document> results = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && results.size() < limit; i++) {
+            results.add(mDocuments.get(matches.get(i).getKey()));
+        }
+        return results;
+    }
+
+    /**
+     * Appends queued changes to log, compacting it once it has doubled since last compaction.
+     * Compacting loads index if it is not loaded yet, and unloads it afterwards.
+     */
+    @WorkerThread
+    synchronized void flush() {
+        mFlushScheduled.set(false);
+        drain();
+        if (mPending.isEmpty()) {
+            return;
+        }
+        try {
+            if (mCompactedLength < 0) {
+                mCompactedLength = mFile.length();
+            }
+            try (DataOutputStream out = openLog(!mFile.exists())) {
+                for (Object pending : mPending) {
+                    write(out, pending);
+                }
+            }
+            mPending.clear();
+            if (mFile.length() > 2 * Math.max(mCompactedLength, MIN_COMPACTION_LENGTH) ||
+                    mDocuments.size() > MAX_DOCUMENTS) {
+                boolean loaded = mLoaded;
+                ensureLoaded();
+                compact();
+                if (!loaded) {
+                    unload();
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to persist search index", e);
+            mPending.clear();
+        }
+    }
+
+    /**
+     * Gets number of indexed documents, stories and comments.
+     *
+     * @return number of documents
+     */
+    synchronized int size() {
+        ensureLoaded();
+        drain();
+        return mDocuments.size();
+    }
+
+    private boolean isIndexingComments() {
+        return mContext != null ? Preferences.isSearchCommentsEnabled(mContext) : mIndexComments;
+    }
+
+    private Map<Long, Float> score(String word, boolean prefix) {
+        Map<String, Postings> matches;
+        if (prefix) {
+            matches = mPostings.subMap(word, true, word + Character.MAX_VALUE, true);
+        } else {
+            Postings postings = mPostings.get(word);
+            matches = postings != null ? Collections.singletonMap(word, postings) :
+                    Collections.<String, Postings>emptyMap();
+        }
+        Map<Long, Float> scores = new HashMap<>();
+        int count = mDocuments.size();
+        for (Postings postings : matches.values()) {
+            float idf = (float) Math.log(1 + (double) count / postings.mSize);
+            for (int i = 0; i < postings.mSize; i++) {
+                Document document = mDocuments.get(postings.mDocuments[i]);
+                if (document.mStoryId != document.mId &&
+                        !mDocuments.containsKey(document.mStoryId)) {
+                    continue; // comment of a story no longer indexed
+                }
+                float score = idf * weight(postings.mFields[i]);
+                Float previous = scores.get(document.mStoryId);
+                if (previous == null || previous < score) {
+                    scores.put(document.mStoryId, score);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private static float weight(int fields) {
+        if ((fields & FIELD_TITLE) != 0) {
+            return WEIGHT_TITLE;
+        }
+        if ((fields & FIELD_AUTHOR) != 0) {
+            return WEIGHT_AUTHOR;
+        }
+        if ((fields & FIELD_DOMAIN) != 0) {
+            return WEIGHT_DOMAIN;
+        }
+        return WEIGHT_TEXT;
+    }
+
+    private void put(Document document) {
+        remove(document.mId);
+        mDocuments.put(document.mId, document);
+        for (Map.Entry<String, Integer> term : document.terms().entrySet()) {
+            Postings postings = mPostings.get(term.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(term.getKey(), postings);
+            }
+            postings.add(document.mId, term.getValue());
+        }
+    }
+
+    private boolean remove(long id) {
+        Document document = mDocuments.remove(id);
+        if (document == null) {
+            return false;
+        }
+        for (String term : document.terms().keySet()) {
+            Postings postings = mPostings.get(term);
+            if (postings != null && postings.remove(id) && postings.mSize == 0) {
+                mPostings.remove(term);
+            }
+        }
+        return true;
+    }
+
+    private void enqueue(long id, int hash, Object record) {
+        Integer previous = mQueuedHashes.put(id, hash);
+        if (previous != null && previous == hash) {
+            return; // unchanged since last fetched
+        }
+        mQueue.add(record);
+        if (mIoScheduler != null && mFlushScheduled.compareAndSet(false, true)) {
+            mIoScheduler.scheduleDirect(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Moves queued records to pending ones, applying them to index if loaded.
+     */
+    private void drain() {
+        Object record;
+        while ((record = mQueue.poll()) != null) {
+            if (!mLoaded) {
+                mPending.add(record);
+            } else if (record instanceof Long) {
+                if (remove((Long) record)) {
+                    mPending.add(record);
+                }
+            } else {
+                Document document = record instanceof Comment ?
+                        ((Comment) record).resolve(mDocuments) : (Document) record;
+                if (document != null && !document.equals(mDocuments.get(document.mId))) {
+                    put(document);
+                    mPending.add(document);
+                }
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        long start = System.currentTimeMillis();
+        if (mFile.exists()) {
+            int count = 0;
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(mFile)))) {
+                if (in.readInt() == FORMAT_VERSION) {
+                    count = read(in);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read search index", e);
+            }
+            if (count == 0) { // unreadable, start over
+                //noinspection ResultOfMethodCallIgnored
+                mFile.delete();
+            }
+        }
+        if (mSavedStoriesDao != null) {
+            indexSavedStories();
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Loaded " + mDocuments.size() + " documents in " +
+                    (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    private void unload() {
+        mDocuments.clear();
+        mPostings.clear();
+        mLoaded = false;
+    }
+
+    private int read(DataInputStream in) throws IOException {
+        // records are replayed in written order, and as buffered as possible
+        Map<Long, Document> documents = new LinkedHashMap<>();
+        int count = 0;
+        while (true) {
+            byte op;
+            try {
+                op = in.readByte();
+            } catch (EOFException e) {
+                break;
+            }
+            try {
+                if (op == OP_PUT) {
+                    Document document = Document.read(in);
+                    documents.remove(document.mId);
+                    documents.put(document.mId, document);
+                } else if (op == OP_REMOVE) {
+                    documents.remove(in.readLong());
+                } else if (op == OP_COMMENT) {
+                    // logged before its story was known, resolved now that it is
+                    Document document = Comment.read(in).resolve(documents);
+                    if (document != null) {
+                        documents.remove(document.mId);
+                        documents.put(document.mId, document);
+                    }
+                } else {
+                    break;
+                }
+            } catch (EOFException e) {
+                break; // partially written record, keep complete ones
+            }
+            count++;
+        }
+        for (Document document : documents.values()) {
+            put(document);
+        }
+        return count;
+    }
+
+    private void indexSavedStories() {
+        try (Cursor cursor = mSavedStoriesDao.selectAllToCursor()) {
+            int idIndex = cursor.getColumnIndexOrThrow("itemid");
+            int titleIndex = cursor.getColumnIndexOrThrow("title");
+            int urlIndex = cursor.getColumnIndexOrThrow("url");
+            while (cursor.moveToNext()) {
+                long id = parseId(cursor.getString(idIndex));
+                if (id > 0 && !mDocuments.containsKey(id)) {
+                    // URL of saved stories without one is their HN URL, not worth indexing
+                    String url = cursor.getString(urlIndex);
+                    put(new Document(id, id, cursor.getString(titleIndex), null,
+                            url != null && url.startsWith(HackerNewsClient.BASE_WEB_URL) ?
+                                    null : url, 0, 0, 0, null));
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to index saved stories", e);
+        }
+    }
+
+    private void compact() throws IOException {
+        if (mDocuments.size() > MAX_DOCUMENTS) {
+            // drop oldest stories, with their comments
+            List<Document> stories = new ArrayList<>();
+            for (Document document : mDocuments.values()) {
+                if (document.mStoryId == document.mId) {
+                    stories.add(document);
+                }
+            }
+            Collections.sort(stories, (d1, d2) -> Long.compare(d1.mTime, d2.mTime));
+            int excess = mDocuments.size() - MAX_DOCUMENTS * 9 / 10;
+            for (int i = 0; i < stories.size() && i < excess; i++) {
+                remove(stories.get(i).mId);
+            }
+        }
+        File temp = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            for (Document document : mDocuments.values()) {
+                if (document.mStoryId == document.mId ||
+                        mDocuments.containsKey(document.mStoryId)) {
+                    write(out, document);
+                }
+            }
+        }
+        if (!temp.renameTo(mFile)) {
+            throw new IOException("Failed to replace " + mFile);
+        }
+        mCompactedLength = mFile.length();
+    }
+
+    private DataOutputStream openLog(boolean create) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(mFile, !create)));
+        if (create) {
+            out.writeInt(FORMAT_VERSION);
+        }
+        return out;
+    }
+
+    private static void write(DataOutputStream out, Object pending) throws IOException {
+        if (pending instanceof Document) {
+            out.writeByte(OP_PUT);
+            ((Document) pending).write(out);
+        } else if (pending instanceof Comment) {
+            out.writeByte(OP_COMMENT);
+            ((Comment) pending).write(out);
+        } else {
+            out.writeByte(OP_REMOVE);
+            out.writeLong((Long) pending);
+        }
+    }
+
+    /**
+     * Tokenizes given text into lower cased words, split on anything but letters and digits.
+     *
+     * @param text   text to tokenize
+     * @param fields fields given text belongs to
+     * @return words, in order of appearance, with fields they belong to
+     */
+    @NonNull
+    static Map<String, Integer> tokenize(@Nullable String text, int fields) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        tokenize(text, fields, terms);
+        return terms;
+    }
+
+    private static void tokenize(@Nullable String text, int fields, Map<String, Integer> terms) {
+        if (TextUtils.isEmpty(text)) {
+            return;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, length = text.length(); i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                String term = word.toString();
+                Integer previous = terms.get(term);
+                terms.put(term, previous == null ? fields : previous | fields);
+                word.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Reduces given HTML text to its distinct words, as space separated string.
+     */
+    @Nullable
+    private static String joinTerms(@Nullable String html) {
+        if (TextUtils.isEmpty(html)) {
+            return null;
+        }
+        if (html.length() > MAX_TEXT_LENGTH) {
+            html = html.substring(0, MAX_TEXT_LENGTH);
+        }
+        String text = html.replaceAll("<[^>]*>", " ").replaceAll("&#?\\w+;", " ");
+        return TextUtils.join(" ", tokenize(text, FIELD_TEXT).keySet());
+    }
+
+    @Nullable
+    private static String getDomain(@Nullable String url) {
+        HttpUrl httpUrl = url != null ? HttpUrl.parse(url) : null;
+        if (httpUrl == null) {
+            return null;
+        }
+        String host = httpUrl.host();
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    private static long parseId(@Nullable String id) {
+        try {
+            return id != null ? Long.parseLong(id) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * An indexed story, or comment of an indexed story.
+     */
+    static final class Document {
+        final long mId;
+        // ID of story this document is found as, its own ID if it is a story
+        final long mStoryId;
+        @Nullable
+        final String mTitle, mBy, mUrl;
+        final long mTime;
+        final int mScore, mDescendants;
+        // distinct words of text, space separated
+        @Nullable
+        final String mText;
+
+        Document(long id, long storyId, @Nullable String title, @Nullable String by,
+                 @Nullable String url, long time, int score, int descendants,
+                 @Nullable String text) {
+            mId = id;
+            mStoryId = storyId;
+            mTitle = title;
+            mBy = by;
+            mUrl = url;
+            mTime = time;
+            mScore = score;
+            mDescendants = descendants;
+            mText = text;
+        }
+
+        Map<String, Integer> terms() {
+            Map<String, Integer> terms = new HashMap<>();
+            tokenize(mTitle, FIELD_TITLE, terms);
+            tokenize(mBy, FIELD_AUTHOR, terms);
+            tokenize(getDomain(mUrl), FIELD_DOMAIN, terms);
+            tokenize(mText, FIELD_TEXT, terms);
+            return terms;
+        }
+
+        static Document read(DataInputStream in) throws IOException {
+            return new Document(in.readLong(), in.readLong(), readString(in), readString(in),
+                    readString(in), in.readLong(), in.readInt(), in.readInt(), readString(in));
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(mId);
+            out.writeLong(mStoryId);
+            writeString(out, mTitle);
+            writeString(out, mBy);
+            writeString(out, mUrl);
+            out.writeLong(mTime);
+            out.writeInt(mScore);
+            out.writeInt(mDescendants);
+            writeString(out, mText);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Document)) {
+                return false;
+            }
+            Document document = (Document) o;
+            return mId == document.mId && mStoryId == document.mStoryId &&
+                    mTime == document.mTime && mScore == document.mScore &&
+                    mDescendants == document.mDescendants &&
+                    TextUtils.equals(mTitle, document.mTitle) &&
+                    TextUtils.equals(mBy, document.mBy) &&
+                    TextUtils.equals(mUrl, document.mUrl) &&
+                    TextUtils.equals(mText, document.mText);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(mId);
+        }
+
+        int contentHashCode() {
+            return Objects.hash(mStoryId, mTitle, mBy, mUrl, mTime, mScore, mDescendants, mText);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                // modified UTF-8 is limited to 65535 bytes
+                out.writeUTF(value.length() > MAX_TEXT_LENGTH ?
+                        value.substring(0, MAX_TEXT_LENGTH) : value);
+            }
+        }
+    }
+
+    /**
+     * A comment whose story is not known yet, as index is not loaded when it is added.
+     */
+    private static final class Comment {
+        final long mId, mParentId;
+        @Nullable
+        final String mText;
+
+        Comment(long id, long parentId, @Nullable String text) {
+            mId = id;
+            mParentId = parentId;
+            mText = text;
+        }
+
+        /**
+         * Resolves this comment to a document under the story of its parent, if indexed.
+         */
+        @Nullable
+        Document resolve(Map<Long, Document> documents) {
+            Document parent = documents.get(mParentId);
+            return parent == null ? null :
+                    new Document(mId, parent.mStoryId, null, null, null, 0, 0, 0, mText);
+        }
+
+        static Comment read(DataInputStream in) throws IOException {
+            return new Comment(in.readLong(), in.readLong(), Document.readString(in));
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(mId);
+            out.writeLong(mParentId);
+            Document.writeString(out, mText);
+        }
+    }
+
+    /**
+     * IDs of documents a word is found in, with fields it is found in.
+     */
+    private static final class Postings {
+        long[] mDocuments = new long[2];
+        int[] mFields = new int[2];
+        int mSize;
+
+        void add(long id, int fields) {
+            if (mSize == mDocuments.length) {
+                mDocuments = Arrays.copyOf(mDocuments, mSize * 2);
+                mFields = Arrays.copyOf(mFields, mSize * 2);
+            }
+            mDocuments[mSize] = id;
+            mFields[mSize] = fields;
+            mSize++;
+        }
+
+        boolean remove(long id) {
+            for (int i = 0; i < mSize; i++) {
+                if (mDocuments[i] == id) {
+                    mSize--;
+                    mDocuments[i] = mDocuments[mSize];
+                    mFields[i] = mFields[mSize];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
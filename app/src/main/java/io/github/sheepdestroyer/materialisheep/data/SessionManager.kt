@@ -64,6 +64,22 @@ class SessionManager @Inject constructor(
     }
   }
 
+  /**
+   * Checks if multiple items have been viewed, without boxing or formatting their IDs.
+   *
+   * @param itemIds the IDs of the items to check
+   * @return an [Observable] that emits an array of booleans indicating if each item has been
+   * viewed
+   */
+  @WorkerThread
+  fun isViewed(itemIds: LongArray): Observable<BooleanArray> = Observable.fromCallable {
+    if (itemIds.isEmpty()) {
+      BooleanArray(0)
+    } else {
+      cache.isViewed(itemIds)
+    }
+  }
+
   /**
    * Marks an item as having been viewed.
    *
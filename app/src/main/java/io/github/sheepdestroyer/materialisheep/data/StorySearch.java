@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+
+/**
+ * Searches stories as the user types: input is debounced, a request that is no longer wanted
+ * is cancelled as soon as the query changes, and results of recent queries are kept for each
+ * sort order, so that going back to a query or toggling sort order renders without a request.
+ * While results of a new query are requested, results of a cached query it extends, filtered
+ * by its words, are shown in their place. Results are requested page by page, next page
+ * being appended on demand. If Algolia cannot be reached, e.g. offline, stories loaded before
+ * are searched instead.
+ */
+@Singleton
+public class StorySearch {
+    private static final String TAG = "StorySearch";
+    static final long DEBOUNCE_MILLIS = 300;
+    private static final int MAX_CACHED_QUERIES = 32;
+    private final AlgoliaClient.RestService mRestService;
+    private final ItemRegistry mItemRegistry;
+    private final LocalSearchClient mLocalSearchClient;
+    private final Scheduler mIoScheduler;
+    private final Scheduler mMainThreadScheduler;
+    private final LruCache<Query, Results> mResults = new LruCache<>(MAX_CACHED_QUERIES);
+
+    /**
+     * Constructs a new {@code StorySearch}.
+     *
+     * @param factory             the {@link RestServiceFactory} to create Algolia REST service
+     * @param itemRegistry        the {@link ItemRegistry} to resolve stories through
+     * @param localSearchClient   the {@link LocalSearchClient} to search locally when offline
+     * @param ioScheduler         the {@link Scheduler} to search locally on
+     * @param mainThreadScheduler the {@link Scheduler} to debounce on and deliver results on
+     */
+    @Inject
+    public StorySearch(RestServiceFactory factory, ItemRegistry itemRegistry,
+                       LocalSearchClient localSearchClient,
+                       @Named(DataModule.IO_THREAD) Scheduler ioScheduler,
+                       @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
+        mRestService = factory.rxEnabled(true)
+                .create(AlgoliaClient.BASE_API_URL, AlgoliaClient.RestService.class);
+        mItemRegistry = itemRegistry;
+        mLocalSearchClient = localSearchClient;
+        mIoScheduler = ioScheduler;
+        mMainThreadScheduler = mainThreadScheduler;
+    }
+
+    /**
+     * Searches each query emitted, as long as it is the latest one. Queries with cached results
+     * are searched right away, others once input settles for {@value #DEBOUNCE_MILLIS}ms.
+     * Failed requests are logged and skipped, so that results of the previous query stay,
+     * unless Algolia cannot be reached, in which case the query is searched locally.
+     *
+     * @param queries queries as they are typed, or as sort order is toggled
+     * @param more    signals to append next page of results of latest query, ignored while a
+     *                page is loading or if there is none
+     * @return results, possibly provisional results first, delivered on main thread
+     */
+    @NonNull
+    public Observable<Item[]> search(@NonNull Observable<Query> queries,
+                                     @NonNull Observable<?> more) {
+        return queries
+                .distinctUntilChanged()
+                .debounce(query -> query.isEmpty() || mResults.get(query) != null ?
+                        Observable.empty() :
+                        Observable.timer(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS,
+                                mMainThreadScheduler))
+                .switchMap(query -> { // disposing a request cancels its call
+                    AtomicBoolean loading = new AtomicBoolean();
+                    return search(query).concatWith(more
+                            .filter(signal -> loading.compareAndSet(false, true))
+                            .concatMap(signal -> nextPage(query)
+                                    .doFinally(() -> loading.set(false))));
+                })
+                .observeOn(mMainThreadScheduler);
+    }
+
+    /**
+     * Searches given query, from cache if possible.
+     *
+     * @param query query to search
+     * @return results, preceded by provisional results if any
+     */
+    @NonNull
+    Observable<Item[]> search(@NonNull Query query) {
+        if (query.isEmpty()) {
+            return Observable.just(new Item[0]);
+        }
+        Results cached = mResults.get(query);
+        if (cached != null) {
+            return Observable.just(cached.mStories);
+        }
+        Observable<Item[]> request = requestPage(query, Results.EMPTY);
+        Item[] provisional = filterPrefix(query);
+        return provisional != null ? request.startWithItem(provisional) : request;
+    }
+
+    /**
+     * Requests next page of results of given query, if any.
+     *
+     * @param query query to get next page of
+     * @return results so far, including next page, or nothing if there is no next page
+     */
+    @NonNull
+    Observable<Item[]> nextPage(@NonNull Query query) {
+        return Observable.defer(() -> {
+            Results results = mResults.get(query);
+            return results == null || results.mComplete ? Observable.empty() :
+                    requestPage(query, results);
+        });
+    }
+
+    private Observable<Item[]> requestPage(Query query, Results results) {
+        int page = results.mPages;
+        int pageSize = PagedItemManager.PAGE_SIZE;
+        return (query.sortByTime ?
+                mRestService.searchByDatePageRx(query.text, page, pageSize, null) :
+                mRestService.searchPageRx(query.text, page, pageSize, null))
+                .map(hits -> {
+                    Results appended = results.append(
+                            AlgoliaClient.toItems(mItemRegistry, hits, page * pageSize), pageSize);
+                    mResults.put(query, appended);
+                    return appended.mStories;
+                })
+                .onErrorResumeNext(t -> {
+                    if (page == 0 && t instanceof IOException) {
+                        // not cached, so that query is searched again once back online
+                        return searchLocally(query);
+                    }
+                    android.util.Log.e(TAG, "Error searching stories", t);
+                    return Observable.empty();
+                });
+    }
+
+    private Observable<Item[]> searchLocally(Query query) {
+        return Observable.fromCallable(() ->
+                        mLocalSearchClient.search(query.text, query.sortByTime))
+                .subscribeOn(mIoScheduler);
+    }
+
+    /**
+     * Filters cached results of the longest query that given query extends, e.g. "rust" for
+     * "rust async", by titles containing all words of given query.
+     *
+     * @param query query to get provisional results for
+     * @return provisional results, or null if there are none
+     */
+    @Nullable
+    Item[] filterPrefix(@NonNull Query query) {
+        Query prefix = null;
+        Item[] candidates = null;
+        for (Map.Entry<Query, Results> entry : mResults.snapshot().entrySet()) {
+            Query cached = entry.getKey();
+            if (cached.sortByTime == query.sortByTime &&
+                    query.text.startsWith(cached.text) &&
+                    (prefix == null || cached.text.length() > prefix.text.length())) {
+                prefix = cached;
+                candidates = entry.getValue().mStories;
+            }
+        }
+        if (candidates == null) {
+            return null;
+        }
+        String[] words = query.text.split(" ");
+        List<Item> filtered = new ArrayList<>();
+        for (Item item : candidates) {
+            String title = item.getTitle() != null ? item.getTitle().toLowerCase(Locale.US) : "";
+            boolean matched = true;
+            for (String word : words) {
+                if (!title.contains(word)) {
+                    matched = false;
+                    break;
+                }
+            }
+            if (matched) {
+                filtered.add(item);
+            }
+        }
+        return filtered.isEmpty() ? null : filtered.toArray(new Item[0]);
+    }
+
+    /**
+     * Results of a query, i.e. pages loaded so far.
+     */
+    private static final class Results {
+        static final Results EMPTY = new Results(new Item[0], 0, false);
+        final Item[] mStories;
+        final int mPages;
+        // true if last page has been loaded
+        final boolean mComplete;
+
+        Results(Item[] stories, int pages, boolean complete) {
+            mStories = stories;
+            mPages = pages;
+            mComplete = complete;
+        }
+
+        Results append(Item[] page, int pageSize) {
+            // pages shift as stories come and go, skip those already loaded
+            Set<String> ids = new HashSet<>(mStories.length + page.length);
+            for (Item story : mStories) {
+                ids.add(story.getId());
+            }
+            Item[] stories = Arrays.copyOf(mStories, mStories.length + page.length);
+            int count = mStories.length;
+            for (Item story : page) {
+                if (ids.add(story.getId())) {
+                    stories[count++] = story;
+                }
+            }
+            return new Results(Arrays.copyOf(stories, count), mPages + 1,
+                    page.length < pageSize);
+        }
+    }
+
+    /**
+     * A search query, i.e. normalised query text and sort order.
+     */
+    public static final class Query {
+        @NonNull
+        final String text;
+        final boolean sortByTime;
+
+        /**
+         * Constructs a new {@code Query}. Query text is trimmed, lower cased and has its
+         * whitespaces collapsed, as search is not sensitive to them.
+         *
+         * @param text       query text
+         * @param sortByTime true to sort by time, false to sort by relevance
+         */
+        public Query(@Nullable String text, boolean sortByTime) {
+            this.text = text == null ? "" :
+                    text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.US);
+            this.sortByTime = sortByTime;
+        }
+
+        boolean isEmpty() {
+            return text.isEmpty();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Query)) {
+                return false;
+            }
+            Query query = (Query) o;
+            return sortByTime == query.sortByTime && text.equals(query.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + (sortByTime ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+
+/**
+ * Persists the last rendered story list of each section as an {@link ItemRecordFile}, so that
+ * it can be shown on the very first frame of next launch while the list is revalidated.
+ * Stories that had not loaded are kept with only their id and rank, and restored as
+ * placeholders to be loaded.
+ */
+@Singleton
+public class StorySnapshotStore {
+    private static final String TAG = "StorySnapshotStore";
+    private static final String DIR = "story_lists";
+    private static final int MAX_COUNT = 500;
+    private final File mDir;
+
+    /**
+     * Constructs a new {@code StorySnapshotStore}.
+     *
+     * @param context the application context
+     */
+    @Inject
+    public StorySnapshotStore(Context context) {
+        this(new File(context.getCacheDir(), DIR));
+    }
+
+    @VisibleForTesting
+    StorySnapshotStore(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * Reads snapshot of given section. Snapshots are memory mapped and small enough to be read
+     * on main thread if needed to render the first frame.
+     *
+     * @param section section key, e.g. item manager and filter
+     * @return stories ordered by rank, or null if there is no valid snapshot
+     */
+    @Nullable
+    public Item[] read(@NonNull String section) {
+        File file = getFile(section);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            ItemRecordFile records = ItemRecordFile.map(file);
+            Item[] items = new Item[records.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = records.get(i).toItem();
+            }
+            return items;
+        } catch (IOException e) {
+            if (BuildConfig.DEBUG) {
+                Log.w(TAG, "Discarding snapshot of " + section, e);
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Encodes given stories into a snapshot. Stories are only read here, so this should be
+     * called on the thread that updates them, then the snapshot can be written on any thread.
+     *
+     * @param items stories ordered by rank, only the first {@value #MAX_COUNT} are kept
+     * @return encoded snapshot
+     */
+    @NonNull
+    public static byte[] encode(@NonNull List<Item> items) {
+        return ItemRecordFile.encode(items.size() > MAX_COUNT ? items.subList(0, MAX_COUNT) : items);
+    }
+
+    /**
+     * Replaces snapshot of given section, atomically.
+     *
+     * @param section  section key, e.g. item manager and filter
+     * @param snapshot snapshot encoded by {@link #encode(List)}
+     */
+    @WorkerThread
+    public void write(@NonNull String section, @NonNull byte[] snapshot) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            return;
+        }
+        AtomicFile file = new AtomicFile(getFile(section));
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            stream.write(snapshot);
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+            if (BuildConfig.DEBUG) {
+                Log.w(TAG, "Failed to save snapshot of " + section, e);
+            }
+        }
+    }
+
+    private File getFile(String section) {
+        // section keys are class names and filters, keep them file name safe
+        return new File(mDir, section.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+}
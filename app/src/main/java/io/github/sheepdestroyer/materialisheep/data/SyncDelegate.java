@@ -40,8 +40,7 @@ import android.text.format.DateUtils;
 import android.webkit.WebView;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -267,7 +266,8 @@ public class SyncDelegate {
 
     private void loadArticle(@NonNull final HackerNewsItem item) {
         mWebView = new CacheableWebView(mContext);
-        mWebView.setWebViewClient(new AdBlockWebViewClient(Preferences.adBlockEnabled(mContext)));
+        mWebView.setWebViewClient(new AdBlockWebViewClient(Preferences.adBlockEnabled(mContext),
+                Preferences.adBlockPathsEnabled(mContext)));
         mWebView.setWebChromeClient(new CacheableWebView.ArchiveClient() {
             @Override
             public void onProgressChanged(WebView view, int newProgress) {
@@ -287,11 +287,7 @@ public class SyncDelegate {
                 }
                 return;
             }
-            long[] kids = item.getKids();
-            String[] ids = new String[kids.length];
-            for (int i = 0; i < kids.length; i++) {
-                ids[i] = String.valueOf(kids[i]);
-            }
+            long[] ids = item.getKids();
             if (mSyncProgress == null) {
                 Item[] response = mItemManager.getItems(ids, ItemManager.MODE_CACHE);
                 if (response != null) {
@@ -306,18 +302,20 @@ public class SyncDelegate {
                     @Override
                     public void onResponse(@Nullable Item[] response) {
                         mIoScheduler.scheduleDirect(() -> {
-                            Set<String> foundIds = new HashSet<>();
+                            long[] foundIds = new long[response != null ? response.length : 0];
+                            int foundCount = 0;
                             if (response != null) {
                                 for (Item child : response) {
                                     if (child instanceof HackerNewsItem) {
                                         sync((HackerNewsItem) child);
-                                        foundIds.add(child.getId());
+                                        foundIds[foundCount++] = child.getLongId();
                                     }
                                 }
                             }
-                            for (String id : ids) {
-                                if (!foundIds.contains(id)) {
-                                    notifyItem(id, null);
+                            Arrays.sort(foundIds, 0, foundCount);
+                            for (long id : ids) {
+                                if (Arrays.binarySearch(foundIds, 0, foundCount, id) < 0) {
+                                    notifyItem(String.valueOf(id), null);
                                 }
                             }
                         });
@@ -326,8 +324,8 @@ public class SyncDelegate {
                     @Override
                     public void onError(String errorMessage) {
                         mIoScheduler.scheduleDirect(() -> {
-                            for (String id : ids) {
-                                notifyItem(id, null);
+                            for (long id : ids) {
+                                notifyItem(String.valueOf(id), null);
                             }
                         });
                     }
@@ -20,6 +20,8 @@ import android.content.Context;
 import android.os.Parcelable;
 import androidx.annotation.NonNull;
 
+import io.reactivex.rxjava3.disposables.Disposable;
+
 /**
  * An interface for managing users.
  */
@@ -29,8 +31,10 @@ public interface UserManager {
      *
      * @param username the username of the user to get
      * @param listener the listener to be notified of the response
+     * @return a handle to cancel the request, disposing it also cancels the underlying
+     * network call and drops the response
      */
-    void getUser(String username, final ResponseListener<User> listener);
+    Disposable getUser(String username, final ResponseListener<User> listener);
 
     /**
      * An interface that represents a user.
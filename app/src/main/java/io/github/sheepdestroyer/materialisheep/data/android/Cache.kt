@@ -51,6 +51,9 @@ class Cache @Inject constructor(
     return itemIds.map { viewed.contains(it) }
   }
 
+  override fun isViewed(itemIds: LongArray) =
+      contains(readStoriesDao.selectItemIds(itemIds), itemIds)
+
   @SuppressLint("CheckResult")
   override fun setViewed(itemId: String?) {
     if (itemId == null) return
@@ -67,4 +70,12 @@ class Cache @Inject constructor(
     val favorites = savedStoriesDao.selectByItemIds(itemIds).map { it.itemId }.toHashSet()
     return itemIds.map { favorites.contains(it) }
   }
+
+  override fun isFavorite(itemIds: LongArray) =
+      contains(savedStoriesDao.selectItemIds(itemIds), itemIds)
+
+  private fun contains(found: List<Long>, itemIds: LongArray): BooleanArray {
+    val sorted = found.toLongArray().apply { sort() }
+    return BooleanArray(itemIds.size) { sorted.binarySearch(itemIds[it]) >= 0 }
+  }
 }
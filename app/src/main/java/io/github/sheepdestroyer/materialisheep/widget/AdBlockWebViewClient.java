@@ -16,25 +16,68 @@
 
 package io.github.sheepdestroyer.materialisheep.widget;
 
-import android.annotation.TargetApi;
-import android.os.Build;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
 import android.webkit.WebResourceRequest;
 import android.webkit.WebResourceResponse;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import io.github.sheepdestroyer.materialisheep.AdBlocker;
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
 
+/**
+ * {@link WebViewClient} that blocks requests to ad hosts and, optionally, to URLs matching
+ * ad path rules, keeping count of requests blocked and time spent matching for current page.
+ */
 public class AdBlockWebViewClient extends WebViewClient {
+    private static final String TAG = "AdBlockWebViewClient";
     private final boolean mAdBlockEnabled;
-    private final Map<String, Boolean> mLoadedUrls = new HashMap<>();
+    private final boolean mPathRulesEnabled;
+    // requests are intercepted on WebView's IO threads
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final AtomicInteger mBlockedCount = new AtomicInteger();
+    private final AtomicLong mMatchingNanos = new AtomicLong();
 
     public AdBlockWebViewClient(boolean adBlockEnabled) {
+        this(adBlockEnabled, false);
+    }
+
+    /**
+     * Constructs a new {@code AdBlockWebViewClient}.
+     *
+     * @param adBlockEnabled   true to block requests to ad hosts
+     * @param pathRulesEnabled true to also block requests matching ad path rules,
+     *                         only applies if ad blocking is enabled
+     */
+    public AdBlockWebViewClient(boolean adBlockEnabled, boolean pathRulesEnabled) {
         mAdBlockEnabled = adBlockEnabled;
+        mPathRulesEnabled = pathRulesEnabled;
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        super.onPageStarted(view, url, favicon);
+        mRequestCount.set(0);
+        mBlockedCount.set(0);
+        mMatchingNanos.set(0);
+    }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        super.onPageFinished(view, url);
+        if (BuildConfig.DEBUG && mAdBlockEnabled) {
+            PageStats stats = getPageStats();
+            Log.d(TAG, "Blocked " + stats.getBlockedCount() + "/" + stats.getRequestCount() +
+                    " requests in " + stats.getMatchingNanos() / 1000 + "us for " + url);
+        }
     }
 
     @Nullable
@@ -43,14 +86,60 @@ public class AdBlockWebViewClient extends WebViewClient {
         if (!mAdBlockEnabled) {
             return super.shouldInterceptRequest(view, request);
         }
-        boolean ad;
-        String url = request.getUrl().toString();
-        if (!mLoadedUrls.containsKey(url)) {
-            ad = AdBlocker.isAd(request.getUrl());
-            mLoadedUrls.put(url, ad);
-        } else {
-            ad = mLoadedUrls.get(url);
+        long start = SystemClock.elapsedRealtimeNanos();
+        Uri url = request.getUrl();
+        boolean ad = AdBlocker.isAd(url) || mPathRulesEnabled && AdBlocker.isAdPath(url);
+        mMatchingNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - start);
+        mRequestCount.incrementAndGet();
+        if (ad) {
+            mBlockedCount.incrementAndGet();
         }
         return ad ? AdBlocker.createEmptyResource() : super.shouldInterceptRequest(view, request);
     }
+
+    /**
+     * Gets ad blocking statistics since current page started loading.
+     *
+     * @return page statistics
+     */
+    @NonNull
+    public PageStats getPageStats() {
+        return new PageStats(mRequestCount.get(), mBlockedCount.get(), mMatchingNanos.get());
+    }
+
+    /**
+     * Ad blocking statistics of a page.
+     */
+    public static class PageStats {
+        private final int mRequestCount;
+        private final int mBlockedCount;
+        private final long mMatchingNanos;
+
+        PageStats(int requestCount, int blockedCount, long matchingNanos) {
+            mRequestCount = requestCount;
+            mBlockedCount = blockedCount;
+            mMatchingNanos = matchingNanos;
+        }
+
+        /**
+         * @return number of requests checked
+         */
+        public int getRequestCount() {
+            return mRequestCount;
+        }
+
+        /**
+         * @return number of requests blocked
+         */
+        public int getBlockedCount() {
+            return mBlockedCount;
+        }
+
+        /**
+         * @return total time spent matching requests, in nanoseconds
+         */
+        public long getMatchingNanos() {
+            return mMatchingNanos;
+        }
+    }
 }
@@ -60,7 +60,9 @@ public class CommentItemDecoration extends RecyclerView.ItemDecoration {
         }
         for (int i = 0; i < parent.getChildCount(); i++) {
             View child = parent.getChildAt(i);
-            int level = parent.getChildViewHolder(child).getItemViewType();
+            // rows are indented by level
+            int level = ((RecyclerView.LayoutParams) child.getLayoutParams()).leftMargin /
+                    mLevelIndicatorWidth;
             for (int j = 0; j < level; j++) {
                 int left = mHorizontalMargin + j * mLevelIndicatorWidth + mLevelIndicatorWidth / 2;
                 if (mColorCodeEnabled) {
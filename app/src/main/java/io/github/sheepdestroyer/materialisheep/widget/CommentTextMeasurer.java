@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.annotation.SuppressLint;
+import android.text.StaticLayout;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+import io.github.sheepdestroyer.materialisheep.data.Item;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+
+/**
+ * Measures comment bodies off the main thread with {@link PrecomputedTextCompat} and caches
+ * the results per item and text configuration, so that binding a comment needs neither a
+ * layout pass on the main thread nor a second pass to find out its line count.
+ */
+@Singleton
+public class CommentTextMeasurer {
+    private static final int MAX_ENTRIES = 500;
+    private final LruCache<Long, Measured> mCache = new LruCache<>(MAX_ENTRIES);
+    private final Map<Long, List<Runnable>> mPending = new HashMap<>();
+    private final Scheduler mIoScheduler;
+    private final Scheduler mMainThreadScheduler;
+
+    /**
+     * Constructs a new {@code CommentTextMeasurer}.
+     *
+     * @param ioScheduler         the scheduler to measure text on
+     * @param mainThreadScheduler the scheduler to deliver results on
+     */
+    @Inject
+    public CommentTextMeasurer(@Named(DataModule.IO_THREAD) Scheduler ioScheduler,
+            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
+        mIoScheduler = ioScheduler;
+        mMainThreadScheduler = mainThreadScheduler;
+    }
+
+    /**
+     * Gets the measured text of an item if it has been measured for the given configuration
+     * and its displayed text has not changed since.
+     *
+     * @param item   the item whose text to get
+     * @param config the current text configuration
+     * @return the measured text, or {@code null} if it needs to be measured
+     */
+    @MainThread
+    @Nullable
+    public Measured get(@NonNull Item item, @NonNull Config config) {
+        Measured measured = mCache.get(item.getLongId());
+        if (measured == null || !measured.mConfig.equals(config) ||
+                !TextUtils.equals(measured.mSource, item.getDisplayedText())) {
+            return null;
+        }
+        return measured;
+    }
+
+    /**
+     * Measures the displayed text of an item in the background, then runs the given
+     * callback on the main thread. The callback is run immediately if the item has
+     * already been measured for the given configuration. Displayed text is rendered here,
+     * as items render it lazily and not thread safely.
+     *
+     * @param item     the item whose text to measure
+     * @param config   the text configuration to measure for
+     * @param callback the callback to run once measured
+     */
+    @MainThread
+    @SuppressLint("CheckResult")
+    public void measure(@NonNull Item item, @NonNull Config config, @NonNull Runnable callback) {
+        if (get(item, config) != null) {
+            callback.run();
+            return;
+        }
+        final long id = item.getLongId();
+        List<Runnable> callbacks = mPending.get(id);
+        if (callbacks != null) { // measurement for the same item is already underway
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        mPending.put(id, callbacks);
+        final CharSequence source = item.getDisplayedText();
+        Observable.fromCallable(() -> measure(source, config))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .subscribe(measured -> {
+                    mCache.put(id, measured);
+                    onMeasured(id);
+                }, t -> onMeasured(id));
+    }
+
+    /**
+     * Drops all measurements.
+     */
+    @MainThread
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    @Synthetic
+    void onMeasured(long id) {
+        List<Runnable> callbacks = mPending.remove(id);
+        if (callbacks != null) {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    @WorkerThread
+    @NonNull
+    static Measured measure(@Nullable CharSequence source, @NonNull Config config) {
+        if (TextUtils.isEmpty(source)) {
+            return new Measured(source, null, 0, config);
+        }
+        PrecomputedTextCompat text = PrecomputedTextCompat.create(source, config.mParams);
+        StaticLayout.Builder builder = StaticLayout.Builder.obtain(text, 0, text.length(),
+                        config.mParams.getTextPaint(), config.mWidth)
+                .setBreakStrategy(config.mParams.getBreakStrategy())
+                .setHyphenationFrequency(config.mParams.getHyphenationFrequency())
+                .setLineSpacing(0f, config.mLineHeight)
+                .setIncludePad(config.mIncludeFontPadding);
+        if (config.mParams.getTextDirection() != null) {
+            builder.setTextDirection(config.mParams.getTextDirection());
+        }
+        return new Measured(source, text, builder.build().getLineCount(), config);
+    }
+
+    /**
+     * Text configuration that measurements are valid for: text metrics of the comment
+     * {@link android.widget.TextView}, available text width and line height.
+     */
+    public static class Config {
+        final PrecomputedTextCompat.Params mParams;
+        final int mWidth;
+        final float mLineHeight;
+        final boolean mIncludeFontPadding;
+
+        /**
+         * Constructs a new text configuration.
+         *
+         * @param params             text metrics to measure with
+         * @param width              available width for text, in pixels
+         * @param lineHeight         line spacing multiplier
+         * @param includeFontPadding whether font padding is included
+         */
+        public Config(@NonNull PrecomputedTextCompat.Params params, int width,
+                float lineHeight, boolean includeFontPadding) {
+            mParams = params;
+            mWidth = width;
+            mLineHeight = lineHeight;
+            mIncludeFontPadding = includeFontPadding;
+        }
+
+        /**
+         * Creates a configuration with the same text metrics for a different width.
+         *
+         * @param width available width for text, in pixels
+         * @return the new configuration, or this one if width is unchanged
+         */
+        Config withWidth(int width) {
+            return width == mWidth ? this :
+                    new Config(mParams, width, mLineHeight, mIncludeFontPadding);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Config)) {
+                return false;
+            }
+            Config that = (Config) o;
+            return mWidth == that.mWidth &&
+                    mLineHeight == that.mLineHeight &&
+                    mIncludeFontPadding == that.mIncludeFontPadding &&
+                    mParams.equals(that.mParams);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mParams.hashCode();
+            result = 31 * result + mWidth;
+            result = 31 * result + Float.floatToIntBits(mLineHeight);
+            return 31 * result + (mIncludeFontPadding ? 1 : 0);
+        }
+    }
+
+    /**
+     * Measured comment text together with its line count.
+     */
+    public static class Measured {
+        @Synthetic
+        final CharSequence mSource;
+        private final PrecomputedTextCompat mText;
+        private final int mLineCount;
+        @Synthetic
+        final Config mConfig;
+
+        @Synthetic
+        Measured(CharSequence source, PrecomputedTextCompat text, int lineCount, Config config) {
+            mSource = source;
+            mText = text;
+            mLineCount = lineCount;
+            mConfig = config;
+        }
+
+        /**
+         * @return the precomputed text, or {@code null} if the source text is empty
+         */
+        @Nullable
+        public PrecomputedTextCompat getText() {
+            return mText;
+        }
+
+        /**
+         * @return number of lines the text lays out to at the configured width
+         */
+        public int getLineCount() {
+            return mLineCount;
+        }
+    }
+}
@@ -42,6 +42,7 @@ import javax.inject.Inject;
 
 import io.github.sheepdestroyer.materialisheep.AppUtils;
 import io.github.sheepdestroyer.materialisheep.ComposeActivity;
+import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
 import io.github.sheepdestroyer.materialisheep.MenuTintDelegate;
 import io.github.sheepdestroyer.materialisheep.R;
 import io.github.sheepdestroyer.materialisheep.accounts.UserServices;
@@ -130,6 +131,7 @@ public class FavoriteRecyclerViewAdapter
 
     public FavoriteRecyclerViewAdapter(Context context, ActionModeDelegate actionModeDelegate) {
         super(context);
+        ((MaterialisticApplication) context.getApplicationContext()).applicationComponent.inject(this);
         mActionModeDelegate = actionModeDelegate;
         mMenuTintDelegate = new MenuTintDelegate();
         mMenuTintDelegate.onActivityCreated(mContext);
@@ -324,6 +326,11 @@ public class FavoriteRecyclerViewAdapter
         }
     }
 
+    @Synthetic
+    void onVoteQueued() {
+        Toast.makeText(mContext, R.string.vote_queued, Toast.LENGTH_SHORT).show();
+    }
+
     static class VoteCallback extends UserServices.Callback {
         private final WeakReference<FavoriteRecyclerViewAdapter> mAdapter;
 
@@ -345,6 +352,13 @@ public class FavoriteRecyclerViewAdapter
                 mAdapter.get().onVoted(null);
             }
         }
+
+        @Override
+        public void onQueued() {
+            if (mAdapter.get() != null && mAdapter.get().isAttached()) {
+                mAdapter.get().onVoteQueued();
+            }
+        }
     }
 
     static abstract class ItemTouchHelperCallback extends PeekabooTouchHelperCallback {
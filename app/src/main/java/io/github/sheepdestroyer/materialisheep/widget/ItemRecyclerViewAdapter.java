@@ -23,6 +23,7 @@ import android.content.res.TypedArray;
 import android.os.Build;
 import androidx.annotation.CallSuper;
 import androidx.annotation.Nullable;
+import androidx.core.widget.TextViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.text.method.LinkMovementMethod;
@@ -42,6 +43,7 @@ import io.github.sheepdestroyer.materialisheep.AlertDialogBuilder;
 import io.github.sheepdestroyer.materialisheep.AppUtils;
 import io.github.sheepdestroyer.materialisheep.ComposeActivity;
 import io.github.sheepdestroyer.materialisheep.Navigable;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
 import io.github.sheepdestroyer.materialisheep.Preferences;
 import io.github.sheepdestroyer.materialisheep.R;
 import io.github.sheepdestroyer.materialisheep.accounts.UserServices;
@@ -49,9 +51,12 @@ import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
 import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.ResponseListener;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter.ItemViewHolder>
         extends RecyclerViewAdapter<VH> {
+    static final int VIEW_TYPE_COMMENT = R.id.view_type_comment;
+    static final int VIEW_TYPE_FOOTER = R.id.view_type_comment_footer;
     private static final String PROPERTY_MAX_LINES = "maxLines";
     private static final int DURATION_PER_LINE_MILLIS = 20;
     LayoutInflater mLayoutInflater;
@@ -62,6 +67,12 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
     PopupMenu mPopupMenu;
     @Inject
     AlertDialogBuilder mAlertDialogBuilder;
+    @Inject
+    CommentTextMeasurer mTextMeasurer;
+    @Inject
+    SharedViewPool mViewPool;
+    @Inject
+    PreferenceStore mPreferenceStore;
     private int mTertiaryTextColorResId;
     private int mSecondaryTextColorResId;
     private int mCardBackgroundColorResId;
@@ -69,8 +80,11 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
     private int mContentMaxLines = Integer.MAX_VALUE;
     private String mUsername;
     private final Map<String, Integer> mLineCounted = new HashMap<>();
+    // pending item requests, cancelled once their rows are recycled or adapter is detached
+    private final Map<Item, Disposable> mRequests = new HashMap<>();
     private int mCacheMode = ItemManager.MODE_DEFAULT;
     private float mLineHeight = 1.0f;
+    private CommentTextMeasurer.Config mTextConfig;
 
     public interface PositionCallback {
         void onPosition(int position);
@@ -97,23 +111,54 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         ta.recycle();
     }
 
+    @Override
+    public void detach(Context context, RecyclerView recyclerView) {
+        for (Map.Entry<Item, Disposable> request : mRequests.entrySet()) {
+            request.getValue().dispose();
+            resetLoading(request.getKey());
+        }
+        mRequests.clear();
+        super.detach(context, recyclerView);
+    }
+
     @Override
     public void onBindViewHolder(final VH holder, int position) {
         final Item item = getItem(position);
         if (item == null) {
             return;
         }
+        if (holder.mRequestedItem != item) {
+            cancel(holder);
+        }
         clear(holder);
         if (item.getLocalRevision() < 0) {
             int adapterPosition = holder.getBindingAdapterPosition();
             if (adapterPosition != RecyclerView.NO_POSITION) {
-                load(adapterPosition, item);
+                load(holder, adapterPosition, item);
             }
         } else if (item.getLocalRevision() > 0) {
             bind(holder, item);
         }
     }
 
+    @Override
+    public void onViewAttachedToWindow(VH holder) {
+        super.onViewAttachedToWindow(holder);
+        if (isAttached()) {
+            mViewPool.attach(holder.itemView, mContext);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(VH holder) {
+        super.onViewRecycled(holder);
+        cancel(holder);
+        if (!holder.isFooter()) {
+            unbind(holder);
+        }
+        mViewPool.release(holder.itemView);
+    }
+
     @Override
     public long getItemId(int position) {
         Item item = getItem(position);
@@ -125,9 +170,11 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
     }
 
     public void initDisplayOptions(Context context) {
-        mContentMaxLines = Preferences.getCommentMaxLines(context);
-        mUsername = Preferences.getUsername(context);
-        mLineHeight = Preferences.getLineHeight(context);
+        Preferences.Snapshot preferences = mPreferenceStore.get();
+        mContentMaxLines = preferences.getCommentMaxLines();
+        mUsername = preferences.getUsername();
+        mLineHeight = preferences.getLineHeight();
+        mTextConfig = null; // text metrics may have changed, learn again on next bind
     }
 
     public void getNextPosition(int position, int direction, PositionCallback callback) {
@@ -155,6 +202,13 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         highlightUserItem(holder, item);
         decorateDead(holder, item);
         holder.mContentTextView.setLineSpacing(0f, mLineHeight);
+        CommentTextMeasurer.Measured measured = getMeasuredText(item);
+        if (measured != null && measured.getText() != null) {
+            AppUtils.setTextWithLinks(holder.mContentTextView, measured.getText());
+            toggleCollapsibleContent(holder, item, measured.getLineCount());
+            bindActions(holder, item);
+            return;
+        }
         AppUtils.setTextWithLinks(holder.mContentTextView, item.getDisplayedText());
         Integer lineCount = mLineCounted.get(item.getId());
         if (lineCount != null && lineCount > 0) {
@@ -164,6 +218,7 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
                 if (mContext == null) {
                     return;
                 }
+                learnTextConfig(holder, item);
                 int count = holder.mContentTextView.getLineCount();
                 mLineCounted.put(item.getId(), count);
                 toggleCollapsibleContent(holder, item, count);
@@ -172,6 +227,30 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         bindActions(holder, item);
     }
 
+    /**
+     * Gets horizontal space taken by indentation of given item, which is not available
+     * for its text.
+     *
+     * @param item item to get indentation of
+     * @return indentation in pixels
+     */
+    protected int getIndentation(Item item) {
+        return 0;
+    }
+
+    /**
+     * Applies indentation of given item to its row, which may have been recycled
+     * from a row of a different level or from another adapter.
+     */
+    protected final void indent(VH holder, Item item) {
+        RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) holder.itemView.getLayoutParams();
+        int indentation = getIndentation(item);
+        if (params != null && params.leftMargin != indentation) {
+            params.leftMargin = indentation;
+            holder.itemView.setLayoutParams(params);
+        }
+    }
+
     protected void clear(VH holder) {
         holder.mCommentButton.setVisibility(View.GONE);
         holder.mPostedTextView.setOnClickListener(null);
@@ -180,15 +259,50 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         holder.mReadMoreTextView.setVisibility(View.GONE);
     }
 
+    /**
+     * Clears given row once recycled, including listeners that reference this adapter, as
+     * rows may outlive this adapter and its activity in a shared pool.
+     */
+    protected void unbind(VH holder) {
+        clear(holder);
+        holder.mReadMoreTextView.setOnClickListener(null);
+        holder.mMoreButton.setOnClickListener(null);
+        holder.mCommentButton.setOnClickListener(null);
+    }
+
     @Synthetic
     boolean isAttached() {
         return mContext != null;
     }
 
-    private void load(int adapterPosition, Item item) {
+    private void load(VH holder, int adapterPosition, Item item) {
         item.setLocalRevision(0);
-        mItemManager.getItem(item.getId(), mCacheMode,
+        Disposable request = mItemManager.getItem(item.getId(), mCacheMode,
                 new ItemResponseListener(this, adapterPosition, item));
+        if (request != null && !request.isDisposed()) {
+            mRequests.put(item, request);
+            holder.mRequestedItem = item;
+        }
+    }
+
+    /**
+     * Cancels pending request for the item of given row, e.g. once it has been flung
+     * out of view, so that its item is requested again next time it is bound.
+     */
+    private void cancel(VH holder) {
+        Item item = holder.mRequestedItem;
+        holder.mRequestedItem = null;
+        Disposable request = item != null ? mRequests.remove(item) : null;
+        if (request != null) {
+            request.dispose();
+            resetLoading(item);
+        }
+    }
+
+    private void resetLoading(Item item) {
+        if (item.getLocalRevision() == 0) { // still loading
+            item.setLocalRevision(-1);
+        }
     }
 
     protected void onItemLoaded(int position, Item item) {
@@ -197,6 +311,51 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         }
     }
 
+    /**
+     * Measures text of a freshly loaded item in the background if text metrics are known,
+     * so that by the time it is bound its precomputed text and line count are available.
+     */
+    @Synthetic
+    void onItemResponse(int position, Item item) {
+        mRequests.remove(item);
+        if (mTextConfig == null) {
+            onItemLoaded(position, item);
+            return;
+        }
+        mTextMeasurer.measure(item, getTextConfig(item), () -> {
+            if (isAttached()) {
+                onItemLoaded(position, item);
+            }
+        });
+    }
+
+    @Nullable
+    private CommentTextMeasurer.Measured getMeasuredText(Item item) {
+        return mTextConfig != null ? mTextMeasurer.get(item, getTextConfig(item)) : null;
+    }
+
+    private CommentTextMeasurer.Config getTextConfig(Item item) {
+        return mTextConfig.withWidth(mTextConfig.mWidth - getIndentation(item));
+    }
+
+    /**
+     * Captures text metrics and available width from a comment that has been laid out,
+     * so that subsequent comments can be measured ahead of binding.
+     */
+    private void learnTextConfig(VH holder, Item item) {
+        TextView textView = holder.mContentTextView;
+        int width = textView.getWidth() - textView.getTotalPaddingLeft() -
+                textView.getTotalPaddingRight();
+        if (width <= 0) {
+            return;
+        }
+        mTextConfig = new CommentTextMeasurer.Config(
+                TextViewCompat.getTextMetricsParams(textView),
+                width + getIndentation(item),
+                mLineHeight,
+                textView.getIncludeFontPadding());
+    }
+
     private void highlightUserItem(VH holder, Item item) {
         boolean highlight = !TextUtils.isEmpty(mUsername) &&
                 TextUtils.equals(mUsername, item.getBy());
@@ -271,6 +430,11 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         }
     }
 
+    @Synthetic
+    void onVoteQueued() {
+        Toast.makeText(mContext, R.string.vote_queued, Toast.LENGTH_SHORT).show();
+    }
+
     static class ItemViewHolder extends RecyclerView.ViewHolder {
         boolean mIsFooter;
         TextView mPostedTextView;
@@ -279,6 +443,7 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         TextView mCommentButton;
         View mMoreButton;
         View mContentView;
+        Item mRequestedItem;
 
         ItemViewHolder(View itemView) {
             super(itemView);
@@ -319,7 +484,7 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
         public void onResponse(@Nullable Item response) {
             if (mAdapter.get() != null && mAdapter.get().isAttached() && response != null) {
                 mPartialItem.populate(response);
-                mAdapter.get().onItemLoaded(mPosition, mPartialItem);
+                mAdapter.get().onItemResponse(mPosition, mPartialItem);
             }
         }
 
@@ -350,5 +515,12 @@ public abstract class ItemRecyclerViewAdapter<VH extends ItemRecyclerViewAdapter
                 mAdapter.get().onVoted(null);
             }
         }
+
+        @Override
+        public void onQueued() {
+            if (mAdapter.get() != null && mAdapter.get().isAttached()) {
+                mAdapter.get().onVoteQueued();
+            }
+        }
     }
 }
@@ -23,24 +23,27 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
 import javax.inject.Inject;
 
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 import io.github.sheepdestroyer.materialisheep.AlertDialogBuilder;
 import io.github.sheepdestroyer.materialisheep.AppUtils;
 import io.github.sheepdestroyer.materialisheep.CustomTabsDelegate;
 import io.github.sheepdestroyer.materialisheep.ItemActivity;
 import io.github.sheepdestroyer.materialisheep.MultiPaneListener;
-import io.github.sheepdestroyer.materialisheep.Preferences;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
 import io.github.sheepdestroyer.materialisheep.R;
 import io.github.sheepdestroyer.materialisheep.accounts.UserServices;
 import io.github.sheepdestroyer.materialisheep.data.FavoriteManager;
 import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.WebItem;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 /**
  * Base {@link RecyclerView.Adapter} class for list items
@@ -55,7 +58,10 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
     private static final String STATE_LAST_SELECTION_POSITION = "state:lastSelectedPosition";
     private static final int VIEW_TYPE_CARD = 0;
     private static final int VIEW_TYPE_FLAT = 1;
+    private final int mCardViewType;
+    private final int mFlatViewType;
     private CustomTabsDelegate mCustomTabsDelegate;
+    private WebViewPool mWebViewPool;
     protected Context mContext;
     private MultiPaneListener mMultiPaneListener;
     LayoutInflater mInflater;
@@ -67,37 +73,57 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
     UserServices mUserServices;
     @Inject
     FavoriteManager mFavoriteManager;
+    @Inject
+    PreferenceStore mPreferenceStore;
     private int mLastSelectedPosition = -1;
     private boolean mCardViewEnabled = true;
     private int mHotThreshold = Integer.MAX_VALUE;
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    private Disposable mPreferenceSubscription;
     private boolean mMultiWindowEnabled;
 
     public ListRecyclerViewAdapter(Context context) {
+        this(context, VIEW_TYPE_CARD, VIEW_TYPE_FLAT);
+    }
+
+    /**
+     * Constructs an adapter with custom view types, e.g. to keep them distinct
+     * from other adapters sharing the same {@link RecyclerView.RecycledViewPool}
+     *
+     * @param context      context
+     * @param cardViewType view type of card items
+     * @param flatViewType view type of flat items
+     */
+    protected ListRecyclerViewAdapter(Context context, int cardViewType, int flatViewType) {
+        mCardViewType = cardViewType;
+        mFlatViewType = flatViewType;
         mContext = context;
         mInflater = AppUtils.createLayoutInflater(mContext);
         mMultiPaneListener = (MultiPaneListener) mContext;
-        mMultiWindowEnabled = Preferences.multiWindowEnabled(mContext);
     }
 
     @Override
     public void onAttachedToRecyclerView(RecyclerView recyclerView) {
         super.onAttachedToRecyclerView(recyclerView);
-        mPreferenceObservable.subscribe(mContext,
-                (key, contextChanged) -> mMultiWindowEnabled = Preferences.multiWindowEnabled(mContext),
-                R.string.pref_multi_window);
+        // injected by subclasses after this class is constructed
+        mMultiWindowEnabled = mPreferenceStore.get().multiWindowEnabled();
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_multi_window)
+                .subscribe(change -> mMultiWindowEnabled = change.getSnapshot().multiWindowEnabled());
+        if (mWebViewPool != null && !mPreferenceStore.get().externalBrowserEnabled()) {
+            mWebViewPool.prewarm(); // for articles opened from this list
+        }
     }
 
     @Override
     public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
         super.onDetachedFromRecyclerView(recyclerView);
-        mPreferenceObservable.unsubscribe(mContext);
+        mPreferenceSubscription.dispose();
     }
 
     @Override
     public final VH onCreateViewHolder(ViewGroup parent, int viewType) {
         VH holder = create(parent, viewType);
-        if (viewType == VIEW_TYPE_FLAT) {
+        if (viewType == mFlatViewType) {
             holder.flatten();
         }
         return holder;
@@ -114,20 +140,26 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
             }
             return;
         }
-        // TODO naive launch priority for now
-        mCustomTabsDelegate.mayLaunchUrl(Uri.parse(item.getUrl()), null, null);
         holder.bind(item,
                 mHotThreshold,
                 mCardViewEnabled,
                 isSelected(item.getId()),
                 v -> handleItemClick(item, holder),
                 v -> openItem(item));
+        holder.setOnSelectingListener(() -> preconnect(item));
         bindItem(holder, position);
     }
 
+    @Override
+    public void onViewRecycled(VH holder) {
+        super.onViewRecycled(holder);
+        // rows may outlive this adapter in a shared pool, so drop listeners that reference it
+        holder.clear();
+    }
+
     @Override
     public final int getItemViewType(int position) {
-        return mCardViewEnabled ? VIEW_TYPE_CARD : VIEW_TYPE_FLAT;
+        return mCardViewEnabled ? mCardViewType : mFlatViewType;
     }
 
     @Override
@@ -149,6 +181,10 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
         mCustomTabsDelegate = customTabsDelegate;
     }
 
+    public void setWebViewPool(WebViewPool webViewPool) {
+        mWebViewPool = webViewPool;
+    }
+
     public void setHotThresHold(int hotThresHold) {
         mHotThreshold = hotThresHold;
     }
@@ -233,6 +269,25 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
     @ItemManager.CacheMode
     protected abstract int getItemCacheMode();
 
+    /**
+     * Speculatively connects to host of given item's article, as it is about to be opened,
+     * either in a custom tab or in a web view.
+     *
+     * @param item item being selected
+     */
+    private void preconnect(T item) {
+        if (AppUtils.isHackerNewsUrl(item)) {
+            return;
+        }
+        if (mPreferenceStore.get().externalBrowserEnabled()) {
+            if (mCustomTabsDelegate != null) {
+                mCustomTabsDelegate.mayLaunchUrl(Uri.parse(item.getUrl()), null, null);
+            }
+        } else if (mWebViewPool != null) {
+            mWebViewPool.preconnect(item.getUrl());
+        }
+    }
+
     private void openItem(T item) {
         Intent intent = new Intent(mContext, ItemActivity.class)
                 .putExtra(ItemActivity.EXTRA_CACHE_MODE, getItemCacheMode())
@@ -248,6 +303,8 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
         private final StoryView mStoryView;
         private final FlatCardView mCardView;
         private final int mCardElevation;
+        // item still loading when this row was bound, if any
+        Item mRequestedItem;
 
         public interface ShowMoreOptionsListener {
             void showMoreOptions(View anchor);
@@ -279,6 +336,42 @@ public abstract class ListRecyclerViewAdapter<VH extends ListRecyclerViewAdapter
             mStoryView.reset();
             itemView.setOnClickListener(null);
             itemView.setOnLongClickListener(null);
+            mStoryView.setOnCommentClickListener(null);
+            mStoryView.getMoreOptions().setOnClickListener(null);
+            setOnSelectingListener(null);
+        }
+
+        /**
+         * Sets a listener to be notified when this item is about to be selected, i.e. when
+         * it is hovered, pressed or focused.
+         *
+         * @param listener listener to be notified, or null to clear
+         */
+        @SuppressLint("ClickableViewAccessibility")
+        public void setOnSelectingListener(@Nullable Runnable listener) {
+            if (listener == null) {
+                itemView.setOnHoverListener(null);
+                itemView.setOnTouchListener(null);
+                itemView.setOnFocusChangeListener(null);
+                return;
+            }
+            itemView.setOnHoverListener((v, event) -> {
+                if (event.getActionMasked() == MotionEvent.ACTION_HOVER_ENTER) {
+                    listener.run();
+                }
+                return false;
+            });
+            itemView.setOnTouchListener((v, event) -> {
+                if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                    listener.run();
+                }
+                return false;
+            });
+            itemView.setOnFocusChangeListener((v, hasFocus) -> {
+                if (hasFocus) {
+                    listener.run();
+                }
+            });
         }
 
         public void flatten() {
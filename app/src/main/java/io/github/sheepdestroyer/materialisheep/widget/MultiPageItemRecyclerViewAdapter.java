@@ -24,22 +24,19 @@ import android.view.ViewGroup;
 
 import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
 
-import java.util.Arrays;
-
 import io.github.sheepdestroyer.materialisheep.ItemActivity;
 import io.github.sheepdestroyer.materialisheep.R;
+import io.github.sheepdestroyer.materialisheep.data.CommentTree;
 import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 
 public class MultiPageItemRecyclerViewAdapter
-        extends ItemRecyclerViewAdapter<ItemRecyclerViewAdapter.ItemViewHolder> {
-    private static final int VIEW_TYPE_FOOTER = -1;
-    private final Item[] mItems;
+        extends ItemRecyclerViewAdapter<ToggleItemViewHolder> {
+    private final CommentTree mTree;
 
-    public MultiPageItemRecyclerViewAdapter(ItemManager itemManager, Item[] items) {
+    public MultiPageItemRecyclerViewAdapter(ItemManager itemManager, Item item) {
         super(itemManager);
-        mItems = Arrays.copyOf(items, items.length + 1);
-        mItems[items.length] = null; // footer
+        mTree = new CommentTree(item); // only kids of item are shown, followed by footer
     }
 
     @Override
@@ -49,16 +46,20 @@ public class MultiPageItemRecyclerViewAdapter
     }
 
     @Override
-    public ItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+    public ToggleItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        // rows are shared with single page threads, hence the same view holder type
         if (viewType == VIEW_TYPE_FOOTER) {
-            return new ItemViewHolder(mLayoutInflater.inflate(R.layout.item_footer, parent, false), null);
+            return new ToggleItemViewHolder(mViewPool.inflate(mContext, R.layout.item_footer,
+                    viewType, parent), null);
         }
-        return new ItemViewHolder(mLayoutInflater.inflate(R.layout.item_comment, parent, false));
+        return new ToggleItemViewHolder(mViewPool.inflate(mContext, R.layout.item_comment,
+                viewType, parent));
     }
 
     @Override
-    public void onBindViewHolder(ItemViewHolder holder, int position) {
+    public void onBindViewHolder(ToggleItemViewHolder holder, int position) {
         if (!holder.isFooter()) {
+            indent(holder, getItem(position));
             super.onBindViewHolder(holder, position);
         }
     }
@@ -68,16 +69,29 @@ public class MultiPageItemRecyclerViewAdapter
         if (getItem(position) == null) {
             return VIEW_TYPE_FOOTER;
         }
-        return super.getItemViewType(position);
+        return VIEW_TYPE_COMMENT;
     }
 
     @Override
     protected Item getItem(int position) {
-        return mItems[position];
+        return position < mTree.getRootCount() ? mTree.getRow(position) : null;
+    }
+
+    @Override
+    protected void onItemLoaded(int position, Item item) {
+        mTree.store(item); // rows may be evicted, keep loaded content
+        super.onItemLoaded(position, item);
+    }
+
+    @Override
+    protected void clear(ToggleItemViewHolder holder) {
+        super.clear(holder);
+        holder.mLevel.setVisibility(View.GONE);
+        holder.mToggleButton.setVisibility(View.GONE);
     }
 
     @Override
-    protected void bind(final ItemViewHolder holder, final Item item) {
+    protected void bind(final ToggleItemViewHolder holder, final Item item) {
         super.bind(holder, item);
         if (item == null) {
             return;
@@ -94,7 +108,7 @@ public class MultiPageItemRecyclerViewAdapter
 
     @Override
     public int getItemCount() {
-        return mItems.length;
+        return mTree.getRootCount() + 1;
     }
 
     private void openItem(Item item) {
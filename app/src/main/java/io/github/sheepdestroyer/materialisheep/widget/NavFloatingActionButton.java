@@ -36,13 +36,18 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.Locale;
 
+import javax.inject.Inject;
+
 import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AlertDialog;
 import io.github.sheepdestroyer.materialisheep.AppUtils;
+import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
 import io.github.sheepdestroyer.materialisheep.Navigable;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
 import io.github.sheepdestroyer.materialisheep.Preferences;
 import io.github.sheepdestroyer.materialisheep.R;
 import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 public class NavFloatingActionButton extends FloatingActionButton implements ViewTreeObserver.OnGlobalLayoutListener {
     private static final String PREFERENCES_FAB = "_fab";
@@ -63,7 +68,7 @@ public class NavFloatingActionButton extends FloatingActionButton implements Vie
     };
     @Synthetic
     final Vibrator mVibrator;
-    private final Preferences.Observable mPreferenceObservable = new Preferences.Observable();
+    private Disposable mPreferenceSubscription;
     @Synthetic
     Navigable mNavigable;
     @Synthetic
@@ -73,6 +78,8 @@ public class NavFloatingActionButton extends FloatingActionButton implements Vie
     private String mPreferenceX, mPreferenceY;
     @Synthetic
     boolean mVibrationEnabled;
+    @Inject
+    PreferenceStore mPreferenceStore;
 
     public static void resetPosition(Context context) {
         getSharedPreferences(context).edit().clear().apply();
@@ -92,6 +99,7 @@ public class NavFloatingActionButton extends FloatingActionButton implements Vie
         bindNavigationPad();
         mVibrationEnabled = Preferences.navigationVibrationEnabled(context);
         if (!isInEditMode()) {
+            ((MaterialisticApplication) context.getApplicationContext()).applicationComponent.inject(this);
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
                 android.os.VibratorManager vm = (android.os.VibratorManager) context.getSystemService(Context.VIBRATOR_MANAGER_SERVICE);
                 mVibrator = vm.getDefaultVibrator();
@@ -107,16 +115,21 @@ public class NavFloatingActionButton extends FloatingActionButton implements Vie
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         getViewTreeObserver().addOnGlobalLayoutListener(this);
-        mPreferenceObservable.subscribe(getContext(),
-                (key, contextChanged) -> mVibrationEnabled = Preferences.navigationVibrationEnabled(getContext()),
-                R.string.pref_navigation_vibrate);
+        if (isInEditMode()) {
+            return; // not injected
+        }
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_navigation_vibrate)
+                .subscribe(change -> mVibrationEnabled = change.getSnapshot().navigationVibrationEnabled());
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         stopObservingViewTree();
-        mPreferenceObservable.unsubscribe(getContext());
+        if (mPreferenceSubscription != null) {
+            mPreferenceSubscription.dispose();
+        }
     }
 
     @Override
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+
+/**
+ * Renders tiles of PDF pages with {@link PdfRenderer} on a background thread. As
+ * {@link PdfRenderer} can only have one page open at a time, all work happens on a single
+ * thread, and consecutive tiles of the same page share one open page. Tiles requested for
+ * display are rendered before those prefetched, and pending requests can be dropped when they
+ * become stale, e.g. after zooming. Rendered tiles are put into given {@link TileBitmapCache}
+ * on main thread, where prefetched tiles are dropped if they would evict tiles on screen.
+ */
+public class PdfTileRenderer {
+    private static final String TAG = "PdfTileRenderer";
+    @Synthetic final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    @Synthetic final TileBitmapCache mCache;
+    @Synthetic final Listener mListener;
+    private final int mTileSize;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Object mToken = new Object();
+    private final Set<Tile> mPending = new HashSet<>();
+    @Synthetic boolean mClosed;
+    // accessed on render thread only
+    private ParcelFileDescriptor mDescriptor;
+    private PdfRenderer mRenderer;
+    private PdfRenderer.Page mPage;
+    private final Matrix mMatrix = new Matrix();
+
+    /**
+     * Starts a renderer for given file, which is opened in background.
+     *
+     * @param file     PDF file
+     * @param tileSize tile width and height in pixels
+     * @param cache    cache to put rendered tiles into
+     * @param listener listener to be notified on main thread
+     */
+    @MainThread
+    public PdfTileRenderer(@NonNull File file, int tileSize, @NonNull TileBitmapCache cache,
+                           @NonNull Listener listener) {
+        mTileSize = tileSize;
+        mCache = cache;
+        mListener = listener;
+        mThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.post(() -> open(file));
+    }
+
+    /**
+     * Requests a tile to be rendered, unless it is already pending.
+     *
+     * @param tile     tile to render
+     * @param prefetch true if tile is not visible yet, to be rendered after visible ones
+     */
+    @MainThread
+    public void request(@NonNull Tile tile, boolean prefetch) {
+        if (mClosed || !mPending.add(tile)) {
+            return;
+        }
+        Message message = Message.obtain(mHandler, () -> render(tile, prefetch));
+        message.obj = mToken;
+        if (prefetch) {
+            mHandler.sendMessage(message);
+        } else {
+            mHandler.sendMessageAtFrontOfQueue(message);
+        }
+    }
+
+    /**
+     * Drops all pending requests.
+     */
+    @MainThread
+    public void cancel() {
+        mHandler.removeCallbacksAndMessages(mToken);
+        mPending.clear();
+    }
+
+    /**
+     * Drops all pending requests, closes file and stops render thread.
+     */
+    @MainThread
+    public void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        cancel();
+        mHandler.post(() -> {
+            closeRenderer();
+            mThread.quit();
+        });
+    }
+
+    private void open(File file) {
+        float[] aspectRatios;
+        try {
+            mDescriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+            mRenderer = new PdfRenderer(mDescriptor);
+            aspectRatios = new float[mRenderer.getPageCount()];
+            for (int i = 0; i < aspectRatios.length; i++) {
+                try (PdfRenderer.Page page = mRenderer.openPage(i)) {
+                    aspectRatios[i] = (float) page.getHeight() / page.getWidth();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // e.g. password protected or malformed, which PdfRenderer cannot handle
+            Log.e(TAG, "Failed to open " + file, e);
+            closeRenderer();
+            mMainHandler.post(() -> {
+                if (!mClosed) {
+                    mListener.onFailure();
+                }
+            });
+            return;
+        }
+        mMainHandler.post(() -> {
+            if (!mClosed) {
+                mListener.onOpen(aspectRatios);
+            }
+        });
+    }
+
+    private void render(Tile tile, boolean prefetch) {
+        if (mRenderer == null) {
+            mMainHandler.post(() -> mPending.remove(tile));
+            return;
+        }
+        Bitmap bitmap = mCache.obtain();
+        try {
+            if (mPage == null || mPage.getIndex() != tile.mPage) {
+                if (mPage != null) {
+                    mPage.close();
+                    mPage = null;
+                }
+                mPage = mRenderer.openPage(tile.mPage);
+            }
+            float scale = (float) tile.mWidth / mPage.getWidth();
+            mMatrix.setScale(scale, scale);
+            mMatrix.postTranslate(-tile.mColumn * mTileSize, -tile.mRow * mTileSize);
+            bitmap.eraseColor(Color.WHITE); // pages are transparent, and bitmap may be reused
+            mPage.render(bitmap, null, mMatrix, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to render " + tile, e);
+            mCache.release(bitmap);
+            mMainHandler.post(() -> mPending.remove(tile));
+            return;
+        }
+        mMainHandler.post(() -> {
+            mPending.remove(tile);
+            if (mClosed) {
+                mCache.release(bitmap);
+            } else if (!prefetch) {
+                mCache.put(tile, bitmap);
+                mListener.onTileRendered(tile);
+            } else if (mCache.putPrefetched(tile, bitmap)) {
+                mListener.onTileRendered(tile);
+            } // otherwise dropped rather than evicting tiles on screen
+        });
+    }
+
+    private void closeRenderer() {
+        if (mPage != null) {
+            mPage.close();
+            mPage = null;
+        }
+        if (mRenderer != null) {
+            mRenderer.close();
+            mRenderer = null;
+        }
+        if (mDescriptor != null) {
+            try {
+                mDescriptor.close();
+            } catch (IOException e) {
+                // no-op
+            }
+            mDescriptor = null;
+        }
+    }
+
+    /**
+     * A square area of a page rendered at a given width.
+     */
+    public static final class Tile {
+        @Synthetic final int mPage;
+        @Synthetic final int mWidth;
+        @Synthetic final int mColumn;
+        @Synthetic final int mRow;
+
+        /**
+         * Constructs a new {@code Tile}.
+         *
+         * @param page   page index
+         * @param width  width in pixels that page is rendered at, which determines zoom level
+         * @param column column of tile in page
+         * @param row    row of tile in page
+         */
+        public Tile(int page, int width, int column, int row) {
+            mPage = page;
+            mWidth = width;
+            mColumn = column;
+            mRow = row;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Tile)) {
+                return false;
+            }
+            Tile tile = (Tile) o;
+            return mPage == tile.mPage && mWidth == tile.mWidth &&
+                    mColumn == tile.mColumn && mRow == tile.mRow;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mPage;
+            result = 31 * result + mWidth;
+            result = 31 * result + mColumn;
+            result = 31 * result + mRow;
+            return result;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Tile{page=" + mPage + ", width=" + mWidth +
+                    ", column=" + mColumn + ", row=" + mRow + "}";
+        }
+    }
+
+    /**
+     * Listener of renderer events, called on main thread.
+     */
+    public interface Listener {
+        /**
+         * Called when file has been opened.
+         *
+         * @param aspectRatios height to width ratio of each page
+         */
+        void onOpen(@NonNull float[] aspectRatios);
+
+        /**
+         * Called when file cannot be rendered natively.
+         */
+        void onFailure();
+
+        /**
+         * Called when a tile has been rendered and cached.
+         *
+         * @param tile rendered tile
+         */
+        void onTileRendered(@NonNull Tile tile);
+    }
+}
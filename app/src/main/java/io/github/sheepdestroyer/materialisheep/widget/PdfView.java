@@ -0,0 +1,510 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+
+/**
+ * A view that displays PDF files natively, as a vertical strip of pages that can be scrolled,
+ * flung and zoomed. Pages are split into tiles rendered by {@link PdfTileRenderer} at current
+ * zoom level, so that only visible parts of a page are rendered and kept in memory. While
+ * and after zooming, tiles of previous zoom level are scaled until sharper ones are rendered.
+ * Tiles of pages adjacent to visible ones are prefetched, as many as fit in cache besides
+ * visible ones.
+ */
+public class PdfView extends View {
+    @VisibleForTesting
+    static final int TILE_SIZE = 512;
+    private static final float MAX_ZOOM = 4f;
+    private static final float DOUBLE_TAP_ZOOM = 2f;
+    private static final int PAGE_GAP_DP = 8;
+    @Synthetic final OverScroller mScroller;
+    private final GestureDetector mGestureDetector;
+    private final ScaleGestureDetector mScaleGestureDetector;
+    private final Paint mPagePaint = new Paint();
+    private final Paint mTilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mVisible = new Rect();
+    private final RectF mPageRect = new RectF();
+    private final RectF mTileRect = new RectF();
+    private final int mPageGap;
+    private final ComponentCallbacks2 mMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (mCache != null) {
+                mCache.trimMemory(level);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            // no-op
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    };
+    @Synthetic TileBitmapCache mCache;
+    private PdfTileRenderer mRenderer;
+    @Synthetic float[] mAspectRatios;
+    private float[] mPageTops; // at zoom level 1, i.e. page width equals view width
+    private float mContentHeight;
+    @Synthetic float mZoom = 1f;
+    @Synthetic float mRenderZoom = 1f;
+    @Synthetic boolean mScaling;
+    // render zoom of tiles drawn under those of current render zoom until they are rendered
+    private float mFallbackZoom;
+    private int mMissingTiles; // visible tiles not rendered yet in current frame
+
+    public PdfView(Context context) {
+        this(context, null);
+    }
+
+    public PdfView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public PdfView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mPageGap = Math.round(PAGE_GAP_DP * getResources().getDisplayMetrics().density);
+        mPagePaint.setColor(Color.WHITE);
+        mScroller = new OverScroller(context);
+        mGestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(@NonNull MotionEvent e) {
+                mScroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2,
+                                    float distanceX, float distanceY) {
+                scrollBy(Math.round(distanceX), Math.round(distanceY));
+                return true;
+            }
+
+            @Override
+            public boolean onFling(@Nullable MotionEvent e1, @NonNull MotionEvent e2,
+                                   float velocityX, float velocityY) {
+                mScroller.fling(getScrollX(), getScrollY(),
+                        -Math.round(velocityX), -Math.round(velocityY),
+                        0, getMaxScrollX(), 0, getMaxScrollY());
+                postInvalidateOnAnimation();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(@NonNull MotionEvent e) {
+                zoomTo(mZoom > 1f ? 1f : DOUBLE_TAP_ZOOM, e.getX(), e.getY());
+                onZoomEnd();
+                return true;
+            }
+        });
+        mScaleGestureDetector = new ScaleGestureDetector(context,
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                    @Override
+                    public boolean onScaleBegin(@NonNull ScaleGestureDetector detector) {
+                        mScaling = true;
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onScale(@NonNull ScaleGestureDetector detector) {
+                        zoomTo(mZoom * detector.getScaleFactor(),
+                                detector.getFocusX(), detector.getFocusY());
+                        return true;
+                    }
+
+                    @Override
+                    public void onScaleEnd(@NonNull ScaleGestureDetector detector) {
+                        mScaling = false;
+                        onZoomEnd();
+                    }
+                });
+    }
+
+    /**
+     * Opens given PDF file, closing any previously opened one.
+     *
+     * @param file     PDF file
+     * @param listener listener to be notified when file is opened or cannot be rendered
+     */
+    public void open(@NonNull File file, @NonNull Listener listener) {
+        close();
+        if (mCache == null) {
+            mCache = TileBitmapCache.create(getContext(), TILE_SIZE);
+        }
+        mRenderer = new PdfTileRenderer(file, TILE_SIZE, mCache, new PdfTileRenderer.Listener() {
+            @Override
+            public void onOpen(@NonNull float[] aspectRatios) {
+                mAspectRatios = aspectRatios;
+                layoutPages();
+                scrollTo(0, 0);
+                invalidate();
+                listener.onOpen();
+            }
+
+            @Override
+            public void onFailure() {
+                close();
+                listener.onFailure();
+            }
+
+            @Override
+            public void onTileRendered(@NonNull PdfTileRenderer.Tile tile) {
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * Closes opened file, if any, and frees rendered pages.
+     */
+    public void close() {
+        if (mRenderer != null) {
+            mRenderer.close();
+            mRenderer = null;
+        }
+        if (mCache != null) {
+            mCache.clear();
+        }
+        mAspectRatios = null;
+        mPageTops = null;
+        mZoom = mRenderZoom = 1f;
+        mFallbackZoom = 0;
+        mScroller.forceFinished(true);
+    }
+
+    /**
+     * Checks if a file has been opened.
+     *
+     * @return true if a file is opened, false otherwise
+     */
+    public boolean isOpen() {
+        return mAspectRatios != null;
+    }
+
+    /**
+     * Scrolls to top of document.
+     */
+    public void scrollToTop() {
+        mScroller.forceFinished(true);
+        smoothScrollBy(0, -getScrollY());
+    }
+
+    /**
+     * Scrolls by one screen.
+     *
+     * @param down true to scroll down, false to scroll up
+     * @return true if scrolled, false if already at the end
+     */
+    public boolean pageScroll(boolean down) {
+        int scrollY = getScrollY();
+        if (down ? scrollY >= getMaxScrollY() : scrollY <= 0) {
+            return false;
+        }
+        mScroller.forceFinished(true);
+        smoothScrollBy(0, down ? getHeight() - mPageGap : -getHeight() + mPageGap);
+        return true;
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isOpen()) {
+            return super.onTouchEvent(event);
+        }
+        boolean handled = mScaleGestureDetector.onTouchEvent(event);
+        if (!mScaleGestureDetector.isInProgress()) {
+            handled |= mGestureDetector.onTouchEvent(event);
+        }
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(mScroller.getCurrX(), mScroller.getCurrY());
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    public void scrollTo(int x, int y) {
+        super.scrollTo(Math.max(0, Math.min(x, getMaxScrollX())),
+                Math.max(0, Math.min(y, getMaxScrollY())));
+    }
+
+    @Override
+    protected int computeVerticalScrollRange() {
+        return Math.round(mContentHeight * mZoom);
+    }
+
+    @Override
+    protected int computeHorizontalScrollRange() {
+        return Math.round(getWidth() * mZoom);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (w != oldw && isOpen()) {
+            float fraction = mContentHeight > 0 ? getScrollY() / (mContentHeight * mZoom) : 0;
+            layoutPages();
+            if (mRenderer != null) {
+                mRenderer.cancel();
+            }
+            scrollTo(getScrollX(), Math.round(fraction * mContentHeight * mZoom));
+        } else {
+            scrollTo(getScrollX(), getScrollY()); // clamp
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().registerComponentCallbacks(mMemoryCallbacks);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getContext().unregisterComponentCallbacks(mMemoryCallbacks);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        if (!isOpen() || getWidth() == 0) {
+            return;
+        }
+        mVisible.set(getScrollX(), getScrollY(),
+                getScrollX() + getWidth(), getScrollY() + getHeight());
+        mCache.beginFrame();
+        mMissingTiles = 0;
+        int first = -1, last = -1;
+        for (int i = 0; i < mAspectRatios.length; i++) {
+            getPageRect(i, mPageRect);
+            if (mPageRect.top >= mVisible.bottom) {
+                break;
+            }
+            if (mPageRect.bottom <= mVisible.top) {
+                continue;
+            }
+            if (first < 0) {
+                first = i;
+            }
+            last = i;
+            drawPage(canvas, i);
+        }
+        if (mMissingTiles == 0) {
+            mFallbackZoom = 0; // covered by sharper tiles
+        }
+        if (!mScaling && first >= 0) {
+            // prefetch pages adjacent to visible ones, as if they were scrolled into view,
+            // into capacity left over by visible tiles, including those still being rendered
+            int spareTiles = mCache.getSpareTiles() - mMissingTiles;
+            spareTiles = prefetch(last + 1, false, spareTiles);
+            prefetch(first - 1, true, spareTiles);
+        }
+    }
+
+    private void drawPage(Canvas canvas, int page) {
+        canvas.drawRect(mPageRect, mPagePaint);
+        canvas.save();
+        canvas.clipRect(mPageRect);
+        if (mFallbackZoom > 0) {
+            drawTiles(canvas, page, mFallbackZoom, false);
+        }
+        mMissingTiles += drawTiles(canvas, page, mRenderZoom, !mScaling);
+        canvas.restore();
+    }
+
+    /**
+     * Draws visible tiles of given page rendered at given zoom level, scaled to current one.
+     *
+     * @return number of visible tiles not rendered yet
+     */
+    private int drawTiles(Canvas canvas, int page, float renderZoom, boolean request) {
+        int renderWidth = Math.round(getWidth() * renderZoom);
+        float scale = mZoom / renderZoom; // from rendered to displayed size
+        int columns = (int) Math.ceil((float) renderWidth / TILE_SIZE);
+        int rows = (int) Math.ceil(renderWidth * mAspectRatios[page] / TILE_SIZE);
+        int firstColumn = clamp((int) ((mVisible.left - mPageRect.left) / scale / TILE_SIZE), columns);
+        int lastColumn = clamp((int) ((mVisible.right - mPageRect.left) / scale / TILE_SIZE), columns);
+        int firstRow = clamp((int) ((mVisible.top - mPageRect.top) / scale / TILE_SIZE), rows);
+        int lastRow = clamp((int) ((mVisible.bottom - mPageRect.top) / scale / TILE_SIZE), rows);
+        int missing = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                PdfTileRenderer.Tile tile = new PdfTileRenderer.Tile(page, renderWidth, column, row);
+                Bitmap bitmap = mCache.get(tile);
+                if (bitmap != null) {
+                    float left = mPageRect.left + column * TILE_SIZE * scale;
+                    float top = mPageRect.top + row * TILE_SIZE * scale;
+                    mTileRect.set(left, top, left + TILE_SIZE * scale, top + TILE_SIZE * scale);
+                    canvas.drawBitmap(bitmap, null, mTileRect, mTilePaint);
+                } else {
+                    missing++;
+                    if (request) {
+                        mRenderer.request(tile, false);
+                    }
+                }
+            }
+        }
+        return missing;
+    }
+
+    private int prefetch(int page, boolean above, int spareTiles) {
+        if (page < 0 || page >= mAspectRatios.length) {
+            return spareTiles;
+        }
+        int renderWidth = getRenderWidth();
+        float scale = mZoom / mRenderZoom;
+        int columns = (int) Math.ceil((float) renderWidth / TILE_SIZE);
+        int rows = (int) Math.ceil(renderWidth * mAspectRatios[page] / TILE_SIZE);
+        // columns currently in view, rows of a screenful from the edge that scrolls in first
+        int firstColumn = clamp((int) (getScrollX() / scale / TILE_SIZE), columns);
+        int lastColumn = clamp((int) ((getScrollX() + getWidth()) / scale / TILE_SIZE), columns);
+        int screenRows = (int) Math.ceil(getHeight() / scale / TILE_SIZE);
+        int firstRow = above ? Math.max(0, rows - screenRows) : 0;
+        int lastRow = above ? rows - 1 : Math.min(rows, screenRows) - 1;
+        // rows nearest to visible pages first, as they scroll in first
+        for (int i = 0; i <= lastRow - firstRow; i++) {
+            int row = above ? lastRow - i : firstRow + i;
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                if (spareTiles-- <= 0) {
+                    return 0;
+                }
+                PdfTileRenderer.Tile tile = new PdfTileRenderer.Tile(page, renderWidth, column, row);
+                if (!mCache.contains(tile)) {
+                    mRenderer.request(tile, true);
+                }
+            }
+        }
+        return spareTiles;
+    }
+
+    @Synthetic
+    void zoomTo(float zoom, float focusX, float focusY) {
+        zoom = Math.max(1f, Math.min(zoom, MAX_ZOOM));
+        float factor = zoom / mZoom;
+        // keep content under focus point in place
+        float scrollX = (getScrollX() + focusX) * factor - focusX;
+        float scrollY = (getScrollY() + focusY) * factor - focusY;
+        mZoom = zoom;
+        scrollTo(Math.round(scrollX), Math.round(scrollY));
+        invalidate();
+    }
+
+    @Synthetic
+    void onZoomEnd() {
+        if (mRenderZoom == mZoom) {
+            return;
+        }
+        // keep drawing cached tiles of previous zoom level, scaled, until sharper ones are
+        // rendered, rather than blank pages
+        mFallbackZoom = mRenderZoom;
+        mRenderZoom = mZoom;
+        if (mRenderer != null) {
+            mRenderer.cancel(); // tiles of previous zoom level are no longer rendered
+        }
+        invalidate();
+    }
+
+    @Synthetic
+    void layoutPages() {
+        if (mAspectRatios == null) {
+            return;
+        }
+        mPageTops = new float[mAspectRatios.length];
+        float top = 0;
+        for (int i = 0; i < mAspectRatios.length; i++) {
+            mPageTops[i] = top;
+            top += getWidth() * mAspectRatios[i] + mPageGap;
+        }
+        mContentHeight = Math.max(0, top - mPageGap);
+    }
+
+    private void getPageRect(int page, RectF rect) {
+        float top = mPageTops[page] * mZoom;
+        rect.set(0, top, getWidth() * mZoom, top + getWidth() * mAspectRatios[page] * mZoom);
+    }
+
+    private int getRenderWidth() {
+        return Math.round(getWidth() * mRenderZoom);
+    }
+
+    private int getMaxScrollX() {
+        return Math.max(0, Math.round(getWidth() * mZoom) - getWidth());
+    }
+
+    private int getMaxScrollY() {
+        return Math.max(0, Math.round(mContentHeight * mZoom) - getHeight());
+    }
+
+    private void smoothScrollBy(int dx, int dy) {
+        mScroller.startScroll(getScrollX(), getScrollY(), dx, dy);
+        postInvalidateOnAnimation();
+    }
+
+    private static int clamp(int index, int count) {
+        return Math.max(0, Math.min(index, count - 1));
+    }
+
+    /**
+     * Listener of document events.
+     */
+    public interface Listener {
+        /**
+         * Called when document has been opened and its first tiles are being rendered.
+         */
+        void onOpen();
+
+        /**
+         * Called when document cannot be rendered natively.
+         */
+        void onFailure();
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.AppUtils;
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
+import io.github.sheepdestroyer.materialisheep.Preferences;
+import io.github.sheepdestroyer.materialisheep.R;
+import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+/**
+ * Application scoped {@link RecyclerView.RecycledViewPool} for comment and story rows, so that
+ * opening another thread or list reuses rows instead of inflating them again.
+ * Rows are inflated against their own {@link MutableContextWrapper}, pointed at the hosting
+ * activity while in use and at the application while pooled, so pooled rows never keep a
+ * finished activity alive. Pooled rows are dropped whenever theme or text appearance changes.
+ * Rows can also be prewarmed on a background thread while the main thread is idle, against
+ * a copy of the activity theme and configuration that does not reference the activity.
+ * Prewarming stops when the list it is for is detached, or when the pool is cleared.
+ */
+@Singleton
+public class SharedViewPool extends RecyclerView.RecycledViewPool {
+    private static final String TAG = "SharedViewPool";
+    private final Context mApplicationContext;
+    private final Scheduler mIoScheduler;
+    private final Scheduler mMainThreadScheduler;
+    private final SparseIntArray mPrewarmCounts = new SparseIntArray();
+    private final SparseIntArray mInflating = new SparseIntArray();
+    private final SparseArray<ArrayDeque<View>> mPrewarmed = new SparseArray<>();
+    private final CompositeDisposable mPrewarms = new CompositeDisposable();
+    private List<Object> mThemeKey;
+    private int mGeneration;
+    @Synthetic
+    int mInflatedCount;
+
+    /**
+     * Constructs a new {@code SharedViewPool}.
+     *
+     * @param context             the application context
+     * @param preferenceStore     the preference store to watch for appearance changes
+     * @param ioScheduler         the scheduler to prewarm rows on
+     * @param mainThreadScheduler the scheduler to deliver prewarmed rows on
+     */
+    @SuppressLint("CheckResult")
+    @Inject
+    public SharedViewPool(Context context, PreferenceStore preferenceStore,
+            @Named(DataModule.IO_THREAD) Scheduler ioScheduler,
+            @Named(DataModule.MAIN_THREAD) Scheduler mainThreadScheduler) {
+        mApplicationContext = context.getApplicationContext();
+        mIoScheduler = ioScheduler;
+        mMainThreadScheduler = mainThreadScheduler;
+        Resources resources = mApplicationContext.getResources();
+        setMaxRecycledViews(R.id.view_type_comment,
+                resources.getInteger(R.integer.pool_max_comments));
+        setMaxRecycledViews(R.id.view_type_comment_footer, 1);
+        setMaxRecycledViews(R.id.view_type_story_card,
+                resources.getInteger(R.integer.pool_max_stories));
+        setMaxRecycledViews(R.id.view_type_story_flat,
+                resources.getInteger(R.integer.pool_max_stories));
+        mPrewarmCounts.put(R.id.view_type_comment,
+                resources.getInteger(R.integer.pool_prewarm_comments));
+        mPrewarmCounts.put(R.id.view_type_story_card,
+                resources.getInteger(R.integer.pool_prewarm_stories));
+        mPrewarmCounts.put(R.id.view_type_story_flat,
+                resources.getInteger(R.integer.pool_prewarm_stories));
+        // lists may reuse pooled rows right away when recreating views for new appearance
+        preferenceStore.changes(R.string.pref_theme,
+                        R.string.pref_daynight_auto,
+                        R.string.pref_font,
+                        R.string.pref_text_size)
+                .subscribe(change -> reset());
+    }
+
+    /**
+     * Makes given list use this pool, dropping pooled rows first if they were inflated
+     * for another theme or text appearance than that of the list.
+     *
+     * @param recyclerView the list to use this pool
+     */
+    @MainThread
+    public void install(@NonNull RecyclerView recyclerView) {
+        ensureTheme(recyclerView.getContext());
+        recyclerView.setRecycledViewPool(this);
+    }
+
+    /**
+     * Creates a row for given view type, using a prewarmed one if available.
+     *
+     * @param context  the hosting activity context
+     * @param layout   layout resource of the row
+     * @param viewType view type of the row
+     * @param parent   the {@link RecyclerView} the row will be attached to
+     * @return the row view
+     */
+    @MainThread
+    @NonNull
+    public View inflate(@NonNull Context context, @LayoutRes int layout, int viewType,
+            @NonNull ViewGroup parent) {
+        ensureTheme(context);
+        ArrayDeque<View> prewarmed = mPrewarmed.get(viewType);
+        View view = prewarmed != null ? prewarmed.poll() : null;
+        if (view == null) {
+            mInflatedCount++;
+            view = createInflater(context).inflate(layout, parent, false);
+        } else {
+            attach(view, context);
+        }
+        return view;
+    }
+
+    /**
+     * Points a row at the activity that is about to show it.
+     *
+     * @param view    the row view
+     * @param context the hosting activity context
+     */
+    public void attach(@NonNull View view, @NonNull Context context) {
+        MutableContextWrapper wrapper = findWrapper(view);
+        if (wrapper != null && wrapper.getBaseContext() != context) {
+            wrapper.setBaseContext(context);
+        }
+    }
+
+    /**
+     * Points a row at the application once it is no longer shown, e.g. when recycled.
+     *
+     * @param view the row view
+     */
+    public void release(@NonNull View view) {
+        attach(view, mApplicationContext);
+    }
+
+    /**
+     * Inflates rows of given view type in the background next time the main thread is idle,
+     * until there are as many spare rows as configured for that view type.
+     *
+     * @param context  the hosting activity context
+     * @param layout   layout resource of the row
+     * @param viewType view type of the row
+     * @param parent   the {@link RecyclerView} rows will be attached to
+     */
+    @MainThread
+    public void prewarm(@NonNull Context context, @LayoutRes int layout, int viewType,
+            @NonNull RecyclerView parent) {
+        ensureTheme(context);
+        ArrayDeque<View> prewarmed = mPrewarmed.get(viewType);
+        int count = mPrewarmCounts.get(viewType) - getRecycledViewCount(viewType) -
+                mInflating.get(viewType) - (prewarmed != null ? prewarmed.size() : 0);
+        if (count <= 0) {
+            return;
+        }
+        mInflating.put(viewType, mInflating.get(viewType) + count);
+        Prewarm prewarm = new Prewarm(viewType, mGeneration, parent, count);
+        Context inflateContext = createDetachedContext(context);
+        Looper.myQueue().addIdleHandler(() -> {
+            inflateAsync(inflateContext, layout, prewarm);
+            return false;
+        });
+    }
+
+    /**
+     * Drops pooled rows, and stops inflating rows in the background.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        mPrewarms.clear();
+    }
+
+    /**
+     * Logs time taken until given list first draws rows, along with how many of them had to
+     * be inflated rather than reused, in debug builds.
+     *
+     * @param recyclerView the list to measure
+     * @param label        name of the list to log
+     */
+    @MainThread
+    public void measureFirstFrame(@NonNull RecyclerView recyclerView, @NonNull String label) {
+        if (!BuildConfig.DEBUG) {
+            return;
+        }
+        final long start = SystemClock.uptimeMillis();
+        final int inflatedCount = mInflatedCount;
+        recyclerView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        int rows = recyclerView.getChildCount();
+                        if (rows == 0) {
+                            return true;
+                        }
+                        recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        int inflated = Math.min(rows, mInflatedCount - inflatedCount);
+                        Log.d(TAG, label + " first frame in " +
+                                (SystemClock.uptimeMillis() - start) + "ms, " +
+                                inflated + " rows inflated, " + (rows - inflated) + " reused");
+                        return true;
+                    }
+                });
+    }
+
+    private void reset() {
+        mThemeKey = null;
+        clear();
+        mPrewarmed.clear();
+        mInflating.clear();
+        mGeneration++;
+    }
+
+    @Synthetic
+    void inflateAsync(Context context, @LayoutRes int layout, Prewarm prewarm) {
+        if (prewarm.mGeneration != mGeneration) {
+            return; // theme has changed since
+        }
+        if (!prewarm.mParent.isAttachedToWindow()) {
+            onPrewarmFinished(prewarm);
+            return;
+        }
+        Disposable disposable = Observable.range(0, prewarm.mPending)
+                .map(i -> createInflater(context).inflate(layout, prewarm.mParent, false))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .doFinally(() -> onPrewarmFinished(prewarm))
+                .subscribe(view -> onPrewarmed(view, prewarm),
+                        t -> {
+                            if (BuildConfig.DEBUG) {
+                                Log.w(TAG, "Unable to prewarm rows", t);
+                            }
+                        });
+        if (!prewarm.mFinished) { // may have finished already if scheduled synchronously
+            prewarm.mDisposable = disposable;
+            mPrewarms.add(disposable);
+            prewarm.mParent.addOnAttachStateChangeListener(prewarm);
+        }
+    }
+
+    @Synthetic
+    void onPrewarmed(View view, Prewarm prewarm) {
+        prewarm.mPending--;
+        if (prewarm.mGeneration != mGeneration) {
+            return; // theme has changed since
+        }
+        int viewType = prewarm.mViewType;
+        mInflating.put(viewType, Math.max(0, mInflating.get(viewType) - 1));
+        release(view);
+        ArrayDeque<View> prewarmed = mPrewarmed.get(viewType);
+        if (prewarmed == null) {
+            prewarmed = new ArrayDeque<>();
+            mPrewarmed.put(viewType, prewarmed);
+        }
+        prewarmed.add(view);
+    }
+
+    @Synthetic
+    void onPrewarmFinished(Prewarm prewarm) {
+        prewarm.mFinished = true;
+        if (prewarm.mDisposable != null) {
+            prewarm.mParent.removeOnAttachStateChangeListener(prewarm);
+            mPrewarms.delete(prewarm.mDisposable);
+        }
+        if (prewarm.mGeneration == mGeneration) {
+            // rows not inflated, e.g. as list has been detached, can be prewarmed next time
+            int viewType = prewarm.mViewType;
+            mInflating.put(viewType, Math.max(0, mInflating.get(viewType) - prewarm.mPending));
+        }
+        prewarm.mPending = 0;
+    }
+
+    private void ensureTheme(Context context) {
+        List<Object> themeKey = getThemeKey(context);
+        if (!themeKey.equals(mThemeKey)) {
+            reset();
+            mThemeKey = themeKey;
+        }
+    }
+
+    private static List<Object> getThemeKey(Context context) {
+        Configuration configuration = context.getResources().getConfiguration();
+        return Arrays.asList(context.getTheme().hashCode(),
+                Preferences.Theme.resolvePreferredTextSize(context),
+                MaterialisticApplication.getTypeface(context),
+                configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK,
+                configuration.densityDpi,
+                configuration.fontScale);
+    }
+
+    /**
+     * Creates a context with the theme and configuration of given activity context, but
+     * backed by the application, so that rows inflating in the background do not keep
+     * the activity alive.
+     */
+    private Context createDetachedContext(Context context) {
+        ContextThemeWrapper detached = new ContextThemeWrapper(mApplicationContext
+                .createConfigurationContext(context.getResources().getConfiguration()), 0);
+        detached.getTheme().setTo(context.getTheme());
+        return detached;
+    }
+
+    private static LayoutInflater createInflater(Context context) {
+        return AppUtils.createLayoutInflater(new RowContext(context));
+    }
+
+    private static MutableContextWrapper findWrapper(View view) {
+        Context context = view.getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof MutableContextWrapper) {
+                return (MutableContextWrapper) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    /**
+     * Context of a row, whose layout inflater looks up the view factory of its current base
+     * context on each use, instead of cloning that of the activity it was inflated for, as
+     * that factory (e.g. from AppCompat) references the activity and would be cached
+     * along with the row.
+     */
+    static class RowContext extends MutableContextWrapper {
+        private LayoutInflater mInflater;
+
+        RowContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public Object getSystemService(String name) {
+            if (!LAYOUT_INFLATER_SERVICE.equals(name)) {
+                return super.getSystemService(name);
+            }
+            if (mInflater == null) {
+                mInflater = LayoutInflater.from(getApplicationContext()).cloneInContext(this);
+                mInflater.setFactory2(new LayoutInflater.Factory2() {
+                    @Override
+                    public View onCreateView(View parent, @NonNull String name,
+                            @NonNull Context context, @NonNull AttributeSet attrs) {
+                        LayoutInflater.Factory2 factory = getBaseFactory();
+                        return factory != null ?
+                                factory.onCreateView(parent, name, context, attrs) : null;
+                    }
+
+                    @Override
+                    public View onCreateView(@NonNull String name, @NonNull Context context,
+                            @NonNull AttributeSet attrs) {
+                        return onCreateView(null, name, context, attrs);
+                    }
+                });
+            }
+            return mInflater;
+        }
+
+        @Synthetic
+        LayoutInflater.Factory2 getBaseFactory() {
+            return LayoutInflater.from(getBaseContext()).getFactory2();
+        }
+    }
+
+    /**
+     * Rows of a view type being inflated in the background for a list, which stop being
+     * inflated once the list is detached.
+     */
+    static class Prewarm implements View.OnAttachStateChangeListener {
+        final int mViewType;
+        final int mGeneration;
+        final RecyclerView mParent;
+        int mPending;
+        boolean mFinished;
+        Disposable mDisposable;
+
+        Prewarm(int viewType, int generation, RecyclerView parent, int count) {
+            mViewType = viewType;
+            mGeneration = generation;
+            mParent = parent;
+            mPending = count;
+        }
+
+        @Override
+        public void onViewAttachedToWindow(@NonNull View v) {
+            // no-op
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(@NonNull View v) {
+            mDisposable.dispose();
+        }
+    }
+}
@@ -19,20 +19,15 @@ package io.github.sheepdestroyer.materialisheep.widget;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.os.Parcel;
-import android.os.Parcelable;
 import androidx.annotation.NonNull;
-import androidx.collection.LongSparseArray;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -42,13 +37,13 @@ import io.github.sheepdestroyer.materialisheep.Preferences;
 import io.github.sheepdestroyer.materialisheep.R;
 import io.github.sheepdestroyer.materialisheep.ResourcesProvider;
 import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
+import io.github.sheepdestroyer.materialisheep.data.CommentTree;
 import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
 
 public class SinglePageItemRecyclerViewAdapter
         extends ItemRecyclerViewAdapter<ToggleItemViewHolder> {
-    private static final int VIEW_TYPE_FOOTER = -1;
     private final Object TOGGLE = new Object();
     private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
         @Override
@@ -147,14 +142,11 @@ public class SinglePageItemRecyclerViewAdapter
     @Override
     public ToggleItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         if (viewType == VIEW_TYPE_FOOTER) {
-            return new ToggleItemViewHolder(mLayoutInflater.inflate(R.layout.item_footer, parent, false), null);
+            return new ToggleItemViewHolder(mViewPool.inflate(mContext, R.layout.item_footer,
+                    viewType, parent), null);
         }
-        final ToggleItemViewHolder holder = new ToggleItemViewHolder(
-                mLayoutInflater.inflate(R.layout.item_comment, parent, false));
-        final RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) holder.itemView.getLayoutParams();
-        params.leftMargin = mLevelIndicatorWidth * viewType;
-        holder.itemView.setLayoutParams(params);
-        return holder;
+        return new ToggleItemViewHolder(mViewPool.inflate(mContext, R.layout.item_comment,
+                viewType, parent));
     }
 
     @Override
@@ -174,13 +166,15 @@ public class SinglePageItemRecyclerViewAdapter
         if (holder.isFooter()) {
             return;
         }
+        Item item = getItem(position);
+        indent(holder, item);
         if (mLock != null && mLock[0] <= position && position <= mLock[1]) {
             clear(holder);
             return;
         }
         if (mColorCoded && mColors != null && mColors.length() > 0) {
             holder.mLevel.setVisibility(View.VISIBLE);
-            holder.mLevel.setBackgroundColor(getThreadColor(getItemViewType(position)));
+            holder.mLevel.setBackgroundColor(getThreadColor(item.getLevel() - 1));
             holder.mLevel.setAlpha(mColorOpacity / 100f);
         } else {
             holder.mLevel.setVisibility(View.GONE);
@@ -194,7 +188,7 @@ public class SinglePageItemRecyclerViewAdapter
         if (item == null) { // footer
             return VIEW_TYPE_FOOTER;
         }
-        return item.getLevel() - 1;
+        return VIEW_TYPE_COMMENT;
     }
 
     @Override
@@ -204,8 +198,9 @@ public class SinglePageItemRecyclerViewAdapter
 
     @Override
     public void initDisplayOptions(Context context) {
-        mColorCoded = Preferences.colorCodeEnabled(context);
-        mColorOpacity = Preferences.colorCodeOpacity(context);
+        Preferences.Snapshot preferences = mPreferenceStore.get();
+        mColorCoded = preferences.colorCodeEnabled();
+        mColorOpacity = preferences.colorCodeOpacity();
         super.initDisplayOptions(context);
     }
 
@@ -261,6 +256,7 @@ public class SinglePageItemRecyclerViewAdapter
 
     @Override
     protected void onItemLoaded(int position, Item item) {
+        mState.store(item); // rows may be evicted, keep loaded content
         // item position may already be shifted due to expansion, need to get new
         // position
         int index = mState.indexOf(item);
@@ -275,6 +271,12 @@ public class SinglePageItemRecyclerViewAdapter
         holder.mToggleButton.setVisibility(View.GONE);
     }
 
+    @Override
+    protected void unbind(ToggleItemViewHolder holder) {
+        super.unbind(holder);
+        holder.mToggleButton.setOnClickListener(null);
+    }
+
     @Override
     protected void bind(ToggleItemViewHolder holder, Item item) {
         super.bind(holder, item);
@@ -282,12 +284,16 @@ public class SinglePageItemRecyclerViewAdapter
             return;
         }
         holder.mPostedTextView.setText(item.getDisplayedTime(mContext));
-        int position = holder.getBindingAdapterPosition();
         holder.mPostedTextView.append(item.getDisplayedAuthor(mContext, true,
-                getThreadColor(position != RecyclerView.NO_POSITION ? getItemViewType(position) : 0)));
+                getThreadColor(item.getLevel() - 1)));
         bindKids(holder, item);
     }
 
+    @Override
+    protected int getIndentation(Item item) {
+        return mLevelIndicatorWidth * (item.getLevel() - 1);
+    }
+
     @Override
     public void lockBinding(int[] lock) {
         mLock = lock;
@@ -301,8 +307,8 @@ public class SinglePageItemRecyclerViewAdapter
         }
     }
 
-    private int getThreadColor(int itemViewType) {
-        return mColorCoded ? mColors.getColor(itemViewType % mColors.length(), 0) : 0;
+    private int getThreadColor(int level) {
+        return mColorCoded ? mColors.getColor(level % mColors.length(), 0) : 0;
     }
 
     private void bindKids(final ToggleItemViewHolder holder, final Item item) {
@@ -355,8 +361,12 @@ public class SinglePageItemRecyclerViewAdapter
             if (mRecyclerView == null) {
                 return; // adapter detached
             }
+            int count = mState.size();
             int index = mState.expand(item);
-            notifyItemRangeInserted(index, item.getKidCount());
+            if (mState.size() == count) {
+                return; // no longer shown, or no kids
+            }
+            notifyItemRangeInserted(index, mState.size() - count);
             notifyItemChanged(index - 1, TOGGLE);
             mRecyclerView.getItemAnimator().isRunning(() -> setSelectedPosition(index, callback));
         });
@@ -373,124 +383,146 @@ public class SinglePageItemRecyclerViewAdapter
         }
     }
 
-    public static class SavedState implements Parcelable {
-        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
-            @Override
-            public SavedState createFromParcel(Parcel source) {
-                return new SavedState(source);
-            }
-
-            @Override
-            public SavedState[] newArray(int size) {
-                return new SavedState[size];
+    /**
+     * Thread state: comments in display order as indices into a {@link CommentTree}, so that
+     * only rows in use are materialized as items.
+     */
+    public static class SavedState {
+        private final CommentTree tree;
+        private int[] list; // comment indices, ends with footer
+        private int size;
+
+        public SavedState(@NonNull Item item) {
+            tree = new CommentTree(item);
+            size = tree.getRootCount();
+            list = new int[Math.max(16, size * 2)];
+            for (int i = 0; i < size; i++) {
+                list[i] = i;
             }
-        };
-
-        private final ArrayList<Item> list = new ArrayList<>();
-        private final LongSparseArray<Item> map = new LongSparseArray<>();
-        private final Set<String> expanded = new HashSet<>();
-
-        public SavedState(ArrayList<Item> list) {
-            list.add(null); // footer
-            addAll(0, list);
+            list[size++] = CommentTree.NO_INDEX; // footer
         }
 
-        @SuppressWarnings({"unchecked", "deprecation"})
         @Synthetic
-        SavedState(Parcel source) {
-            ArrayList<Item> savedList;
-            if (android.os.Build.VERSION.SDK_INT >= 33) {
-                savedList = source.readArrayList(Item.class.getClassLoader(), Item.class);
-            } else {
-                savedList = source.readArrayList(Item.class.getClassLoader());
-            }
-            addAll(0, savedList);
-            expanded.addAll(source.createStringArrayList());
-        }
-
-        @Override
-        public int describeContents() {
-            return 0;
-        }
-
-        @Override
-        public void writeToParcel(Parcel dest, int flags) {
-            dest.writeList(list);
-            dest.writeStringList(new ArrayList<>(expanded));
+        int size() {
+            return size;
         }
 
         @Synthetic
-        int size() {
-            return list.size();
+        Item get(int position) {
+            int index = list[position];
+            return index == CommentTree.NO_INDEX ? null : tree.getRow(index);
+        }
+
+        /**
+         * @return comments in display order, with a null footer, materialized as they are
+         * read and not kept
+         */
+        List<Item> getItems() {
+            return new AbstractList<Item>() {
+                @Override
+                public Item get(int position) {
+                    int index = list[position];
+                    return index == CommentTree.NO_INDEX ? null : tree.peekRow(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        /**
+         * @return IDs of expanded comments, in display order
+         */
+        long[] getExpandedIds() {
+            long[] ids = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (list[i] != CommentTree.NO_INDEX && tree.isExpanded(list[i])) {
+                    ids[count++] = tree.getId(list[i]);
+                }
+            }
+            return Arrays.copyOf(ids, count);
         }
 
+        /**
+         * Writes back changes made to given comment row.
+         */
         @Synthetic
-        Item get(int position) {
-            return list.get(position);
+        void store(Item item) {
+            tree.store(item);
         }
 
         @Synthetic
         int indexOf(long itemId) {
-            return indexOf(map.get(itemId));
+            int index = tree.indexOf(itemId);
+            if (index == CommentTree.NO_INDEX) {
+                return -1;
+            }
+            for (int i = 0; i < size; i++) {
+                if (list[i] == index) {
+                    return i;
+                }
+            }
+            return -1;
         }
 
         @Synthetic
         int indexOf(Item item) {
-            return list.indexOf(item);
+            return item == null ? -1 : indexOf(item.getLongId());
         }
 
         @Synthetic
         boolean isExpanded(Item item) {
-            return isExpanded(item.getId());
+            int index = tree.indexOf(item.getLongId());
+            return index != CommentTree.NO_INDEX && tree.isExpanded(index);
         }
 
         @Synthetic
         boolean isExpanded(String itemId) {
-            return expanded.contains(itemId);
+            int index = tree.indexOf(Long.parseLong(itemId));
+            return index != CommentTree.NO_INDEX && tree.isExpanded(index);
         }
 
         @Synthetic
         int expand(Item item) {
-            expanded.add(item.getId());
-            int index = indexOf(item) + 1;
-            addAll(index, Arrays.asList(item.getKidItems())); // recursive
-            return index;
+            int index = tree.store(item); // kids are only known to tree once stored
+            int position = indexOf(item) + 1;
+            if (index == CommentTree.NO_INDEX || position == 0) {
+                return position;
+            }
+            tree.setExpanded(index, true);
+            int count = tree.getKidCount(index), first = tree.getFirstKid(index);
+            if (size + count > list.length) {
+                list = Arrays.copyOf(list, Math.max(list.length * 2, size + count));
+            }
+            System.arraycopy(list, position, list, position + count, size - position);
+            for (int i = 0; i < count; i++) {
+                list[position + i] = first + i;
+            }
+            size += count;
+            return position;
         }
 
         @Synthetic
         int[] collapse(Item item) {
-            int index = indexOf(item) + 1;
-            int count = recursiveRemove(item);
-            return new int[] { index, count };
-        }
-
-        private void addAll(int index, List<Item> items) {
-            list.addAll(index, items);
-            for (Item item : items) {
-                if (item != null) {
-                    map.put(item.getLongId(), item);
-                }
+            int index = tree.store(item);
+            int position = indexOf(item) + 1;
+            if (index == CommentTree.NO_INDEX || position == 0 || !tree.isExpanded(index)) {
+                return new int[] { position, 0 };
             }
-        }
-
-        private int recursiveRemove(Item item) {
-            if (!isExpanded(item.getId())) {
-                return 0;
-            }
-            // if item is already expanded, its kids must be added, so we need to remove
-            // them
-            int count = item.getKidCount();
-            expanded.remove(item.getId());
-            for (Item kid : item.getKidItems()) {
-                count += recursiveRemove(kid);
-                remove(kid);
+            // shown descendants follow, until the next comment at the same level or above
+            int level = tree.getLevel(index), end = position;
+            while (end < size && list[end] != CommentTree.NO_INDEX &&
+                    tree.getLevel(list[end]) > level) {
+                tree.setExpanded(list[end], false);
+                end++;
             }
-            return count;
-        }
-
-        private void remove(Item item) {
-            list.remove(item);
-            map.remove(item.getLongId());
+            tree.setExpanded(index, false);
+            System.arraycopy(list, end, list, position, size - end);
+            size -= end - position;
+            return new int[] { position, end - position };
         }
     }
 }
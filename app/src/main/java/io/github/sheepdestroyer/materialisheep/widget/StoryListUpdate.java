@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.collection.ArrayMap;
+import androidx.collection.ArraySet;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.sheepdestroyer.materialisheep.data.Item;
+
+/**
+ * Immutable snapshot of a refreshed story list, ordered by rank, together with its difference
+ * from the previous list and the stories to highlight as new or promoted. It is built off the
+ * main thread, so that applying a refresh only swaps snapshots and dispatches notifications.
+ */
+final class StoryListUpdate {
+    static final Comparator<Item> RANK_COMPARATOR =
+            (item1, item2) -> Integer.compare(item1.getRank(), item2.getRank());
+    static final StoryListUpdate EMPTY = new StoryListUpdate(Collections.emptyList(),
+            Collections.emptyMap(), new ArraySet<>(), new ArrayMap<>(), null);
+
+    final List<Item> mItems;
+    final Map<String, Item> mItemMap;
+    final ArraySet<Item> mAdded;
+    final ArrayMap<String, Integer> mPromoted;
+    @Nullable
+    final DiffUtil.DiffResult mDiff;
+
+    /**
+     * Computes the update from given previous list to given stories.
+     *
+     * @param oldItems         previous list, ordered by rank, not modified
+     * @param items            new stories, in any order
+     * @param highlightUpdated true to find stories that are new or promoted since previous list,
+     *                         there are none if previous list is empty
+     * @return update to apply
+     */
+    @WorkerThread
+    @NonNull
+    static StoryListUpdate compute(@NonNull List<Item> oldItems, @Nullable Item[] items,
+                                   boolean highlightUpdated) {
+        return compute(oldItems, null, items, highlightUpdated);
+    }
+
+    /**
+     * Computes the update from given displayed list to given stories, highlighting stories
+     * that are new or promoted since given previous stories, e.g. stories loaded before a
+     * refresh that have not been displayed yet.
+     *
+     * @param oldItems         displayed list, ordered by rank, not modified
+     * @param previousItems    stories to find new or promoted stories against, in any order,
+     *                         or null for displayed list
+     * @param items            new stories, in any order
+     * @param highlightUpdated true to find stories that are new or promoted since previous
+     *                         stories, there are none if they are empty
+     * @return update to apply
+     */
+    @WorkerThread
+    @NonNull
+    static StoryListUpdate compute(@NonNull List<Item> oldItems, @Nullable Item[] previousItems,
+                                   @Nullable Item[] items, boolean highlightUpdated) {
+        List<Item> newItems = sort(items);
+        Map<String, Item> itemMap = new HashMap<>(newItems.size() * 2);
+        for (Item item : newItems) {
+            itemMap.put(item.getId(), item);
+        }
+        DiffUtil.DiffResult diff = diff(oldItems, newItems);
+        List<Item> baseItems = previousItems == null ? oldItems : sort(previousItems);
+        ArraySet<Item> added = new ArraySet<>();
+        ArrayMap<String, Integer> promoted = new ArrayMap<>();
+        if (highlightUpdated && !baseItems.isEmpty()) {
+            DiffUtil.DiffResult baseDiff = previousItems == null ? diff : diff(baseItems, newItems);
+            // compare positions among stories in both lists only, so that stories
+            // shifted by others coming or going are not considered promoted
+            int[] retainedOldPositions = new int[baseItems.size()];
+            int retained = 0;
+            for (int i = 0; i < baseItems.size(); i++) {
+                retainedOldPositions[i] = baseDiff.convertOldPositionToNew(i) == DiffUtil.DiffResult.NO_POSITION ?
+                        -1 : retained++;
+            }
+            retained = 0;
+            for (int i = 0; i < newItems.size(); i++) {
+                int oldPosition = baseDiff.convertNewPositionToOld(i);
+                if (oldPosition == DiffUtil.DiffResult.NO_POSITION) {
+                    added.add(newItems.get(i));
+                    continue;
+                }
+                int promotion = retainedOldPositions[oldPosition] - retained++;
+                if (promotion > 0) {
+                    promoted.put(newItems.get(i).getId(), promotion);
+                }
+            }
+        }
+        return new StoryListUpdate(Collections.unmodifiableList(newItems), itemMap,
+                added, promoted, diff);
+    }
+
+    private static List<Item> sort(@Nullable Item[] items) {
+        List<Item> sorted = items == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(items));
+        Collections.sort(sorted, RANK_COMPARATOR);
+        return sorted;
+    }
+
+    private static DiffUtil.DiffResult diff(List<Item> oldItems, List<Item> newItems) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldItems.get(oldItemPosition).getLongId() ==
+                        newItems.get(newItemPosition).getLongId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                // refreshed stories are new instances that need loading, rebind them
+                return oldItems.get(oldItemPosition) == newItems.get(newItemPosition);
+            }
+        });
+    }
+
+    /**
+     * Appends given page of stories to this list, keeping its highlights. Stories already in
+     * this list are skipped, as pages can shift while stories come and go. Cheap enough to run
+     * on main thread, as it needs no diffing.
+     *
+     * @param items next page of stories, ranked after stories of this list
+     * @return update to apply, without difference, as stories are only inserted at the end
+     */
+    @NonNull
+    StoryListUpdate append(@NonNull Item[] items) {
+        List<Item> newItems = new ArrayList<>(mItems.size() + items.length);
+        newItems.addAll(mItems);
+        Map<String, Item> itemMap = new HashMap<>(mItemMap);
+        for (Item item : items) {
+            if (!itemMap.containsKey(item.getId())) {
+                newItems.add(item);
+                itemMap.put(item.getId(), item);
+            }
+        }
+        return new StoryListUpdate(Collections.unmodifiableList(newItems), itemMap,
+                mAdded, mPromoted, null);
+    }
+
+    private StoryListUpdate(List<Item> items, Map<String, Item> itemMap, ArraySet<Item> added,
+                            ArrayMap<String, Integer> promoted, @Nullable DiffUtil.DiffResult diff) {
+        mItems = items;
+        mItemMap = itemMap;
+        mAdded = added;
+        mPromoted = promoted;
+        mDiff = diff;
+    }
+
+    /**
+     * Finds position of given story, in logarithmic time.
+     *
+     * @param item story
+     * @return position of story, or -1 if it is not in this list
+     */
+    int indexOf(Item item) {
+        int index = Collections.binarySearch(mItems, item, RANK_COMPARATOR);
+        if (index < 0) {
+            return -1;
+        }
+        // ranks should be unique, but look around in case they are not
+        for (int i = index; i >= 0 && mItems.get(i).getRank() == item.getRank(); i--) {
+            if (mItems.get(i) == item) {
+                return i;
+            }
+        }
+        for (int i = index + 1; i < mItems.size() && mItems.get(i).getRank() == item.getRank(); i++) {
+            if (mItems.get(i) == item) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -25,17 +25,14 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.collection.ArrayMap;
 import androidx.collection.ArraySet;
-import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListUpdateCallback;
-import androidx.recyclerview.widget.SortedList;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.ItemTouchHelper;
-import androidx.recyclerview.widget.SortedListAdapterCallback;
 import android.text.TextUtils;
 import android.view.Gravity;
 import android.view.View;
@@ -43,9 +40,8 @@ import android.view.ViewGroup;
 import android.widget.Toast;
 
 import java.lang.ref.WeakReference;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -55,6 +51,7 @@ import io.github.sheepdestroyer.materialisheep.ActivityModule;
 import io.github.sheepdestroyer.materialisheep.AppUtils;
 import io.github.sheepdestroyer.materialisheep.BuildConfig;
 import io.github.sheepdestroyer.materialisheep.ComposeActivity;
+import io.github.sheepdestroyer.materialisheep.DataModule;
 import io.github.sheepdestroyer.materialisheep.MaterialisticApplication;
 import io.github.sheepdestroyer.materialisheep.Preferences;
 import io.github.sheepdestroyer.materialisheep.R;
@@ -64,9 +61,13 @@ import io.github.sheepdestroyer.materialisheep.annotation.Synthetic;
 import io.github.sheepdestroyer.materialisheep.data.FavoriteManager;
 import io.github.sheepdestroyer.materialisheep.data.Item;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
+import io.github.sheepdestroyer.materialisheep.data.ItemMetadataRefresher;
 import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase;
 import io.github.sheepdestroyer.materialisheep.data.ResponseListener;
 import io.github.sheepdestroyer.materialisheep.data.SessionManager;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.Disposable;
 
 import static androidx.recyclerview.widget.RecyclerView.NO_POSITION;
 import static io.github.sheepdestroyer.materialisheep.Preferences.SwipeAction.Save;
@@ -75,6 +76,8 @@ public class StoryRecyclerViewAdapter extends
         ListRecyclerViewAdapter<ListRecyclerViewAdapter.ItemViewHolder, Item> {
     private static final String STATE_SHOW_ALL = "state:showAll";
     private static final String STATE_USERNAME = "state:username";
+    // about one frame, so loaded items show up as soon as possible without a rebind each
+    private static final long CHUNK_WINDOW_MILLIS = 16;
     private final Object VOTED = new Object();
     private final RecyclerView.OnScrollListener mAutoViewScrollListener = new RecyclerView.OnScrollListener() {
         @Override
@@ -86,47 +89,57 @@ public class StoryRecyclerViewAdapter extends
             }
         }
     };
-    private final Preferences.Observable mPrefObservable = new Preferences.Observable();
-    private final SortedList.Callback<Item> mSortedListCallback = new SortedListAdapterCallback<Item>(this) {
-        @Override
-        public int compare(Item o1, Item o2) {
-            return o1.getRank() - o2.getRank();
-        }
-
-        @Override
-        public boolean areContentsTheSame(Item item1, Item item2) {
-            return areItemsTheSame(item1, item2) && item1.getLocalRevision() == item2.getLocalRevision();
-        }
-
-        @Override
-        public boolean areItemsTheSame(Item item1, Item item2) {
-            return item1.getLongId() == item2.getLongId();
-        }
-    };
+    private Disposable mPreferenceSubscription;
     @Inject
     @Named(HN)
     ItemManager mItemManager;
     @Inject
+    ItemMetadataRefresher mMetadataRefresher;
+    @Inject
     SessionManager mSessionManager;
+    @Inject
+    SharedViewPool mViewPool;
+    @Inject
+    @Named(DataModule.IO_THREAD)
+    Scheduler mIoScheduler;
+    @Inject
+    @Named(DataModule.MAIN_THREAD)
+    Scheduler mMainThreadScheduler;
+    // current snapshot, only ever replaced as a whole on main thread
+    private StoryListUpdate mSnapshot = StoryListUpdate.EMPTY;
     @Synthetic
-    final SortedList<Item> mItems = new SortedList<>(Item.class, mSortedListCallback);
+    List<Item> mItems = mSnapshot.mItems;
     @Synthetic
-    final ArraySet<Item> mAdded = new ArraySet<>();
+    ArraySet<Item> mAdded = mSnapshot.mAdded;
     @Synthetic
-    final ArrayMap<String, Integer> mPromoted = new ArrayMap<>();
-    private final java.util.Map<String, Item> mItemMap = new java.util.HashMap<>();
+    ArrayMap<String, Integer> mPromoted = mSnapshot.mPromoted;
+    private Disposable mUpdate;
+    // IDs of items to load in next batch, kept unboxed as a batch can hold a whole list
     @Synthetic
-    final Set<String> mPendingIds = new HashSet<>();
+    long[] mPendingIds = new long[16];
+    @Synthetic
+    int mPendingCount;
+    // pending item requests by item still loading, see ItemsRequest
+    @Synthetic
+    final ArrayMap<Item, ItemsRequest> mRequests = new ArrayMap<>();
+    @Synthetic
+    ItemsRequest mPendingRequest = new ItemsRequest();
     private final Handler mHandler = new Handler(Looper.getMainLooper());
     private final Runnable mLoadRunnable = new Runnable() {
         @Override
         public void run() {
-            if (mPendingIds.isEmpty()) {
+            if (mPendingCount == 0) {
                 return;
             }
-            String[] ids = mPendingIds.toArray(new String[0]);
-            mPendingIds.clear();
-            mItemManager.getItems(ids, getItemCacheMode(), new ItemsResponseListener(StoryRecyclerViewAdapter.this));
+            long[] ids = Arrays.copyOf(mPendingIds, mPendingCount);
+            mPendingCount = 0;
+            ItemsRequest request = mPendingRequest;
+            mPendingRequest = new ItemsRequest();
+            ItemsResponseListener listener = new ItemsResponseListener(StoryRecyclerViewAdapter.this);
+            // refreshed stories loaded before only need fresh metadata, in one request
+            request.mDisposable = getItemCacheMode() == ItemManager.MODE_NETWORK ?
+                    mMetadataRefresher.refresh(ids, CHUNK_WINDOW_MILLIS, listener) :
+                    mItemManager.streamItems(ids, getItemCacheMode(), CHUNK_WINDOW_MILLIS, listener);
         }
     };
     @Synthetic
@@ -177,10 +190,10 @@ public class StoryRecyclerViewAdapter extends
     }
 
     public StoryRecyclerViewAdapter(Context context) {
-        super(context);
+        super(context, R.id.view_type_story_card, R.id.view_type_story_flat);
         ((MaterialisticApplication) context.getApplicationContext()).applicationComponent.inject(this);
         mCallback = new ItemTouchHelperCallback(context,
-                Preferences.getListSwipePreferences(context)) {
+                mPreferenceStore.get().getListSwipePreferences()) {
             @Override
             public int getSwipeDirs(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
                 int position = viewHolder.getBindingAdapterPosition();
@@ -257,14 +270,13 @@ public class StoryRecyclerViewAdapter extends
         MaterialisticDatabase.getInstance(recyclerView.getContext()).getLiveData().observeForever(mObserver);
         mItemTouchHelper.attachToRecyclerView(recyclerView);
         toggleAutoMarkAsViewed(recyclerView);
-        mPrefObservable.subscribe(recyclerView.getContext(),
-                (key, contextChanged) -> {
+        mPreferenceSubscription = mPreferenceStore
+                .changes(R.string.pref_list_swipe_left, R.string.pref_list_swipe_right)
+                .subscribe(change -> {
                     mCallback.setSwipePreferences(recyclerView.getContext(),
-                            Preferences.getListSwipePreferences(recyclerView.getContext()));
+                            change.getSnapshot().getListSwipePreferences());
                     notifyDataSetChanged();
-                },
-                R.string.pref_list_swipe_left,
-                R.string.pref_list_swipe_right);
+                });
     }
 
     @Override
@@ -272,12 +284,30 @@ public class StoryRecyclerViewAdapter extends
         super.onDetachedFromRecyclerView(recyclerView);
         MaterialisticDatabase.getInstance(recyclerView.getContext()).getLiveData().removeObserver(mObserver);
         mItemTouchHelper.attachToRecyclerView(null);
-        mPrefObservable.unsubscribe(recyclerView.getContext());
+        mPreferenceSubscription.dispose();
+        cancelRequests();
     }
 
     @Override
     protected ItemViewHolder create(ViewGroup parent, int viewType) {
-        return new ItemViewHolder(mInflater.inflate(R.layout.item_story, parent, false));
+        return new ItemViewHolder(mViewPool.inflate(mContext, R.layout.item_story, viewType, parent));
+    }
+
+    @Override
+    public void onViewAttachedToWindow(ItemViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        mViewPool.attach(holder.itemView, mContext);
+    }
+
+    @Override
+    public void onViewRecycled(ItemViewHolder holder) {
+        super.onViewRecycled(holder);
+        mViewPool.release(holder.itemView);
+        Item requested = holder.mRequestedItem;
+        holder.mRequestedItem = null;
+        if (requested != null) {
+            cancel(holder, requested);
+        }
     }
 
     @Override
@@ -285,7 +315,18 @@ public class StoryRecyclerViewAdapter extends
         if (payloads.contains(VOTED)) {
             holder.animateVote(getItem(position).getScore());
         } else {
+            Item requested = holder.mRequestedItem;
             super.onBindViewHolder(holder, position, payloads);
+            // track row before releasing its previous item, which may be the same one
+            Item item = getItem(position);
+            ItemsRequest request = item != null ? mRequests.get(item) : null;
+            if (request != null) {
+                request.mRows.get(item).add(holder);
+            }
+            holder.mRequestedItem = request != null ? item : null;
+            if (requested != null && requested != holder.mRequestedItem) {
+                cancel(holder, requested);
+            }
         }
     }
 
@@ -322,25 +363,107 @@ public class StoryRecyclerViewAdapter extends
 
     @Synthetic
     int getPosition(Item item) {
-        return mItems.indexOf(item);
+        return mSnapshot.indexOf(item);
     }
 
-    public SortedList<Item> getItems() {
+    /**
+     * @return current stories, ordered by rank
+     */
+    public List<Item> getItems() {
         return mItems;
     }
 
+    /**
+     * Sets stories to display. Differences from current stories, and stories to highlight as
+     * new or promoted, are computed in background then applied with fine grained change
+     * notifications. A pending update is dropped in favor of a newer one.
+     *
+     * @param items stories to display
+     */
     public void setItems(Item[] items) {
+        setItems(null, items);
+    }
+
+    /**
+     * Sets stories to display, highlighting stories that are new or promoted since given
+     * previous stories instead of current ones, e.g. stories loaded before a refresh that
+     * have not been displayed yet. Both are diffed in the same background update.
+     *
+     * @param previousItems stories to highlight against, or null for current stories
+     * @param items         stories to display
+     */
+    public void setItems(@Nullable Item[] previousItems, Item[] items) {
         if (BuildConfig.DEBUG) {
             android.util.Log.d("StoryRecyclerViewAdapter", "setItems: count=" + (items != null ? items.length : 0));
         }
-        setUpdated(items);
-        mItems.clear();
-        mItems.addAll(items);
-        mItemMap.clear();
-        if (items != null) {
-            for (Item item : items) {
-                mItemMap.put(item.getId(), item);
-            }
+        if (mUpdate != null) {
+            mUpdate.dispose();
+        }
+        List<Item> oldItems = mItems;
+        boolean highlightUpdated = mHighlightUpdated;
+        mUpdate = Single.fromCallable(() -> StoryListUpdate.compute(oldItems, previousItems, items,
+                        highlightUpdated))
+                .subscribeOn(mIoScheduler)
+                .observeOn(mMainThreadScheduler)
+                .subscribe(this::applyUpdate,
+                        t -> android.util.Log.e("StoryRecyclerViewAdapter", "Error updating stories", t));
+    }
+
+    /**
+     * Appends next page of stories right away, keeping current highlights. If an update is
+     * pending, given stories are ranked after it, so all stories are set instead.
+     *
+     * @param items next page of stories
+     * @param all   all stories, including given page, to set if appending is not possible
+     */
+    public void appendItems(Item[] items, Item[] all) {
+        if (mUpdate != null && !mUpdate.isDisposed()) {
+            setItems(all);
+            return;
+        }
+        int start = mItems.size();
+        mSnapshot = mSnapshot.append(items);
+        mItems = mSnapshot.mItems;
+        mAdded = mSnapshot.mAdded;
+        mPromoted = mSnapshot.mPromoted;
+        if (mShowAll) {
+            notifyItemRangeInserted(start, mItems.size() - start);
+        }
+    }
+
+    /**
+     * Shows given stories right away, without highlighting, e.g. a persisted snapshot on first
+     * frame. Only meant for when there are no stories yet, as the update is computed on the
+     * calling thread.
+     *
+     * @param items stories to display
+     */
+    public void restoreItems(Item[] items) {
+        if (mUpdate != null) {
+            mUpdate.dispose();
+        }
+        applyUpdate(StoryListUpdate.compute(mItems, items, false));
+    }
+
+    @SuppressLint("NotifyDataSetChanged")
+    @Synthetic
+    void applyUpdate(StoryListUpdate update) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        mSnapshot = update;
+        mItems = update.mItems;
+        mAdded = update.mAdded;
+        mPromoted = update.mPromoted;
+        if (mShowAll && update.mDiff != null) {
+            update.mDiff.dispatchUpdatesTo(this);
+        } else { // showing only new stories, which have all changed
+            notifyDataSetChanged();
+        }
+        if (!mAdded.isEmpty()) {
+            notifyUpdated();
+        }
+        if (BuildConfig.DEBUG) {
+            android.util.Log.d("StoryRecyclerViewAdapter", "applyUpdate: count=" + mItems.size() +
+                    " in " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + "us");
         }
     }
 
@@ -354,8 +477,9 @@ public class StoryRecyclerViewAdapter extends
 
     @SuppressLint("NotifyDataSetChanged")
     public void initDisplayOptions(RecyclerView recyclerView) {
-        mHighlightUpdated = Preferences.highlightUpdatedEnabled(recyclerView.getContext());
-        mUsername = Preferences.getUsername(recyclerView.getContext());
+        Preferences.Snapshot preferences = mPreferenceStore.get();
+        mHighlightUpdated = preferences.highlightUpdatedEnabled();
+        mUsername = preferences.getUsername();
         if (isAttached()) {
             toggleAutoMarkAsViewed(recyclerView);
             notifyDataSetChanged();
@@ -376,6 +500,29 @@ public class StoryRecyclerViewAdapter extends
         toggleSave(mItems.get(position));
     }
 
+    /**
+     * Cancels pending item requests, so that items still loading are requested again
+     * next time they are bound.
+     */
+    private void cancelRequests() {
+        mHandler.removeCallbacks(mLoadRunnable);
+        mPendingCount = 0;
+        for (int i = 0; i < mRequests.size(); i++) {
+            Disposable disposable = mRequests.valueAt(i).mDisposable;
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        }
+        mRequests.clear();
+        mPendingRequest = new ItemsRequest();
+        for (int i = 0; i < mItems.size(); i++) {
+            Item item = mItems.get(i);
+            if (item.getLocalRevision() == 0) { // still loading
+                item.setLocalRevision(-1);
+            }
+        }
+    }
+
     @Override
     protected void loadItem(final int adapterPosition) {
         Item item = getItem(adapterPosition);
@@ -383,11 +530,47 @@ public class StoryRecyclerViewAdapter extends
             return;
         }
         item.setLocalRevision(0);
-        mPendingIds.add(item.getId());
+        if (mPendingCount == mPendingIds.length) {
+            mPendingIds = Arrays.copyOf(mPendingIds, mPendingCount * 2);
+        }
+        mPendingIds[mPendingCount++] = item.getLongId();
+        mRequests.put(item, mPendingRequest);
+        mPendingRequest.mRows.put(item, new ArraySet<>());
         mHandler.removeCallbacks(mLoadRunnable);
         mHandler.post(mLoadRunnable);
     }
 
+    /**
+     * Stops loading item of given row once it is no longer bound to any row, e.g. when flung
+     * out of view, so that it is requested again next time it is bound. Items not requested
+     * yet are dropped from next batch, while a batch already requested is cancelled once
+     * none of its items are still loading for a row.
+     */
+    private void cancel(ItemViewHolder holder, Item item) {
+        ItemsRequest request = mRequests.get(item);
+        ArraySet<ItemViewHolder> rows = request != null ? request.mRows.get(item) : null;
+        if (rows == null || !rows.remove(holder) || !rows.isEmpty()) {
+            return; // loaded, or still bound to another row, e.g. during change animation
+        }
+        request.mRows.remove(item);
+        mRequests.remove(item);
+        if (item.getLocalRevision() == 0) { // still loading
+            item.setLocalRevision(-1);
+        }
+        if (request.mDisposable == null) {
+            int index = 0;
+            while (index < mPendingCount && mPendingIds[index] != item.getLongId()) {
+                index++;
+            }
+            if (index < mPendingCount) {
+                System.arraycopy(mPendingIds, index + 1, mPendingIds, index,
+                        --mPendingCount - index);
+            }
+        } else if (request.mRows.isEmpty()) {
+            request.mDisposable.dispose();
+        }
+    }
+
     @Override
     protected void bindItem(final ItemViewHolder holder, int position) {
         final Item story = getItem(position);
@@ -424,61 +607,6 @@ public class StoryRecyclerViewAdapter extends
         return mCacheMode;
     }
 
-    private void setUpdated(Item[] items) {
-        if (!mHighlightUpdated || getItems() == null) {
-            return;
-        }
-        if (mItems.size() == 0) {
-            return;
-        }
-        mAdded.clear();
-        mPromoted.clear();
-        DiffUtil.calculateDiff(new DiffUtil.Callback() {
-            @Override
-            public int getOldListSize() {
-                return mItems.size();
-            }
-
-            @Override
-            public int getNewListSize() {
-                return items.length;
-            }
-
-            @Override
-            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                return mItems.get(oldItemPosition).getLongId() == items[newItemPosition].getLongId();
-            }
-
-            @Override
-            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                return areItemsTheSame(oldItemPosition, newItemPosition);
-            }
-        }).dispatchUpdatesTo(new ListUpdateCallback() {
-            @Override
-            public void onInserted(int position, int count) {
-                mAdded.add(items[position]);
-                notifyUpdated();
-            }
-
-            @Override
-            public void onRemoved(int position, int count) {
-                // no-op
-            }
-
-            @Override
-            public void onMoved(int fromPosition, int toPosition) {
-                if (toPosition < fromPosition) {
-                    mPromoted.put(mItems.get(fromPosition).getId(), fromPosition - toPosition);
-                }
-            }
-
-            @Override
-            public void onChanged(int position, int count, Object payload) {
-                // no-op
-            }
-        });
-    }
-
     @SuppressLint("NotifyDataSetChanged")
     @Synthetic
     void notifyUpdated() {
@@ -493,7 +621,7 @@ public class StoryRecyclerViewAdapter extends
 
     @Synthetic
     void onItemLoaded(Item item) {
-        int position = getItems().indexOf(item);
+        int position = mSnapshot.indexOf(item);
         if (BuildConfig.DEBUG) {
             android.util.Log.d("StoryRecyclerViewAdapter", "onItemLoaded: " + item.getId() + " at position " + position);
         }
@@ -503,12 +631,33 @@ public class StoryRecyclerViewAdapter extends
         }
     }
 
+    /**
+     * Populates items with a chunk of loaded items, notifying changes in one range
+     * that spans all updated positions.
+     */
     @Synthetic
-    void updateItem(Item loaded) {
-        Item existing = mItemMap.get(loaded.getId());
-        if (existing != null) {
-            existing.populate(loaded);
-            onItemLoaded(existing);
+    void updateItems(Item[] loaded) {
+        int first = Integer.MAX_VALUE, last = NO_POSITION;
+        for (Item item : loaded) {
+            Item existing = mSnapshot.mItemMap.get(item.getId());
+            if (existing == null) {
+                continue;
+            }
+            ItemsRequest request = mRequests.remove(existing);
+            if (request != null) {
+                request.mRows.remove(existing);
+            }
+            existing.populate(item);
+            int position = mSnapshot.indexOf(existing);
+            // ignore changes if item was invalidated by refresh / filter
+            if (position >= 0 && position < getItemCount()) {
+                first = Math.min(first, position);
+                last = Math.max(last, position);
+            }
+        }
+        if (last != NO_POSITION) {
+            // rows in between that are still loading are left as is when rebound
+            notifyItemRangeChanged(first, last - first + 1);
         }
     }
 
@@ -603,6 +752,11 @@ public class StoryRecyclerViewAdapter extends
         }
     }
 
+    @Synthetic
+    void onVoteQueued() {
+        Toast.makeText(mContext, R.string.vote_queued, Toast.LENGTH_SHORT).show();
+    }
+
     public void setCacheMode(int cacheMode) {
         mCacheMode = cacheMode;
     }
@@ -620,7 +774,7 @@ public class StoryRecyclerViewAdapter extends
     }
 
     private void toggleAutoMarkAsViewed(RecyclerView recyclerView) {
-        if (Preferences.autoMarkAsViewed(recyclerView.getContext())) {
+        if (mPreferenceStore.get().autoMarkAsViewed()) {
             recyclerView.addOnScrollListener(mAutoViewScrollListener);
         } else {
             recyclerView.removeOnScrollListener(mAutoViewScrollListener);
@@ -652,6 +806,16 @@ public class StoryRecyclerViewAdapter extends
         }
     }
 
+    /**
+     * A request for a batch of items, with rows bound to each of its items still loading.
+     * Rows are tracked rather than counted, so that a row released after its item has been
+     * loaded and requested again does not cancel the newer request.
+     */
+    static class ItemsRequest {
+        final ArrayMap<Item, ArraySet<ItemViewHolder>> mRows = new ArrayMap<>();
+        Disposable mDisposable;
+    }
+
     static class ItemsResponseListener implements ResponseListener<Item[]> {
         private final WeakReference<StoryRecyclerViewAdapter> mAdapter;
 
@@ -663,9 +827,7 @@ public class StoryRecyclerViewAdapter extends
         public void onResponse(Item[] items) {
             StoryRecyclerViewAdapter adapter = mAdapter.get();
             if (adapter != null && adapter.isAttached() && items != null) {
-                for (Item item : items) {
-                    adapter.updateItem(item);
-                }
+                adapter.updateItems(items);
             }
         }
 
@@ -705,6 +867,15 @@ public class StoryRecyclerViewAdapter extends
                 adapter.onVoted(adapter.getPosition(mItem), null);
             }
         }
+
+        @Override
+        public void onQueued() {
+            // vote stays pending until outbox sends it
+            StoryRecyclerViewAdapter adapter = mAdapter.get();
+            if (adapter != null && adapter.isAttached()) {
+                adapter.onVoteQueued();
+            }
+        }
     }
 
     static abstract class ItemTouchHelperCallback extends PeekabooTouchHelperCallback {
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+import io.github.sheepdestroyer.materialisheep.DataModule;
+import io.github.sheepdestroyer.materialisheep.data.Item;
+import io.github.sheepdestroyer.materialisheep.data.ItemRecordFile;
+import io.reactivex.rxjava3.core.Scheduler;
+
+/**
+ * Keeps comment thread state, i.e. loaded comments and expanded comments, out of saved
+ * instance state, which would otherwise hold every loaded comment and risk exceeding binder
+ * transaction limit on large threads. State is kept in memory for configuration changes, and
+ * on disk, keyed by item ID, for process death. Callers only need to save a flag telling
+ * whether state was put here.
+ */
+@Singleton
+public class ThreadStateStore {
+    private static final String TAG = "ThreadStateStore";
+    private static final String DIR = "comment_threads";
+    private static final int MAGIC = 0x54485244; // THRD
+    private static final int VERSION = 1;
+    private static final int MAX_CACHED = 4;
+    private static final int MAX_FILES = 16;
+    private final LruCache<String, SinglePageItemRecyclerViewAdapter.SavedState> mCache =
+            new LruCache<>(MAX_CACHED);
+    private final File mDir;
+    private final Scheduler mIoScheduler;
+
+    /**
+     * Constructs a new {@code ThreadStateStore}.
+     *
+     * @param context     the application context
+     * @param ioScheduler the scheduler to write state on
+     */
+    @Inject
+    public ThreadStateStore(Context context, @Named(DataModule.IO_THREAD) Scheduler ioScheduler) {
+        this(new File(context.getCacheDir(), DIR), ioScheduler);
+    }
+
+    @VisibleForTesting
+    ThreadStateStore(File dir, Scheduler ioScheduler) {
+        mDir = dir;
+        mIoScheduler = ioScheduler;
+    }
+
+    /**
+     * Saves thread state of given item. State is encoded right away, as its comments are
+     * only updated on main thread, and written to disk in background.
+     *
+     * @param itemId item ID
+     * @param state  thread state
+     */
+    @MainThread
+    public void put(@NonNull String itemId,
+                    @NonNull SinglePageItemRecyclerViewAdapter.SavedState state) {
+        mCache.put(itemId, state);
+        byte[] encoded = encode(state);
+        mIoScheduler.scheduleDirect(() -> write(itemId, encoded));
+    }
+
+    /**
+     * Gets thread state of given item, from memory if this process saved it, otherwise from
+     * disk. Disk state is memory mapped and only holds loaded comments, so it can be read on
+     * main thread to restore the thread before first layout.
+     *
+     * @param itemId item ID
+     * @param item   item whose comments are restored
+     * @return thread state, or null if none has been saved
+     */
+    @MainThread
+    @Nullable
+    public SinglePageItemRecyclerViewAdapter.SavedState get(@NonNull String itemId,
+                                                            @NonNull Item item) {
+        SinglePageItemRecyclerViewAdapter.SavedState state = mCache.get(itemId);
+        if (state != null) {
+            return state;
+        }
+        File file = getFile(itemId);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            state = read(file, item);
+            mCache.put(itemId, state);
+            return state;
+        } catch (IOException e) {
+            if (BuildConfig.DEBUG) {
+                Log.w(TAG, "Discarding thread state of " + itemId, e);
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Drops thread state of given item, e.g. once its thread is closed for good.
+     *
+     * @param itemId item ID
+     */
+    @MainThread
+    public void remove(@NonNull String itemId) {
+        mCache.remove(itemId);
+        File file = getFile(itemId);
+        mIoScheduler.scheduleDirect(file::delete);
+    }
+
+    /**
+     * Encodes expanded comment IDs, then loaded comments as an {@link ItemRecordFile}.
+     * Comments that are not loaded are recreated from their parent kid IDs on restore.
+     */
+    @VisibleForTesting
+    static byte[] encode(SinglePageItemRecyclerViewAdapter.SavedState state) {
+        List<Item> loaded = new ArrayList<>();
+        for (Item item : state.getItems()) {
+            if (item != null && item.getLocalRevision() > 0) {
+                loaded.add(item);
+            }
+        }
+        long[] expanded = state.getExpandedIds();
+        byte[] records = ItemRecordFile.encode(loaded);
+        ByteBuffer buffer = ByteBuffer.allocate(12 + expanded.length * 8 + records.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(expanded.length);
+        for (long id : expanded) {
+            buffer.putLong(id);
+        }
+        buffer.put(records);
+        return buffer.array();
+    }
+
+    /**
+     * Rebuilds thread state by walking comments from given item in display order, restoring
+     * loaded comments and expanding those that were expanded, as user would have.
+     */
+    @VisibleForTesting
+    static SinglePageItemRecyclerViewAdapter.SavedState decode(ByteBuffer buffer, Item item)
+            throws IOException {
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a thread state file");
+        }
+        int expandedCount = buffer.getInt();
+        if (expandedCount < 0 || expandedCount > buffer.remaining() / 8) {
+            throw new IOException("Corrupt thread state file");
+        }
+        Set<String> expanded = new HashSet<>();
+        for (int i = 0; i < expandedCount; i++) {
+            expanded.add(String.valueOf(buffer.getLong()));
+        }
+        ItemRecordFile records = ItemRecordFile.wrap(buffer);
+        SinglePageItemRecyclerViewAdapter.SavedState state =
+                new SinglePageItemRecyclerViewAdapter.SavedState(item);
+        for (int i = 0; i < state.size(); i++) { // grows as comments are expanded
+            Item comment = state.get(i);
+            if (comment == null) { // footer
+                continue;
+            }
+            ItemRecordFile.Record record = records.find(comment.getLongId());
+            if (record != null && record.isLoaded()) {
+                comment.populate(record.toItem());
+                state.store(comment);
+            }
+            if (expanded.contains(comment.getId())) {
+                state.expand(comment);
+            }
+        }
+        return state;
+    }
+
+    private SinglePageItemRecyclerViewAdapter.SavedState read(File file, Item item)
+            throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), item);
+        }
+    }
+
+    @WorkerThread
+    private void write(String itemId, byte[] encoded) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            return;
+        }
+        AtomicFile file = new AtomicFile(getFile(itemId));
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            stream.write(encoded);
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+            if (BuildConfig.DEBUG) {
+                Log.w(TAG, "Failed to save thread state of " + itemId, e);
+            }
+        }
+        prune();
+    }
+
+    /**
+     * Keeps only the most recently saved threads, as state is only useful to restore
+     * threads that were recently open.
+     */
+    @WorkerThread
+    private void prune() {
+        File[] files = mDir.listFiles();
+        if (files == null || files.length <= MAX_FILES) {
+            return;
+        }
+        Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+        for (int i = MAX_FILES; i < files.length; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+        }
+    }
+
+    private File getFile(String itemId) {
+        // item IDs are numeric, keep them file name safe anyway
+        return new File(mDir, itemId.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+}
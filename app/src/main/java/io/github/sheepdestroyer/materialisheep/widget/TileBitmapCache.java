@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An LRU cache of rendered PDF tiles, sized to a fraction of the memory available to the app.
+ * Evicted tiles are not left for garbage collection but pooled, up to {@link #MAX_POOL_SIZE},
+ * to be rendered into again, as all tiles share the same dimensions. Cache is only touched on
+ * main thread, where tiles are drawn, so that an evicted tile is never drawn while being
+ * rendered into again. Bitmaps are never recycled explicitly for the same reason.
+ * <p>
+ * Tiles drawn in current frame are tracked, so that prefetched tiles only take capacity left
+ * over by them, and never evict them.
+ */
+public class TileBitmapCache {
+    @VisibleForTesting
+    static final int MAX_POOL_SIZE = 6;
+    private static final int MEMORY_FRACTION = 8;
+    private static final int LOW_RAM_MEMORY_FRACTION = 16;
+    private final int mTileSize;
+    private final ArrayDeque<Bitmap> mPool = new ArrayDeque<>(MAX_POOL_SIZE);
+    private final LruCache<PdfTileRenderer.Tile, Bitmap> mCache;
+    // keys of cached tiles, to check for a tile without making it most recently drawn
+    private final Set<PdfTileRenderer.Tile> mKeys = new HashSet<>();
+    private final Set<PdfTileRenderer.Tile> mFrame = new HashSet<>();
+    private int mFrameBytes;
+
+    /**
+     * Creates a cache sized to memory available to the app, but large enough for a screenful
+     * of tiles, or visible tiles would evict each other.
+     *
+     * @param context  a context
+     * @param tileSize tile width and height in pixels
+     * @return a tile cache
+     */
+    public static TileBitmapCache create(Context context, int tileSize) {
+        ActivityManager activityManager = (ActivityManager)
+                context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager.getMemoryClass(); // in MB
+        int fraction = activityManager.isLowRamDevice() ?
+                LOW_RAM_MEMORY_FRACTION : MEMORY_FRACTION;
+        long maxBytes = Math.min(Runtime.getRuntime().maxMemory(),
+                memoryClass * 1024L * 1024L) / fraction;
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        // a screen spans one more tile each way unless aligned to tiles
+        long screenBytes = (long) (metrics.widthPixels / tileSize + 2) *
+                (metrics.heightPixels / tileSize + 2) * tileSize * tileSize * 4;
+        return new TileBitmapCache(tileSize, (int) Math.max(maxBytes, screenBytes));
+    }
+
+    @VisibleForTesting
+    TileBitmapCache(int tileSize, int maxBytes) {
+        mTileSize = tileSize;
+        // keep at least a couple of tiles, or nothing can be drawn
+        mCache = new LruCache<PdfTileRenderer.Tile, Bitmap>(
+                Math.max(maxBytes, 2 * tileSize * tileSize * 4)) {
+            @Override
+            protected int sizeOf(@NonNull PdfTileRenderer.Tile key, @NonNull Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, @NonNull PdfTileRenderer.Tile key,
+                                        @NonNull Bitmap oldValue, @Nullable Bitmap newValue) {
+                if (newValue == null) {
+                    mKeys.remove(key);
+                }
+                if (oldValue != newValue) {
+                    release(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Starts tracking tiles drawn in a new frame.
+     */
+    @MainThread
+    public void beginFrame() {
+        mFrame.clear();
+        mFrameBytes = 0;
+    }
+
+    /**
+     * Gets a rendered tile to draw in current frame.
+     *
+     * @param tile tile to get
+     * @return rendered tile bitmap, or null if not cached
+     */
+    @MainThread
+    @Nullable
+    public Bitmap get(@NonNull PdfTileRenderer.Tile tile) {
+        Bitmap bitmap = mCache.get(tile);
+        if (bitmap != null && mFrame.add(tile)) {
+            mFrameBytes += bitmap.getAllocationByteCount();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Checks if a tile is cached, without drawing it.
+     *
+     * @param tile tile to check
+     * @return true if cached, false otherwise
+     */
+    @MainThread
+    public boolean contains(@NonNull PdfTileRenderer.Tile tile) {
+        return mKeys.contains(tile);
+    }
+
+    /**
+     * Gets number of tiles that fit in capacity not taken by tiles drawn in current frame.
+     *
+     * @return number of tiles
+     */
+    @MainThread
+    public int getSpareTiles() {
+        return Math.max(0, mCache.maxSize() - mFrameBytes) / (mTileSize * mTileSize * 4);
+    }
+
+    /**
+     * Caches a rendered tile, evicting least recently drawn tiles if needed.
+     *
+     * @param tile   rendered tile
+     * @param bitmap tile bitmap, from {@link #obtain()}
+     */
+    @MainThread
+    public void put(@NonNull PdfTileRenderer.Tile tile, @NonNull Bitmap bitmap) {
+        mKeys.add(tile);
+        mCache.put(tile, bitmap);
+    }
+
+    /**
+     * Caches a prefetched tile, unless it would evict tiles drawn in current frame.
+     *
+     * @param tile   rendered tile
+     * @param bitmap tile bitmap, from {@link #obtain()}, released if tile is not cached
+     * @return true if cached, false otherwise
+     */
+    @MainThread
+    public boolean putPrefetched(@NonNull PdfTileRenderer.Tile tile, @NonNull Bitmap bitmap) {
+        int bytes = bitmap.getAllocationByteCount();
+        if (mCache.size() + bytes > mCache.maxSize()) {
+            if (mFrameBytes + bytes > mCache.maxSize()) {
+                release(bitmap);
+                return false;
+            }
+            // make tiles drawn in current frame most recently drawn, so others are evicted
+            for (PdfTileRenderer.Tile drawn : mFrame) {
+                mCache.get(drawn);
+            }
+        }
+        put(tile, bitmap);
+        return true;
+    }
+
+    /**
+     * Gets a bitmap to render a tile into, reusing a pooled one if possible.
+     *
+     * @return a mutable tile sized bitmap
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap obtain() {
+        Bitmap bitmap;
+        synchronized (mPool) {
+            bitmap = mPool.poll();
+        }
+        return bitmap != null ? bitmap :
+                Bitmap.createBitmap(mTileSize, mTileSize, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Returns a bitmap that will not be drawn anymore to pool.
+     *
+     * @param bitmap bitmap from {@link #obtain()}
+     */
+    public void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() ||
+                bitmap.getWidth() != mTileSize || bitmap.getHeight() != mTileSize) {
+            return;
+        }
+        synchronized (mPool) {
+            if (mPool.size() < MAX_POOL_SIZE) {
+                mPool.push(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Frees memory in response to {@link ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param level trim level
+     */
+    @MainThread
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+            synchronized (mPool) {
+                mPool.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops all tiles, pooled or cached.
+     */
+    @MainThread
+    public void clear() {
+        mCache.evictAll();
+        synchronized (mPool) {
+            mPool.clear();
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mCache.size();
+    }
+
+    @VisibleForTesting
+    int maxSize() {
+        return mCache.maxSize();
+    }
+
+    @VisibleForTesting
+    int poolSize() {
+        synchronized (mPool) {
+            return mPool.size();
+        }
+    }
+}
@@ -110,6 +110,14 @@ public class WebView extends android.webkit.WebView {
             }
         }
 
+        @Override
+        public void onPageCommitVisible(android.webkit.WebView view, String url) {
+            super.onPageCommitVisible(view, url);
+            if (mClient != null) {
+                mClient.onPageCommitVisible(view, url);
+            }
+        }
+
         @SuppressWarnings("deprecation")
         @Override
         public WebResourceResponse shouldInterceptRequest(android.webkit.WebView view, String url) {
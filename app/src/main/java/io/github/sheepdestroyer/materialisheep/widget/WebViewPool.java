@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.content.res.Configuration;
+import android.net.Uri;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+
+/**
+ * Application scoped pool of pre-initialised {@link CacheableWebView}s for article tabs, so
+ * that opening an article does not pay for creating a web view, the first of which also loads
+ * the web view implementation. Web views are created while the main thread is idle, against
+ * their own {@link MutableContextWrapper} pointed at the application until handed out.
+ * Web views are not returned to the pool after use, as they carry history and page state.
+ * <p>
+ * The pool can also preconnect to an article host before its article is opened: a hidden web
+ * view loads a {@code preconnect} hint for the host, so that DNS, TCP and TLS are done in the
+ * network stack that all web views of the app share.
+ */
+@Singleton
+public class WebViewPool {
+    private static final String TAG = "WebViewPool";
+    @VisibleForTesting
+    static final int POOL_SIZE = 2;
+    // unused preconnected sockets are closed after a few seconds, so do not count on them longer
+    @VisibleForTesting
+    static final long PRECONNECT_TTL_MILLIS = 10 * DateUtils.SECOND_IN_MILLIS;
+    private static final int MAX_PRECONNECTED_HOSTS = 16;
+    private static final String PRECONNECT_HTML =
+            "<link rel=\"dns-prefetch\" href=\"%1$s\"><link rel=\"preconnect\" href=\"%1$s\">";
+    private final Context mApplicationContext;
+    private final ArrayDeque<CacheableWebView> mPool = new ArrayDeque<>(POOL_SIZE);
+    private final LruCache<String, Long> mPreconnected = new LruCache<>(MAX_PRECONNECTED_HOSTS);
+    // total first paint time in ms and article count, by [prewarmed][preconnected]
+    private final long[][] mFirstPaintTotals = new long[2][2];
+    private final int[][] mFirstPaintCounts = new int[2][2];
+    private boolean mPrewarming;
+    private android.webkit.WebView mPreconnectView;
+
+    /**
+     * Constructs a new {@code WebViewPool}.
+     *
+     * @param context the application context
+     */
+    @Inject
+    public WebViewPool(Context context) {
+        mApplicationContext = context.getApplicationContext();
+        mApplicationContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                    clear();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+                // no-op
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * Creates web views next time the main thread is idle, one per idle period, until there
+     * are {@link #POOL_SIZE} spare ones.
+     */
+    @MainThread
+    public void prewarm() {
+        if (mPrewarming || mPool.size() >= POOL_SIZE) {
+            return;
+        }
+        mPrewarming = true;
+        Looper.myQueue().addIdleHandler(this::prewarmNext);
+    }
+
+    /**
+     * Checks if a prewarmed web view is available.
+     *
+     * @return true if {@link #acquire(Context)} will not create a web view, false otherwise
+     */
+    @MainThread
+    public boolean hasPrewarmed() {
+        return !mPool.isEmpty();
+    }
+
+    /**
+     * Gets a web view for given activity, using a prewarmed one if available, then prewarms
+     * another one for next time.
+     *
+     * @param context the hosting activity context
+     * @return a web view
+     */
+    @MainThread
+    @NonNull
+    public CacheableWebView acquire(@NonNull Context context) {
+        CacheableWebView webView = mPool.poll();
+        if (webView == null) {
+            webView = create(context);
+        } else {
+            ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+        }
+        prewarm();
+        return webView;
+    }
+
+    /**
+     * Preconnects to host of given URL, unless it has been preconnected recently.
+     *
+     * @param url URL about to be opened
+     */
+    @MainThread
+    public void preconnect(@Nullable String url) {
+        String origin = getOrigin(url);
+        if (origin == null || isPreconnected(url)) {
+            return;
+        }
+        mPreconnected.put(origin, SystemClock.elapsedRealtime());
+        if (mPreconnectView == null) {
+            mPreconnectView = new android.webkit.WebView(mApplicationContext);
+        }
+        mPreconnectView.loadDataWithBaseURL(null,
+                String.format(PRECONNECT_HTML, TextUtils.htmlEncode(origin)),
+                "text/html", "UTF-8", null);
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Preconnecting to " + origin);
+        }
+    }
+
+    /**
+     * Checks if host of given URL has been preconnected recently enough for its connection to
+     * still be open.
+     *
+     * @param url URL to check
+     * @return true if preconnected, false otherwise
+     */
+    @MainThread
+    public boolean isPreconnected(@Nullable String url) {
+        String origin = getOrigin(url);
+        Long time = origin != null ? mPreconnected.get(origin) : null;
+        return time != null && SystemClock.elapsedRealtime() - time < PRECONNECT_TTL_MILLIS;
+    }
+
+    /**
+     * Records time taken until an article first paints, to compare opening articles with and
+     * without a prewarmed web view and preconnected host. Averages are logged in debug builds.
+     *
+     * @param url          article URL
+     * @param elapsed      time from starting to load article until it first paints, in ms
+     * @param prewarmed    true if article was opened in a prewarmed web view
+     * @param preconnected true if article host had been preconnected
+     */
+    @MainThread
+    public void recordFirstPaint(@NonNull String url, long elapsed, boolean prewarmed,
+                                 boolean preconnected) {
+        int i = prewarmed ? 1 : 0, j = preconnected ? 1 : 0;
+        mFirstPaintTotals[i][j] += elapsed;
+        mFirstPaintCounts[i][j]++;
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, Uri.parse(url).getHost() + " first paint in " + elapsed + "ms" +
+                    (prewarmed ? ", prewarmed" : ", cold") +
+                    (preconnected ? ", preconnected" : ", not preconnected") +
+                    "; average " + getAverageFirstPaint(prewarmed, preconnected) + "ms over " +
+                    mFirstPaintCounts[i][j] + " articles, " +
+                    getAverageFirstPaint(false, false) + "ms cold and not preconnected");
+        }
+    }
+
+    /**
+     * Gets average time taken until articles first paint.
+     *
+     * @param prewarmed    true for articles opened in prewarmed web views
+     * @param preconnected true for articles with preconnected hosts
+     * @return average time in ms, or -1 if there are no such articles
+     */
+    @MainThread
+    public long getAverageFirstPaint(boolean prewarmed, boolean preconnected) {
+        int i = prewarmed ? 1 : 0, j = preconnected ? 1 : 0;
+        return mFirstPaintCounts[i][j] == 0 ? -1 :
+                mFirstPaintTotals[i][j] / mFirstPaintCounts[i][j];
+    }
+
+    /**
+     * Destroys spare web views, e.g. on memory pressure.
+     */
+    @MainThread
+    public void clear() {
+        CacheableWebView webView;
+        while ((webView = mPool.poll()) != null) {
+            webView.destroy();
+        }
+        if (mPreconnectView != null) {
+            mPreconnectView.destroy();
+            mPreconnectView = null;
+        }
+        mPreconnected.evictAll();
+    }
+
+    /**
+     * Creates a spare web view.
+     *
+     * @return true if more spare web views are needed, false otherwise
+     */
+    @VisibleForTesting
+    boolean prewarmNext() {
+        if (mPool.size() < POOL_SIZE) {
+            mPool.add(create(mApplicationContext));
+        }
+        mPrewarming = mPool.size() < POOL_SIZE;
+        return mPrewarming;
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mPool.size();
+    }
+
+    private static CacheableWebView create(Context context) {
+        CacheableWebView webView = new CacheableWebView(new MutableContextWrapper(context));
+        webView.setScrollBarStyle(android.view.View.SCROLLBARS_INSIDE_OVERLAY);
+        webView.setVerticalScrollBarEnabled(true);
+        webView.setFocusableInTouchMode(true);
+        return webView;
+    }
+
+    @Nullable
+    private static String getOrigin(@Nullable String url) {
+        if (TextUtils.isEmpty(url)) {
+            return null;
+        }
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        if (!"https".equalsIgnoreCase(scheme) && !"http".equalsIgnoreCase(scheme) ||
+                TextUtils.isEmpty(uri.getHost())) {
+            return null;
+        }
+        return scheme.toLowerCase(Locale.US) + "://" + uri.getHost() +
+                (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+    }
+}
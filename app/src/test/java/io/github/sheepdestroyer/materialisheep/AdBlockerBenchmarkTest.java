@@ -0,0 +1,193 @@
+package io.github.sheepdestroyer.materialisheep;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures {@link HostTrie} loaded from its compiled form against the object graph trie
+ * previously built from the hosts list at startup, JMH style: warmup iterations are discarded
+ * and the average time per operation is reported for measurement iterations.
+ */
+public class AdBlockerBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 20;
+    private static final int LOOKUPS = 100_000;
+
+    @Test
+    public void benchmark() throws IOException {
+        List<String> hosts = AdBlockerTest.readHosts();
+        byte[] compiled = HostTrieCompiler.compile(hosts);
+
+        long parseNanos = measure(() -> ObjectTrie.parse(hosts));
+        long wrapNanos = measure(() -> {
+            try {
+                HostTrie.wrap(ByteBuffer.wrap(compiled));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+
+        ObjectTrie objectTrie = ObjectTrie.parse(hosts);
+        HostTrie hostTrie = HostTrie.wrap(ByteBuffer.wrap(compiled));
+        String[] lookups = createLookups(hosts);
+        int expected = 0;
+        for (String host : lookups) {
+            boolean isAd = objectTrie.contains(host);
+            assertEquals(host, isAd, hostTrie.contains(host));
+            expected += isAd ? 1 : 0;
+        }
+        final int matches = expected;
+        long objectLookupNanos = measure(() -> assertEquals(matches, countMatches(objectTrie, lookups)));
+        long hostLookupNanos = measure(() -> assertEquals(matches, countMatches(hostTrie, lookups)));
+
+        System.out.println("Startup: object trie " + parseNanos / 1000 + " us, " +
+                "compiled trie " + wrapNanos / 1000 + " us");
+        System.out.println("Heap: object trie ~" + objectTrie.estimateSize() + " bytes in " +
+                objectTrie.countObjects() + " objects, compiled trie " + hostTrie.byteSize() +
+                " bytes in 1 buffer");
+        System.out.println("Lookup: object trie " + objectLookupNanos / LOOKUPS + " ns/op, " +
+                "compiled trie " + hostLookupNanos / LOOKUPS + " ns/op");
+    }
+
+    private static String[] createLookups(List<String> hosts) {
+        List<String> listed = new ArrayList<>();
+        for (String host : hosts) {
+            if (!host.trim().isEmpty()) {
+                listed.add(host.trim());
+            }
+        }
+        String[] others = {"news.ycombinator.com", "github.com", "www.google.com",
+                "cdn.example.org", "en.wikipedia.org", "static.doubleclick.example"};
+        Random random = new Random(42);
+        String[] lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    lookups[i] = listed.get(random.nextInt(listed.size()));
+                    break;
+                case 1:
+                    lookups[i] = "cdn" + i + "." + listed.get(random.nextInt(listed.size()));
+                    break;
+                default:
+                    lookups[i] = others[random.nextInt(others.length)];
+                    break;
+            }
+        }
+        return lookups;
+    }
+
+    private static int countMatches(ObjectTrie trie, String[] lookups) {
+        int count = 0;
+        for (String host : lookups) {
+            count += trie.contains(host) ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static int countMatches(HostTrie trie, String[] lookups) {
+        int count = 0;
+        for (String host : lookups) {
+            count += trie.contains(host) ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static long measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+
+    /**
+     * The trie of nodes with sorted child arrays that {@link AdBlocker} used to build.
+     */
+    private static class ObjectTrie {
+        char[] keys = new char[0];
+        ObjectTrie[] children = new ObjectTrie[0];
+        boolean isEnd;
+
+        static ObjectTrie parse(List<String> hosts) {
+            ObjectTrie root = new ObjectTrie();
+            for (String host : hosts) {
+                ObjectTrie node = root;
+                for (int i = host.length() - 1; i >= 0; i--) {
+                    node = node.getOrCreateChild(host.charAt(i));
+                }
+                node.isEnd = true;
+            }
+            return root;
+        }
+
+        boolean contains(String host) {
+            ObjectTrie node = this;
+            for (int i = host.length() - 1; i >= 0; i--) {
+                int index = Arrays.binarySearch(node.keys, host.charAt(i));
+                if (index < 0) {
+                    return false;
+                }
+                node = node.children[index];
+                if (node.isEnd && (i == 0 || host.charAt(i - 1) == '.')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return estimated retained size, assuming 12 byte object headers, compressed
+         * references and 8 byte alignment
+         */
+        long estimateSize() {
+            long size = align(12 + 4 + 4 + 1) + align(16 + 2L * keys.length) +
+                    align(16 + 4L * children.length);
+            for (ObjectTrie child : children) {
+                size += child.estimateSize();
+            }
+            return size;
+        }
+
+        long countObjects() {
+            long count = 3;
+            for (ObjectTrie child : children) {
+                count += child.countObjects();
+            }
+            return count;
+        }
+
+        private ObjectTrie getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insert = -(index + 1);
+            char[] newKeys = new char[keys.length + 1];
+            ObjectTrie[] newChildren = new ObjectTrie[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, keys.length - insert);
+            newKeys[insert] = c;
+            newChildren[insert] = new ObjectTrie();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insert];
+        }
+
+        private static long align(long size) {
+            return (size + 7) & ~7L;
+        }
+    }
+}
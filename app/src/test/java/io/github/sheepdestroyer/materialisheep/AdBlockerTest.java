@@ -2,16 +2,28 @@ package io.github.sheepdestroyer.materialisheep;
 
 import android.net.Uri;
 
+import androidx.test.core.app.ApplicationProvider;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import okio.Okio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -20,23 +32,18 @@ public class AdBlockerTest {
 
     @Before
     public void setUp() throws Exception {
-        // Reset AD_HOSTS to empty trie before each test
-        Field field = AdBlocker.class.getDeclaredField("AD_HOSTS");
-        field.setAccessible(true);
-        field.set(null, new AdBlocker.TrieNode());
+        // Reset hosts and path rules before each test
+        AdBlocker.setHosts(HostTrie.EMPTY);
+        AdBlocker.setPathRules(PathRules.EMPTY);
     }
 
     @Test
     public void testIsAd() throws Exception {
         // Setup mock hosts
-        AdBlocker.TrieNode root = new AdBlocker.TrieNode();
-        root.add("doubleclick.net");
-        root.add("ad.service.com");
+        HostTrie root = compile(Arrays.asList("doubleclick.net", "ad.service.com"));
 
         // Inject hosts
-        Field field = AdBlocker.class.getDeclaredField("AD_HOSTS");
-        field.setAccessible(true);
-        field.set(null, root);
+        AdBlocker.setHosts(root);
 
         // Test positive cases
         assertTrue("http://doubleclick.net should be ad", AdBlocker.isAd("http://doubleclick.net"));
@@ -59,14 +66,10 @@ public class AdBlockerTest {
     @Test
     public void testIsAdUri() throws Exception {
         // Setup mock hosts
-        AdBlocker.TrieNode root = new AdBlocker.TrieNode();
-        root.add("doubleclick.net");
-        root.add("ad.service.com");
+        HostTrie root = compile(Arrays.asList("doubleclick.net", "ad.service.com"));
 
         // Inject hosts
-        Field field = AdBlocker.class.getDeclaredField("AD_HOSTS");
-        field.setAccessible(true);
-        field.set(null, root);
+        AdBlocker.setHosts(root);
 
         // Test positive cases
         assertTrue("http://doubleclick.net should be ad", AdBlocker.isAd(Uri.parse("http://doubleclick.net")));
@@ -75,4 +78,91 @@ public class AdBlockerTest {
         // Test negative cases
         assertFalse("http://google.com should NOT be ad", AdBlocker.isAd(Uri.parse("http://google.com")));
     }
+
+    @Test
+    public void testIsAdCaseInsensitive() throws Exception {
+        AdBlocker.setHosts(compile(Collections.singletonList("DoubleClick.net")));
+
+        assertTrue(AdBlocker.isAd(Uri.parse("http://G.DOUBLECLICK.NET")));
+        assertFalse(AdBlocker.isAd(Uri.parse("http://d\u00f3ubleclick.net")));
+    }
+
+    @Test
+    public void testCachedDecisionsReplacedWithHosts() throws Exception {
+        AdBlocker.setHosts(compile(Collections.singletonList("doubleclick.net")));
+        assertTrue(AdBlocker.isAd("http://g.doubleclick.net"));
+        AdBlocker.setHosts(HostTrie.EMPTY);
+        assertFalse(AdBlocker.isAd("http://g.doubleclick.net"));
+    }
+
+    @Test
+    public void testIsAdPath() {
+        AdBlocker.setPathRules(PathRules.compile(Arrays.asList(
+                "! comment", "/pagead/", "|/adframe.", "&ad_type=^", "/banners/",
+                "/ad[0-9]/", "/prebid/", "||ads.example.com^", "@@/pagead/ok", "example.com##.ad")));
+
+        assertTrue(AdBlocker.isAdPath(Uri.parse("https://example.com/PageAd/show.js")));
+        assertTrue(AdBlocker.isAdPath(Uri.parse("https://example.com/x/adframe.html")));
+        assertTrue(AdBlocker.isAdPath(Uri.parse("https://example.com/x?a=1&ad_type=2")));
+        assertTrue(AdBlocker.isAdPath(Uri.parse("https://example.com/img/banners/1.png")));
+        assertFalse(AdBlocker.isAdPath(Uri.parse("https://example.com/ad1/x")));
+        assertFalse(AdBlocker.isAdPath(Uri.parse("https://ads.example.com/x")));
+        assertFalse(AdBlocker.isAdPath(Uri.parse("https://example.com/pageadx")));
+        assertFalse(AdBlocker.isAdPath(Uri.parse("https://example.com/js/prebidder.js")));
+        assertFalse(AdBlocker.isAdPath(Uri.parse("https://example.com/")));
+    }
+
+    @Test
+    public void testPathRulesOverlapping() {
+        PathRules rules = PathRules.compile(Arrays.asList("he", "she", "hers", "abcd", "bc"));
+        assertTrue(rules.matches("ushers"));
+        assertTrue(rules.matches("xabce"));
+        assertFalse(rules.matches("abx"));
+        assertFalse(rules.matches("sh"));
+        assertFalse(PathRules.EMPTY.matches("anything"));
+    }
+
+    @Test
+    public void testCompiledAsset() throws Exception {
+        List<String> hosts = readHosts();
+        // asset is written by the compileAdHosts task with the same compiler
+        try (InputStream asset = ApplicationProvider.getApplicationContext().getAssets()
+                .open("pgl.yoyo.org.bin")) {
+            assertArrayEquals(HostTrieCompiler.compile(hosts), Okio.buffer(Okio.source(asset))
+                    .readByteArray());
+        }
+        HostTrie expected = compile(hosts);
+        HostTrie actual = AdBlocker.loadFromAssets(ApplicationProvider.getApplicationContext());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.byteSize(), actual.byteSize());
+        for (String host : hosts) {
+            if (!host.trim().isEmpty()) {
+                assertTrue(host, actual.contains(host.trim()));
+            }
+        }
+        assertFalse(actual.contains("news.ycombinator.com"));
+    }
+
+    @Test
+    public void testEmptyTrie() throws Exception {
+        HostTrie compiled = compile(Collections.emptyList());
+        assertEquals(compiled.size(), HostTrie.EMPTY.size());
+        assertEquals(compiled.byteSize(), HostTrie.EMPTY.byteSize());
+        assertFalse(HostTrie.EMPTY.contains("doubleclick.net"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptTrie() throws Exception {
+        byte[] bytes = HostTrieCompiler.compile(Collections.singletonList("doubleclick.net"));
+        HostTrie.wrap(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+    }
+
+    static HostTrie compile(Iterable<String> hosts) throws IOException {
+        return HostTrie.wrap(ByteBuffer.wrap(HostTrieCompiler.compile(hosts)));
+    }
+
+    static List<String> readHosts() throws IOException {
+        // unit tests run from module directory
+        return Files.readAllLines(Paths.get("src", "main", "hosts", "pgl.yoyo.org.txt"));
+    }
 }
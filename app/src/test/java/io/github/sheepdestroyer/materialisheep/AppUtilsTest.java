@@ -1,6 +1,8 @@
 package io.github.sheepdestroyer.materialisheep;
 
+import android.accounts.Account;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Point;
 import android.graphics.Rect;
@@ -17,13 +19,19 @@ import androidx.test.core.app.ApplicationProvider;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.RETURNS_SELF;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -59,6 +67,33 @@ public class AppUtilsTest {
         assertFalse(AppUtils.isLowBattery(context));
     }
 
+    @Test
+    public void testRemoveAccountClearsSession() {
+        MaterialisticApplication application = ApplicationProvider.getApplicationContext();
+        application.applicationComponent = mock(ApplicationComponent.class);
+        SessionCookieJar cookieJar = mock(SessionCookieJar.class);
+        when(application.applicationComponent.sessionCookieJar()).thenReturn(cookieJar);
+        when(cookieJar.hasSession("username")).thenReturn(true);
+        AlertDialogBuilder alertDialogBuilder = mock(AlertDialogBuilder.class, RETURNS_SELF);
+        AppUtils.showAccountChooser(application, alertDialogBuilder, new Account[]{
+                new Account("username", BuildConfig.APPLICATION_ID),
+                new Account("other", BuildConfig.APPLICATION_ID)});
+        ArgumentCaptor<DialogInterface.OnClickListener> captor =
+                ArgumentCaptor.forClass(DialogInterface.OnClickListener.class);
+        verify(alertDialogBuilder).setNeutralButton(anyInt(), captor.capture());
+        DialogInterface.OnClickListener listener = captor.getValue();
+        DialogInterface dialog = mock(DialogInterface.class);
+
+        // session of another account is kept
+        listener.onClick(dialog, 1);
+        listener.onClick(dialog, DialogInterface.BUTTON_NEUTRAL);
+        verify(cookieJar, never()).clear();
+
+        listener.onClick(dialog, 0);
+        listener.onClick(dialog, DialogInterface.BUTTON_NEUTRAL);
+        verify(cookieJar).clear();
+    }
+
     @Test
     public void testHasConnection() {
         Context context = ApplicationProvider.getApplicationContext();
@@ -3,11 +3,17 @@ package io.github.sheepdestroyer.materialisheep;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.RETURNS_SELF;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.content.DialogInterface;
+
 import androidx.fragment.app.Fragment;
 import androidx.test.core.app.ActivityScenario;
 import androidx.test.core.app.ApplicationProvider;
@@ -15,21 +21,29 @@ import androidx.test.core.app.ApplicationProvider;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
 
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar;
 import io.github.sheepdestroyer.materialisheep.data.FileDownloader;
 import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.ReadabilityClient;
 import io.github.sheepdestroyer.materialisheep.data.SessionManager;
+import io.github.sheepdestroyer.materialisheep.data.StorySnapshotStore;
 import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import androidx.appcompat.widget.SearchView;
 import android.view.MenuItem;
 
+import io.github.sheepdestroyer.materialisheep.widget.NavFloatingActionButton;
 import io.github.sheepdestroyer.materialisheep.widget.PopupMenu;
+import io.github.sheepdestroyer.materialisheep.widget.SharedViewPool;
+import io.github.sheepdestroyer.materialisheep.widget.StoryRecyclerViewAdapter;
+import io.github.sheepdestroyer.materialisheep.widget.WebViewPool;
 import io.reactivex.rxjava3.core.Scheduler;
 
 @RunWith(RobolectricTestRunner.class)
@@ -43,6 +57,7 @@ public class BaseListActivityTest {
         MockitoAnnotations.openMocks(this);
         MaterialisticApplication application = ApplicationProvider.getApplicationContext();
         application.applicationComponent = applicationComponent;
+        PreferenceStore preferenceStore = new PreferenceStore(application);
 
         org.mockito.Mockito.doAnswer(invocation -> {
             ListActivity activity = invocation.getArgument(0);
@@ -55,6 +70,9 @@ public class BaseListActivityTest {
             activity.mSessionManager = mock(SessionManager.class);
             activity.mCustomTabsDelegate = mock(CustomTabsDelegate.class);
             activity.mKeyDelegate = mock(KeyDelegate.class);
+            activity.mAlertDialogBuilder = mock(AlertDialogBuilder.class, RETURNS_SELF);
+            activity.mSessionCookieJar = mock(SessionCookieJar.class);
+            activity.mPreferenceStore = preferenceStore;
             return null;
         }).when(applicationComponent).inject(any(ListActivity.class));
 
@@ -65,21 +83,39 @@ public class BaseListActivityTest {
             fragment.mAlgoliaItemManager = mock(ItemManager.class);
             fragment.mPopularItemManager = mock(ItemManager.class);
             fragment.mIoThreadScheduler = mock(Scheduler.class);
+            fragment.mViewPool = mock(SharedViewPool.class);
+            fragment.mSnapshotStore = mock(StorySnapshotStore.class);
+            fragment.mPreferenceStore = preferenceStore;
             return null;
         }).when(applicationComponent).inject(any(ListFragment.class));
 
         org.mockito.Mockito.doAnswer(invocation -> {
             ItemFragment fragment = invocation.getArgument(0);
             fragment.mItemManager = mock(ItemManager.class);
+            fragment.mViewPool = mock(SharedViewPool.class);
+            fragment.mPreferenceStore = preferenceStore;
             return null;
         }).when(applicationComponent).inject(any(ItemFragment.class));
 
+        // widget fields are package private, set them reflectively
+        org.mockito.Mockito.doAnswer(invocation -> {
+            ReflectionHelpers.setField(invocation.getArgument(0), "mPreferenceStore", preferenceStore);
+            return null;
+        }).when(applicationComponent).inject(any(StoryRecyclerViewAdapter.class));
+
+        org.mockito.Mockito.doAnswer(invocation -> {
+            ReflectionHelpers.setField(invocation.getArgument(0), "mPreferenceStore", preferenceStore);
+            return null;
+        }).when(applicationComponent).inject(any(NavFloatingActionButton.class));
+
         org.mockito.Mockito.doAnswer(invocation -> {
             WebFragment fragment = invocation.getArgument(0);
             fragment.mItemManager = mock(ItemManager.class);
             fragment.mPopupMenu = mock(PopupMenu.class);
             fragment.mReadabilityClient = mock(ReadabilityClient.class);
             fragment.mFileDownloader = mock(FileDownloader.class);
+            fragment.mWebViewPool = new WebViewPool(fragment.requireContext());
+            fragment.mPreferenceStore = preferenceStore;
             return null;
         }).when(applicationComponent).inject(any(WebFragment.class));
     }
@@ -96,6 +132,24 @@ public class BaseListActivityTest {
         }
     }
 
+    @Test
+    public void testLogoutClearsSession() {
+        Preferences.setUsername(ApplicationProvider.getApplicationContext(), "username");
+        try (ActivityScenario<ListActivity> scenario = ActivityScenario.launch(ListActivity.class)) {
+            scenario.onActivity(activity -> {
+                activity.findViewById(R.id.drawer_logout).performClick();
+                ArgumentCaptor<DialogInterface.OnClickListener> listener =
+                        ArgumentCaptor.forClass(DialogInterface.OnClickListener.class);
+                verify(activity.mAlertDialogBuilder)
+                        .setPositiveButton(anyInt(), listener.capture());
+                listener.getValue().onClick(mock(DialogInterface.class),
+                        DialogInterface.BUTTON_POSITIVE);
+                verify(activity.mSessionCookieJar).clear();
+                assertNull(Preferences.getUsername(activity));
+            });
+        }
+    }
+
     @Test
     @Config(qualifiers = "w820dp-land")
     public void testGetScrollableList_Landscape_NoSelection() {
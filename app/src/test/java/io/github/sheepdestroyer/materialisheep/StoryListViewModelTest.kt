@@ -2,12 +2,14 @@ package io.github.sheepdestroyer.materialisheep
 
 import io.github.sheepdestroyer.materialisheep.data.Item
 import io.github.sheepdestroyer.materialisheep.data.ItemManager
+import io.github.sheepdestroyer.materialisheep.data.PagedItemManager
 import kotlinx.coroutines.Dispatchers
 import org.junit.Assert.*
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.mockito.Mock
+import org.mockito.Mockito.mock
 import org.mockito.Mockito.`when`
 import org.mockito.MockitoAnnotations
 import org.robolectric.RobolectricTestRunner
@@ -105,4 +107,52 @@ class StoryListViewModelTest {
         org.mockito.Mockito.verify(itemManager, org.mockito.Mockito.times(1)).getStories("filter", ItemManager.MODE_DEFAULT)
     }
 
+    @Test
+    fun loadMore_appends_next_page_without_duplicates() {
+        // Arrange
+        val pagedItemManager = mock(PagedItemManager::class.java)
+        val pageSize = PagedItemManager.PAGE_SIZE
+        `when`(pagedItemManager.getStories("filter", 0, pageSize, ItemManager.MODE_DEFAULT))
+            .thenReturn(stories(0, pageSize))
+        // last story of page 0 shifted to page 1
+        `when`(pagedItemManager.getStories("filter", 1, pageSize, ItemManager.MODE_DEFAULT))
+            .thenReturn(stories(pageSize - 1, 5))
+        viewModel = StoryListViewModel(pagedItemManager, testDispatcher)
+
+        // Act
+        viewModel.getStories("filter", ItemManager.MODE_DEFAULT)
+        ShadowLooper.idleMainLooper()
+        viewModel.loadMore("filter", ItemManager.MODE_DEFAULT)
+        ShadowLooper.idleMainLooper()
+
+        // Assert
+        val state = viewModel.stories.value
+        assertEquals(pageSize + 4, state.current?.size)
+        assertEquals(pageSize, state.previous?.size)
+        assertEquals(4, state.appended?.size)
+        assertEquals((pageSize + 1).toString(), state.appended?.get(0)?.id)
+
+        // Act - last page loaded, no more requests
+        viewModel.loadMore("filter", ItemManager.MODE_DEFAULT)
+        ShadowLooper.idleMainLooper()
+        org.mockito.Mockito.verify(pagedItemManager, org.mockito.Mockito.never())
+            .getStories("filter", 2, pageSize, ItemManager.MODE_DEFAULT)
+    }
+
+    @Test
+    fun loadMore_does_nothing_if_not_paged() {
+        `when`(itemManager.getStories("filter", ItemManager.MODE_DEFAULT)).thenReturn(arrayOf(item))
+        viewModel.getStories("filter", ItemManager.MODE_DEFAULT)
+        ShadowLooper.idleMainLooper()
+
+        viewModel.loadMore("filter", ItemManager.MODE_DEFAULT)
+        ShadowLooper.idleMainLooper()
+
+        assertEquals(1, viewModel.stories.value.current?.size)
+        assertNull(viewModel.stories.value.appended)
+    }
+
+    private fun stories(start: Int, count: Int): Array<Item> = Array(count) { i ->
+        mock(Item::class.java).also { `when`(it.id).thenReturn((start + i + 1).toString()) }
+    }
 }
@@ -25,6 +25,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
 public class SubmitActivityTest {
@@ -40,12 +41,14 @@ public class SubmitActivityTest {
         MockitoAnnotations.openMocks(this);
         MaterialisticApplication application = ApplicationProvider.getApplicationContext();
         application.applicationComponent = applicationComponent;
+        PreferenceStore preferenceStore = new PreferenceStore(application);
 
         // Mock injection
         org.mockito.Mockito.doAnswer(invocation -> {
             SubmitActivity activity = invocation.getArgument(0);
             activity.mUserServices = userServices;
             activity.mAlertDialogBuilder = alertDialogBuilder;
+            activity.mPreferenceStore = preferenceStore;
             return null;
         }).when(applicationComponent).inject(any(SubmitActivity.class));
     }
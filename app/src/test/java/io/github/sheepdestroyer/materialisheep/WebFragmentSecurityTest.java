@@ -23,6 +23,7 @@ import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.ReadabilityClient;
 import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import io.github.sheepdestroyer.materialisheep.widget.PopupMenu;
+import io.github.sheepdestroyer.materialisheep.widget.WebViewPool;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(application = MaterialisticApplication.class)
@@ -45,6 +46,7 @@ public class WebFragmentSecurityTest {
         mockFileDownloader = mock(FileDownloader.class);
 
         app.applicationComponent = mockComponent;
+        PreferenceStore preferenceStore = new PreferenceStore(app);
 
         doAnswer(invocation -> {
             WebFragment fragment = invocation.getArgument(0);
@@ -52,6 +54,8 @@ public class WebFragmentSecurityTest {
             fragment.mPopupMenu = mockPopupMenu;
             fragment.mReadabilityClient = mockReadabilityClient;
             fragment.mFileDownloader = mockFileDownloader;
+            fragment.mWebViewPool = new WebViewPool(fragment.requireContext());
+            fragment.mPreferenceStore = preferenceStore;
             return null;
         }).when(mockComponent).inject(any(WebFragment.class));
 
@@ -21,6 +21,7 @@ import io.github.sheepdestroyer.materialisheep.data.ItemManager;
 import io.github.sheepdestroyer.materialisheep.data.ReadabilityClient;
 import io.github.sheepdestroyer.materialisheep.data.WebItem;
 import io.github.sheepdestroyer.materialisheep.widget.PopupMenu;
+import io.github.sheepdestroyer.materialisheep.widget.WebViewPool;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(application = MaterialisticApplication.class)
@@ -42,6 +43,7 @@ public class WebFragmentTest {
         mockFileDownloader = mock(FileDownloader.class);
 
         app.applicationComponent = mockComponent;
+        PreferenceStore preferenceStore = new PreferenceStore(app);
 
         doAnswer(invocation -> {
             WebFragment fragment = invocation.getArgument(0);
@@ -49,6 +51,8 @@ public class WebFragmentTest {
             fragment.mPopupMenu = mockPopupMenu;
             fragment.mReadabilityClient = mockReadabilityClient;
             fragment.mFileDownloader = mockFileDownloader;
+            fragment.mWebViewPool = new WebViewPool(fragment.requireContext());
+            fragment.mPreferenceStore = preferenceStore;
             return null;
         }).when(mockComponent).inject(any(WebFragment.class));
     }
@@ -0,0 +1,351 @@
+package io.github.sheepdestroyer.materialisheep.accounts;
+
+import android.accounts.Account;
+import android.accounts.AccountManager;
+import android.content.Context;
+
+import android.app.job.JobScheduler;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import io.github.sheepdestroyer.materialisheep.BuildConfig;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
+import io.github.sheepdestroyer.materialisheep.Preferences;
+import io.github.sheepdestroyer.materialisheep.data.MaterialisticDatabase;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserServicesClientTest {
+    private static final String USERNAME = "username";
+    private static final String OTHER_USERNAME = "other";
+    private static final String PASSWORD = "password";
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private final HackerNewsDispatcher mDispatcher = new HackerNewsDispatcher();
+    private final MockWebServer mServer = new MockWebServer();
+    private Context mContext;
+    private SecretKey mKey;
+    private SessionCookieJar mCookieJar;
+    private MaterialisticDatabase mDatabase;
+    private UserActionOutbox mOutbox;
+    private UserServicesClient mClient;
+
+    @Before
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        mServer.setDispatcher(mDispatcher);
+        mServer.start();
+        mContext = ApplicationProvider.getApplicationContext();
+        Preferences.setUsername(mContext, USERNAME);
+        AccountManager.get(mContext).addAccountExplicitly(
+                new Account(USERNAME, BuildConfig.APPLICATION_ID), PASSWORD, null);
+        AccountManager.get(mContext).addAccountExplicitly(
+                new Account(OTHER_USERNAME, BuildConfig.APPLICATION_ID), PASSWORD, null);
+        mDatabase = Room.inMemoryDatabaseBuilder(mContext, MaterialisticDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        mOutbox = new UserActionOutbox(mContext, mDatabase.getOutboxDao(),
+                new PreferenceStore(mContext));
+        mKey = createKey();
+        mCookieJar = new SessionCookieJar(new File(mFolder.getRoot(), SessionCookieJar.FILE_NAME),
+                mServer.getHostName(), mKey);
+        mClient = createClient(mCookieJar);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        mDatabase.close();
+    }
+
+    @Test
+    public void testSessionReused() {
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        assertTrue(mClient.voteUp(mContext, "1", callback));
+        assertTrue(mClient.voteUp(mContext, "2", callback));
+        mClient.reply(mContext, "1", "reply", callback);
+        ShadowLooper.idleMainLooper();
+        verify(callback, times(3)).onDone(true);
+        assertEquals(3, mDispatcher.mRequests);
+        assertEquals(1, mDispatcher.mLogins);
+        assertTrue(mCookieJar.hasSession(USERNAME));
+    }
+
+    @Test
+    public void testSessionPersisted() throws NoSuchAlgorithmException {
+        mClient.voteUp(mContext, "1", mock(UserServices.Callback.class));
+        File file = new File(mFolder.getRoot(), SessionCookieJar.FILE_NAME);
+        assertTrue(file.exists());
+        assertFalse(new String(readFully(file)).contains(mDispatcher.mToken)); // encrypted
+
+        // same key, e.g. process restart
+        SessionCookieJar restored = new SessionCookieJar(file, mServer.getHostName(), mKey);
+        assertTrue(restored.hasSession(USERNAME));
+        assertFalse(restored.hasSession("other"));
+        createClient(restored).voteUp(mContext, "2", mock(UserServices.Callback.class));
+        assertEquals(2, mDispatcher.mRequests);
+        assertEquals(1, mDispatcher.mLogins);
+
+        // different key, e.g. keystore reset
+        SessionCookieJar jar = new SessionCookieJar(file, mServer.getHostName(), createKey());
+        assertFalse(jar.hasSession(USERNAME));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testReauthenticateOnExpiredSession() {
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        mClient.voteUp(mContext, "1", callback);
+        mDispatcher.mToken = "renewed";
+        mClient.reply(mContext, "1", "reply", callback);
+        ShadowLooper.idleMainLooper();
+        verify(callback, times(2)).onDone(true);
+        // vote, reply by expired session, reply by credentials
+        assertEquals(3, mDispatcher.mRequests);
+        assertEquals(2, mDispatcher.mLogins);
+        mClient.voteUp(mContext, "2", callback);
+        assertEquals(2, mDispatcher.mLogins);
+    }
+
+    @Test
+    public void testSubmitCachesFnid() {
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        mClient.submit(mContext, "title", "https://example.com", true, callback);
+        mClient.submit(mContext, "title", "text", false, callback);
+        ShadowLooper.idleMainLooper();
+        verify(callback, times(2)).onDone(true);
+        // submit form, submission, submission with cached fnid
+        assertEquals(3, mDispatcher.mRequests);
+        assertEquals(1, mDispatcher.mLogins);
+    }
+
+    @Test
+    public void testSubmitStaleFnid() {
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        mClient.submit(mContext, "title", "https://example.com", true, callback);
+        mDispatcher.mFnid = "renewed";
+        mClient.submit(mContext, "title", "text", false, callback);
+        ShadowLooper.idleMainLooper();
+        verify(callback, times(2)).onDone(true);
+        // submit form, submission, stale submission, submit form by session, submission
+        assertEquals(5, mDispatcher.mRequests);
+        assertEquals(1, mDispatcher.mLogins);
+    }
+
+    @Test
+    public void testRoundTrips() throws NoSuchAlgorithmException {
+        // a jar for another host keeps no session, i.e. credentials are posted every time
+        int[] before = runActions(createClient(new SessionCookieJar(
+                new File(mFolder.getRoot(), "before"), "news.ycombinator.com", createKey())));
+        int[] after = runActions(mClient);
+        System.out.println("Before: " + before[0] + " round trips, " + before[1] + " logins");
+        System.out.println("After: " + after[0] + " round trips, " + after[1] + " logins");
+        assertEquals(13, before[0]);
+        assertEquals(10, before[1]);
+        assertEquals(11, after[0]);
+        assertEquals(1, after[1]);
+    }
+
+    @Test
+    public void testQueuedWhileOffline() {
+        UserServicesClient offline = createOfflineClient();
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        offline.voteUp(mContext, "1", callback);
+        offline.voteUp(mContext, "1", callback); // same vote, queued once
+        offline.reply(mContext, "2", "reply", callback);
+        ShadowLooper.idleMainLooper();
+        verify(callback, times(3)).onQueued();
+        assertTrue(mOutbox.hasPendingVote("1"));
+        assertFalse(mOutbox.hasPendingVote("2"));
+        JobScheduler jobScheduler = (JobScheduler) mContext.getSystemService(
+                Context.JOB_SCHEDULER_SERVICE);
+        assertEquals(UserActionOutbox.JOB_ID,
+                shadowOf(jobScheduler).getAllPendingJobs().get(0).getId());
+
+        UserServices.Callback flushCallback = mock(UserServices.Callback.class);
+        mClient.flush(mContext, flushCallback);
+        ShadowLooper.idleMainLooper();
+        verify(flushCallback).onDone(true);
+        // vote by credentials, reply by session
+        assertEquals(2, mDispatcher.mRequests);
+        assertEquals(1, mDispatcher.mLogins);
+        assertTrue(mOutbox.isEmpty());
+        assertFalse(mOutbox.hasPendingVote("1"));
+    }
+
+    @Test
+    public void testFlushBacksOff() {
+        UserServicesClient offline = createOfflineClient();
+        offline.voteUp(mContext, "1", mock(UserServices.Callback.class));
+        UserServices.Callback flushCallback = mock(UserServices.Callback.class);
+        offline.flush(mContext, flushCallback);
+        ShadowLooper.idleMainLooper();
+        verify(flushCallback).onDone(false);
+        assertTrue(mOutbox.getDue().isEmpty()); // backed off
+        assertTrue(mOutbox.hasPendingVote("1"));
+    }
+
+    @Test
+    public void testFlushBatchesByAccount() {
+        UserServicesClient offline = createOfflineClient();
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        offline.voteUp(mContext, "1", callback);
+        Preferences.setUsername(mContext, OTHER_USERNAME);
+        offline.voteUp(mContext, "2", callback);
+        offline.reply(mContext, "2", "reply", callback);
+        Preferences.setUsername(mContext, USERNAME);
+        offline.reply(mContext, "1", "reply", callback);
+
+        UserServices.Callback flushCallback = mock(UserServices.Callback.class);
+        mClient.flush(mContext, flushCallback);
+        ShadowLooper.idleMainLooper();
+        verify(flushCallback).onDone(true);
+        // one login per account, the rest of its batch by session
+        assertEquals(4, mDispatcher.mRequests);
+        assertEquals(2, mDispatcher.mLogins);
+        assertTrue(mCookieJar.hasSession(USERNAME));
+    }
+
+    @Test
+    public void testPendingVoteNotBlockedByFlush() {
+        createOfflineClient().voteUp(mContext, "1", mock(UserServices.Callback.class));
+        boolean[] pending = new boolean[1];
+        // looked up from another thread while flush waits for server
+        mDispatcher.mOnRequest = () -> pending[0] = mOutbox.hasPendingVote("1");
+
+        UserServices.Callback flushCallback = mock(UserServices.Callback.class);
+        mClient.flush(mContext, flushCallback);
+        ShadowLooper.idleMainLooper();
+        verify(flushCallback).onDone(true);
+        assertTrue(pending[0]);
+    }
+
+    private int[] runActions(UserServicesClient client) {
+        int requests = mDispatcher.mRequests, logins = mDispatcher.mLogins;
+        UserServices.Callback callback = mock(UserServices.Callback.class);
+        for (int i = 0; i < 5; i++) {
+            client.voteUp(mContext, String.valueOf(i), callback);
+        }
+        for (int i = 0; i < 2; i++) {
+            client.reply(mContext, String.valueOf(i), "reply", callback);
+        }
+        for (int i = 0; i < 3; i++) {
+            client.submit(mContext, "title", "https://example.com/" + i, true, callback);
+        }
+        ShadowLooper.idleMainLooper();
+        verify(callback, times(10)).onDone(true);
+        return new int[]{mDispatcher.mRequests - requests, mDispatcher.mLogins - logins};
+    }
+
+    private UserServicesClient createClient(SessionCookieJar cookieJar) {
+        return createClient(cookieJar, mServer.url("/"));
+    }
+
+    private UserServicesClient createOfflineClient() {
+        // nothing listens on port 1
+        return createClient(mCookieJar, new HttpUrl.Builder()
+                .scheme("http")
+                .host(mServer.getHostName())
+                .port(1)
+                .build());
+    }
+
+    private UserServicesClient createClient(SessionCookieJar cookieJar, HttpUrl baseUrl) {
+        return new UserServicesClient(new OkHttpClient.Builder()
+                .cookieJar(cookieJar)
+                .followRedirects(false)
+                .build(), Schedulers.trampoline(), cookieJar, mOutbox, baseUrl);
+    }
+
+    private static SecretKey createKey() throws NoSuchAlgorithmException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+
+    private static byte[] readFully(File file) {
+        try {
+            return java.nio.file.Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Stands in for news.ycombinator.com: posted credentials start a session, actions by an
+     * unknown session get a login form, and submissions need the current fnid.
+     */
+    private static class HackerNewsDispatcher extends Dispatcher {
+        private static final Pattern PATTERN_ACCT = Pattern.compile("acct=([^&]+)");
+        volatile String mToken = "token";
+        volatile String mFnid = "fnid";
+        volatile int mRequests;
+        volatile int mLogins;
+        volatile Runnable mOnRequest;
+
+        @NonNull
+        @Override
+        public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+            mRequests++;
+            if (mOnRequest != null) {
+                mOnRequest.run();
+            }
+            String path = request.getPath().substring(1);
+            String body = request.getBody().readUtf8();
+            String cookie = request.getHeader("Cookie");
+            MockResponse response = new MockResponse();
+            Matcher acct = PATTERN_ACCT.matcher(body);
+            if (acct.find() && body.contains("pw=" + PASSWORD)) {
+                mLogins++;
+                response.addHeader("Set-Cookie",
+                        "user=" + acct.group(1) + "&" + mToken + "; Max-Age=31536000; Path=/");
+            } else if (!path.equals("r") &&
+                    (cookie == null || !cookie.contains("&" + mToken))) {
+                return response.setBody("<form><input type=\"text\" name=\"acct\"></form>");
+            }
+            switch (path) {
+                case "submit":
+                    return response.setBody("<form><input type=\"hidden\" name=\"fnid\" value=\"" +
+                            mFnid + "\"></form>");
+                case "r":
+                    return response.setResponseCode(302).setHeader("Location",
+                            body.contains("fnid=" + mFnid) ? "newest" : "x?fnid=" + mFnid);
+                default:
+                    return response.setResponseCode(302).setHeader("Location", "news");
+            }
+        }
+    }
+}
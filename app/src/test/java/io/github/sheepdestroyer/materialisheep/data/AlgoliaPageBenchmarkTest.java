@@ -0,0 +1,87 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures time to first result of an Algolia search response at page sizes 20, 50 and 100,
+ * i.e. parsing a response of that many hits and turning them into stories, JMH style: warmup
+ * iterations are discarded and the average time per page is reported for measurement
+ * iterations, along with payload size, which network time grows with.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AlgoliaPageBenchmarkTest {
+    private static final int[] PAGE_SIZES = {20, 50, 100};
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 20;
+    private final Gson mGson = new Gson();
+
+    @Test
+    public void benchmarkFirstPage() {
+        long[] nanos = new long[PAGE_SIZES.length];
+        int[] bytes = new int[PAGE_SIZES.length];
+        for (int i = 0; i < PAGE_SIZES.length; i++) {
+            int pageSize = PAGE_SIZES[i];
+            String json = createResponse(pageSize);
+            assertEquals(pageSize, firstPage(json).length);
+            bytes[i] = json.getBytes(StandardCharsets.UTF_8).length;
+            nanos[i] = measure(() -> firstPage(json));
+        }
+
+        for (int i = 0; i < PAGE_SIZES.length; i++) {
+            System.out.println("Page size " + PAGE_SIZES[i] + ": " + bytes[i] + " bytes, " +
+                    nanos[i] / 1000 + " us to first result");
+        }
+        System.out.println("Improvement at page size " + PagedItemManager.PAGE_SIZE + ": " +
+                ((double) bytes[PAGE_SIZES.length - 1] / bytes[0]) + "x fewer bytes, " +
+                ((double) nanos[PAGE_SIZES.length - 1] / nanos[0]) + "x faster");
+        assertTrue(bytes[0] < bytes[PAGE_SIZES.length - 1]);
+    }
+
+    private Item[] firstPage(String json) {
+        return AlgoliaClient.toItems(new ItemRegistry(),
+                mGson.fromJson(json, AlgoliaClient.AlgoliaHits.class));
+    }
+
+    private static String createResponse(int count) {
+        StringBuilder json = new StringBuilder("{\"hits\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"objectID\":\"").append(40000000 + i)
+                    .append("\",\"title\":\"Show HN: A story about paging search results ")
+                    .append(i)
+                    .append("\",\"url\":\"https://example.com/2026/10/paging-search-results-")
+                    .append(i)
+                    .append("\",\"author\":\"author").append(i)
+                    .append("\",\"points\":").append(100 + i)
+                    .append(",\"num_comments\":").append(20 + i)
+                    .append(",\"created_at_i\":").append(1790000000L + i)
+                    .append('}');
+        }
+        return json.append("],\"nbHits\":1000,\"page\":0,\"hitsPerPage\":")
+                .append(count)
+                .append('}')
+                .toString();
+    }
+
+    private static long measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+}
@@ -0,0 +1,232 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.github.sheepdestroyer.materialisheep.Navigable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CommentTreeTest {
+    private static final int COMMENT_COUNT = 10000;
+
+    @Test
+    public void testRootKids() {
+        CommentTree tree = new CommentTree(createItem(1, 10, 11, 12));
+        assertEquals(3, tree.getRootCount());
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.indexOf(11));
+        assertEquals(CommentTree.NO_INDEX, tree.indexOf(13));
+        Item row = tree.getRow(1);
+        assertSame(row, tree.getRow(1));
+        assertEquals(11, row.getLongId());
+        assertEquals(1, row.getLevel());
+        assertEquals(2, row.getRank());
+        assertEquals(10, row.getNeighbour(Navigable.DIRECTION_UP));
+        assertEquals(12, row.getNeighbour(Navigable.DIRECTION_DOWN));
+        assertTrue(row.getLocalRevision() < 0); // to be loaded
+        assertEquals(0, tree.getKidCount(1));
+    }
+
+    @Test
+    public void testStoreLoaded() {
+        CommentTree tree = new CommentTree(createItem(1, 10, 11));
+        Item row = tree.getRow(0);
+        row.populate(createItem(10, 100, 101));
+        assertEquals(0, tree.store(row));
+        assertTrue(tree.isLoaded(0));
+        assertEquals("Comment 10", tree.getText(0));
+        assertEquals("author", tree.getBy(0));
+        assertEquals(Item.COMMENT_TYPE, tree.getType(0));
+        assertArrayEquals(new long[]{100, 101}, tree.getKids(0));
+        assertEquals(4, tree.size());
+
+        int kid = tree.indexOf(101);
+        assertEquals(tree.getFirstKid(0) + 1, kid);
+        assertEquals(0, tree.getParent(kid));
+        assertEquals(10, tree.getParentId(kid));
+        assertEquals(2, tree.getLevel(kid));
+        Item kidRow = tree.getRow(kid);
+        assertEquals(100, kidRow.getNeighbour(Navigable.DIRECTION_UP));
+        assertEquals(0, kidRow.getNeighbour(Navigable.DIRECTION_DOWN));
+        assertEquals(10, kidRow.getNeighbour(Navigable.DIRECTION_LEFT));
+
+        // storing again does not add kids again
+        tree.store(row);
+        assertEquals(4, tree.size());
+    }
+
+    @Test
+    public void testRefreshedKids() {
+        CommentTree tree = new CommentTree(createItem(1, 10));
+        Item row = tree.getRow(0);
+        row.populate(createItem(10, 100));
+        tree.store(row);
+        row.populate(createItem(10, 100, 101));
+        tree.store(row);
+        assertArrayEquals(new long[]{100, 101}, tree.getKids(0));
+        assertEquals(tree.getFirstKid(0), tree.indexOf(100));
+        assertEquals(1, tree.getRank(tree.indexOf(100)));
+    }
+
+    @Test
+    public void testEvictedRowWrittenBack() {
+        long[] kids = new long[1000];
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = i + 1;
+        }
+        CommentTree tree = new CommentTree(createItem(Long.MAX_VALUE, kids));
+        Item row = tree.getRow(0);
+        row.populate(createItem(1));
+        row.setCollapsed(true);
+        row.setContentExpanded(true);
+        for (int i = 1; i < kids.length; i++) { // scrolls through
+            tree.getRow(i);
+        }
+        Item materialized = tree.getRow(0);
+        assertNotSame(row, materialized);
+        assertTrue(materialized.isCollapsed());
+        assertTrue(materialized.isContentExpanded());
+        assertEquals("Comment 1", materialized.getText());
+        assertTrue(materialized.getLocalRevision() > 0);
+
+        // late change to evicted row reaches its successor
+        row.populate(createItem(1, 2000));
+        tree.store(row);
+        assertArrayEquals(new long[]{2000}, materialized.getKids());
+    }
+
+    @Test
+    public void testPeekRow() {
+        CommentTree tree = new CommentTree(createItem(1, 10));
+        Item peeked = tree.peekRow(0);
+        assertNotSame(peeked, tree.peekRow(0));
+        Item row = tree.getRow(0);
+        assertSame(row, tree.peekRow(0));
+    }
+
+    @Test
+    public void testNullContent() {
+        CommentTree tree = new CommentTree(createItem(1, 10));
+        Item row = tree.getRow(0);
+        row.populate(new Gson().fromJson("{\"id\":10,\"deleted\":true}", HackerNewsItem.class));
+        tree.store(row);
+        assertTrue(tree.isDeleted(0));
+        assertNull(tree.getText(0));
+        assertNull(tree.getBy(0));
+        assertNull(tree.getKids(0));
+    }
+
+    /**
+     * Measures retained heap of a synthetic thread of 10k loaded comments, before: an item
+     * per comment with its kid items and rendered text, after: a comment tree.
+     */
+    @Test
+    public void testHeap() {
+        List<HackerNewsItem> comments = createThread(new Random(10000));
+        long[] rootKids = comments.get(0).getKids();
+
+        long baseline = usedHeap();
+        List<HackerNewsItem> items = new ArrayList<>();
+        loadItems(createItem(1, rootKids), comments, items);
+        long itemsHeap = usedHeap() - baseline;
+        assertEquals(COMMENT_COUNT, items.size());
+        items.clear();
+
+        baseline = usedHeap();
+        CommentTree tree = new CommentTree(createItem(1, rootKids));
+        for (int i = 0; i < tree.size(); i++) { // grows as comments are loaded
+            Item row = tree.peekRow(i);
+            row.populate(findComment(comments, tree.getId(i)));
+            tree.store(row);
+        }
+        long treeHeap = usedHeap() - baseline;
+        assertEquals(COMMENT_COUNT, tree.size());
+
+        System.out.println("Retained heap of " + COMMENT_COUNT + " comments: before " +
+                itemsHeap / 1024 + " KB, after " + treeHeap / 1024 + " KB (estimated " +
+                tree.byteSize() / 1024 + " KB in arrays)");
+        assertTrue(treeHeap < itemsHeap);
+        assertFalse(tree.getText(tree.size() - 1).isEmpty());
+    }
+
+    /**
+     * Loads comments as item rows used to be: kid items of loaded items, populated with
+     * their content and rendered text.
+     */
+    private static void loadItems(HackerNewsItem parent, List<HackerNewsItem> comments,
+                                  List<HackerNewsItem> out) {
+        for (HackerNewsItem kid : parent.getKidItems()) {
+            kid.populate(findComment(comments, kid.getLongId()));
+            kid.getDisplayedText();
+            out.add(kid);
+            loadItems(kid, comments, out);
+        }
+    }
+
+    private static HackerNewsItem findComment(List<HackerNewsItem> comments, long id) {
+        return comments.get((int) id - 1); // index 0 is the story
+    }
+
+    /**
+     * Creates a story with id 1 followed by comments with ids 2..., in a random tree
+     * where most comments are replies.
+     */
+    private static List<HackerNewsItem> createThread(Random random) {
+        List<List<Long>> kids = new ArrayList<>();
+        kids.add(new ArrayList<>());
+        for (int i = 1; i <= COMMENT_COUNT; i++) {
+            int parent = random.nextInt(4) == 0 ? 0 : random.nextInt(i);
+            kids.get(parent).add((long) i + 1);
+            kids.add(new ArrayList<>());
+        }
+        List<HackerNewsItem> comments = new ArrayList<>();
+        for (int i = 0; i <= COMMENT_COUNT; i++) {
+            long[] ids = new long[kids.get(i).size()];
+            for (int k = 0; k < ids.length; k++) {
+                ids[k] = kids.get(i).get(k);
+            }
+            HackerNewsItem comment = createItem(i + 1, ids);
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    private static HackerNewsItem createItem(long id, long... kids) {
+        StringBuilder kidsJson = new StringBuilder();
+        for (long kid : kids) {
+            kidsJson.append(kidsJson.length() > 0 ? "," : "").append(kid);
+        }
+        HackerNewsItem item = new Gson().fromJson("{\"id\":" + id + ",\"type\":\"comment\"," +
+                "\"by\":\"author" + (id % 500) + "\",\"time\":" + (1234567890L + id) + "," +
+                "\"parent\":1,\"text\":\"Comment " + id + (id > 1000 ?
+                "<p>Lorem ipsum dolor sit amet, <i>consectetur</i> adipiscing elit, sed do " +
+                        "eiusmod tempor incididunt ut labore et dolore magna aliqua. " +
+                        "<a href=\\\"https://example.com/" + id + "\\\">link</a></p>" : "") +
+                "\",\"kids\":[" + kidsJson + "]}", HackerNewsItem.class);
+        item.setLocalRevision(1);
+        return item;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
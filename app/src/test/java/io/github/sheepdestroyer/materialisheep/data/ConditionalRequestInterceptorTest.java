@@ -0,0 +1,188 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConditionalRequestInterceptorTest {
+    private static final String SEARCH_URL = AlgoliaClient.BASE_API_URL +
+            "search?hitsPerPage=100&tags=story&query=Android";
+    private static final String BODY = "{\"hits\":[]}";
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private File mDir;
+    private ETagStore mStore;
+    private final List<Request> mRequests = new ArrayList<>();
+    private final List<Response> mResponses = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = mFolder.newFolder();
+        mStore = new ETagStore(mDir);
+    }
+
+    @Test
+    public void testNotModified() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        mResponses.add(notModified());
+        ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(mStore);
+
+        assertEquals(BODY, intercept(interceptor, SEARCH_URL).body().string());
+        assertNull(mRequests.get(0).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+
+        Response response = intercept(interceptor, SEARCH_URL);
+        assertEquals("\"v1\"",
+                mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+        assertEquals(200, response.code());
+        assertEquals(BODY, response.body().string());
+        assertEquals("application/json", response.body().contentType().toString());
+        assertEquals(1, mStore.getConditionalCount());
+        assertEquals(1, mStore.getNotModifiedCount());
+        assertEquals(BODY.length(), mStore.getBytesSaved());
+    }
+
+    @Test
+    public void testPersisted() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        intercept(new ConditionalRequestInterceptor(mStore), SEARCH_URL).close();
+
+        mResponses.add(notModified());
+        Response response = intercept(new ConditionalRequestInterceptor(new ETagStore(mDir)),
+                SEARCH_URL);
+        assertEquals("\"v1\"",
+                mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+        assertEquals(BODY, response.body().string());
+    }
+
+    @Test
+    public void testNormalizedQuery() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        mResponses.add(notModified());
+        ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(mStore);
+        intercept(interceptor, SEARCH_URL).close();
+        intercept(interceptor, AlgoliaClient.BASE_API_URL +
+                "search?query=%20android%20&tags=story&hitsPerPage=100").close();
+        assertEquals("\"v1\"",
+                mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+        assertEquals(ETagStore.normalize(HttpUrl.get(SEARCH_URL)),
+                ETagStore.normalize(HttpUrl.get(AlgoliaClient.BASE_API_URL +
+                        "search?query=ANDROID&hitsPerPage=100&tags=story")));
+    }
+
+    @Test
+    public void testHttpCacheRevalidation() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        mResponses.add(notModified());
+        ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(mStore);
+        intercept(interceptor, SEARCH_URL).close();
+        Request request = new Request.Builder()
+                .url(SEARCH_URL)
+                .header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH, "\"cached\"")
+                .build();
+        Response response = intercept(interceptor, request);
+        assertEquals(304, response.code()); // for HTTP cache to handle
+        assertEquals("\"cached\"",
+                mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+        assertEquals(0, mStore.getConditionalCount());
+    }
+
+    @Test
+    public void testStoriesJson() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        mResponses.add(notModified());
+        ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(mStore);
+        String url = HackerNewsClient.BASE_API_URL + "topstories.json";
+        intercept(interceptor, url).close();
+        assertEquals("true",
+                mRequests.get(0).header(ConditionalRequestInterceptor.HEADER_FIREBASE_ETAG));
+        assertEquals(BODY, intercept(interceptor, url).body().string());
+        assertEquals("\"v1\"",
+                mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+    }
+
+    @Test
+    public void testNotConditionable() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        mResponses.add(ok("\"v1\""));
+        ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(mStore);
+        String url = HackerNewsClient.BASE_API_URL + "item/1.json";
+        intercept(interceptor, url).close();
+        intercept(interceptor, url).close();
+        assertNull(mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+        assertNull(mRequests.get(1).header(ConditionalRequestInterceptor.HEADER_FIREBASE_ETAG));
+    }
+
+    @Test
+    public void testValidatorDropped() throws IOException {
+        mResponses.add(ok("\"v1\""));
+        mResponses.add(ok(null));
+        mResponses.add(ok(null));
+        ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(mStore);
+        intercept(interceptor, SEARCH_URL).close();
+        intercept(interceptor, SEARCH_URL).close();
+        intercept(interceptor, SEARCH_URL).close();
+        assertNull(mRequests.get(2).header(ConditionalRequestInterceptor.HEADER_IF_NONE_MATCH));
+    }
+
+    private Response intercept(Interceptor interceptor, String url) throws IOException {
+        return intercept(interceptor, new Request.Builder().url(url).build());
+    }
+
+    private Response intercept(Interceptor interceptor, Request request) throws IOException {
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.proceed(any(Request.class))).thenAnswer(invocation -> {
+            Request sent = invocation.getArgument(0);
+            mRequests.add(sent);
+            return mResponses.remove(0).newBuilder().request(sent).build();
+        });
+        return interceptor.intercept(chain);
+    }
+
+    private static Response ok(String etag) {
+        Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url(SEARCH_URL).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .header("Content-Type", "application/json")
+                .body(ResponseBody.create(BODY, MediaType.get("application/json")));
+        if (etag != null) {
+            builder.header(ConditionalRequestInterceptor.HEADER_ETAG, etag);
+        }
+        return builder.build();
+    }
+
+    private static Response notModified() {
+        return new Response.Builder()
+                .request(new Request.Builder().url(SEARCH_URL).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(304)
+                .message("Not Modified")
+                .body(ResponseBody.create("", null))
+                .build();
+    }
+}
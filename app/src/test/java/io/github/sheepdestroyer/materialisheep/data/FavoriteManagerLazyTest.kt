@@ -51,4 +51,18 @@ class FavoriteManagerLazyTest {
         // Verify that cache is accessed after subscription
         verify(localCache, times(1)).isFavorite(itemIds)
     }
+
+    @Test
+    fun checkArray_lazilyCallsCache() {
+        val itemIds = longArrayOf(1, 2)
+        val observable = favoriteManager.check(itemIds)
+
+        // Verify that cache is NOT accessed immediately
+        verifyNoInteractions(localCache)
+
+        observable.subscribe()
+
+        // Verify that cache is accessed after subscription
+        verify(localCache, times(1)).isFavorite(itemIds)
+    }
 }
@@ -0,0 +1,287 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class FileDownloaderTest {
+    private static final String MIME_TYPE = "application/pdf";
+    private static final String ETAG = "\"v1\"";
+    private static final int SIZE = 256 * 1024;
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private final MockWebServer mServer = new MockWebServer();
+    private final PdfDispatcher mDispatcher = new PdfDispatcher();
+    // let downloader, not client, decide what to retry
+    private final OkHttpClient mClient = new OkHttpClient.Builder()
+            .retryOnConnectionFailure(false)
+            .build();
+    private File mDir;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.setDispatcher(mDispatcher);
+        mServer.start();
+        mDir = mFolder.newFolder();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void testDownload() throws InterruptedException, IOException {
+        Result result = download(createDownloader(), url("/paper.pdf"));
+
+        assertNull(result.mError);
+        assertArrayEquals(mDispatcher.mContent, read(result.mFilePath));
+        assertEquals(FileDownloader.getKey(url("/paper.pdf")), new File(result.mFilePath).getName());
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(SIZE, (long) result.mProgress.get(result.mProgress.size() - 1));
+
+        // downloaded file is reused
+        Result cached = download(createDownloader(), url("/paper.pdf"));
+        assertEquals(result.mFilePath, cached.mFilePath);
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testResumeAfterDisconnect() throws InterruptedException, IOException {
+        mDispatcher.mDisconnects = 1;
+        Result result = download(createDownloader(), url("/paper.pdf"));
+
+        assertNull(result.mError);
+        assertArrayEquals(mDispatcher.mContent, read(result.mFilePath));
+        assertEquals(2, mServer.getRequestCount());
+        assertNull(mServer.takeRequest().getHeader("Range"));
+        RecordedRequest resumed = mServer.takeRequest();
+        String range = resumed.getHeader("Range");
+        assertTrue(range, range.matches("bytes=\\d+-"));
+        assertNotEquals("bytes=0-", range); // did not start over
+        assertEquals(ETAG, resumed.getHeader("If-Range"));
+        // progress continues from where it dropped
+        for (int i = 1; i < result.mProgress.size(); i++) {
+            assertTrue(result.mProgress.get(i) >= result.mProgress.get(i - 1));
+        }
+        assertFalse(new File(mDir, FileDownloader.getKey(url("/paper.pdf")) + ".part").exists());
+    }
+
+    @Test
+    public void testResumeChangedFile() throws InterruptedException, IOException {
+        mDispatcher.mDisconnects = 1;
+        mDispatcher.mChangeOnResume = true;
+        Result result = download(createDownloader(), url("/paper.pdf"));
+
+        // server sends the whole new version instead of a range of the old one
+        assertNull(result.mError);
+        assertArrayEquals(mDispatcher.mContent, read(result.mFilePath));
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testGiveUpAfterRepeatedDisconnects() throws InterruptedException {
+        mDispatcher.mDisconnects = Integer.MAX_VALUE;
+        mDispatcher.mDisconnectImmediately = true;
+        Result result = download(createDownloader(), url("/paper.pdf"));
+
+        assertTrue(result.mError instanceof IOException);
+        assertNull(result.mFilePath);
+        assertEquals(FileDownloader.MAX_ATTEMPTS, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testDedupeConcurrentRequests() throws InterruptedException {
+        mDispatcher.mDelayMillis = 200;
+        FileDownloader downloader = createDownloader();
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> paths = Collections.synchronizedList(new ArrayList<>());
+        FileDownloader.FileDownloaderCallback callback = new FileDownloader.FileDownloaderCallback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onSuccess(String filePath) {
+                paths.add(filePath);
+                latch.countDown();
+            }
+        };
+        downloader.downloadFile(url("/paper.pdf"), MIME_TYPE, callback);
+        downloader.downloadFile(url("/paper.pdf"), MIME_TYPE, callback);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, paths.size());
+        assertEquals(paths.get(0), paths.get(1));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void testSameNameDifferentUrls() throws InterruptedException, IOException {
+        FileDownloader downloader = createDownloader();
+        Result first = download(downloader, url("/a/paper.pdf"));
+        Result second = download(downloader, url("/b/paper.pdf"));
+
+        assertNotEquals(first.mFilePath, second.mFilePath);
+        assertArrayEquals(mDispatcher.content("/a/paper.pdf"), read(first.mFilePath));
+        assertArrayEquals(mDispatcher.content("/b/paper.pdf"), read(second.mFilePath));
+    }
+
+    @Test
+    public void testTooLarge() throws InterruptedException {
+        FileDownloader downloader = new FileDownloader(mDir, mClient, Runnable::run,
+                SIZE / 2, FileDownloader.MAX_CACHE_SIZE);
+        Result result = download(downloader, url("/paper.pdf"));
+
+        assertTrue(result.mError instanceof FileDownloader.FileTooLargeException);
+        assertEquals(1, mServer.getRequestCount()); // not retried
+        File[] files = mDir.listFiles();
+        assertTrue(files == null || files.length == 0);
+    }
+
+    @Test
+    public void testStorageBudget() throws InterruptedException {
+        FileDownloader downloader = new FileDownloader(mDir, mClient, Runnable::run,
+                FileDownloader.MAX_FILE_SIZE, SIZE * 3 / 2);
+        Result first = download(downloader, url("/a/paper.pdf"));
+        assertTrue(new File(first.mFilePath).exists());
+        Result second = download(downloader, url("/b/paper.pdf"));
+
+        assertFalse(new File(first.mFilePath).exists());
+        assertTrue(new File(second.mFilePath).exists());
+    }
+
+    private FileDownloader createDownloader() {
+        return new FileDownloader(mDir, mClient, Runnable::run,
+                FileDownloader.MAX_FILE_SIZE, FileDownloader.MAX_CACHE_SIZE);
+    }
+
+    private String url(String path) {
+        return mServer.url(path).toString();
+    }
+
+    private Result download(FileDownloader downloader, String url) throws InterruptedException {
+        Result result = new Result();
+        downloader.downloadFile(url, MIME_TYPE, result);
+        assertTrue(result.mLatch.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private byte[] read(String path) throws IOException {
+        try (BufferedSource source = Okio.buffer(Okio.source(new File(path)))) {
+            return source.readByteArray();
+        }
+    }
+
+    private static class Result implements FileDownloader.FileDownloaderCallback {
+        final CountDownLatch mLatch = new CountDownLatch(1);
+        final List<Long> mProgress = Collections.synchronizedList(new ArrayList<>());
+        String mFilePath;
+        IOException mError;
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            mError = e;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onSuccess(String filePath) {
+            mFilePath = filePath;
+            mLatch.countDown();
+        }
+
+        @Override
+        public void onProgress(long bytesRead, long contentLength) {
+            assertEquals(SIZE, contentLength);
+            mProgress.add(bytesRead);
+        }
+    }
+
+    /**
+     * Serves random content per path, honoring {@code Range} if {@code If-Range} still matches,
+     * and dropping connection mid-body a given number of times.
+     */
+    private static class PdfDispatcher extends Dispatcher {
+        byte[] mContent;
+        int mDisconnects;
+        boolean mDisconnectImmediately;
+        boolean mChangeOnResume;
+        long mDelayMillis;
+        private String mETag = ETAG;
+
+        @NonNull
+        @Override
+        public synchronized MockResponse dispatch(@NonNull RecordedRequest request) {
+            String range = request.getHeader("Range");
+            if (range != null && mChangeOnResume) {
+                mETag = "\"v2\"";
+            }
+            mContent = content(request.getPath() + mETag);
+            MockResponse response = new MockResponse()
+                    .setHeader("ETag", mETag)
+                    .setHeader("Content-Type", MIME_TYPE)
+                    .setBodyDelay(mDelayMillis, TimeUnit.MILLISECONDS);
+            if (range != null && ETAG.equals(mETag) && ETAG.equals(request.getHeader("If-Range"))) {
+                int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                response.setResponseCode(206)
+                        .setHeader("Content-Range", "bytes " + start + "-" + (SIZE - 1) + "/" + SIZE)
+                        .setBody(new Buffer().write(mContent, start, SIZE - start));
+            } else {
+                response.setBody(new Buffer().write(mContent));
+            }
+            if (mDisconnects > 0) {
+                mDisconnects--;
+                response.setSocketPolicy(mDisconnectImmediately ?
+                        SocketPolicy.DISCONNECT_AFTER_REQUEST :
+                        SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            }
+            return response;
+        }
+
+        byte[] content(String path) {
+            if (!path.endsWith("\"")) {
+                path += mETag;
+            }
+            byte[] content = new byte[SIZE];
+            new Random(ByteString.encodeUtf8(path).hashCode()).nextBytes(content);
+            return content;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that disposing a request handle cancels the underlying OkHttp calls.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HackerNewsClientCancellationTest {
+    private final List<Call> mCalls = new CopyOnWriteArrayList<>();
+    private CountDownLatch mStarted;
+    private HackerNewsClient mClient;
+
+    @Before
+    public void setUp() {
+        mStarted = new CountDownLatch(1);
+        // hangs every request until it is canceled, or the test times out
+        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Call call = chain.call();
+                    mCalls.add(call);
+                    mStarted.countDown();
+                    long deadline = System.currentTimeMillis() + 5000;
+                    while (!call.isCanceled() && System.currentTimeMillis() < deadline) {
+                        try {
+                            Thread.sleep(10);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                    throw new IOException(call.isCanceled() ? "Canceled" : "Timed out");
+                })
+                .build();
+        SessionManager sessionManager = mock(SessionManager.class);
+        when(sessionManager.isViewed(any(String.class))).thenReturn(Observable.just(false));
+        when(sessionManager.isViewed(any(long[].class))).thenAnswer(invocation -> Observable.just(
+                new boolean[invocation.<long[]>getArgument(0).length]));
+        FavoriteManager favoriteManager = mock(FavoriteManager.class);
+        when(favoriteManager.check(any(String.class))).thenReturn(Observable.just(false));
+        when(favoriteManager.check(any(long[].class))).thenAnswer(invocation -> Observable.just(
+                new boolean[invocation.<long[]>getArgument(0).length]));
+        mClient = new HackerNewsClient(new RestServiceFactory.Impl(okHttpClient),
+                sessionManager, favoriteManager, new ItemRegistry(), mock(SearchIndex.class),
+                mock(UserActionOutbox.class));
+        mClient.mIoScheduler = Schedulers.io();
+        mClient.mMainThreadScheduler = Schedulers.trampoline();
+    }
+
+    @Test
+    public void testDisposeGetItem() throws InterruptedException {
+        @SuppressWarnings("unchecked")
+        ResponseListener<Item> listener = mock(ResponseListener.class);
+        Disposable request = mClient.getItem("1", ItemManager.MODE_DEFAULT, listener);
+        assertTrue(mStarted.await(5, TimeUnit.SECONDS));
+        request.dispose();
+        assertCanceled();
+        verify(listener, never()).onResponse(any());
+        verify(listener, never()).onError(any());
+    }
+
+    @Test
+    public void testDisposeGetItems() throws InterruptedException {
+        @SuppressWarnings("unchecked")
+        ResponseListener<Item[]> listener = mock(ResponseListener.class);
+        Disposable request = mClient.getItems(new String[]{"1", "2", "3"},
+                ItemManager.MODE_DEFAULT, listener);
+        assertTrue(mStarted.await(5, TimeUnit.SECONDS));
+        request.dispose();
+        assertCanceled();
+        verify(listener, never()).onResponse(any());
+        verify(listener, never()).onError(any());
+    }
+
+    @Test
+    public void testNullListener() {
+        assertTrue(mClient.getItem("1", ItemManager.MODE_DEFAULT, null).isDisposed());
+        assertTrue(mCalls.isEmpty());
+    }
+
+    private void assertCanceled() throws InterruptedException {
+        assertFalse(mCalls.isEmpty());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            boolean canceled = true;
+            for (Call call : mCalls) {
+                canceled &= call.isCanceled();
+            }
+            if (canceled) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Calls not canceled");
+    }
+}
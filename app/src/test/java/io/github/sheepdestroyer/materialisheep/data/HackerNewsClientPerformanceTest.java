@@ -1,6 +1,8 @@
 package io.github.sheepdestroyer.materialisheep.data;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -14,9 +16,14 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox;
 import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
 import retrofit2.Response;
 
 @RunWith(RobolectricTestRunner.class)
@@ -39,7 +46,8 @@ public class HackerNewsClientPerformanceTest {
         when(restServiceFactory.rxEnabled(true)).thenReturn(restServiceFactory);
         when(restServiceFactory.create(anyString(), eq(HackerNewsClient.RestService.class))).thenReturn(restService);
 
-        client = new HackerNewsClient(restServiceFactory, sessionManager, favoriteManager);
+        client = new HackerNewsClient(restServiceFactory, sessionManager, favoriteManager,
+                new ItemRegistry(), mock(SearchIndex.class), mock(UserActionOutbox.class));
     }
 
     @Test
@@ -74,4 +82,41 @@ public class HackerNewsClientPerformanceTest {
         assertTrue("Duration should be at least " + delayMs + "ms but was " + duration,
                    duration >= delayMs);
     }
+
+    @Test
+    public void testStreamItemsDeliversFastItemsFirst() {
+        TestScheduler scheduler = new TestScheduler();
+        client.mIoScheduler = scheduler;
+        client.mMainThreadScheduler = Schedulers.trampoline();
+        when(sessionManager.isViewed(any(long[].class))).thenReturn(
+                Observable.just(new boolean[3]));
+        when(favoriteManager.check(any(long[].class))).thenReturn(
+                Observable.just(new boolean[3]));
+        when(restService.itemRx("1")).thenReturn(Observable.just(new HackerNewsItem(1)));
+        when(restService.itemRx("2")).thenReturn(Observable.just(new HackerNewsItem(2)));
+        when(restService.itemRx("3")).thenReturn(Observable.timer(500, TimeUnit.MILLISECONDS,
+                scheduler).map(t -> new HackerNewsItem(3)));
+        List<Item[]> chunks = new ArrayList<>();
+        client.streamItems(new String[]{"1", "2", "3"}, ItemManager.MODE_DEFAULT, 16,
+                new ResponseListener<Item[]>() {
+                    @Override
+                    public void onResponse(Item[] response) {
+                        chunks.add(response);
+                    }
+
+                    @Override
+                    public void onError(String errorMessage) {
+                    }
+                });
+
+        // first window delivers fast items without waiting for slow one
+        scheduler.advanceTimeBy(16, TimeUnit.MILLISECONDS);
+        assertEquals(1, chunks.size());
+        assertEquals(2, chunks.get(0).length);
+
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        assertEquals(2, chunks.size());
+        assertEquals(1, chunks.get(1).length);
+        assertEquals("3", chunks.get(1)[0].getId());
+    }
 }
@@ -0,0 +1,55 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import io.github.sheepdestroyer.materialisheep.AppUtils;
+
+/**
+ * Measures {@link HackerNewsHtml} against {@link AppUtils#fromHtml(String)} over a thread's
+ * worth of comments, JMH style: warmup iterations are discarded and the average time per
+ * operation is reported for measurement iterations.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HackerNewsHtmlBenchmarkTest {
+    private static final int COMMENTS = 500;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+
+    @Test
+    public void benchmarkRenderThread() {
+        String[] comments = new String[COMMENTS];
+        for (int i = 0; i < COMMENTS; i++) {
+            comments[i] = HackerNewsHtmlTest.SAMPLES[i % HackerNewsHtmlTest.SAMPLES.length]
+                    + "<p>Comment " + i + " with <i>more</i> text &amp; a "
+                    + "<a href=\"https:&#x2F;&#x2F;example.com&#x2F;" + i + "\" rel=\"nofollow\">link</a>";
+        }
+
+        long htmlNanos = measure(() -> {
+            for (String comment : comments) {
+                AppUtils.fromHtml(comment);
+            }
+        });
+        long rendererNanos = measure(() -> {
+            for (String comment : comments) {
+                HackerNewsHtml.fromHtml(comment);
+            }
+        });
+
+        System.out.println("Html.fromHtml: " + htmlNanos / COMMENTS + " ns/op");
+        System.out.println("HackerNewsHtml: " + rendererNanos / COMMENTS + " ns/op");
+        System.out.println("Improvement: " + ((double) htmlNanos / rendererNanos) + "x");
+    }
+
+    private static long measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.text.style.URLSpan;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.sheepdestroyer.materialisheep.AppUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class HackerNewsHtmlTest {
+    // samples in the shape of HN API item text
+    static final String[] SAMPLES = {
+            "Plain comment",
+            "  leading and   collapsed \n whitespace  ",
+            "First paragraph<p>Second paragraph<p>Third",
+            "<p>Starts with a paragraph",
+            "I&#x27;d say &quot;no&quot; &amp; 2 &gt; 1 &lt; 3 &#x2F; &#39;done&#39;",
+            "Some <i>emphasis</i> here<p><i>whole paragraph</i>",
+            "See <a href=\"https:&#x2F;&#x2F;example.com&#x2F;a?b=1&amp;c=2\" rel=\"nofollow\">"
+                    + "https:&#x2F;&#x2F;example.com&#x2F;a?b=1&amp;c=2</a> for details",
+            "Code:<p><pre><code>  int x = 1;\n  if (x &gt; 0) {\n    x++;\n  }\n</code></pre>\nAfter code",
+            "Before<pre><code>no paragraph before</code></pre>after",
+            "<a href=\"https:&#x2F;&#x2F;a.example\"><i>italic link</i></a> and <i></i>empty",
+            "Trailing link <a href=\"https:&#x2F;&#x2F;b.example\">b</a><p>",
+            "Unclosed <i>italic",
+            "nbsp&nbsp;&nbsp;kept",
+            "line<br>break",
+            "emoji ☃ and accents éè",
+    };
+
+    @Test
+    public void testParityWithHtml() {
+        for (String sample : SAMPLES) {
+            CharSequence actual = new HackerNewsHtml().render(sample);
+            assertNotNull("Should render without fallback: " + sample, actual);
+            assertSameSpanned(sample, AppUtils.fromHtml(sample), actual);
+        }
+    }
+
+    @Test
+    public void testFallback() {
+        HackerNewsHtml renderer = new HackerNewsHtml();
+        assertNull(renderer.render("<b>bold</b>"));
+        assertNull(renderer.render("<p style=\"text-align:center\">centered"));
+        assertNull(renderer.render("<i>split<p>across</i> paragraphs"));
+        assertNull(renderer.render("<i><a href=\"x\">misnested</i></a>"));
+        assertNull(renderer.render("AT&T"));
+        assertNull(renderer.render("&hellip;"));
+        assertNull(renderer.render("a < b"));
+        assertNull(renderer.render("tab\tseparated"));
+        String[] fallbacks = {
+                "<b>bold</b>", "<i>split<p>across</i> paragraphs", "AT&T", "&hellip;"
+        };
+        for (String html : fallbacks) {
+            assertSameSpanned(html, AppUtils.fromHtml(html), HackerNewsHtml.fromHtml(html));
+        }
+    }
+
+    @Test
+    public void testRendererReuse() {
+        HackerNewsHtml renderer = new HackerNewsHtml();
+        assertNull(renderer.render("<i>unsupported<b>"));
+        for (String sample : SAMPLES) {
+            assertSameSpanned(sample, AppUtils.fromHtml(sample), renderer.render(sample));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertNull(HackerNewsHtml.fromHtml(null));
+        assertNull(HackerNewsHtml.fromHtml(""));
+    }
+
+    static void assertSameSpanned(String html, CharSequence expected, CharSequence actual) {
+        assertNotNull(html, expected);
+        assertNotNull(html, actual);
+        assertEquals(html, expected.toString(), actual.toString());
+        assertEquals(html, describeSpans(expected), describeSpans(actual));
+    }
+
+    private static List<String> describeSpans(CharSequence text) {
+        List<String> descriptions = new ArrayList<>();
+        if (!(text instanceof Spanned)) {
+            return descriptions;
+        }
+        Spanned spanned = (Spanned) text;
+        for (Object span : spanned.getSpans(0, spanned.length(), Object.class)) {
+            String description;
+            if (span instanceof URLSpan) {
+                description = "url:" + ((URLSpan) span).getURL();
+            } else if (span instanceof StyleSpan) {
+                description = "style:" + ((StyleSpan) span).getStyle();
+            } else {
+                description = span.getClass().getSimpleName();
+            }
+            descriptions.add(description + "[" + spanned.getSpanStart(span) + ","
+                    + spanned.getSpanEnd(span) + ")" + spanned.getSpanFlags(span));
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.github.sheepdestroyer.materialisheep.data.android.Cache;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares allocations of preparing a 500 item batch, before: string IDs collected in a set,
+ * looked up as a list with boxed results, after: primitive IDs and results. Average bytes
+ * allocated per batch is reported for measurement iterations.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ItemIdBatchBenchmarkTest {
+    private static final int BATCH_SIZE = 500;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 20;
+    private final long[] mIds = new long[BATCH_SIZE];
+    private LocalCache mCache;
+
+    @Before
+    public void setUp() {
+        List<MaterialisticDatabase.ReadStory> readStories = new ArrayList<>();
+        List<Long> readIds = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mIds[i] = 40000000L + i * 7;
+            if (i % 3 == 0) {
+                readStories.add(new MaterialisticDatabase.ReadStory(String.valueOf(mIds[i])));
+                readIds.add(mIds[i]);
+            }
+        }
+        ReadStoriesDao readStoriesDao = mock(ReadStoriesDao.class);
+        when(readStoriesDao.selectByItemIds(anyList())).thenReturn(readStories);
+        when(readStoriesDao.selectItemIds(any(long[].class))).thenReturn(readIds);
+        SavedStoriesDao savedStoriesDao = mock(SavedStoriesDao.class);
+        when(savedStoriesDao.selectByItemIds(anyList())).thenReturn(Collections.emptyList());
+        when(savedStoriesDao.selectItemIds(any(long[].class))).thenReturn(Collections.emptyList());
+        mCache = new Cache(mock(MaterialisticDatabase.class), savedStoriesDao, readStoriesDao,
+                mock(ReadableDao.class), Schedulers.trampoline());
+    }
+
+    @Test
+    public void benchmarkBatch() {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        assumeTrue(threadBean != null);
+        List<String> stringIds = new ArrayList<>();
+        for (long id : mIds) {
+            stringIds.add(String.valueOf(id));
+        }
+        assertArrayEquals(toArray(mCache.isViewed(stringIds)), mCache.isViewed(mIds));
+
+        long stringBytes = measure(threadBean, this::stringBatch);
+        long longBytes = measure(threadBean, this::longBatch);
+        System.out.println("Allocated per " + BATCH_SIZE + " item batch: string IDs " +
+                stringBytes + " bytes, long IDs " + longBytes + " bytes");
+        assertTrue(longBytes < stringBytes);
+    }
+
+    /**
+     * Prepares a batch as it used to be: pending IDs formatted into a set, then looked up
+     * as a list, with results boxed.
+     */
+    private List<Boolean> stringBatch() {
+        Set<String> pending = new HashSet<>();
+        for (long id : mIds) {
+            pending.add(String.valueOf(id));
+        }
+        List<String> ids = Arrays.asList(pending.toArray(new String[0]));
+        List<Boolean> viewed = mCache.isViewed(ids);
+        mCache.isFavorite(ids);
+        return viewed;
+    }
+
+    /**
+     * Prepares a batch with primitive IDs and results throughout.
+     */
+    private boolean[] longBatch() {
+        long[] pending = new long[16];
+        int count = 0;
+        for (long id : mIds) {
+            if (count == pending.length) {
+                pending = Arrays.copyOf(pending, count * 2);
+            }
+            pending[count++] = id;
+        }
+        long[] ids = Arrays.copyOf(pending, count);
+        boolean[] viewed = mCache.isViewed(ids);
+        mCache.isFavorite(ids);
+        return viewed;
+    }
+
+    private static boolean[] toArray(List<Boolean> list) {
+        boolean[] array = new boolean[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadBean.isThreadAllocatedMemorySupported() &&
+                threadBean.isThreadAllocatedMemoryEnabled() ? threadBean : null;
+    }
+
+    private static long measure(com.sun.management.ThreadMXBean threadBean, Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            operation.run();
+        }
+        return (threadBean.getThreadAllocatedBytes(threadId) - start) / MEASUREMENT_ITERATIONS;
+    }
+}
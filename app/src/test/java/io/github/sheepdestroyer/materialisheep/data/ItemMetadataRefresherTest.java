@@ -0,0 +1,238 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class ItemMetadataRefresherTest {
+    private AlgoliaClient.RestService mRestService;
+    private ItemManager mHackerNewsClient;
+    private ItemRegistry mRegistry;
+    private ItemMetadataRefresher mRefresher;
+    private ResponseListener<Item[]> mListener;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        RestServiceFactory factory = mock(RestServiceFactory.class);
+        when(factory.rxEnabled(anyBoolean())).thenReturn(factory);
+        mRestService = mock(AlgoliaClient.RestService.class);
+        when(factory.create(anyString(), eq(AlgoliaClient.RestService.class)))
+                .thenReturn(mRestService);
+        mHackerNewsClient = mock(ItemManager.class);
+        when(mHackerNewsClient.streamItems(any(long[].class), anyInt(), anyLong(), any()))
+                .thenAnswer(invocation -> Disposable.empty());
+        SessionManager sessionManager = mock(SessionManager.class);
+        when(sessionManager.isViewed(any(long[].class))).thenAnswer(invocation ->
+                Observable.just(new boolean[invocation.<long[]>getArgument(0).length]));
+        FavoriteManager favoriteManager = mock(FavoriteManager.class);
+        when(favoriteManager.check(any(long[].class))).thenAnswer(invocation ->
+                Observable.just(new boolean[invocation.<long[]>getArgument(0).length]));
+        mRegistry = new ItemRegistry();
+        mRefresher = new ItemMetadataRefresher(factory, mHackerNewsClient, mRegistry,
+                sessionManager, favoriteManager, Schedulers.trampoline(), Schedulers.trampoline());
+        mListener = mock(ResponseListener.class);
+    }
+
+    @Test
+    public void testRefresh() {
+        HackerNewsItem first = load(createItem(1));
+        load(createItem(2));
+        when(mRestService.searchByTagsRx("(story_1,story_2)", 2))
+                .thenReturn(Observable.just(createHits(createHit(1, 42, 7))));
+
+        mRefresher.refresh(new long[]{1, 2, 3}, 16, mListener);
+
+        verify(mListener).onResponse(new Item[]{first});
+        assertEquals(42, first.getScore());
+        assertEquals(7, first.getDescendants());
+        assertEquals("<p>text</p>", first.getText()); // loaded content is kept
+        // missed by Algolia, or never loaded
+        verify(mHackerNewsClient).streamItems(eq(new long[]{2, 3}), eq(ItemManager.MODE_NETWORK),
+                eq(16L), same(mListener));
+    }
+
+    @Test
+    public void testNothingLoaded() {
+        mRefresher.refresh(new long[]{1, 2}, 16, mListener);
+        verify(mRestService, never()).searchByTagsRx(anyString(), anyInt());
+        verify(mListener, never()).onResponse(any());
+        verify(mHackerNewsClient).streamItems(eq(new long[]{1, 2}), eq(ItemManager.MODE_NETWORK),
+                anyLong(), same(mListener));
+    }
+
+    @Test
+    public void testAlgoliaError() {
+        load(createItem(1));
+        when(mRestService.searchByTagsRx(anyString(), anyInt()))
+                .thenReturn(Observable.error(new IOException()));
+        mRefresher.refresh(new long[]{1}, 16, mListener);
+        verify(mListener, never()).onError(any());
+        verify(mHackerNewsClient).streamItems(eq(new long[]{1}), eq(ItemManager.MODE_NETWORK),
+                anyLong(), same(mListener));
+    }
+
+    @Test
+    public void testBatches() {
+        long[] ids = new long[120];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+            load(createItem(ids[i]));
+        }
+        AlgoliaClient.Hit[] hits = new AlgoliaClient.Hit[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            hits[i] = createHit(ids[i], 1, 1);
+        }
+        when(mRestService.searchByTagsRx(anyString(), anyInt()))
+                .thenReturn(Observable.just(createHits(hits)));
+        Item[][] refreshed = new Item[3][];
+        int[] count = new int[1];
+        mRefresher.refresh(ids, 16, new ResponseListener<Item[]>() {
+            @Override
+            public void onResponse(Item[] response) {
+                refreshed[count[0]++] = response;
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+            }
+        });
+        assertEquals(3, count[0]); // batches of 50
+        assertEquals(50, refreshed[0].length);
+        assertEquals(20, refreshed[2].length);
+        verify(mHackerNewsClient, never()).streamItems(any(long[].class), anyInt(), anyLong(),
+                any());
+    }
+
+    @Test
+    public void testStaleMetadata() {
+        HackerNewsItem canonical = load(createItem(1));
+        when(mRestService.searchByTagsRx(anyString(), anyInt()))
+                .thenReturn(Observable.just(createHits(createHit(1, 0, 1))));
+        mRefresher.refresh(new long[]{1}, 16, mListener);
+        verify(mListener).onResponse(new Item[]{canonical});
+        assertEquals(1, canonical.getScore());
+        assertEquals(2, canonical.getDescendants());
+    }
+
+    @Test
+    public void testRefreshAgainWithNewComments() {
+        HackerNewsItem first = load(createItem(1));
+        load(createItem(2));
+        when(mRestService.searchByTagsRx("(story_1,story_2)", 2))
+                .thenReturn(Observable.just(createHits(createHit(1, 5, 5), createHit(2, 5, 5))))
+                .thenReturn(Observable.just(createHits(createHit(1, 9, 9), createHit(2, 9, 9))));
+
+        mRefresher.refresh(new long[]{1, 2}, 16, mListener);
+        mRefresher.refresh(new long[]{1, 2}, 16, mListener);
+
+        // stories with new comments are still refreshed by one Algolia request
+        verify(mRestService, times(2)).searchByTagsRx("(story_1,story_2)", 2);
+        verify(mHackerNewsClient, never()).streamItems(any(long[].class), anyInt(), anyLong(),
+                any());
+        assertEquals(9, first.getDescendants());
+        assertEquals("<p>text</p>", first.getText());
+        // while their comments are fetched again once requested
+        assertNull(mRegistry.get(1, ItemRegistry.ANY_AGE));
+    }
+
+    @Test
+    public void testDisposedOnCompletion() {
+        load(createItem(1));
+        when(mRestService.searchByTagsRx(anyString(), anyInt()))
+                .thenReturn(Observable.just(createHits(createHit(1, 42, 2))));
+        assertTrue(mRefresher.refresh(new long[]{1}, 16, mListener).isDisposed());
+
+        // disposed once Hacker News requests for missed stories are done
+        Disposable stream = Disposable.empty();
+        when(mHackerNewsClient.streamItems(any(long[].class), anyInt(), anyLong(), any()))
+                .thenReturn(stream);
+        Disposable request = mRefresher.refresh(new long[]{1, 2}, 16, mListener);
+        assertFalse(request.isDisposed());
+        stream.dispose();
+        assertTrue(request.isDisposed());
+
+        // disposed on error
+        doThrow(new RuntimeException()).when(mListener).onResponse(any());
+        assertTrue(mRefresher.refresh(new long[]{1}, 16, mListener).isDisposed());
+    }
+
+    @Test
+    public void testCanonicalItemRefreshed() {
+        HackerNewsItem canonical = load(createItem(1));
+        when(mRestService.searchByTagsRx(anyString(), anyInt()))
+                .thenReturn(Observable.just(createHits(createHit(1, 100, 50))));
+        Item[][] refreshed = new Item[1][];
+        mRefresher.refresh(new long[]{1}, 16, new ResponseListener<Item[]>() {
+            @Override
+            public void onResponse(Item[] response) {
+                refreshed[0] = response;
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+            }
+        });
+        assertSame(canonical, refreshed[0][0]);
+        assertArrayEquals(new long[]{2, 3}, canonical.getKids());
+        assertEquals(100, canonical.getScore());
+    }
+
+    private HackerNewsItem load(HackerNewsItem item) {
+        mRegistry.put(item);
+        return mRegistry.publish(item);
+    }
+
+    private static HackerNewsItem createItem(long id) {
+        return new Gson().fromJson("{\"id\":" + id + ",\"type\":\"story\",\"by\":\"author\"," +
+                "\"time\":1234567890,\"title\":\"title\",\"text\":\"<p>text</p>\"," +
+                "\"score\":1,\"kids\":[2,3],\"descendants\":2}", HackerNewsItem.class);
+    }
+
+    private static AlgoliaClient.Hit createHit(long id, int points, int comments) {
+        AlgoliaClient.Hit hit = new AlgoliaClient.Hit();
+        hit.objectID = String.valueOf(id);
+        hit.title = "title";
+        hit.author = "author";
+        hit.points = points;
+        hit.num_comments = comments;
+        hit.created_at_i = 1234567890L;
+        return hit;
+    }
+
+    private static AlgoliaClient.AlgoliaHits createHits(AlgoliaClient.Hit... hits) {
+        AlgoliaClient.AlgoliaHits algoliaHits = new AlgoliaClient.AlgoliaHits();
+        algoliaHits.hits = hits;
+        return algoliaHits;
+    }
+}
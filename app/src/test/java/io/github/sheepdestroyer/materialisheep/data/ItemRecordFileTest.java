@@ -0,0 +1,340 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import android.os.Parcel;
+
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class ItemRecordFileTest {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 20;
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        HackerNewsItem story = createItem("{\"id\":8863,\"type\":\"story\",\"by\":\"dhouston\"," +
+                "\"time\":1175714200,\"title\":\"My YC app: Dropbox\",\"score\":111," +
+                "\"url\":\"http://www.getdropbox.com/u/2/screencast.html\",\"descendants\":71," +
+                "\"kids\":[9224,8917,8952,8884,8887,8869]}", 3);
+        HackerNewsItem comment = createItem("{\"id\":2921983,\"type\":\"comment\"," +
+                "\"by\":\"norvig\",\"parent\":2921506,\"time\":1314211127," +
+                "\"text\":\"Aw shucks, guys ... you make me blush \\u00e9\\u4e2d\\ud83d\\ude00\"," +
+                "\"kids\":[]}", 1);
+        HackerNewsItem dead = createItem("{\"id\":42,\"deleted\":true,\"dead\":true}", 2);
+        HackerNewsItem placeholder = new HackerNewsItem(7);
+        placeholder.rank = 4;
+
+        ItemRecordFile file = ItemRecordFile.wrap(ByteBuffer.wrap(ItemRecordFile.encode(
+                Arrays.asList(story, comment, dead, placeholder))));
+        assertEquals(4, file.size());
+        assertItemEquals(story, file.get(0).toItem());
+        assertItemEquals(comment, file.get(1).toItem());
+        assertItemEquals(dead, file.get(2).toItem());
+        assertEquals(0, file.get(1).toItem().getKids().length);
+        assertNull(file.get(2).getKids());
+
+        ItemRecordFile.Record record = file.find(7);
+        assertFalse(record.isLoaded());
+        assertEquals(4, record.getRank());
+        HackerNewsItem restored = record.toItem();
+        assertEquals(7, restored.getLongId());
+        assertTrue(restored.getLocalRevision() < 0);
+        assertNull(file.find(8));
+        assertEquals("norvig", file.find(2921983).getBy());
+        assertEquals(2921506, file.find(2921983).getParent());
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        List<HackerNewsItem> items = createRandomItems(new Random(1), 100);
+        File file = mFolder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(ItemRecordFile.encode(items));
+        }
+        ItemRecordFile records = ItemRecordFile.map(file);
+        for (int i = 0; i < items.size(); i++) {
+            assertItemEquals(items.get(i), records.get(i).toItem());
+            assertItemEquals(items.get(i), records.find(items.get(i).getLongId()).toItem());
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        ItemRecordFile file = ItemRecordFile.wrap(ByteBuffer.wrap(
+                ItemRecordFile.encode(Collections.emptyList())));
+        assertEquals(0, file.size());
+        assertNull(file.find(1));
+    }
+
+    @Test
+    public void testDuplicateIds() throws IOException {
+        HackerNewsItem first = createItem("{\"id\":1,\"title\":\"first\"}", 1);
+        HackerNewsItem second = createItem("{\"id\":1,\"title\":\"second\"}", 2);
+        ItemRecordFile file = ItemRecordFile.wrap(ByteBuffer.wrap(
+                ItemRecordFile.encode(Arrays.asList(first, second))));
+        assertEquals(2, file.size());
+        assertEquals(1, file.find(1).getId());
+    }
+
+    @Test
+    public void testSharedStrings() throws IOException {
+        List<HackerNewsItem> items = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            items.add(createItem("{\"id\":" + i + ",\"type\":\"story\",\"by\":\"pg\"}", i));
+        }
+        byte[] shared = ItemRecordFile.encode(items);
+        items.set(9, createItem("{\"id\":10,\"type\":\"story\",\"by\":\"dang\"}", 10));
+        // one more pool entry, "dang" is 4 bytes plus 1 byte length
+        assertEquals(shared.length + 5, ItemRecordFile.encode(items).length);
+    }
+
+    @Test
+    public void testRandomRoundTrip() throws IOException {
+        Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            List<HackerNewsItem> items = createRandomItems(random, random.nextInt(50));
+            ItemRecordFile file = ItemRecordFile.wrap(ByteBuffer.wrap(
+                    ItemRecordFile.encode(items)));
+            assertEquals(items.size(), file.size());
+            for (int i = 0; i < items.size(); i++) {
+                assertItemEquals(items.get(i), file.get(i).toItem());
+            }
+        }
+    }
+
+    @Test
+    public void testFuzzCorruption() {
+        Random random = new Random(7);
+        byte[] valid = ItemRecordFile.encode(createRandomItems(random, 20));
+        int rejected = 0;
+        for (int run = 0; run < 2000; run++) {
+            byte[] corrupt;
+            if (run % 4 == 0) { // truncated
+                corrupt = Arrays.copyOf(valid, random.nextInt(valid.length));
+            } else { // flipped bytes
+                corrupt = valid.clone();
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+                }
+            }
+            ItemRecordFile file;
+            try {
+                file = ItemRecordFile.wrap(ByteBuffer.wrap(corrupt));
+            } catch (IOException e) {
+                rejected++;
+                continue;
+            }
+            // accepted files may have wrong content, but must never read out of bounds
+            for (int i = 0; i < file.size(); i++) {
+                ItemRecordFile.Record record = file.get(i);
+                record.toItem();
+                record.getKids();
+                assertEquals(record.getId(), file.find(record.getId()).getId());
+            }
+        }
+        assertTrue(rejected > 0);
+    }
+
+    @Test
+    public void testInvalidHeader() {
+        byte[] valid = ItemRecordFile.encode(Collections.emptyList());
+        byte[] wrongMagic = valid.clone();
+        wrongMagic[0] = 0;
+        byte[] wrongVersion = valid.clone();
+        wrongVersion[7] = 2;
+        for (byte[] bytes : new byte[][]{new byte[0], wrongMagic, wrongVersion}) {
+            try {
+                ItemRecordFile.wrap(ByteBuffer.wrap(bytes));
+                fail();
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Compares size and encode/decode time of 500 items against Gson and Parcel, and cost of
+     * reading a single item by id, which the other formats can only do after a full decode.
+     */
+    @Test
+    public void benchmark() {
+        List<HackerNewsItem> items = createRandomItems(new Random(500), 500);
+        HackerNewsItem[] array = items.toArray(new HackerNewsItem[0]);
+        Gson gson = new Gson();
+
+        byte[] records = ItemRecordFile.encode(items);
+        long recordsEncode = measure(() -> ItemRecordFile.encode(items));
+        long recordsDecode = measure(() -> {
+            ItemRecordFile file = wrap(records);
+            for (int i = 0; i < file.size(); i++) {
+                file.get(i).toItem();
+            }
+        });
+        long lastId = items.get(items.size() - 1).getLongId();
+        long recordsFind = measure(() -> wrap(records).find(lastId).getTitle());
+
+        byte[] json = gson.toJson(array).getBytes();
+        long gsonEncode = measure(() -> gson.toJson(array).getBytes());
+        long gsonDecode = measure(() -> gson.fromJson(new String(json), HackerNewsItem[].class));
+
+        Parcel parcel = Parcel.obtain();
+        parcel.writeTypedArray(array, 0);
+        byte[] parcelled = parcel.marshall();
+        parcel.recycle();
+        long parcelEncode = measure(() -> {
+            Parcel p = Parcel.obtain();
+            p.writeTypedArray(array, 0);
+            p.marshall();
+            p.recycle();
+        });
+        long parcelDecode = measure(() -> {
+            Parcel p = Parcel.obtain();
+            p.unmarshall(parcelled, 0, parcelled.length);
+            p.setDataPosition(0);
+            p.createTypedArray(HackerNewsItem.CREATOR);
+            p.recycle();
+        });
+
+        System.out.println("500 items, size / encode / decode all:");
+        System.out.println("  records " + records.length + " bytes / " + recordsEncode / 1000 +
+                " us / " + recordsDecode / 1000 + " us, find one by id " + recordsFind / 1000 +
+                " us");
+        System.out.println("  gson    " + json.length + " bytes / " + gsonEncode / 1000 +
+                " us / " + gsonDecode / 1000 + " us");
+        System.out.println("  parcel  " + parcelled.length + " bytes / " + parcelEncode / 1000 +
+                " us / " + parcelDecode / 1000 + " us");
+        assertTrue(records.length < json.length);
+        assertTrue(recordsFind < gsonDecode);
+    }
+
+    static List<HackerNewsItem> createRandomItems(Random random, int count) {
+        List<HackerNewsItem> items = new ArrayList<>();
+        long id = random.nextInt(1000);
+        for (int i = 0; i < count; i++) {
+            id += 1 + random.nextInt(1000);
+            if (random.nextInt(10) == 0) {
+                HackerNewsItem placeholder = new HackerNewsItem(id);
+                placeholder.rank = i + 1;
+                items.add(placeholder);
+                continue;
+            }
+            StringBuilder json = new StringBuilder("{\"id\":").append(id);
+            json.append(",\"type\":").append(new Gson().toJson(
+                    random.nextBoolean() ? "story" : random.nextBoolean() ? "comment" : null));
+            json.append(",\"by\":").append(new Gson().toJson(randomString(random, 15)));
+            json.append(",\"title\":").append(new Gson().toJson(randomString(random, 80)));
+            json.append(",\"text\":").append(new Gson().toJson(randomString(random, 2000)));
+            json.append(",\"url\":").append(new Gson().toJson(randomString(random, 200)));
+            json.append(",\"time\":").append(random.nextInt(Integer.MAX_VALUE));
+            json.append(",\"score\":").append(random.nextInt(5000));
+            json.append(",\"descendants\":").append(random.nextInt(2000) - 1);
+            json.append(",\"parent\":").append(random.nextInt(Integer.MAX_VALUE));
+            json.append(",\"dead\":").append(random.nextBoolean());
+            json.append(",\"deleted\":").append(random.nextBoolean());
+            if (random.nextBoolean()) {
+                json.append(",\"kids\":[");
+                int kidCount = random.nextInt(300);
+                for (int k = 0; k < kidCount; k++) {
+                    json.append(k > 0 ? "," : "").append(random.nextBoolean() ?
+                            id + random.nextInt(100000) : Math.abs(random.nextLong()));
+                }
+                json.append("]");
+            }
+            items.add(createItem(json.append("}").toString(), i + 1));
+        }
+        return items;
+    }
+
+    private static String randomString(Random random, int maxLength) {
+        if (random.nextInt(5) == 0) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(maxLength);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.append((char) (0x4e00 + random.nextInt(0x5000))); // CJK
+                    break;
+                case 1:
+                    builder.appendCodePoint(0x1f600 + random.nextInt(0x50)); // emoji
+                    break;
+                default:
+                    builder.append((char) (' ' + random.nextInt(95)));
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static ItemRecordFile wrap(byte[] bytes) {
+        try {
+            return ItemRecordFile.wrap(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static long measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+
+    private static HackerNewsItem createItem(String json, int rank) {
+        HackerNewsItem item = new Gson().fromJson(json, HackerNewsItem.class);
+        item.rank = rank;
+        item.setLocalRevision(1);
+        return item;
+    }
+
+    private static void assertItemEquals(HackerNewsItem expected, HackerNewsItem actual) {
+        assertEquals(expected.getLongId(), actual.getLongId());
+        assertEquals(expected.getRank(), actual.getRank());
+        assertEquals(expected.getLocalRevision() > 0, actual.getLocalRevision() > 0);
+        if (expected.getLocalRevision() <= 0) {
+            return;
+        }
+        assertEquals(expected.getRawType(), actual.getRawType());
+        assertEquals(expected.getBy(), actual.getBy());
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getText(), actual.getText());
+        assertEquals(expected.isDead(), actual.isDead());
+        assertEquals(expected.isDeleted(), actual.isDeleted());
+        assertEquals(expected.getParent(), actual.getParent());
+        assertArrayEquals(expected.getKids(), actual.getKids());
+        assertEquals(expected.getRawUrl(), actual.getRawUrl());
+        assertEquals(expected.getScore(), actual.getScore());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescendants(), actual.getDescendants());
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class ItemRegistryTest {
+    private ItemRegistry mRegistry;
+
+    @Before
+    public void setUp() {
+        mRegistry = new ItemRegistry();
+    }
+
+    @Test
+    public void testPut() {
+        HackerNewsItem fetched = createItem(1, "first");
+        mRegistry.put(fetched);
+        HackerNewsItem content = mRegistry.get(1, ItemRegistry.ANY_AGE);
+        assertNotNull(content);
+        assertNotSame(fetched, content);
+        assertEquals("first", content.getTitle());
+        assertNull(mRegistry.get(2, ItemRegistry.ANY_AGE));
+        assertEquals(1, mRegistry.size());
+
+        // recorded content is not changed by its copies
+        content.incrementScore();
+        assertEquals(fetched.getScore(), mRegistry.get(1, ItemRegistry.ANY_AGE).getScore());
+    }
+
+    @Test
+    public void testPublishMerges() {
+        HackerNewsItem canonical = createItem(1, "first");
+        mRegistry.put(canonical);
+        assertSame(canonical, mRegistry.publish(canonical));
+        canonical.setIsViewed(true);
+
+        HackerNewsItem refetched = createItem(1, "second");
+        mRegistry.put(refetched);
+        assertSame(canonical, mRegistry.publish(mRegistry.get(1, ItemRegistry.ANY_AGE)));
+        assertEquals("second", canonical.getTitle());
+        assertEquals(1, mRegistry.size());
+
+        // view state is kept when merged from content not delivered to main thread
+        mRegistry.publishLater(createItem(1, "third"));
+        assertEquals("third", canonical.getTitle());
+        assertTrue(canonical.isViewed());
+    }
+
+    @Test
+    public void testMaxAge() {
+        mRegistry.put(createItem(1, "first"));
+        assertNull(mRegistry.get(1, -1)); // network only
+    }
+
+    @Test
+    public void testPartialContent() {
+        HackerNewsItem partial = mRegistry.mergeMetadata(1, "title", "https://example.com",
+                "author", 10, 5, 1234567890L);
+        assertEquals("title", partial.getTitle());
+        assertNull(mRegistry.get(1, ItemRegistry.ANY_AGE)); // not fetched
+        assertNull(mRegistry.getFetched(1));
+        HackerNewsItem canonical = mRegistry.publish(partial);
+        mRegistry.put(createItem(1, "fetched"));
+        assertSame(canonical, mRegistry.publish(mRegistry.get(1, ItemRegistry.ANY_AGE)));
+        assertEquals("fetched", canonical.getTitle());
+        assertNotNull(mRegistry.get(1, ItemRegistry.ANY_AGE));
+    }
+
+    @Test
+    public void testMergeMetadata() {
+        mRegistry.put(createItem(1, "title"));
+        HackerNewsItem merged = mRegistry.mergeMetadata(1, null, null, null, 42, 1, 0);
+        assertEquals("title", merged.getTitle());
+        assertEquals(42, merged.getScore());
+        assertEquals(2, merged.getDescendants()); // lagging comment count is ignored
+        assertNotNull(mRegistry.get(1, ItemRegistry.ANY_AGE));
+
+        // new comments make recorded content stale, though it can still be merged into
+        mRegistry.mergeMetadata(1, null, null, null, 1, 7, 0);
+        assertNull(mRegistry.get(1, ItemRegistry.ANY_AGE));
+        assertEquals(7, mRegistry.getFetched(1).getDescendants());
+        assertEquals(42, mRegistry.mergeMetadata(1, null, null, null, 1, 7, 0).getScore());
+    }
+
+    @Test
+    public void testSharedAcrossSources() {
+        RestServiceFactory factory = mock(RestServiceFactory.class);
+        when(factory.rxEnabled(anyBoolean())).thenReturn(factory);
+        HackerNewsClient.RestService hnService = mock(HackerNewsClient.RestService.class);
+        when(factory.create(anyString(), eq(HackerNewsClient.RestService.class)))
+                .thenReturn(hnService);
+        AlgoliaClient.RestService algoliaService = mock(AlgoliaClient.RestService.class);
+        when(factory.create(anyString(), eq(AlgoliaClient.RestService.class)))
+                .thenReturn(algoliaService);
+        SessionManager sessionManager = mock(SessionManager.class);
+        when(sessionManager.isViewed(any(String.class))).thenReturn(Observable.just(false));
+        FavoriteManager favoriteManager = mock(FavoriteManager.class);
+        when(favoriteManager.check(any(String.class))).thenReturn(Observable.just(false));
+        HackerNewsClient hackerNewsClient = new HackerNewsClient(factory, sessionManager,
+                favoriteManager, mRegistry, mock(SearchIndex.class), mock(UserActionOutbox.class));
+        hackerNewsClient.mIoScheduler = Schedulers.trampoline();
+        hackerNewsClient.mMainThreadScheduler = Schedulers.trampoline();
+        AlgoliaClient algoliaClient = new AlgoliaClient(factory, hackerNewsClient,
+                Schedulers.trampoline(), mRegistry);
+        HackerNewsItem fetched = createItem(1, "title");
+        when(hnService.itemRx("1")).thenReturn(Observable.just(fetched));
+        AlgoliaClient.Hit hit = new AlgoliaClient.Hit();
+        hit.objectID = "1";
+        hit.title = "title";
+        hit.points = 42;
+        AlgoliaClient.AlgoliaHits hits = new AlgoliaClient.AlgoliaHits();
+        hits.hits = new AlgoliaClient.Hit[]{hit};
+        when(algoliaService.searchByDateRx(any(), any())).thenReturn(Observable.just(hits));
+
+        // loaded from HN once
+        @SuppressWarnings("unchecked")
+        ResponseListener<Item> itemListener = mock(ResponseListener.class);
+        hackerNewsClient.getItem("1", ItemManager.MODE_DEFAULT, itemListener);
+        verify(itemListener).onResponse(fetched);
+        hackerNewsClient.getItem("1", ItemManager.MODE_DEFAULT, new ResponseListener<Item>() {
+            @Override
+            public void onResponse(Item response) {
+                assertSame(fetched, response);
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+            }
+        });
+        // blocking loads, e.g. for widgets, are served from registry as well
+        Item[] items = hackerNewsClient.getItems(new long[]{1}, ItemManager.MODE_DEFAULT);
+        assertNotSame(fetched, items[0]);
+        assertEquals("title", items[0].getTitle());
+        verify(hnService).itemRx("1");
+
+        // search hit merges into loaded item, its list row is a copy of loaded content
+        Item[][] stories = new Item[1][];
+        algoliaClient.getStories("", ItemManager.MODE_DEFAULT, new ResponseListener<Item[]>() {
+            @Override
+            public void onResponse(Item[] response) {
+                stories[0] = response;
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+            }
+        });
+        Item story = stories[0][0];
+        assertNotSame(fetched, story);
+        assertEquals(1, story.getRank());
+        assertEquals(42, fetched.getScore());
+        assertEquals(42, story.getScore());
+        assertEquals(fetched.getDisplayedText().toString(), story.getDisplayedText().toString());
+        assertEquals(Item.STORY_TYPE, story.getRawType());
+    }
+
+    private static HackerNewsItem createItem(long id, String title) {
+        return new Gson().fromJson("{\"id\":" + id + ",\"type\":\"story\",\"by\":\"author\"," +
+                "\"time\":1234567890,\"title\":\"" + title + "\",\"text\":\"<p>text</p>\"," +
+                "\"kids\":[2,3],\"descendants\":2}", HackerNewsItem.class);
+    }
+}
@@ -32,8 +32,9 @@ public class MigrationTest {
 
         // Capture the migrations
         ArgumentCaptor<Migration> captor = ArgumentCaptor.forClass(Migration.class);
-        // addMigrations takes varargs, and we pass 3 migrations in setupBuilder
-        verify(builder).addMigrations(captor.capture(), captor.capture(), captor.capture());
+        // addMigrations takes varargs, and we pass 4 migrations in setupBuilder
+        verify(builder).addMigrations(captor.capture(), captor.capture(), captor.capture(),
+                captor.capture());
 
         List<Migration> migrations = captor.getAllValues();
 
@@ -53,4 +54,29 @@ public class MigrationTest {
 
         verify(db).execSQL("CREATE INDEX IF NOT EXISTS index_read_itemid ON read(itemid)");
     }
+
+    @Test
+    public void testMigration6to7() {
+        RoomDatabase.Builder<MaterialisticDatabase> builder = mock(RoomDatabase.Builder.class);
+        when(builder.addMigrations(any())).thenReturn(builder);
+        MaterialisticDatabase.setupBuilder(builder);
+        ArgumentCaptor<Migration> captor = ArgumentCaptor.forClass(Migration.class);
+        verify(builder).addMigrations(captor.capture(), captor.capture(), captor.capture(),
+                captor.capture());
+
+        Migration migration6to7 = null;
+        for (Migration m : captor.getAllValues()) {
+            if (m.startVersion == 6 && m.endVersion == 7) {
+                migration6to7 = m;
+                break;
+            }
+        }
+        assertNotNull("Migration 6->7 should be added", migration6to7);
+
+        SupportSQLiteDatabase db = mock(SupportSQLiteDatabase.class);
+        migration6to7.migrate(db);
+
+        verify(db).execSQL(MaterialisticDatabase.DbConstants.SQL_CREATE_OUTBOX_TABLE);
+        verify(db).execSQL(MaterialisticDatabase.DbConstants.SQL_CREATE_OUTBOX_INDEX);
+    }
 }
@@ -1,5 +1,7 @@
 package io.github.sheepdestroyer.materialisheep.data
 
+import io.github.sheepdestroyer.materialisheep.accounts.SessionCookieJar
+import io.github.sheepdestroyer.materialisheep.accounts.UserActionOutbox
 import io.github.sheepdestroyer.materialisheep.accounts.UserServices
 import io.github.sheepdestroyer.materialisheep.accounts.UserServicesClient
 import okhttp3.Call
@@ -84,7 +86,8 @@ class NetworkHttpsTest {
 
     @Test
     fun hackerNewsClient_usesHttps() {
-        HackerNewsClient(restServiceFactory, sessionManager, favoriteManager)
+        HackerNewsClient(restServiceFactory, sessionManager, favoriteManager, ItemRegistry(),
+                mock(SearchIndex::class.java), mock(UserActionOutbox::class.java))
 
         val urlCaptor = ArgumentCaptor.forClass(String::class.java)
         verify(restServiceFactory).create(urlCaptor.capture(), ArgumentMatchers.eq(HackerNewsClient.RestService::class.java))
@@ -94,7 +97,7 @@ class NetworkHttpsTest {
 
     @Test
     fun algoliaClient_usesHttps() {
-        AlgoliaClient(restServiceFactory, itemManager, Schedulers.trampoline())
+        AlgoliaClient(restServiceFactory, itemManager, Schedulers.trampoline(), ItemRegistry())
 
         val urlCaptor = ArgumentCaptor.forClass(String::class.java)
         verify(restServiceFactory).create(urlCaptor.capture(), ArgumentMatchers.eq(AlgoliaClient.RestService::class.java))
@@ -104,7 +107,8 @@ class NetworkHttpsTest {
 
     @Test
     fun userServicesClient_usesHttps() {
-        val client = UserServicesClient(callFactory, Schedulers.trampoline())
+        val client = UserServicesClient(callFactory, Schedulers.trampoline(),
+                mock(SessionCookieJar::class.java), mock(UserActionOutbox::class.java))
 
         // Trigger a login call to capture the request URL
         client.login("user", "pass", false, mock(UserServices.Callback::class.java))
@@ -0,0 +1,112 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Measures {@link SearchIndex} at 100k stories: build time, as items are added one by one,
+ * load time, as the persisted log is replayed on first use, and query latency, JMH style for
+ * queries: warmup iterations are discarded and the average time per query is reported for
+ * measurement iterations.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexBenchmarkTest {
+    private static final int STORIES = 100000;
+    private static final int BUILD_ITERATIONS = 3;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 20;
+    private static final String[] QUERIES = {"rust", "rust async", "pyt", "github",
+            "show hn database", "zz"};
+    private static final String[] WORDS = {"rust", "async", "python", "database", "show", "hn",
+            "ask", "why", "we", "moved", "from", "to", "the", "new", "release", "open", "source",
+            "compiler", "kernel", "linux", "startup", "funding", "ai", "model", "browser",
+            "privacy", "security", "postgres", "sqlite", "web", "assembly", "design", "paper",
+            "history", "of", "a", "tiny", "fast", "game", "engine"};
+    private static final String[] DOMAINS = {"github.com", "www.nytimes.com", "arxiv.org",
+            "blog.example.com", "medium.com", "lwn.net", "en.wikipedia.org", null};
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void benchmarkIndex() throws IOException {
+        HackerNewsItem[] stories = createStories();
+        File dir = mFolder.newFolder();
+
+        SearchIndex index = null;
+        long buildNanos = Long.MAX_VALUE;
+        for (int i = 0; i < BUILD_ITERATIONS; i++) {
+            File file = new File(dir, SearchIndex.FILE_NAME + i);
+            long start = System.nanoTime();
+            index = new SearchIndex(file, false);
+            for (HackerNewsItem story : stories) {
+                index.add(story);
+            }
+            index.flush();
+            buildNanos = Math.min(buildNanos, System.nanoTime() - start);
+        }
+        assertEquals(STORIES, index.size());
+
+        long loadNanos = Long.MAX_VALUE;
+        for (int i = 0; i < BUILD_ITERATIONS; i++) {
+            SearchIndex loaded = new SearchIndex(new File(dir, SearchIndex.FILE_NAME + i), false);
+            long start = System.nanoTime();
+            assertEquals(STORIES, loaded.size());
+            loadNanos = Math.min(loadNanos, System.nanoTime() - start);
+        }
+
+        System.out.println("Build " + STORIES + " stories: " + buildNanos / 1000000 + " ms, " +
+                new File(dir, SearchIndex.FILE_NAME + 0).length() / 1024 + " KB on disk");
+        System.out.println("Load " + STORIES + " stories: " + loadNanos / 1000000 + " ms");
+        SearchIndex searchIndex = index;
+        for (String query : QUERIES) {
+            int results = searchIndex.search(query, false, SearchIndex.MAX_RESULTS).size();
+            long relevanceNanos = measure(() ->
+                    searchIndex.search(query, false, SearchIndex.MAX_RESULTS));
+            long timeNanos = measure(() ->
+                    searchIndex.search(query, true, SearchIndex.MAX_RESULTS));
+            System.out.println("Query \"" + query + "\": " + results + " results, " +
+                    relevanceNanos / 1000 + " us by relevance, " +
+                    timeNanos / 1000 + " us by time");
+        }
+        assertFalse(searchIndex.search("rust async", false, SearchIndex.MAX_RESULTS).isEmpty());
+    }
+
+    private static HackerNewsItem[] createStories() {
+        Random random = new Random(42);
+        HackerNewsItem[] stories = new HackerNewsItem[STORIES];
+        for (int i = 0; i < STORIES; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 0, words = 4 + random.nextInt(8); j < words; j++) {
+                title.append(j > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            title.append(' ').append(Integer.toString(i, 36)); // some unique words too
+            String domain = DOMAINS[random.nextInt(DOMAINS.length)];
+            stories[i] = SearchIndexTest.createStory(40000000L + i, title.toString(),
+                    "user" + random.nextInt(20000),
+                    domain != null ? "https://" + domain + "/" + i : null,
+                    1700000000L + i);
+        }
+        return stories;
+    }
+
+    private static long measure(Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+}
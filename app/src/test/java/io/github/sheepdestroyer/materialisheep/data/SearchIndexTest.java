@@ -0,0 +1,173 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private File mFile;
+    private SearchIndex mIndex;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = new File(mFolder.newFolder(), SearchIndex.FILE_NAME);
+        mIndex = new SearchIndex(mFile, true);
+        mIndex.add(createStory(1, "Rust async book", "alice", "https://www.rust-lang.org/book",
+                100));
+        mIndex.add(createStory(2, "Async Python in practice", "bob",
+                "https://python.org/async", 200));
+        mIndex.add(createStory(3, "Why we left Rust", "carol", "https://blog.example.com/rust",
+                300));
+    }
+
+    @Test
+    public void testAllWordsMatch() {
+        assertIds(search("rust async", false), 1);
+        assertIds(search("async", true), 2, 1);
+        assertEquals(0, search("rust python", false).size());
+    }
+
+    @Test
+    public void testFields() {
+        assertIds(search("bob", false), 2);
+        assertIds(search("rust-lang.org", false), 1);
+        assertIds(search("python org", false), 2);
+    }
+
+    @Test
+    public void testRanking() {
+        // title matches rank above domain matches, then newer first
+        assertIds(search("rust", false), 3, 1);
+        mIndex.add(createStory(4, "Learning Go", "dave", "https://rust.example.com", 400));
+        assertIds(search("rust", false), 3, 1, 4);
+        assertIds(search("rust", true), 4, 3, 1);
+    }
+
+    @Test
+    public void testPrefix() {
+        assertIds(search("rust asy", false), 1);
+        assertIds(search("pyth", false), 2);
+        assertEquals(0, search("rus async", false).size()); // only last word is a prefix
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        mIndex.add(createStory(1, "Go generics", "alice", null, 100));
+        assertIds(search("rust", false), 3);
+        assertIds(search("generics", false), 1);
+        JsonObject deleted = createJson(3, "story");
+        deleted.addProperty("deleted", true);
+        mIndex.add(new Gson().fromJson(deleted, HackerNewsItem.class));
+        assertEquals(0, search("rust", false).size());
+        assertEquals(2, mIndex.size());
+    }
+
+    @Test
+    public void testComments() {
+        mIndex.add(createComment(10, 2, "Tried <i>tokio</i> for this, it&#x27;s great"));
+        mIndex.add(createComment(11, 10, "Tokio runtime"));
+        mIndex.add(createComment(12, 99, "Tokio elsewhere")); // story not indexed
+        assertIds(search("tokio", false), 2);
+        assertIds(search("runtime python", false), 2);
+
+        SearchIndex index = new SearchIndex(mFile, false);
+        index.add(createStory(5, "Ask HN: Tokio", "erin", null, 500));
+        index.add(createComment(13, 5, "Tokio runtime"));
+        assertIds(index.search("runtime", false, SearchIndex.MAX_RESULTS));
+    }
+
+    @Test
+    public void testPersisted() {
+        mIndex.add(createComment(10, 2, "tokio"));
+        mIndex.flush();
+        mIndex.add(createStory(1, "Go generics", "alice", null, 100));
+        mIndex.flush();
+
+        SearchIndex index = new SearchIndex(mFile, true);
+        assertEquals(4, index.size());
+        assertIds(index.search("generics", false, SearchIndex.MAX_RESULTS), 1);
+        assertIds(index.search("tokio", false, SearchIndex.MAX_RESULTS), 2);
+        assertEquals(0, index.search("rust async", false, SearchIndex.MAX_RESULTS).size());
+    }
+
+    @Test
+    public void testUnchangedNotLogged() {
+        mIndex.flush();
+        long length = mFile.length();
+        mIndex.add(createStory(1, "Rust async book", "alice", "https://www.rust-lang.org/book",
+                100));
+        mIndex.flush();
+        assertEquals(length, mFile.length());
+        mIndex.add(createStory(1, "Rust async book, 2nd edition", "alice", null, 100));
+        mIndex.flush();
+        assertTrue(mFile.length() > length);
+    }
+
+    @Test
+    public void testTruncatedLog() throws IOException {
+        mIndex.flush();
+        long length = mFile.length();
+        mIndex.add(createStory(4, "Learning Go", "dave", null, 400));
+        mIndex.flush();
+        try (java.io.RandomAccessFile file = new java.io.RandomAccessFile(mFile, "rw")) {
+            file.setLength(length + 10); // partially written record
+        }
+        SearchIndex index = new SearchIndex(mFile, true);
+        assertEquals(3, index.size());
+        assertTrue(index.search("go", false, SearchIndex.MAX_RESULTS).isEmpty());
+    }
+
+    private List<SearchIndex.Document> search(String query, boolean sortByTime) {
+        return mIndex.search(query, sortByTime, SearchIndex.MAX_RESULTS);
+    }
+
+    private static void assertIds(List<SearchIndex.Document> documents, long... ids) {
+        assertEquals(ids.length, documents.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], documents.get(i).mId);
+        }
+    }
+
+    static HackerNewsItem createStory(long id, String title, String by, String url, long time) {
+        JsonObject json = createJson(id, "story");
+        json.addProperty("title", title);
+        json.addProperty("by", by);
+        json.addProperty("url", url);
+        json.addProperty("time", time);
+        json.addProperty("score", 10);
+        json.addProperty("descendants", 2);
+        return new Gson().fromJson(json, HackerNewsItem.class);
+    }
+
+    static HackerNewsItem createComment(long id, long parent, String text) {
+        JsonObject json = createJson(id, "comment");
+        json.addProperty("parent", parent);
+        json.addProperty("by", "someone");
+        json.addProperty("time", 1);
+        json.addProperty("text", text);
+        return new Gson().fromJson(json, HackerNewsItem.class);
+    }
+
+    private static JsonObject createJson(long id, String type) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("type", type);
+        return json;
+    }
+}
@@ -49,4 +49,18 @@ class SessionManagerTest {
         // Verify that cache is accessed after subscription
         verify(localCache, times(1)).isViewed(itemIds)
     }
+
+    @Test
+    fun isViewedArray_lazilyCallsCache() {
+        val itemIds = longArrayOf(1, 2)
+        val observable = sessionManager.isViewed(itemIds)
+
+        // Verify that cache is NOT accessed immediately
+        verifyNoInteractions(localCache)
+
+        observable.subscribe()
+
+        // Verify that cache is accessed after subscription
+        verify(localCache, times(1)).isViewed(itemIds)
+    }
 }
@@ -0,0 +1,222 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class StorySearchTest {
+    private AlgoliaClient.RestService mRestService;
+    private LocalSearchClient mLocalSearchClient;
+    private TestScheduler mScheduler;
+    private StorySearch mSearch;
+    private PublishSubject<StorySearch.Query> mQueries;
+    private PublishSubject<Object> mMore;
+    private TestObserver<Item[]> mObserver;
+
+    @Before
+    public void setUp() {
+        RestServiceFactory factory = mock(RestServiceFactory.class);
+        when(factory.rxEnabled(anyBoolean())).thenReturn(factory);
+        mRestService = mock(AlgoliaClient.RestService.class);
+        when(factory.create(anyString(), eq(AlgoliaClient.RestService.class)))
+                .thenReturn(mRestService);
+        mScheduler = new TestScheduler();
+        mLocalSearchClient = mock(LocalSearchClient.class);
+        mSearch = new StorySearch(factory, new ItemRegistry(), mLocalSearchClient,
+                Schedulers.trampoline(), mScheduler);
+        mQueries = PublishSubject.create();
+        mMore = PublishSubject.create();
+        mObserver = mSearch.search(mQueries, mMore).test();
+    }
+
+    @Test
+    public void testDebounce() {
+        when(mRestService.searchByDatePageRx(any(), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Rust async book")));
+        type("r", "ru", "rus", "rust", "rust ", "rust a", "rust as", "rust async");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        verify(mRestService)
+                .searchByDatePageRx("rust async", 0, PagedItemManager.PAGE_SIZE, null);
+        verify(mRestService, times(1)).searchByDatePageRx(any(), anyInt(), anyInt(), any());
+        mObserver.assertValueCount(1);
+    }
+
+    @Test
+    public void testStaleRequestCancelled() {
+        PublishSubject<AlgoliaClient.AlgoliaHits> stale = PublishSubject.create();
+        when(mRestService.searchByDatePageRx(eq("rust"), anyInt(), anyInt(), any()))
+                .thenReturn(stale);
+        when(mRestService.searchByDatePageRx(eq("rust async"), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Rust async book")));
+        type("rust");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(stale.hasObservers());
+        type("rust async");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertFalse(stale.hasObservers());
+        mObserver.assertValueCount(1);
+    }
+
+    @Test
+    public void testCachedSortToggle() {
+        when(mRestService.searchByDatePageRx(any(), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Recent")));
+        when(mRestService.searchPageRx(any(), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Relevant")));
+        mQueries.onNext(new StorySearch.Query("rust", true));
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mQueries.onNext(new StorySearch.Query("rust", false));
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mQueries.onNext(new StorySearch.Query(" Rust ", true));
+        mScheduler.triggerActions(); // no debounce for cached results
+        mObserver.assertValueCount(3);
+        assertEquals("Recent", mObserver.values().get(2)[0].getTitle());
+        verify(mRestService, times(1)).searchByDatePageRx(any(), anyInt(), anyInt(), any());
+        verify(mRestService, times(1)).searchPageRx(any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testPrefixReuse() {
+        when(mRestService.searchByDatePageRx(eq("rust"), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Rust async book", "Rust GUI")));
+        PublishSubject<AlgoliaClient.AlgoliaHits> pending = PublishSubject.create();
+        when(mRestService.searchByDatePageRx(eq("rust async"), anyInt(), anyInt(), any()))
+                .thenReturn(pending);
+        type("rust");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        type("rust async");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mObserver.assertValueCount(2); // provisional results while request is pending
+        assertEquals(1, mObserver.values().get(1).length);
+        assertEquals("Rust async book", mObserver.values().get(1)[0].getTitle());
+        pending.onNext(createHits("Rust async book", "Async Rust"));
+        mScheduler.triggerActions();
+        mObserver.assertValueCount(3);
+        assertEquals(2, mObserver.values().get(2).length);
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        type("  ");
+        mScheduler.triggerActions();
+        mObserver.assertValueCount(1);
+        assertEquals(0, mObserver.values().get(0).length);
+        verify(mRestService, never()).searchByDatePageRx(any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void testErrorKeepsSearching() {
+        when(mRestService.searchByDatePageRx(eq("rust"), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.error(new RuntimeException()));
+        when(mRestService.searchByDatePageRx(eq("go"), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Go")));
+        type("rust");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        type("go");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mObserver.assertNoErrors();
+        mObserver.assertValueCount(1);
+    }
+
+    @Test
+    public void testLoadMore() {
+        when(mRestService.searchByDatePageRx(eq("rust"), eq(0), anyInt(), any()))
+                .thenReturn(Observable.just(createHits(0, PagedItemManager.PAGE_SIZE)));
+        PublishSubject<AlgoliaClient.AlgoliaHits> next = PublishSubject.create();
+        when(mRestService.searchByDatePageRx(eq("rust"), eq(1), anyInt(), any()))
+                .thenReturn(next);
+        type("rust");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mMore.onNext(true);
+        mMore.onNext(true); // ignored while next page is loading
+        verify(mRestService, times(1)).searchByDatePageRx(eq("rust"), eq(1), anyInt(), any());
+        // last story of page 0 shifted to page 1
+        next.onNext(createHits(PagedItemManager.PAGE_SIZE - 1, 5));
+        next.onComplete();
+        mScheduler.triggerActions();
+        mObserver.assertValueCount(2);
+        Item[] stories = mObserver.values().get(1);
+        assertEquals(PagedItemManager.PAGE_SIZE + 4, stories.length);
+        assertEquals(PagedItemManager.PAGE_SIZE + 2, stories[PagedItemManager.PAGE_SIZE].getRank());
+        mMore.onNext(true); // last page loaded
+        mScheduler.triggerActions();
+        verify(mRestService, never()).searchByDatePageRx(eq("rust"), eq(2), anyInt(), any());
+        mObserver.assertValueCount(2);
+    }
+
+    @Test
+    public void testOfflineFallback() {
+        when(mRestService.searchByDatePageRx(eq("rust"), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.error(new IOException()));
+        Item[] local = AlgoliaClient.toItems(new ItemRegistry(), createHits("Rust offline"));
+        when(mLocalSearchClient.search("rust", true)).thenReturn(local);
+        type("rust");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        mObserver.assertValueCount(1);
+        assertEquals("Rust offline", mObserver.values().get(0)[0].getTitle());
+
+        // searched again online, as offline results are not cached
+        when(mRestService.searchByDatePageRx(eq("rust"), anyInt(), anyInt(), any()))
+                .thenReturn(Observable.just(createHits("Rust online")));
+        type("go", "rust");
+        mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals("Rust online",
+                mObserver.values().get(mObserver.values().size() - 1)[0].getTitle());
+    }
+
+    private void type(String... texts) {
+        for (String text : texts) {
+            mQueries.onNext(new StorySearch.Query(text, true));
+            mScheduler.advanceTimeBy(StorySearch.DEBOUNCE_MILLIS / 3, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static AlgoliaClient.AlgoliaHits createHits(int start, int count) {
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            titles[i] = "Rust " + (start + i + 1);
+        }
+        AlgoliaClient.AlgoliaHits hits = createHits(titles);
+        for (int i = 0; i < count; i++) {
+            hits.hits[i].objectID = String.valueOf(start + i + 1);
+        }
+        return hits;
+    }
+
+    private static AlgoliaClient.AlgoliaHits createHits(String... titles) {
+        AlgoliaClient.AlgoliaHits hits = new AlgoliaClient.AlgoliaHits();
+        hits.hits = new AlgoliaClient.Hit[titles.length];
+        for (int i = 0; i < titles.length; i++) {
+            AlgoliaClient.Hit hit = new AlgoliaClient.Hit();
+            hit.objectID = String.valueOf(i + 1);
+            hit.title = titles[i];
+            hits.hits[i] = hit;
+        }
+        return hits;
+    }
+}
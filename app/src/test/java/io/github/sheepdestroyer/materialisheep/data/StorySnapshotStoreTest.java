@@ -0,0 +1,120 @@
+package io.github.sheepdestroyer.materialisheep.data;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class StorySnapshotStoreTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private StorySnapshotStore mStore;
+
+    @Before
+    public void setUp() {
+        mStore = new StorySnapshotStore(new File(mFolder.getRoot(), "story_lists"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        HackerNewsItem loaded = createLoaded(1, 1);
+        HackerNewsItem placeholder = new HackerNewsItem(2);
+        placeholder.rank = 2;
+        mStore.write("HackerNewsClient_top",
+                StorySnapshotStore.encode(Arrays.asList(loaded, placeholder)));
+
+        Item[] items = mStore.read("HackerNewsClient_top");
+        assertEquals(2, items.length);
+        Item item = items[0];
+        assertEquals(1, item.getLongId());
+        assertEquals(1, item.getRank());
+        assertEquals("Title 1", item.getDisplayedTitle());
+        assertEquals("author", item.getBy());
+        assertEquals(1234567890L, item.getTime());
+        assertEquals("https://example.com/1", item.getUrl());
+        assertEquals(Item.STORY_TYPE, item.getRawType());
+        assertEquals(42, item.getScore());
+        assertEquals(7, item.getKidCount());
+        assertTrue(item.getLocalRevision() > 0);
+        assertEquals(2, items[1].getRank());
+        assertTrue(items[1].getLocalRevision() < 0); // to be loaded
+    }
+
+    @Test
+    public void testSections() {
+        mStore.write("HackerNewsClient_top", StorySnapshotStore.encode(
+                Arrays.asList(createLoaded(1, 1))));
+        mStore.write("HackerNewsClient_new", StorySnapshotStore.encode(
+                Arrays.asList(createLoaded(2, 1), createLoaded(3, 2))));
+        assertEquals(1, mStore.read("HackerNewsClient_top").length);
+        assertEquals(2, mStore.read("HackerNewsClient_new").length);
+        assertNull(mStore.read("HackerNewsClient_best"));
+        // overwritten
+        mStore.write("HackerNewsClient_top", StorySnapshotStore.encode(new ArrayList<>()));
+        assertEquals(0, mStore.read("HackerNewsClient_top").length);
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws IOException {
+        byte[] snapshot = StorySnapshotStore.encode(Arrays.asList(createLoaded(1, 1)));
+        mStore.write("HackerNewsClient_top", Arrays.copyOf(snapshot, snapshot.length / 2));
+        assertNull(mStore.read("HackerNewsClient_top"));
+
+        File dir = new File(mFolder.getRoot(), "story_lists");
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "HackerNewsClient_new"))) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        }
+        assertNull(mStore.read("HackerNewsClient_new"));
+        assertEquals(0, dir.list((d, name) -> name.equals("HackerNewsClient_new")).length);
+    }
+
+    /**
+     * Measures time to first meaningful list: reading a full snapshot, which renders on first
+     * frame, against nothing to render until stories are fetched and loaded.
+     */
+    @Test
+    public void testReadDuration() {
+        List<Item> stories = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            stories.add(createLoaded(i, i));
+        }
+        byte[] snapshot = StorySnapshotStore.encode(stories);
+        mStore.write("HackerNewsClient_top", snapshot);
+        for (int i = 0; i < 5; i++) { // warmup
+            mStore.read("HackerNewsClient_top");
+        }
+        long start = System.nanoTime();
+        Item[] items = mStore.read("HackerNewsClient_top");
+        long duration = (System.nanoTime() - start) / 1000;
+        System.out.println("Snapshot of " + items.length + " stories, " + snapshot.length +
+                " bytes, read in " + duration + " us; without snapshot the list waits for " +
+                "story ids and then each item over network");
+        assertEquals(500, items.length);
+    }
+
+    private static HackerNewsItem createLoaded(long id, int rank) {
+        HackerNewsItem item = new Gson().fromJson("{\"id\":" + id + ",\"type\":\"story\"," +
+                "\"title\":\"Title " + id + "\",\"by\":\"author\",\"time\":1234567890," +
+                "\"url\":\"https://example.com/" + id + "\",\"score\":42,\"descendants\":7," +
+                "\"kids\":[" + (id * 10) + "," + (id * 10 + 1) + "]}", HackerNewsItem.class);
+        item.rank = rank;
+        item.setLocalRevision(1);
+        return item;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.text.SpannableString;
+import android.widget.TextView;
+
+import androidx.core.widget.TextViewCompat;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.github.sheepdestroyer.materialisheep.AppUtils;
+import io.github.sheepdestroyer.materialisheep.data.Item;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@RunWith(RobolectricTestRunner.class)
+public class CommentTextMeasurerTest {
+    private static final String TEXT = "A comment long enough to wrap over a few lines once " +
+            "it is laid out at the narrow width this test measures it for.";
+    private CommentTextMeasurer mMeasurer;
+    private TextView mTextView;
+    private CommentTextMeasurer.Config mConfig;
+
+    @Before
+    public void setUp() {
+        mMeasurer = new CommentTextMeasurer(Schedulers.single(), Schedulers.trampoline());
+        mTextView = new TextView(ApplicationProvider.getApplicationContext());
+        mConfig = new CommentTextMeasurer.Config(TextViewCompat.getTextMetricsParams(mTextView),
+                200, 1f, mTextView.getIncludeFontPadding());
+    }
+
+    @Test
+    public void testBindAfterMeasure() throws InterruptedException {
+        // items render displayed text lazily, which may yield a new instance per call
+        List<Thread> renderThreads = new ArrayList<>();
+        Item item = mock(Item.class);
+        when(item.getLongId()).thenReturn(1L);
+        when(item.getDisplayedText()).thenAnswer(invocation -> {
+            renderThreads.add(Thread.currentThread());
+            return new SpannableString(TEXT);
+        });
+
+        CountDownLatch measured = new CountDownLatch(1);
+        mMeasurer.measure(item, mConfig, measured::countDown);
+        assertTrue(measured.await(5, TimeUnit.SECONDS));
+
+        // bound as comment rows do once measured
+        CommentTextMeasurer.Measured result = mMeasurer.get(item, mConfig);
+        assertNotNull(result);
+        assertNotNull(result.getText());
+        assertTrue(result.getLineCount() > 1);
+        AppUtils.setTextWithLinks(mTextView, result.getText());
+        assertEquals(TEXT, mTextView.getText().toString());
+        // text is only rendered on main thread
+        for (Thread thread : renderThreads) {
+            assertSame(Thread.currentThread(), thread);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Looper;
+import android.text.SpannableString;
+import android.view.ViewGroup;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.sheepdestroyer.materialisheep.MultiPaneListener;
+import io.github.sheepdestroyer.materialisheep.PreferenceStore;
+import io.github.sheepdestroyer.materialisheep.R;
+import io.github.sheepdestroyer.materialisheep.data.Item;
+import io.github.sheepdestroyer.materialisheep.data.ItemManager;
+import io.github.sheepdestroyer.materialisheep.data.WebItem;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class SharedViewPoolTest {
+    private static final int ITEM_COUNT = 10;
+    private PreferenceStore mPreferenceStore;
+    private SharedViewPool mPool;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mPreferenceStore = new PreferenceStore(context);
+        mPool = new SharedViewPool(context, mPreferenceStore,
+                Schedulers.trampoline(), Schedulers.trampoline());
+    }
+
+    @Test
+    public void testReusesRowsAcrossLists() {
+        ActivityController<TestListActivity> first = openList();
+        int inflatedForFirstList = mPool.mInflatedCount;
+        assertTrue(inflatedForFirstList > 0);
+        closeList(first);
+
+        ActivityController<TestListActivity> second = openList();
+        assertTrue(second.get().mRecyclerView.getChildCount() > 0);
+        // every row of the second list comes from the pool rather than being inflated
+        assertEquals(inflatedForFirstList, mPool.mInflatedCount);
+        closeList(second);
+    }
+
+    @Test
+    public void testPooledRowsDoNotLeakActivity() throws InterruptedException {
+        WeakReference<Activity> activity = openAndCloseList();
+        assertTrue(mPool.getRecycledViewCount(R.id.view_type_story_card) > 0);
+        for (int i = 0; i < 10 && activity.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            Thread.sleep(50);
+        }
+        assertNull(activity.get());
+    }
+
+    private WeakReference<Activity> openAndCloseList() {
+        ActivityController<TestListActivity> controller = openList();
+        WeakReference<Activity> activity = new WeakReference<>(controller.get());
+        closeList(controller);
+        return activity;
+    }
+
+    private ActivityController<TestListActivity> openList() {
+        ActivityController<TestListActivity> controller =
+                Robolectric.buildActivity(TestListActivity.class).setup();
+        TestListActivity activity = controller.get();
+        TestAdapter adapter = new TestAdapter(activity, mPool);
+        adapter.mPreferenceStore = mPreferenceStore;
+        mPool.install(activity.mRecyclerView);
+        activity.mRecyclerView.setAdapter(adapter);
+        activity.mRecyclerView.measure(0, 0);
+        activity.mRecyclerView.layout(0, 0, 480, 4800);
+        shadowOf(Looper.getMainLooper()).idle();
+        return controller;
+    }
+
+    private void closeList(ActivityController<TestListActivity> controller) {
+        controller.get().mRecyclerView.swapAdapter(null, true);
+        controller.pause().stop().destroy();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    public static class TestListActivity extends AppCompatActivity implements MultiPaneListener {
+        RecyclerView mRecyclerView;
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            setTheme(R.style.AppTheme);
+            super.onCreate(savedInstanceState);
+            mRecyclerView = new RecyclerView(this);
+            mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+            setContentView(mRecyclerView);
+        }
+
+        @Override
+        public void onItemSelected(WebItem item) {
+            // no-op
+        }
+
+        @Override
+        public WebItem getSelectedItem() {
+            return null;
+        }
+
+        @Override
+        public boolean isMultiPane() {
+            return false;
+        }
+    }
+
+    static class TestAdapter extends ListRecyclerViewAdapter<ListRecyclerViewAdapter.ItemViewHolder, Item> {
+        private final SharedViewPool mPool;
+        private final List<Item> mItems = new ArrayList<>();
+
+        TestAdapter(Context context, SharedViewPool pool) {
+            super(context, R.id.view_type_story_card, R.id.view_type_story_flat);
+            mPool = pool;
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                Item item = mock(Item.class, withSettings().stubOnly());
+                when(item.getId()).thenReturn(String.valueOf(i + 1));
+                when(item.getLongId()).thenReturn((long) i + 1);
+                when(item.getType()).thenReturn(Item.STORY_TYPE);
+                when(item.getDisplayedTime(any())).thenReturn(new SpannableString(""));
+                when(item.getDisplayedAuthor(any(), anyBoolean(), anyInt()))
+                        .thenReturn(new SpannableString(""));
+                mItems.add(item);
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return mItems.size();
+        }
+
+        @Override
+        public void onViewRecycled(ItemViewHolder holder) {
+            super.onViewRecycled(holder);
+            mPool.release(holder.itemView);
+        }
+
+        @Override
+        protected ItemViewHolder create(ViewGroup parent, int viewType) {
+            return new ItemViewHolder(mPool.inflate(mContext, R.layout.item_story, viewType, parent));
+        }
+
+        @Override
+        protected void bindItem(ItemViewHolder holder, int position) {
+            // captures this adapter, and hence its activity, like real lists do
+            holder.bindMoreOptions(anchor -> mContext.getResources(), true);
+        }
+
+        @Override
+        protected boolean isItemAvailable(Item item) {
+            return true;
+        }
+
+        @Override
+        protected Item getItem(int position) {
+            return mItems.get(position);
+        }
+
+        @Override
+        protected int getItemCacheMode() {
+            return ItemManager.MODE_DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import io.github.sheepdestroyer.materialisheep.data.Item;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class StoryListUpdateTest {
+    @Test
+    public void testFirstUpdate() {
+        StoryListUpdate update = StoryListUpdate.compute(Collections.emptyList(),
+                createItems(3, 1, 2), true);
+        assertEquals(3, update.mItems.size());
+        assertEquals("3", update.mItems.get(0).getId()); // ordered by rank
+        assertSame(update.mItems.get(1), update.mItemMap.get("1"));
+        assertTrue(update.mAdded.isEmpty());
+        assertTrue(update.mPromoted.isEmpty());
+        RecordingCallback callback = new RecordingCallback();
+        update.mDiff.dispatchUpdatesTo(callback);
+        assertEquals(3, callback.mInserted);
+        assertEquals(1, callback.mNotifications);
+    }
+
+    @Test
+    public void testAddedAndPromoted() {
+        StoryListUpdate previous = StoryListUpdate.compute(Collections.emptyList(),
+                createItems(1, 2, 3, 4), true);
+        // 1 drops off, 5 is new, 4 is promoted above 2 and 3
+        StoryListUpdate update = StoryListUpdate.compute(previous.mItems,
+                createItems(4, 2, 5, 3), true);
+        assertEquals(1, update.mAdded.size());
+        assertSame(update.mItemMap.get("5"), update.mAdded.valueAt(0));
+        assertEquals(1, update.mPromoted.size());
+        assertEquals(2, (int) update.mPromoted.get("4"));
+        RecordingCallback callback = new RecordingCallback();
+        update.mDiff.dispatchUpdatesTo(callback);
+        assertEquals(1, callback.mInserted);
+        assertEquals(1, callback.mRemoved);
+        assertEquals(1, callback.mMoved);
+    }
+
+    @Test
+    public void testShiftedNotPromoted() {
+        StoryListUpdate previous = StoryListUpdate.compute(Collections.emptyList(),
+                createItems(1, 2, 3), true);
+        StoryListUpdate update = StoryListUpdate.compute(previous.mItems,
+                createItems(2, 3), true);
+        assertTrue(update.mAdded.isEmpty());
+        assertTrue(update.mPromoted.isEmpty());
+    }
+
+    @Test
+    public void testHighlightedAgainstPrevious() {
+        // nothing displayed yet, previous stories loaded before refresh were not shown
+        StoryListUpdate update = StoryListUpdate.compute(Collections.emptyList(),
+                createItems(1, 2, 3, 4), createItems(4, 2, 5, 3), true);
+        assertEquals(4, update.mItems.size());
+        assertEquals(1, update.mAdded.size());
+        assertSame(update.mItemMap.get("5"), update.mAdded.valueAt(0));
+        assertEquals(2, (int) update.mPromoted.get("4"));
+        RecordingCallback callback = new RecordingCallback();
+        update.mDiff.dispatchUpdatesTo(callback);
+        assertEquals(4, callback.mInserted); // diffed against displayed list
+    }
+
+    @Test
+    public void testNoHighlight() {
+        StoryListUpdate previous = StoryListUpdate.compute(Collections.emptyList(),
+                createItems(1, 2), false);
+        StoryListUpdate update = StoryListUpdate.compute(previous.mItems,
+                createItems(3, 2, 1), false);
+        assertTrue(update.mAdded.isEmpty());
+        assertTrue(update.mPromoted.isEmpty());
+    }
+
+    @Test
+    public void testNullItems() {
+        StoryListUpdate update = StoryListUpdate.compute(Collections.emptyList(), null, true);
+        assertTrue(update.mItems.isEmpty());
+        assertNull(StoryListUpdate.EMPTY.mDiff);
+    }
+
+    @Test
+    public void testIndexOf() {
+        Item[] items = createItems(1, 2, 3);
+        StoryListUpdate update = StoryListUpdate.compute(Collections.emptyList(), items, true);
+        assertEquals(0, update.indexOf(items[0]));
+        assertEquals(2, update.indexOf(items[2]));
+        assertEquals(-1, update.indexOf(createItems(2)[0]));
+        assertFalse(update.mItems.contains(createItems(4)[0]));
+    }
+
+    /**
+     * Creates ranked stories from given ids, ranked in given order.
+     */
+    private static Item[] createItems(long... ids) {
+        Item[] items = new Item[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            items[i] = createItem(ids[i], i + 1);
+        }
+        return items;
+    }
+
+    private static Item createItem(long id, int rank) {
+        Item item = mock(Item.class, withSettings().stubOnly());
+        when(item.getLongId()).thenReturn(id);
+        when(item.getId()).thenReturn(String.valueOf(id));
+        when(item.getRank()).thenReturn(rank);
+        return item;
+    }
+
+    private static class RecordingCallback implements ListUpdateCallback {
+        int mInserted, mRemoved, mMoved, mChanged, mNotifications;
+
+        @Override
+        public void onInserted(int position, int count) {
+            mInserted += count;
+            mNotifications++;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mRemoved += count;
+            mNotifications++;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mMoved++;
+            mNotifications++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mChanged += count;
+            mNotifications++;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import io.github.sheepdestroyer.materialisheep.data.Item;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class ThreadStateStoreTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+    private File mDir;
+    private ThreadStateStore mStore;
+    private Item mStory;
+
+    @Before
+    public void setUp() {
+        mDir = new File(mFolder.getRoot(), "comment_threads");
+        mStore = new ThreadStateStore(mDir, Schedulers.trampoline());
+        mStory = createItem(1, 10, 11);
+    }
+
+    @Test
+    public void testMemoryRestore() {
+        SinglePageItemRecyclerViewAdapter.SavedState state = createState();
+        mStore.put("1", state);
+        assertSame(state, mStore.get("1", mStory));
+    }
+
+    @Test
+    public void testDiskRestore() {
+        mStore.put("1", createState());
+        // new process
+        SinglePageItemRecyclerViewAdapter.SavedState state =
+                new ThreadStateStore(mDir, Schedulers.trampoline()).get("1", mStory);
+        // 10 is expanded into 100, 101, then 11 and footer
+        assertEquals(5, state.size());
+        assertEquals(10, state.get(0).getLongId());
+        assertEquals("Comment 10", state.get(0).getText());
+        assertTrue(state.isExpanded("10"));
+        assertEquals(100, state.get(1).getLongId());
+        assertEquals("Comment 100", state.get(1).getText());
+        assertEquals(state.get(0).getLevel() + 1, state.get(1).getLevel());
+        assertEquals(101, state.get(2).getLongId());
+        assertTrue(state.get(2).getLocalRevision() < 0); // to be loaded
+        assertEquals(11, state.get(3).getLongId());
+        assertFalse(state.isExpanded("11"));
+        assertNull(state.get(4));
+    }
+
+    @Test
+    public void testRemove() {
+        mStore.put("1", createState());
+        mStore.remove("1");
+        assertNull(mStore.get("1", mStory));
+        assertNull(new ThreadStateStore(mDir, Schedulers.trampoline()).get("1", mStory));
+    }
+
+    @Test
+    public void testCorruptState() throws IOException {
+        byte[] encoded = ThreadStateStore.encode(createState());
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                ThreadStateStore.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, length)), mStory);
+            } catch (IOException expected) {
+                continue;
+            }
+            throw new AssertionError("Truncated to " + length);
+        }
+        assertEquals(5, ThreadStateStore.decode(ByteBuffer.wrap(encoded), mStory).size());
+    }
+
+    /**
+     * Compares saved instance state size of a large thread, before: all loaded comments
+     * parceled into the bundle, after: a flag, with thread state on disk.
+     */
+    @Test
+    public void testSavedStateSize() {
+        long[] kids = new long[1000];
+        for (int i = 0; i < kids.length; i++) {
+            kids[i] = 1000 + i;
+        }
+        Item story = createItem(1, kids);
+        SinglePageItemRecyclerViewAdapter.SavedState state =
+                new SinglePageItemRecyclerViewAdapter.SavedState(story);
+        for (int i = 0; i < state.size() - 1; i++) {
+            Item comment = state.get(i);
+            comment.populate(createItem(comment.getLongId()));
+            state.store(comment);
+        }
+        Bundle before = new Bundle(); // as comments used to be saved
+        before.putParcelableArrayList("state:adapterItems", new ArrayList<>(state.getItems()));
+        Bundle after = new Bundle();
+        after.putBoolean("state:threadSaved", true);
+        int beforeSize = sizeOf(before), afterSize = sizeOf(after);
+        int diskSize = ThreadStateStore.encode(state).length;
+        System.out.println("Saved state of 1000 comments: before " + beforeSize +
+                " bytes, after " + afterSize + " bytes, with " + diskSize + " bytes on disk");
+        assertTrue(afterSize < 100);
+        assertTrue(beforeSize > diskSize);
+    }
+
+    private SinglePageItemRecyclerViewAdapter.SavedState createState() {
+        SinglePageItemRecyclerViewAdapter.SavedState state =
+                new SinglePageItemRecyclerViewAdapter.SavedState(mStory);
+        Item first = state.get(0);
+        first.populate(createItem(10, 100, 101));
+        state.expand(first);
+        state.get(1).populate(createItem(100));
+        return state;
+    }
+
+    private static int sizeOf(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        parcel.writeBundle(bundle);
+        int size = parcel.dataSize();
+        parcel.recycle();
+        return size;
+    }
+
+    private static Item createItem(long id, long... kids) {
+        Item item = mock(Item.class);
+        when(item.getLongId()).thenReturn(id);
+        when(item.getId()).thenReturn(String.valueOf(id));
+        when(item.getRawType()).thenReturn(Item.COMMENT_TYPE);
+        when(item.getBy()).thenReturn("author");
+        when(item.getTime()).thenReturn(1234567890L);
+        when(item.getParent()).thenReturn("1");
+        when(item.getText()).thenReturn("Comment " + id);
+        when(item.getKids()).thenReturn(kids);
+        when(item.getLocalRevision()).thenReturn(1);
+        return item;
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TileBitmapCacheTest {
+    private static final int TILE_SIZE = 64;
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+    private TileBitmapCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new TileBitmapCache(TILE_SIZE, 3 * TILE_BYTES);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyDrawn() {
+        put(tile(0));
+        put(tile(1));
+        put(tile(2));
+        assertNotNull(mCache.get(tile(0))); // drawn again
+        put(tile(3));
+
+        assertNotNull(mCache.get(tile(0)));
+        assertNull(mCache.get(tile(1)));
+        assertNotNull(mCache.get(tile(2)));
+        assertNotNull(mCache.get(tile(3)));
+        assertEquals(3 * TILE_BYTES, mCache.size());
+    }
+
+    @Test
+    public void testPrefetchKeepsDrawnTiles() {
+        put(tile(0));
+        put(tile(1));
+        mCache.beginFrame();
+        assertNotNull(mCache.get(tile(0)));
+        assertNotNull(mCache.get(tile(1)));
+        assertTrue(mCache.contains(tile(1)));
+        assertFalse(mCache.contains(tile(2)));
+        assertEquals(1, mCache.getSpareTiles());
+
+        // fits in spare capacity, or evicts tiles not drawn in this frame
+        assertTrue(mCache.putPrefetched(tile(2), mCache.obtain()));
+        assertTrue(mCache.putPrefetched(tile(3), mCache.obtain()));
+        assertFalse(mCache.contains(tile(2)));
+
+        // would evict a drawn tile
+        mCache.beginFrame();
+        mCache.get(tile(0));
+        mCache.get(tile(1));
+        mCache.get(tile(3));
+        assertEquals(0, mCache.getSpareTiles());
+        assertFalse(mCache.putPrefetched(tile(4), mCache.obtain()));
+        assertTrue(mCache.contains(tile(0)));
+        assertFalse(mCache.contains(tile(4)));
+        assertEquals(1, mCache.poolSize()); // dropped tile is reused
+    }
+
+    @Test
+    public void testReuseEvictedBitmap() {
+        Bitmap evicted = put(tile(0));
+        put(tile(1));
+        put(tile(2));
+        put(tile(3));
+
+        assertEquals(1, mCache.poolSize());
+        assertSame(evicted, mCache.obtain());
+        assertEquals(0, mCache.poolSize());
+    }
+
+    @Test
+    public void testPoolBounded() {
+        for (int i = 0; i < TileBitmapCache.MAX_POOL_SIZE + 2; i++) {
+            mCache.release(mCache.obtain());
+            mCache.release(Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888));
+        }
+        assertEquals(TileBitmapCache.MAX_POOL_SIZE, mCache.poolSize());
+        // only tile sized bitmaps can be reused
+        mCache.clear();
+        mCache.release(Bitmap.createBitmap(TILE_SIZE, TILE_SIZE / 2, Bitmap.Config.ARGB_8888));
+        assertEquals(0, mCache.poolSize());
+    }
+
+    @Test
+    public void testTrimMemory() {
+        put(tile(0));
+        put(tile(1));
+        put(tile(2));
+
+        mCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertTrue(mCache.size() <= mCache.maxSize() / 2);
+        assertEquals(0, mCache.poolSize());
+
+        mCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void testSizedToMemory() {
+        TileBitmapCache cache = TileBitmapCache.create(ApplicationProvider.getApplicationContext(),
+                PdfView.TILE_SIZE);
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        assertTrue(cache.maxSize() <= maxMemory / 8);
+        assertTrue(cache.maxSize() >= 2 * PdfView.TILE_SIZE * PdfView.TILE_SIZE * 4);
+        DisplayMetrics metrics = ApplicationProvider.getApplicationContext().getResources()
+                .getDisplayMetrics();
+        // at least a screenful
+        assertTrue(cache.maxSize() >= (metrics.widthPixels / PdfView.TILE_SIZE + 1) *
+                (metrics.heightPixels / PdfView.TILE_SIZE + 1) *
+                PdfView.TILE_SIZE * PdfView.TILE_SIZE * 4);
+    }
+
+    private Bitmap put(PdfTileRenderer.Tile tile) {
+        Bitmap bitmap = mCache.obtain();
+        mCache.put(tile, bitmap);
+        return bitmap;
+    }
+
+    private PdfTileRenderer.Tile tile(int row) {
+        return new PdfTileRenderer.Tile(0, TILE_SIZE, 0, row);
+    }
+}
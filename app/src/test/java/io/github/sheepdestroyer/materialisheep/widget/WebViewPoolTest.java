@@ -0,0 +1,118 @@
+package io.github.sheepdestroyer.materialisheep.widget;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+
+import androidx.fragment.app.FragmentActivity;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class WebViewPoolTest {
+    private static final String URL = "https://example.com/article";
+    private Context mContext;
+    private WebViewPool mPool;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mPool = new WebViewPool(mContext);
+    }
+
+    @Test
+    public void testPrewarm() {
+        mPool.prewarm();
+        assertFalse(mPool.hasPrewarmed());
+        // one web view per idle period
+        assertTrue(mPool.prewarmNext());
+        assertEquals(1, mPool.size());
+        assertFalse(mPool.prewarmNext());
+        assertEquals(WebViewPool.POOL_SIZE, mPool.size());
+        assertTrue(mPool.hasPrewarmed());
+    }
+
+    @Test
+    public void testAcquirePrewarmed() {
+        mPool.prewarmNext();
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class)
+                .create().get();
+
+        CacheableWebView webView = mPool.acquire(activity);
+        assertEquals(0, mPool.size());
+        MutableContextWrapper context = (MutableContextWrapper) webView.getContext();
+        assertSame(activity, context.getBaseContext());
+
+        // pool is refilled for next time, not with the same web view
+        mPool.prewarmNext();
+        assertNotSame(webView, mPool.acquire(activity));
+    }
+
+    @Test
+    public void testAcquireCold() {
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class)
+                .create().get();
+
+        CacheableWebView webView = mPool.acquire(activity);
+        assertSame(activity, ((MutableContextWrapper) webView.getContext()).getBaseContext());
+    }
+
+    @Test
+    public void testPreconnect() {
+        assertFalse(mPool.isPreconnected(URL));
+        mPool.preconnect(URL);
+        assertTrue(mPool.isPreconnected(URL));
+        // same host, same connection
+        assertTrue(mPool.isPreconnected("https://example.com/other"));
+        assertFalse(mPool.isPreconnected("http://example.com/article"));
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(WebViewPool.PRECONNECT_TTL_MILLIS));
+        assertFalse(mPool.isPreconnected(URL));
+    }
+
+    @Test
+    public void testPreconnectNonWeb() {
+        mPool.preconnect(null);
+        mPool.preconnect("mailto:user@example.com");
+        mPool.preconnect("file:///android_asset/pdf/index.html");
+        assertFalse(mPool.isPreconnected("mailto:user@example.com"));
+        assertFalse(mPool.isPreconnected("file:///android_asset/pdf/index.html"));
+    }
+
+    @Test
+    public void testTrimMemory() {
+        mPool.prewarmNext();
+        mPool.preconnect(URL);
+
+        ((Application) mContext).onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(0, mPool.size());
+        assertFalse(mPool.isPreconnected(URL));
+    }
+
+    @Test
+    public void testFirstPaint() {
+        assertEquals(-1, mPool.getAverageFirstPaint(true, true));
+        mPool.recordFirstPaint(URL, 300, true, true);
+        mPool.recordFirstPaint(URL, 500, true, true);
+        mPool.recordFirstPaint(URL, 900, false, false);
+
+        assertEquals(400, mPool.getAverageFirstPaint(true, true));
+        assertEquals(900, mPool.getAverageFirstPaint(false, false));
+        assertEquals(-1, mPool.getAverageFirstPaint(false, true));
+    }
+}
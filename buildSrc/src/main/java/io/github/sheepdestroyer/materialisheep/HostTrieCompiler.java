@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 Ha Duy Trung
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.sheepdestroyer.materialisheep;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Compiles host names into the flat binary trie read by {@code HostTrie}, see its class doc
+ * for the layout. Used by the {@code compileAdHosts} Gradle task, and by app unit tests so that
+ * they read exactly what the build writes.
+ */
+public final class HostTrieCompiler {
+    private static final int MAGIC = 0x48545249; // HTRI
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private HostTrieCompiler() {
+    }
+
+    /**
+     * Compiles given hosts into a trie. Blank lines, comments and non ASCII hosts are skipped.
+     *
+     * @param hosts host names
+     * @return compiled trie bytes
+     */
+    public static byte[] compile(Iterable<String> hosts) {
+        TreeSet<String> reversed = new TreeSet<>();
+        for (String line : hosts) {
+            String host = line.trim().toLowerCase(Locale.US);
+            if (!host.isEmpty() && !host.startsWith("#") && isAscii(host)) {
+                reversed.add(new StringBuilder(host).reverse().toString());
+            }
+        }
+        String[] sorted = reversed.toArray(new String[0]);
+        // pending nodes as ranges of sorted hosts sharing a prefix of given depth
+        int[] lo = {0}, hi = {sorted.length}, depth = {0}, first = new int[1];
+        byte[] labels = new byte[1];
+        boolean[] terminals = new boolean[1];
+        int count = 1;
+        for (int k = 0; k < count; k++) {
+            int i = lo[k], end = hi[k], d = depth[k];
+            if (i < end && sorted[i].length() == d) {
+                terminals[k] = true;
+                i++;
+            }
+            first[k] = count;
+            while (i < end) {
+                char c = sorted[i].charAt(d);
+                int j = i;
+                while (j < end && sorted[j].charAt(d) == c) {
+                    j++;
+                }
+                if (count == lo.length) {
+                    int capacity = count * 2;
+                    lo = Arrays.copyOf(lo, capacity);
+                    hi = Arrays.copyOf(hi, capacity);
+                    depth = Arrays.copyOf(depth, capacity);
+                    first = Arrays.copyOf(first, capacity + 1);
+                    labels = Arrays.copyOf(labels, capacity);
+                    terminals = Arrays.copyOf(terminals, capacity);
+                }
+                lo[count] = i;
+                hi[count] = j;
+                depth[count] = d + 1;
+                labels[count] = (byte) c;
+                count++;
+                i = j;
+            }
+        }
+        byte[] bits = new byte[(count + 7) >> 3];
+        for (int k = 0; k < count; k++) {
+            if (terminals[k]) {
+                bits[k >> 3] |= (byte) (1 << (k & 7));
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (count + 1) * 4 + count + bits.length)
+                .order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+        for (int k = 0; k < count; k++) {
+            buffer.putInt(first[k]);
+        }
+        buffer.putInt(count);
+        buffer.put(labels, 0, count);
+        buffer.put(bits);
+        return buffer.array();
+    }
+
+    private static boolean isAscii(String host) {
+        for (int i = 0; i < host.length(); i++) {
+            if (host.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}